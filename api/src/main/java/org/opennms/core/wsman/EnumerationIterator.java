@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.w3c.dom.Node;
+
+/**
+ * Lazily iterates over the elements of an enumeration.
+ *
+ * The next page is only pulled once all of the elements from the
+ * current page have been consumed, so at most one page of elements
+ * is held in memory at any given time.
+ *
+ * Closing the iterator before reaching the end of the sequence, or failing
+ * to retrieve a page, releases the enumeration context.
+ */
+public class EnumerationIterator implements Iterator<Node>, AutoCloseable {
+
+    /**
+     * Retrieves a single page of elements.
+     */
+    @FunctionalInterface
+    public interface PageFetcher {
+        /**
+         * @param contextId the current context id, or null when fetching the first page
+         * @param nodes list in which the elements will be added
+         * @return the context id used to retrieve the next page, or null
+         * if the end of the sequence was reached
+         */
+        public String fetch(String contextId, List<Node> nodes);
+    }
+
+    private final WSManClient m_client;
+    private final String m_resourceUri;
+    private final PageFetcher m_fetcher;
+
+    private final List<Node> m_page = new ArrayList<>();
+    private int m_position = 0;
+    private String m_contextId;
+    private boolean m_started = false;
+    private boolean m_done = false;
+
+    public EnumerationIterator(WSManClient client, String resourceUri, PageFetcher fetcher) {
+        m_client = Objects.requireNonNull(client, "client cannot be null");
+        m_resourceUri = Objects.requireNonNull(resourceUri, "resourceUri cannot be null");
+        m_fetcher = Objects.requireNonNull(fetcher, "fetcher cannot be null");
+    }
+
+    /**
+     * Used by subclasses that override {@link #fetch(String, List)}.
+     */
+    protected EnumerationIterator(WSManClient client, String resourceUri) {
+        m_client = Objects.requireNonNull(client, "client cannot be null");
+        m_resourceUri = Objects.requireNonNull(resourceUri, "resourceUri cannot be null");
+        m_fetcher = null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (m_position >= m_page.size()) {
+            if (m_done || (m_started && m_contextId == null)) {
+                m_done = true;
+                return false;
+            }
+            // Drop the references to the previous page before pulling the next one
+            m_page.clear();
+            m_position = 0;
+            final String contextId = m_contextId;
+            m_started = true;
+            m_contextId = null;
+            try {
+                m_contextId = fetch(contextId, m_page);
+            } catch (RuntimeException e) {
+                m_done = true;
+                if (contextId != null) {
+                    // Don't leave the context open on the server
+                    try {
+                        release(contextId);
+                    } catch (RuntimeException releaseFailure) {
+                        e.addSuppressed(releaseFailure);
+                    }
+                }
+                throw e;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Node next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return m_page.get(m_position++);
+    }
+
+    /**
+     * Retrieves a single page of elements.
+     *
+     * @see PageFetcher#fetch(String, List)
+     */
+    protected String fetch(String contextId, List<Node> nodes) {
+        return m_fetcher.fetch(contextId, nodes);
+    }
+
+    /**
+     * Releases an enumeration context that was not fully consumed.
+     *
+     * @param contextId the current context id
+     */
+    protected void release(String contextId) {
+        m_client.release(contextId, m_resourceUri);
+    }
+
+    public String getResourceUri() {
+        return m_resourceUri;
+    }
+
+    /**
+     * @return the current context id, or null if there are no more pages
+     */
+    public String getContextId() {
+        return m_contextId;
+    }
+
+    /**
+     * Releases the enumeration context if the end of the sequence was not reached.
+     */
+    @Override
+    public void close() {
+        if (m_done) {
+            return;
+        }
+        m_done = true;
+        m_page.clear();
+        final String contextId = m_contextId;
+        m_contextId = null;
+        if (contextId != null) {
+            release(contextId);
+        }
+    }
+
+    /**
+     * Wraps the iterator in a sequential stream that closes the iterator when it is closed.
+     *
+     * @return a new stream
+     */
+    public Stream<Node> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+}
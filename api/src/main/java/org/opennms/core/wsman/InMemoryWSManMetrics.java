@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.opennms.core.wsman.WSManRequestMetrics.Operation;
+import org.opennms.core.wsman.WSManRequestMetrics.Outcome;
+import org.opennms.core.wsman.WSManRequestMetrics.Phase;
+
+/**
+ * Keeps counters and a latency histogram for every endpoint, operation
+ * and resource URI, so that slow hosts and heavy resources can be spotted
+ * without attaching a profiler.
+ *
+ * Latencies are kept in buckets whose bounds are powers of two, in microseconds,
+ * so percentiles are accurate to within a factor of two.
+ */
+public class InMemoryWSManMetrics implements WSManMetricsListener {
+
+    private final Map<String, Recorder> m_recorders = new ConcurrentHashMap<>();
+
+    @Override
+    public void onRequest(WSManRequestMetrics metrics) {
+        final String url = metrics.getEndpoint().getUrl().toExternalForm();
+        final String key = String.format("%s|%s|%s", url, metrics.getOperation(), metrics.getResourceUri());
+        m_recorders.computeIfAbsent(key, k -> new Recorder(url, metrics.getOperation(), metrics.getResourceUri()))
+            .record(metrics);
+    }
+
+    /**
+     * @return a snapshot of the statistics for all of the endpoints
+     */
+    public List<WSManRequestStats> getStats() {
+        return m_recorders.values().stream()
+                .map(Recorder::snapshot)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return a snapshot of the statistics for the given endpoint
+     */
+    public List<WSManRequestStats> getStats(WSManEndpoint endpoint) {
+        final String url = Objects.requireNonNull(endpoint, "endpoint cannot be null").getUrl().toExternalForm();
+        return getStats().stream()
+                .filter(s -> url.equals(s.getUrl()))
+                .collect(Collectors.toList());
+    }
+
+    public void clear() {
+        m_recorders.clear();
+    }
+
+    private static class Recorder {
+        private final String m_url;
+        private final Operation m_operation;
+        private final String m_resourceUri;
+
+        // All of the following are guarded by this
+        private long m_count;
+        private final Map<Outcome, Long> m_failures = new EnumMap<>(Outcome.class);
+        private long m_requestBytes;
+        private long m_responseBytes;
+        private long m_items;
+        private long m_totalDuration;
+        private long m_maxDuration;
+        private final long[] m_histogram = new long[WSManRequestStats.BUCKETS];
+        private final Map<Phase, Long> m_phases = new EnumMap<>(Phase.class);
+
+        private Recorder(String url, Operation operation, String resourceUri) {
+            m_url = url;
+            m_operation = operation;
+            m_resourceUri = resourceUri;
+        }
+
+        private synchronized void record(WSManRequestMetrics metrics) {
+            m_count++;
+            if (metrics.getOutcome() != Outcome.SUCCESS) {
+                m_failures.merge(metrics.getOutcome(), 1L, Long::sum);
+            }
+            m_requestBytes += Math.max(0, metrics.getRequestBytes());
+            m_responseBytes += Math.max(0, metrics.getResponseBytes());
+            m_items += Math.max(0, metrics.getItemCount());
+            final long duration = Math.max(0, metrics.getDuration());
+            m_totalDuration += duration;
+            m_maxDuration = Math.max(m_maxDuration, duration);
+            m_histogram[WSManRequestStats.getBucket(TimeUnit.NANOSECONDS.toMicros(duration))]++;
+            metrics.getPhases().forEach((phase, d) -> m_phases.merge(phase, d, Long::sum));
+        }
+
+        private synchronized WSManRequestStats snapshot() {
+            return new WSManRequestStats(m_url, m_operation, m_resourceUri, m_count, new EnumMap<>(m_failures),
+                    m_requestBytes, m_responseBytes, m_items, m_totalDuration, m_maxDuration, m_histogram.clone(),
+                    new EnumMap<>(m_phases));
+        }
+    }
+
+    public String toString() {
+        return String.format("InMemoryWSManMetrics[stats='%s']", new ArrayList<>(getStats()));
+    }
+}
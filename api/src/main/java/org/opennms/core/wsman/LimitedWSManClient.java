@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import org.w3c.dom.Node;
+
+/**
+ * Decorates a client with a {@link WSManHostLimiter}.
+ *
+ * Every request acquires a permit from the limiter. Recursive pulls are
+ * issued one page at a time, and streams pull their pages through this
+ * client, so that long enumerations take turns with the other callers
+ * instead of holding on to a permit until they complete.
+ *
+ * Instances are created by the {@link LimitedWSManClientFactory}.
+ */
+public class LimitedWSManClient implements WSManClient {
+
+    private final WSManClient m_delegate;
+    private final WSManHostLimiter m_limiter;
+
+    protected LimitedWSManClient(WSManClient delegate, WSManHostLimiter limiter) {
+        m_delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+        m_limiter = Objects.requireNonNull(limiter, "limiter cannot be null");
+    }
+
+    public WSManClient getDelegate() {
+        return m_delegate;
+    }
+
+    public WSManHostLimiter getLimiter() {
+        return m_limiter;
+    }
+
+    @Override
+    public Identity identify() {
+        return invoke(m_delegate::identify);
+    }
+
+    @Override
+    public Node get(String resourceUri, Map<String, String> selectors) {
+        return invoke(() -> m_delegate.get(resourceUri, selectors));
+    }
+
+    @Override
+    public String enumerate(String resourceUri) {
+        return invoke(() -> m_delegate.enumerate(resourceUri));
+    }
+
+    @Override
+    public String enumerateWithFilter(String resourceUri, String dialect, String filter) {
+        return invoke(() -> m_delegate.enumerateWithFilter(resourceUri, dialect, filter));
+    }
+
+    @Override
+    public String pull(String contextId, String resourceUri, List<Node> nodes, boolean recursive) {
+        final String nextContextId = invoke(() -> m_delegate.pull(contextId, resourceUri, nodes, false));
+        return recursive ? pullRemaining(nextContextId, resourceUri, nodes) : nextContextId;
+    }
+
+    @Override
+    public String enumerateAndPull(String resourceUri, List<Node> nodes, boolean recursive) {
+        final String contextId = invoke(() -> m_delegate.enumerateAndPull(resourceUri, nodes, false));
+        return recursive ? pullRemaining(contextId, resourceUri, nodes) : contextId;
+    }
+
+    @Override
+    public String enumerateAndPullUsingFilter(String resourceUri, String dialect, String filter, List<Node> nodes, boolean recursive) {
+        final String contextId = invoke(() -> m_delegate.enumerateAndPullUsingFilter(resourceUri, dialect, filter, nodes, false));
+        return recursive ? pullRemaining(contextId, resourceUri, nodes) : contextId;
+    }
+
+    @Override
+    public String enumerateAndPullPage(String resourceUri, String dialect, String filter, int maxElements, List<Node> nodes) {
+        return invoke(() -> m_delegate.enumerateAndPullPage(resourceUri, dialect, filter, maxElements, nodes));
+    }
+
+    @Override
+    public String pullPage(String contextId, String resourceUri, int maxElements, List<Node> nodes) {
+        return invoke(() -> m_delegate.pullPage(contextId, resourceUri, maxElements, nodes));
+    }
+
+    @Override
+    public void release(String contextId, String resourceUri) {
+        invoke(() -> {
+            m_delegate.release(contextId, resourceUri);
+            return null;
+        });
+    }
+
+    /**
+     * Pulls until the end of the sequence is reached, releasing the
+     * context if any of the pulls fail, like a recursive pull would.
+     *
+     * @return null
+     */
+    private String pullRemaining(String contextId, String resourceUri, List<Node> nodes) {
+        String nextContextId = contextId;
+        while (nextContextId != null) {
+            final String currentContextId = nextContextId;
+            try {
+                nextContextId = invoke(() -> m_delegate.pull(currentContextId, resourceUri, nodes, false));
+            } catch (RuntimeException e) {
+                try {
+                    release(currentContextId, resourceUri);
+                } catch (RuntimeException releaseFailure) {
+                    e.addSuppressed(releaseFailure);
+                }
+                throw e;
+            }
+        }
+        return null;
+    }
+
+    private <T> T invoke(Supplier<T> operation) {
+        m_limiter.acquire();
+        try {
+            return operation.get();
+        } finally {
+            m_limiter.release();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates clients that bound the load they put on every host, so that
+ * many clients can be used in parallel without exceeding the number of
+ * sessions, or the request rate, supported by embedded controllers.
+ *
+ * Limiters are kept per host and port for the lifetime of the JVM, so all of
+ * the clients communicating with a host share one limiter, even when they
+ * were created by different factories, as long as these have the same limits.
+ */
+public class LimitedWSManClientFactory implements WSManClientFactory {
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 2;
+
+    private static final Map<String, WSManHostLimiter> s_limiters = new ConcurrentHashMap<>();
+
+    private final WSManClientFactory m_delegate;
+    private final int m_maxInFlight;
+    private final double m_maxRequestsPerSecond;
+    private final int m_maxBurst;
+
+    private LimitedWSManClientFactory(Builder builder) {
+        m_delegate = builder.delegate;
+        m_maxInFlight = builder.maxInFlight;
+        m_maxRequestsPerSecond = builder.maxRequestsPerSecond;
+        m_maxBurst = builder.maxBurst;
+    }
+
+    public static class Builder {
+       private final WSManClientFactory delegate;
+       private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+       private double maxRequestsPerSecond = 0;
+       private int maxBurst = 1;
+
+       public Builder(WSManClientFactory delegate) {
+           this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+       }
+
+       /**
+        * Maximum number of requests in flight against a single host.
+        */
+       public Builder withMaxInFlight(int maxInFlight) {
+           if (maxInFlight < 1) {
+               throw new IllegalArgumentException("maxInFlight must be strictly positive");
+           }
+           this.maxInFlight = maxInFlight;
+           return this;
+       }
+
+       /**
+        * Maximum number of requests started per second against a single host.
+        * Requests are not rate limited by default.
+        */
+       public Builder withMaxRequestsPerSecond(double maxRequestsPerSecond) {
+           if (maxRequestsPerSecond <= 0) {
+               throw new IllegalArgumentException("maxRequestsPerSecond must be strictly positive");
+           }
+           this.maxRequestsPerSecond = maxRequestsPerSecond;
+           return this;
+       }
+
+       /**
+        * Maximum number of requests started at once against a single host, after it was
+        * left idle, when the rate is limited. Defaults to 1, which evenly spaces the requests.
+        */
+       public Builder withMaxBurst(int maxBurst) {
+           if (maxBurst < 1) {
+               throw new IllegalArgumentException("maxBurst must be strictly positive");
+           }
+           this.maxBurst = maxBurst;
+           return this;
+       }
+
+       public LimitedWSManClientFactory build() {
+           return new LimitedWSManClientFactory(this);
+       }
+    }
+
+    @Override
+    public LimitedWSManClient getClient(WSManEndpoint endpoint) {
+        return new LimitedWSManClient(m_delegate.getClient(endpoint), getLimiter(endpoint));
+    }
+
+    /**
+     * Retrieves the limiter shared by all of the clients communicating with the host of the given endpoint.
+     */
+    public WSManHostLimiter getLimiter(WSManEndpoint endpoint) {
+        final String key = WSManHosts.getKey(endpoint.getUrl()) + "|" + m_maxInFlight + "|" + m_maxRequestsPerSecond + "|" + m_maxBurst;
+        return s_limiters.computeIfAbsent(key, k -> new WSManHostLimiter(m_maxInFlight, m_maxRequestsPerSecond, m_maxBurst));
+    }
+}
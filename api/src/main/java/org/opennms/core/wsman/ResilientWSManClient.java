@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.opennms.core.wsman.WSManCircuitBreaker.Permit;
+import org.opennms.core.wsman.exceptions.CircuitBreakerOpenException;
+import org.opennms.core.wsman.exceptions.HTTPException;
+import org.opennms.core.wsman.exceptions.UnauthorizedException;
+import org.opennms.core.wsman.exceptions.WSManException;
+import org.w3c.dom.Node;
+
+/**
+ * Decorates a client with retries and a circuit breaker.
+ *
+ * Identify, Get and non-recursive Pull operations are retried with an
+ * exponential backoff and full jitter when they fail with a transient
+ * transport error, i.e. a connection failure, a timeout or an HTTP error
+ * other than an authentication failure. Other operations open or consume
+ * enumeration contexts on the server, and are issued once.
+ *
+ * Transport errors are reported to the circuit breaker. While the breaker
+ * is open, operations fail immediately with a {@link CircuitBreakerOpenException}.
+ * Once the open duration has elapsed, the next operation is preceded by an
+ * Identify request, which is cheap for the server to answer, and the
+ * breaker closes if it succeeds.
+ *
+ * Instances are created by the {@link ResilientWSManClientFactory}.
+ */
+public class ResilientWSManClient implements WSManClient {
+
+    private final WSManEndpoint m_endpoint;
+    private final WSManClient m_delegate;
+    private final WSManCircuitBreaker m_breaker;
+    private final int m_maxAttempts;
+    private final long m_initialBackoff;
+    private final long m_maxBackoff;
+
+    protected ResilientWSManClient(WSManEndpoint endpoint, WSManClient delegate, WSManCircuitBreaker breaker,
+            int maxAttempts, long initialBackoff, long maxBackoff) {
+        m_endpoint = Objects.requireNonNull(endpoint, "endpoint cannot be null");
+        m_delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+        m_breaker = Objects.requireNonNull(breaker, "breaker cannot be null");
+        m_maxAttempts = maxAttempts;
+        m_initialBackoff = initialBackoff;
+        m_maxBackoff = maxBackoff;
+    }
+
+    public WSManClient getDelegate() {
+        return m_delegate;
+    }
+
+    @Override
+    public Identity identify() {
+        return invoke(m_delegate::identify, true);
+    }
+
+    @Override
+    public Node get(String resourceUri, Map<String, String> selectors) {
+        return invoke(() -> m_delegate.get(resourceUri, selectors), true);
+    }
+
+    @Override
+    public String enumerate(String resourceUri) {
+        return invoke(() -> m_delegate.enumerate(resourceUri), false);
+    }
+
+    @Override
+    public String enumerateWithFilter(String resourceUri, String dialect, String filter) {
+        return invoke(() -> m_delegate.enumerateWithFilter(resourceUri, dialect, filter), false);
+    }
+
+    @Override
+    public String pull(String contextId, String resourceUri, List<Node> nodes, boolean recursive) {
+        // The context is released when a recursive pull fails, so it can't be retried
+        return invoke(() -> m_delegate.pull(contextId, resourceUri, nodes, recursive), !recursive);
+    }
+
+    @Override
+    public String enumerateAndPull(String resourceUri, List<Node> nodes, boolean recursive) {
+        return invoke(() -> m_delegate.enumerateAndPull(resourceUri, nodes, recursive), false);
+    }
+
+    @Override
+    public String enumerateAndPullUsingFilter(String resourceUri, String dialect, String filter, List<Node> nodes, boolean recursive) {
+        return invoke(() -> m_delegate.enumerateAndPullUsingFilter(resourceUri, dialect, filter, nodes, recursive), false);
+    }
+
+    @Override
+    public String enumerateAndPullPage(String resourceUri, String dialect, String filter, int maxElements, List<Node> nodes) {
+        return invoke(() -> m_delegate.enumerateAndPullPage(resourceUri, dialect, filter, maxElements, nodes), false);
+    }
+
+    @Override
+    public String pullPage(String contextId, String resourceUri, int maxElements, List<Node> nodes) {
+        return invoke(() -> m_delegate.pullPage(contextId, resourceUri, maxElements, nodes), true);
+    }
+
+    @Override
+    public void release(String contextId, String resourceUri) {
+        invoke(() -> {
+            m_delegate.release(contextId, resourceUri);
+            return null;
+        }, false);
+    }
+
+    @Override
+    public Stream<Node> enumerateAndStream(String resourceUri) {
+        // Let the delegate stream the elements in its own way, but don't start if the host is down
+        return invoke(() -> m_delegate.enumerateAndStream(resourceUri), false);
+    }
+
+    @Override
+    public Stream<Node> enumerateAndStreamUsingFilter(String resourceUri, String dialect, String filter) {
+        return invoke(() -> m_delegate.enumerateAndStreamUsingFilter(resourceUri, dialect, filter), false);
+    }
+
+    private <T> T invoke(Supplier<T> operation, boolean idempotent) {
+        final int maxAttempts = idempotent ? m_maxAttempts : 1;
+        for (int attempt = 1;; attempt++) {
+            checkCircuit();
+            try {
+                final T result = operation.get();
+                m_breaker.onSuccess();
+                return result;
+            } catch (RuntimeException e) {
+                if (!isTransient(e)) {
+                    // The server answered
+                    m_breaker.onSuccess();
+                    throw e;
+                }
+                m_breaker.onFailure();
+                if (attempt >= maxAttempts || m_breaker.getState() != WSManCircuitBreaker.State.CLOSED) {
+                    throw e;
+                }
+                sleep(getBackoff(attempt));
+            }
+        }
+    }
+
+    /**
+     * Fails if the breaker is open, or probes the host if it's time to do so.
+     */
+    private void checkCircuit() {
+        final Permit permit = m_breaker.acquire();
+        if (permit == Permit.REJECT) {
+            throw new CircuitBreakerOpenException(String.format("%s is unreachable, the circuit breaker is open.", m_endpoint.getUrl()));
+        } else if (permit == Permit.PROBE) {
+            try {
+                m_delegate.identify();
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    m_breaker.onFailure();
+                    throw new CircuitBreakerOpenException(String.format("%s is still unreachable.", m_endpoint.getUrl()), e);
+                }
+            }
+            m_breaker.onSuccess();
+        }
+    }
+
+    /**
+     * @return a random delay, in milliseconds, before the given retry
+     */
+    private long getBackoff(int attempt) {
+        // Cap the exponent so that the shift does not overflow
+        final long backoff = Math.min(m_maxBackoff, m_initialBackoff << Math.min(attempt - 1, 30));
+        return backoff > 0 ? ThreadLocalRandom.current().nextLong(backoff + 1) : 0;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WSManException("Interrupted while waiting to retry.", e);
+        }
+    }
+
+    /**
+     * Transport failures are transient, as opposed to faults returned by the server.
+     */
+    protected static boolean isTransient(RuntimeException e) {
+        if (e instanceof UnauthorizedException || e instanceof CircuitBreakerOpenException) {
+            return false;
+        } else if (e instanceof HTTPException) {
+            return true;
+        }
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates clients that retry idempotent operations when they fail with
+ * transient transport errors, and that fail fast while the host is known
+ * to be unreachable.
+ *
+ * All of the clients created by the same factory share one circuit breaker
+ * per host and port.
+ */
+public class ResilientWSManClientFactory implements WSManClientFactory {
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_INITIAL_BACKOFF = 200;
+    public static final long DEFAULT_MAX_BACKOFF = 5000;
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_DURATION = 60000;
+
+    private final WSManClientFactory m_delegate;
+    private final int m_maxAttempts;
+    private final long m_initialBackoff;
+    private final long m_maxBackoff;
+    private final int m_failureThreshold;
+    private final long m_openDuration;
+    private final Map<String, WSManCircuitBreaker> m_breakers = new ConcurrentHashMap<>();
+
+    private ResilientWSManClientFactory(Builder builder) {
+        m_delegate = builder.delegate;
+        m_maxAttempts = builder.maxAttempts;
+        m_initialBackoff = builder.initialBackoff;
+        m_maxBackoff = builder.maxBackoff;
+        m_failureThreshold = builder.failureThreshold;
+        m_openDuration = builder.openDuration;
+    }
+
+    public static class Builder {
+       private final WSManClientFactory delegate;
+       private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+       private long initialBackoff = DEFAULT_INITIAL_BACKOFF;
+       private long maxBackoff = DEFAULT_MAX_BACKOFF;
+       private int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+       private long openDuration = DEFAULT_OPEN_DURATION;
+
+       public Builder(WSManClientFactory delegate) {
+           this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+       }
+
+       /**
+        * Maximum number of times an idempotent operation is issued, including the first attempt.
+        */
+       public Builder withMaxAttempts(int maxAttempts) {
+           if (maxAttempts < 1) {
+               throw new IllegalArgumentException("maxAttempts must be strictly positive");
+           }
+           this.maxAttempts = maxAttempts;
+           return this;
+       }
+
+       /**
+        * Backoff, in milliseconds, before the first retry. The backoff doubles on every
+        * subsequent retry, up to the maximum, and the actual delay is chosen at random
+        * between zero and the backoff.
+        */
+       public Builder withBackoff(long initialBackoff, long maxBackoff) {
+           if (initialBackoff < 0 || maxBackoff < initialBackoff) {
+               throw new IllegalArgumentException("backoff must be positive, and the maximum cannot be smaller than the initial backoff");
+           }
+           this.initialBackoff = initialBackoff;
+           this.maxBackoff = maxBackoff;
+           return this;
+       }
+
+       public Builder withFailureThreshold(int failureThreshold) {
+           if (failureThreshold < 1) {
+               throw new IllegalArgumentException("failureThreshold must be strictly positive");
+           }
+           this.failureThreshold = failureThreshold;
+           return this;
+       }
+
+       /**
+        * Amount of time, in milliseconds, after which a host whose breaker is open is probed.
+        */
+       public Builder withOpenDuration(long openDuration) {
+           if (openDuration < 0) {
+               throw new IllegalArgumentException("openDuration cannot be negative");
+           }
+           this.openDuration = openDuration;
+           return this;
+       }
+
+       public ResilientWSManClientFactory build() {
+           return new ResilientWSManClientFactory(this);
+       }
+    }
+
+    @Override
+    public ResilientWSManClient getClient(WSManEndpoint endpoint) {
+        return new ResilientWSManClient(endpoint, m_delegate.getClient(endpoint), getCircuitBreaker(endpoint),
+                m_maxAttempts, m_initialBackoff, m_maxBackoff);
+    }
+
+    /**
+     * Retrieves the circuit breaker shared by all of the clients communicating with the host of the given endpoint.
+     */
+    public WSManCircuitBreaker getCircuitBreaker(WSManEndpoint endpoint) {
+        return m_breakers.computeIfAbsent(WSManHosts.getKey(endpoint.getUrl()),
+                k -> new WSManCircuitBreaker(m_failureThreshold, m_openDuration));
+    }
+}
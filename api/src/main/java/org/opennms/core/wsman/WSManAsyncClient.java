@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.opennms.core.wsman.exceptions.WSManException;
+import org.w3c.dom.Node;
+
+/**
+ * Asynchronous companion to the {@link WSManClient}.
+ *
+ * Every operation returns immediately with a future that is completed
+ * when the response is received, or completed exceptionally with a
+ * {@link WSManException} on error.
+ *
+ * Operations that pull elements add them to the given list before
+ * completing the future. The list should not be accessed until then.
+ */
+public interface WSManAsyncClient {
+
+    /**
+     * Discovers the capabilities and version information of the remote service.
+     *
+     * @return future identify response
+     */
+    public CompletableFuture<Identity> identifyAsync();
+
+    /**
+     * Retrieves a single element using the provided selectors.
+     *
+     * @param resourceUri uri
+     * @param selectors map of selectors
+     * @return future requested node
+     */
+    public CompletableFuture<Node> getAsync(String resourceUri, Map<String, String> selectors);
+
+    /**
+     * Starts a new enumeration context.
+     *
+     * @param resourceUri uri
+     * @return future context id
+     */
+    public CompletableFuture<String> enumerateAsync(String resourceUri);
+
+    /**
+     * Starts a new enumeration context using a filter.
+     *
+     * @param resourceUri uri
+     * @param dialect used by the filter
+     * @param filter query
+     * @return future context id
+     */
+    public CompletableFuture<String> enumerateWithFilterAsync(String resourceUri, String dialect, String filter);
+
+    /**
+     * Pulls elements from an existing enumeration context.
+     *
+     * @param contextId the context id
+     * @param resourceUri uri
+     * @param nodes existing list in which the pulled elements will be added
+     * @param recursive when true, the implementation will continue to pull
+     * until the 'EndOfSequence' is reached
+     * @return future next context id, when pulling recursively this will be null
+     */
+    public CompletableFuture<String> pullAsync(String contextId, String resourceUri, List<Node> nodes, boolean recursive);
+
+    /**
+     * Optimized version of the enumerate and pull operations.
+     *
+     * @param resourceUri uri
+     * @param nodes existing list in which the pulled elements will be added
+     * @param recursive when true, the implementation will continue to pull
+     * until the 'EndOfSequence' is reached
+     * @return future next context id, when pulling recursively this will be null
+     */
+    public CompletableFuture<String> enumerateAndPullAsync(String resourceUri, List<Node> nodes, boolean recursive);
+
+    /**
+     * Optimized version of the enumerate and pull operations.
+     *
+     * @param resourceUri uri
+     * @param dialect used by the filter
+     * @param filter query
+     * @param nodes existing list in which the pulled elements will be added
+     * @param recursive when true, the implementation will continue to pull
+     * until the 'EndOfSequence' is reached
+     * @return future next context id, when pulling recursively this will be null
+     */
+    public CompletableFuture<String> enumerateAndPullUsingFilterAsync(String resourceUri, String dialect, String filter, List<Node> nodes, boolean recursive);
+}
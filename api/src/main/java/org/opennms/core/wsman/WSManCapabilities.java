@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * The protocol version and product details of a server, as derived from its
+ * response to an Identify request.
+ *
+ * Servers that advertise the DMTF protocol namespace may implement any of the
+ * 1.x versions, which share the same namespace. The products known to require
+ * the pre-standard WS-Addressing namespace are recognized by their vendor, and
+ * the configured version is retained for all others.
+ */
+public class WSManCapabilities {
+
+    /**
+     * Vendors whose products use the 2004/08 WS-Addressing namespace.
+     */
+    private static final String[] WSMAN_1_0_VENDORS = new String[] {
+        "microsoft", "openwsman", "dell", "intel", "hewlett"
+    };
+
+    private final WSManVersion m_serverVersion;
+    private final String m_productVendor;
+    private final String m_productVersion;
+    private final List<String> m_protocolVersions;
+
+    protected WSManCapabilities(WSManVersion serverVersion, String productVendor, String productVersion, List<String> protocolVersions) {
+        m_serverVersion = Objects.requireNonNull(serverVersion, "serverVersion cannot be null");
+        m_productVendor = productVendor;
+        m_productVersion = productVersion;
+        m_protocolVersions = protocolVersions != null ? Collections.unmodifiableList(protocolVersions) : Collections.emptyList();
+    }
+
+    /**
+     * Derives the capabilities of a server from its identity.
+     *
+     * @param identity response to the Identify request
+     * @param defaultVersion version used when the identity is not conclusive
+     * @return the capabilities of the server
+     */
+    public static WSManCapabilities fromIdentity(Identity identity, WSManVersion defaultVersion) {
+        Objects.requireNonNull(identity, "identity cannot be null");
+        Objects.requireNonNull(defaultVersion, "defaultVersion cannot be null");
+        final List<String> protocolVersions = identity.getProtocolVersions();
+        final String vendor = identity.getProductVendor() != null ? identity.getProductVendor().toLowerCase(Locale.ROOT) : "";
+
+        WSManVersion serverVersion = defaultVersion;
+        if (protocolVersions == null || !protocolVersions.contains(WSManConstants.XML_NS_DMTF_WSMAN_V1)) {
+            // Predates the DMTF standard
+            serverVersion = WSManVersion.WSMAN_1_0;
+        } else {
+            for (String knownVendor : WSMAN_1_0_VENDORS) {
+                if (vendor.contains(knownVendor)) {
+                    serverVersion = WSManVersion.WSMAN_1_0;
+                    break;
+                }
+            }
+        }
+        return new WSManCapabilities(serverVersion, identity.getProductVendor(), identity.getProductVersion(), protocolVersions);
+    }
+
+    /**
+     * @return the version of the protocol that should be used to communicate with the server
+     */
+    public WSManVersion getServerVersion() {
+        return m_serverVersion;
+    }
+
+    public String getProductVendor() {
+        return m_productVendor;
+    }
+
+    public String getProductVersion() {
+        return m_productVersion;
+    }
+
+    public List<String> getProtocolVersions() {
+        return m_protocolVersions;
+    }
+
+    /**
+     * Returns a copy of the given endpoint that uses the negotiated server version.
+     *
+     * @param endpoint endpoint to update
+     * @return the given endpoint if it already uses the negotiated version, or an updated copy
+     */
+    public WSManEndpoint applyTo(WSManEndpoint endpoint) {
+        if (endpoint.getServerVersion() == m_serverVersion) {
+            return endpoint;
+        }
+        return new WSManEndpoint.Builder(endpoint)
+                .withServerVersion(m_serverVersion)
+                .build();
+    }
+
+    public String toString() {
+        return String.format("WSManCapabilities[serverVersion='%s', productVendor='%s', productVersion='%s', protocolVersions='%s']",
+                m_serverVersion, m_productVendor, m_productVersion, m_protocolVersions);
+    }
+}
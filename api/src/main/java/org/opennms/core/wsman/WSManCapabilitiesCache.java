@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Caches the capabilities of the servers, keyed by host and port, so
+ * that a server is identified once and the result is shared by all of the
+ * clients that communicate with it.
+ *
+ * Concurrent lookups for the same server wait for a single Identify request.
+ * Failures are also cached, for a shorter period, so that servers that don't
+ * support Identify aren't probed before every operation.
+ */
+public class WSManCapabilitiesCache {
+
+    /**
+     * Default amount of time, in milliseconds, for which the capabilities of a server are cached.
+     */
+    public static final long DEFAULT_TIME_TO_LIVE = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * Default amount of time, in milliseconds, for which a failure to identify a server is cached.
+     */
+    public static final long DEFAULT_FAILURE_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(1);
+
+    private static final WSManCapabilitiesCache s_default = new WSManCapabilitiesCache();
+
+    private static class Entry {
+        private final CompletableFuture<WSManCapabilities> m_future = new CompletableFuture<>();
+        private volatile long m_expiresAt = Long.MAX_VALUE;
+
+        private boolean isExpired(long now) {
+            return now >= m_expiresAt;
+        }
+    }
+
+    private final Map<String, Entry> m_entries = new ConcurrentHashMap<>();
+    private volatile long m_timeToLive = DEFAULT_TIME_TO_LIVE;
+    private volatile long m_failureTimeToLive = DEFAULT_FAILURE_TIME_TO_LIVE;
+
+    /**
+     * @return the cache shared by all of the clients in this JVM
+     */
+    public static WSManCapabilitiesCache getDefault() {
+        return s_default;
+    }
+
+    public void setTimeToLive(long timeToLive) {
+        if (timeToLive < 0) {
+            throw new IllegalArgumentException("timeToLive cannot be negative");
+        }
+        m_timeToLive = timeToLive;
+    }
+
+    public long getTimeToLive() {
+        return m_timeToLive;
+    }
+
+    public void setFailureTimeToLive(long failureTimeToLive) {
+        if (failureTimeToLive < 0) {
+            throw new IllegalArgumentException("failureTimeToLive cannot be negative");
+        }
+        m_failureTimeToLive = failureTimeToLive;
+    }
+
+    public long getFailureTimeToLive() {
+        return m_failureTimeToLive;
+    }
+
+    /**
+     * Retrieves the capabilities of the server hosting the given endpoint,
+     * identifying the server if they are not already cached.
+     *
+     * @param endpoint target
+     * @param identifier issues the Identify request against the given endpoint
+     * @return the capabilities of the server
+     * @throws RuntimeException thrown by the identifier, possibly on a previous call
+     */
+    public WSManCapabilities get(WSManEndpoint endpoint, Function<WSManEndpoint, Identity> identifier) {
+        Objects.requireNonNull(endpoint, "endpoint cannot be null");
+        Objects.requireNonNull(identifier, "identifier cannot be null");
+        final String key = WSManHosts.getKey(endpoint.getUrl());
+
+        Entry entry = m_entries.get(key);
+        if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+            m_entries.remove(key, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            final Entry candidate = new Entry();
+            entry = m_entries.putIfAbsent(key, candidate);
+            if (entry == null) {
+                // We're the first, identify the server on behalf of everyone else
+                entry = candidate;
+                try {
+                    complete(candidate, WSManCapabilities.fromIdentity(identifier.apply(endpoint), endpoint.getServerVersion()));
+                } catch (RuntimeException e) {
+                    candidate.m_expiresAt = System.currentTimeMillis() + m_failureTimeToLive;
+                    candidate.m_future.completeExceptionally(e);
+                }
+            }
+        }
+
+        try {
+            return entry.m_future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Updates the capabilities of the server hosting the given endpoint
+     * using an identity that was retrieved by other means.
+     */
+    public WSManCapabilities update(WSManEndpoint endpoint, Identity identity) {
+        final WSManCapabilities capabilities = WSManCapabilities.fromIdentity(identity, endpoint.getServerVersion());
+        final Entry entry = new Entry();
+        complete(entry, capabilities);
+        m_entries.put(WSManHosts.getKey(endpoint.getUrl()), entry);
+        return capabilities;
+    }
+
+    /**
+     * Removes the capabilities of the server hosting the given endpoint,
+     * so that it is identified again on the next lookup.
+     */
+    public void invalidate(WSManEndpoint endpoint) {
+        m_entries.remove(WSManHosts.getKey(endpoint.getUrl()));
+    }
+
+    public void clear() {
+        m_entries.clear();
+    }
+
+    private void complete(Entry entry, WSManCapabilities capabilities) {
+        entry.m_expiresAt = System.currentTimeMillis() + m_timeToLive;
+        entry.m_future.complete(capabilities);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman;
+
+/**
+ * Tracks the transport failures of a single host, so that operations
+ * can fail fast while the host is known to be unreachable.
+ *
+ * The breaker opens after a number of consecutive failures. Once it has
+ * been open for long enough, a single probe is let through: the breaker
+ * closes if the probe succeeds, and opens again otherwise.
+ *
+ * Breakers are thread-safe.
+ */
+public class WSManCircuitBreaker {
+
+    public enum State {
+        /**
+         * Operations are issued normally.
+         */
+        CLOSED,
+        /**
+         * Operations are rejected.
+         */
+        OPEN,
+        /**
+         * A probe is in progress, other operations are rejected until it completes.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * What the caller is allowed to do.
+     */
+    enum Permit {
+        CALL,
+        PROBE,
+        REJECT
+    }
+
+    private final int m_failureThreshold;
+    private final long m_openDuration;
+
+    // All of the following are guarded by this
+    private State m_state = State.CLOSED;
+    private int m_consecutiveFailures = 0;
+    private long m_openedAt;
+
+    /**
+     * @param failureThreshold number of consecutive failures after which the breaker opens
+     * @param openDuration amount of time, in milliseconds, the breaker stays open before a probe is let through
+     */
+    public WSManCircuitBreaker(int failureThreshold, long openDuration) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be strictly positive");
+        }
+        if (openDuration < 0) {
+            throw new IllegalArgumentException("openDuration cannot be negative");
+        }
+        m_failureThreshold = failureThreshold;
+        m_openDuration = openDuration;
+    }
+
+    synchronized Permit acquire() {
+        switch (m_state) {
+            case CLOSED:
+                return Permit.CALL;
+            case OPEN:
+                if (System.currentTimeMillis() - m_openedAt >= m_openDuration) {
+                    m_state = State.HALF_OPEN;
+                    return Permit.PROBE;
+                }
+                return Permit.REJECT;
+            default:
+                return Permit.REJECT;
+        }
+    }
+
+    synchronized void onSuccess() {
+        m_consecutiveFailures = 0;
+        m_state = State.CLOSED;
+    }
+
+    synchronized void onFailure() {
+        m_consecutiveFailures++;
+        if (m_state == State.HALF_OPEN || m_consecutiveFailures >= m_failureThreshold) {
+            m_state = State.OPEN;
+            m_openedAt = System.currentTimeMillis();
+        }
+    }
+
+    public synchronized State getState() {
+        return m_state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return m_consecutiveFailures;
+    }
+
+    public synchronized String toString() {
+        return String.format("WSManCircuitBreaker[state='%s', consecutiveFailures='%d', failureThreshold='%d', openDuration='%d']",
+                m_state, m_consecutiveFailures, m_failureThreshold, m_openDuration);
+    }
+}
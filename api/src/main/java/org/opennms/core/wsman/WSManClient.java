@@ -17,6 +17,7 @@ package org.opennms.core.wsman;
 
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.opennms.core.wsman.exceptions.WSManException;
 import org.w3c.dom.Node;
@@ -110,4 +111,88 @@ public interface WSManClient {
      * @throws WSManException on error
      */
     public String enumerateAndPullUsingFilter(String resourceUri, String dialect, String filter, List<Node> nodes, boolean recursive);
+
+    /**
+     * Starts a new optimized enumeration, retrieving at most the given number of elements.
+     *
+     * Unlike {@link #enumerateAndPull(String, List, boolean)}, the page size is chosen
+     * by the caller, instead of the endpoint, and only a single request is issued, which
+     * lets the consumer pace the enumeration. Implementations that don't support this
+     * fall back to the page size of the endpoint.
+     *
+     * @param resourceUri uri
+     * @param dialect used by the filter, or null when not filtering
+     * @param filter query, or null when not filtering
+     * @param maxElements maximum number of elements to return
+     * @param nodes existing list in which the pulled elements will be added
+     * @return the context id used to pull the next page, or null if the end of the sequence was reached
+     * @throws WSManException on error
+     */
+    public default String enumerateAndPullPage(String resourceUri, String dialect, String filter, int maxElements, List<Node> nodes) {
+        return dialect != null && filter != null ? enumerateAndPullUsingFilter(resourceUri, dialect, filter, nodes, false)
+                : enumerateAndPull(resourceUri, nodes, false);
+    }
+
+    /**
+     * Pulls a single page of at most the given number of elements from an existing enumeration context.
+     *
+     * See {@link #enumerateAndPullPage(String, String, String, int, List)}.
+     *
+     * @param contextId the context id
+     * @param resourceUri uri
+     * @param maxElements maximum number of elements to return
+     * @param nodes existing list in which the pulled elements will be added
+     * @return the context id used to pull the next page, or null if the end of the sequence was reached
+     * @throws WSManException on error
+     */
+    public default String pullPage(String contextId, String resourceUri, int maxElements, List<Node> nodes) {
+        return pull(contextId, resourceUri, nodes, false);
+    }
+
+    /**
+     * Releases an existing enumeration context before reaching the end of the sequence.
+     *
+     * Clients that don't support the Release operation leave the context
+     * to expire on the server, which is what this default implementation does.
+     *
+     * @param contextId the context id
+     * @param resourceUri uri
+     * @throws WSManException on error
+     */
+    public default void release(String contextId, String resourceUri) {
+        // Nothing to do, the context expires on its own
+    }
+
+    /**
+     * Lazily enumerates and pulls the elements of the given resource.
+     *
+     * Pages are only pulled when the stream's consumer reaches the end
+     * of the current page. The stream should be closed when it is no
+     * longer needed, in order to release the enumeration context if the
+     * end of the sequence was not reached.
+     *
+     * @param resourceUri uri
+     * @return stream of elements
+     * @throws WSManException on error
+     */
+    public default Stream<Node> enumerateAndStream(String resourceUri) {
+        return new EnumerationIterator(this, resourceUri, (contextId, nodes) -> contextId == null ?
+                enumerateAndPull(resourceUri, nodes, false) : pull(contextId, resourceUri, nodes, false)).stream();
+    }
+
+    /**
+     * Lazily enumerates and pulls the elements of the given resource using a filter.
+     *
+     * See {@link #enumerateAndStream(String)}.
+     *
+     * @param resourceUri uri
+     * @param dialect used by the filter
+     * @param filter query
+     * @return stream of elements
+     * @throws WSManException on error
+     */
+    public default Stream<Node> enumerateAndStreamUsingFilter(String resourceUri, String dialect, String filter) {
+        return new EnumerationIterator(this, resourceUri, (contextId, nodes) -> contextId == null ?
+                enumerateAndPullUsingFilter(resourceUri, dialect, filter, nodes, false) : pull(contextId, resourceUri, nodes, false)).stream();
+    }
 }
@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Issues the same list of operations against many endpoints.
+ *
+ * The number of endpoints being collected at any given time is bounded both
+ * globally and per host, so that a single host exposing many endpoints is
+ * never overwhelmed. The operations for a given endpoint are issued sequentially,
+ * using a single client, and their outcome is handed to the consumer as soon
+ * as they complete.
+ *
+ * By default, every collection runs on its own pool of platform threads, sized
+ * to the global limit. An executor can be supplied instead, i.e. one that starts
+ * a virtual thread per task on JVMs that support them, in which case the limits
+ * are the only bound on the number of concurrent requests.
+ *
+ * Collectors are thread-safe and can be reused for any number of collections.
+ */
+public class WSManCollector {
+
+    /**
+     * Default maximum number of endpoints being collected at any given time.
+     */
+    public static final int DEFAULT_MAX_CONCURRENCY = 32;
+
+    /**
+     * Default maximum number of endpoints on the same host being collected at any given time.
+     */
+    public static final int DEFAULT_MAX_CONCURRENCY_PER_HOST = 1;
+
+    private final WSManClientFactory m_factory;
+    private final int m_maxConcurrency;
+    private final int m_maxConcurrencyPerHost;
+    private final Executor m_executor;
+
+    private WSManCollector(Builder builder) {
+        m_factory = builder.factory;
+        m_maxConcurrency = builder.maxConcurrency;
+        m_maxConcurrencyPerHost = builder.maxConcurrencyPerHost;
+        m_executor = builder.executor;
+    }
+
+    public static class Builder {
+       private final WSManClientFactory factory;
+       private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+       private int maxConcurrencyPerHost = DEFAULT_MAX_CONCURRENCY_PER_HOST;
+       private Executor executor;
+
+       public Builder(WSManClientFactory factory) {
+           this.factory = Objects.requireNonNull(factory, "factory cannot be null");
+       }
+
+       public Builder withMaxConcurrency(int maxConcurrency) {
+           if (maxConcurrency < 1) {
+               throw new IllegalArgumentException("maxConcurrency must be strictly positive");
+           }
+           this.maxConcurrency = maxConcurrency;
+           return this;
+       }
+
+       public Builder withMaxConcurrencyPerHost(int maxConcurrencyPerHost) {
+           if (maxConcurrencyPerHost < 1) {
+               throw new IllegalArgumentException("maxConcurrencyPerHost must be strictly positive");
+           }
+           this.maxConcurrencyPerHost = maxConcurrencyPerHost;
+           return this;
+       }
+
+       /**
+        * Runs the operations using the given executor, instead of a pool of
+        * threads dedicated to every collection.
+        *
+        * The executor is not shutdown by the collector.
+        */
+       public Builder withExecutor(Executor executor) {
+           this.executor = Objects.requireNonNull(executor, "executor cannot be null");
+           return this;
+       }
+
+       public WSManCollector build() {
+           return new WSManCollector(this);
+       }
+    }
+
+    /**
+     * Issues the given operations against all of the endpoints.
+     *
+     * The consumer is invoked once per endpoint, from the thread that issued its
+     * operations, and must be thread-safe.
+     *
+     * Cancelling the returned future prevents any further endpoints from being
+     * collected, but does not interrupt those that are in progress.
+     *
+     * @param endpoints targets
+     * @param operations operations issued against every endpoint, in order
+     * @param consumer receives the outcome of the operations for every endpoint
+     * @return a future that completes once all of the endpoints were collected,
+     * or exceptionally if the consumer failed
+     */
+    public CompletableFuture<Void> collect(Collection<WSManEndpoint> endpoints, List<? extends WSManOperation<?>> operations,
+            Consumer<WSManCollectorResult> consumer) {
+        Objects.requireNonNull(endpoints, "endpoints cannot be null");
+        Objects.requireNonNull(operations, "operations cannot be null");
+        Objects.requireNonNull(consumer, "consumer cannot be null");
+
+        if (m_executor != null) {
+            return new Run(operations, consumer, m_executor).start(endpoints);
+        }
+
+        final ExecutorService pool = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(m_maxConcurrency, endpoints.size())), new CollectorThreadFactory());
+        final Run run = new Run(operations, consumer, pool);
+        // Let the threads go once we're done
+        run.m_future.whenComplete((v, t) -> pool.shutdown());
+        return run.start(endpoints);
+    }
+
+    /**
+     * Tracks the state of a single call to {@link WSManCollector#collect}.
+     *
+     * Endpoints are queued by host, and the hosts that are below their
+     * limit take turns, so that a host with many endpoints cannot starve
+     * the others.
+     */
+    private class Run {
+        private final List<WSManOperation<?>> m_operations;
+        private final Consumer<WSManCollectorResult> m_consumer;
+        private final Executor m_executor;
+        private final CompletableFuture<Void> m_future = new CompletableFuture<>();
+
+        // All of the following are guarded by this
+        private final Map<String, Deque<WSManEndpoint>> m_pendingByHost = new HashMap<>();
+        private final Deque<String> m_readyHosts = new ArrayDeque<>();
+        private final Map<String, Integer> m_activeByHost = new HashMap<>();
+        private int m_remaining;
+        private int m_running;
+        private Throwable m_consumerFailure;
+
+        private Run(List<? extends WSManOperation<?>> operations, Consumer<WSManCollectorResult> consumer, Executor executor) {
+            m_operations = new ArrayList<>(operations);
+            m_consumer = consumer;
+            m_executor = executor;
+        }
+
+        private CompletableFuture<Void> start(Collection<WSManEndpoint> endpoints) {
+            synchronized(this) {
+                for (WSManEndpoint endpoint : endpoints) {
+                    final String host = getHost(endpoint);
+                    final Deque<WSManEndpoint> pending = m_pendingByHost.computeIfAbsent(host, h -> {
+                        m_readyHosts.offerLast(h);
+                        return new ArrayDeque<>();
+                    });
+                    pending.offerLast(endpoint);
+                }
+                m_remaining = endpoints.size();
+            }
+            if (endpoints.isEmpty()) {
+                m_future.complete(null);
+            } else {
+                dispatch();
+            }
+            return m_future;
+        }
+
+        private void dispatch() {
+            final List<Runnable> tasks = new ArrayList<>();
+            synchronized(this) {
+                while (!m_future.isDone() && m_running < m_maxConcurrency && !m_readyHosts.isEmpty()) {
+                    final String host = m_readyHosts.pollFirst();
+                    final Deque<WSManEndpoint> pending = m_pendingByHost.get(host);
+                    final WSManEndpoint endpoint = pending.pollFirst();
+                    m_running++;
+                    final int active = m_activeByHost.merge(host, 1, Integer::sum);
+                    if (pending.isEmpty()) {
+                        m_pendingByHost.remove(host);
+                    } else if (active < m_maxConcurrencyPerHost) {
+                        // Go to the back of the line
+                        m_readyHosts.offerLast(host);
+                    }
+                    tasks.add(() -> collect(host, endpoint));
+                }
+            }
+            for (Runnable task : tasks) {
+                try {
+                    m_executor.execute(task);
+                } catch (RejectedExecutionException e) {
+                    m_future.completeExceptionally(e);
+                }
+            }
+        }
+
+        private void collect(String host, WSManEndpoint endpoint) {
+            try {
+                final WSManCollectorResult result = invoke(endpoint);
+                try {
+                    m_consumer.accept(result);
+                } catch (Throwable t) {
+                    synchronized(this) {
+                        if (m_consumerFailure == null) {
+                            m_consumerFailure = t;
+                        }
+                    }
+                }
+            } finally {
+                onCollected(host);
+            }
+        }
+
+        private WSManCollectorResult invoke(WSManEndpoint endpoint) {
+            final List<Object> results = new ArrayList<>(m_operations.size());
+            final List<Throwable> failures = new ArrayList<>(m_operations.size());
+            final WSManClient client;
+            try {
+                client = m_factory.getClient(endpoint);
+            } catch (RuntimeException e) {
+                // None of the operations can be issued
+                for (int i = 0; i < m_operations.size(); i++) {
+                    results.add(null);
+                    failures.add(e);
+                }
+                return new WSManCollectorResult(endpoint, results, failures);
+            }
+            for (WSManOperation<?> operation : m_operations) {
+                try {
+                    results.add(operation.invoke(client));
+                    failures.add(null);
+                } catch (RuntimeException e) {
+                    results.add(null);
+                    failures.add(e);
+                }
+            }
+            return new WSManCollectorResult(endpoint, results, failures);
+        }
+
+        private void onCollected(String host) {
+            final boolean done;
+            final Throwable consumerFailure;
+            synchronized(this) {
+                m_remaining--;
+                m_running--;
+                final int active = m_activeByHost.merge(host, -1, Integer::sum);
+                if (active == 0) {
+                    m_activeByHost.remove(host);
+                }
+                if (active == m_maxConcurrencyPerHost - 1 && m_pendingByHost.containsKey(host)) {
+                    // The host was at its limit, so it wasn't in line
+                    m_readyHosts.offerLast(host);
+                }
+                done = m_remaining == 0;
+                consumerFailure = m_consumerFailure;
+            }
+            if (!done) {
+                dispatch();
+            } else if (consumerFailure != null) {
+                m_future.completeExceptionally(consumerFailure);
+            } else {
+                m_future.complete(null);
+            }
+        }
+    }
+
+    private static String getHost(WSManEndpoint endpoint) {
+        return endpoint.getUrl().getHost().toLowerCase();
+    }
+
+    private static class CollectorThreadFactory implements ThreadFactory {
+        private static final AtomicInteger s_poolNumber = new AtomicInteger();
+        private final int m_poolNumber = s_poolNumber.incrementAndGet();
+        private final AtomicInteger m_threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, String.format("wsman-collector-%d-%d", m_poolNumber, m_threadNumber.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
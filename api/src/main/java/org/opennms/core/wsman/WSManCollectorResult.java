@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The outcome of the operations issued against a single endpoint by the {@link WSManCollector}.
+ *
+ * Results and failures are indexed in the same order as the operations. An
+ * operation either has a result, which may be null, or a failure.
+ */
+public class WSManCollectorResult {
+
+    private final WSManEndpoint m_endpoint;
+    private final List<Object> m_results;
+    private final List<Throwable> m_failures;
+
+    protected WSManCollectorResult(WSManEndpoint endpoint, List<Object> results, List<Throwable> failures) {
+        m_endpoint = Objects.requireNonNull(endpoint, "endpoint cannot be null");
+        m_results = Collections.unmodifiableList(results);
+        m_failures = Collections.unmodifiableList(failures);
+        if (m_results.size() != m_failures.size()) {
+            throw new IllegalArgumentException("results and failures must have the same size");
+        }
+    }
+
+    public WSManEndpoint getEndpoint() {
+        return m_endpoint;
+    }
+
+    /**
+     * @return the number of operations
+     */
+    public int size() {
+        return m_results.size();
+    }
+
+    /**
+     * Retrieves the result of the operation at the given index.
+     *
+     * @param index index of the operation
+     * @return the result, or null if the operation failed
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getResult(int index) {
+        return (T)m_results.get(index);
+    }
+
+    /**
+     * Retrieves the failure of the operation at the given index.
+     *
+     * @param index index of the operation
+     * @return the exception thrown by the operation, or null if it succeeded
+     */
+    public Throwable getFailure(int index) {
+        return m_failures.get(index);
+    }
+
+    public boolean isSuccessful(int index) {
+        return m_failures.get(index) == null;
+    }
+
+    /**
+     * @return true if all of the operations succeeded
+     */
+    public boolean isSuccessful() {
+        return m_failures.stream().allMatch(Objects::isNull);
+    }
+
+    public String toString() {
+        return String.format("WSManCollectorResult[endpoint='%s', results='%s', failures='%s']",
+                m_endpoint.getUrl(), m_results, m_failures);
+    }
+}
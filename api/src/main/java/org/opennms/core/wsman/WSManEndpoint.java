@@ -34,24 +34,60 @@ public class WSManEndpoint {
     private final String username;
     private final String password;
     private final boolean gssAuth;
+    private final String gssLoginContext;
     private final boolean strictSSL;
     private final WSManVersion serverVersion;
     private final Integer maxElements;
     private final Integer maxEnvelopeSize;
     private final Integer connectionTimeout;
     private final Integer receiveTimeout;
+    private final boolean keepAlive;
+    private final Integer maxConnectionsPerHost;
+    private final Integer connectionIdleTimeout;
+    private final Integer connectionTimeToLive;
+    private final Integer pullPrefetchDepth;
+    private final boolean streamingResponses;
+    private final boolean envelopeTemplates;
+    private final Integer enumerationContextTimeout;
+    private final boolean releaseIdleEnumerationContexts;
+    private final boolean serverVersionNegotiation;
+    private final boolean adaptivePageSize;
+    private final boolean compression;
+    private final boolean requestCompression;
+    private final Double hedgingPercentile;
+    private final Double hedgingBudget;
+    private final WSManMetricsListener metricsListener;
+    private final boolean phaseTiming;
 
     private WSManEndpoint(Builder builder) {
         url = builder.url;
         username = builder.username;
         password = builder.password;
         gssAuth = builder.gssAuth;
+        gssLoginContext = builder.gssLoginContext;
         strictSSL = builder.strictSSL;
         serverVersion = builder.serverVersion;
         maxElements = builder.maxElements;
         maxEnvelopeSize = builder.maxEnvelopeSize;
         connectionTimeout = builder.connectionTimeout;
         receiveTimeout = builder.receiveTimeout;
+        keepAlive = builder.keepAlive;
+        maxConnectionsPerHost = builder.maxConnectionsPerHost;
+        connectionIdleTimeout = builder.connectionIdleTimeout;
+        connectionTimeToLive = builder.connectionTimeToLive;
+        pullPrefetchDepth = builder.pullPrefetchDepth;
+        streamingResponses = builder.streamingResponses;
+        envelopeTemplates = builder.envelopeTemplates;
+        enumerationContextTimeout = builder.enumerationContextTimeout;
+        releaseIdleEnumerationContexts = builder.releaseIdleEnumerationContexts;
+        serverVersionNegotiation = builder.serverVersionNegotiation;
+        adaptivePageSize = builder.adaptivePageSize;
+        compression = builder.compression;
+        requestCompression = builder.requestCompression;
+        hedgingPercentile = builder.hedgingPercentile;
+        hedgingBudget = builder.hedgingBudget;
+        metricsListener = builder.metricsListener;
+        phaseTiming = builder.phaseTiming;
     }
 
     public static class Builder {
@@ -60,11 +96,29 @@ public class WSManEndpoint {
        private String username;
        private String password;
        private boolean gssAuth = false;
+       private String gssLoginContext = "WSManClient";
        private WSManVersion serverVersion = WSManVersion.WSMAN_1_2;
        private Integer maxElements;
        private Integer maxEnvelopeSize;
        private Integer connectionTimeout;
        private Integer receiveTimeout;
+       private boolean keepAlive = true;
+       private Integer maxConnectionsPerHost;
+       private Integer connectionIdleTimeout;
+       private Integer connectionTimeToLive;
+       private Integer pullPrefetchDepth;
+       private boolean streamingResponses = false;
+       private boolean envelopeTemplates = false;
+       private Integer enumerationContextTimeout;
+       private boolean releaseIdleEnumerationContexts = false;
+       private boolean serverVersionNegotiation = false;
+       private boolean adaptivePageSize = false;
+       private boolean compression = false;
+       private boolean requestCompression = false;
+       private Double hedgingPercentile;
+       private Double hedgingBudget;
+       private WSManMetricsListener metricsListener;
+       private boolean phaseTiming = false;
 
        public Builder(String url) throws MalformedURLException {
            this(new URL(Objects.requireNonNull(url, "url cannot be null")));
@@ -74,6 +128,41 @@ public class WSManEndpoint {
            this.url = Objects.requireNonNull(url, "url cannot be null");
        }
 
+       /**
+        * Creates a new builder initialized with all of the details of the given endpoint.
+        */
+       public Builder(WSManEndpoint endpoint) {
+           Objects.requireNonNull(endpoint, "endpoint cannot be null");
+           this.url = endpoint.url;
+           this.username = endpoint.username;
+           this.password = endpoint.password;
+           this.gssAuth = endpoint.gssAuth;
+           this.gssLoginContext = endpoint.gssLoginContext;
+           this.strictSSL = endpoint.strictSSL;
+           this.serverVersion = endpoint.serverVersion;
+           this.maxElements = endpoint.maxElements;
+           this.maxEnvelopeSize = endpoint.maxEnvelopeSize;
+           this.connectionTimeout = endpoint.connectionTimeout;
+           this.receiveTimeout = endpoint.receiveTimeout;
+           this.keepAlive = endpoint.keepAlive;
+           this.maxConnectionsPerHost = endpoint.maxConnectionsPerHost;
+           this.connectionIdleTimeout = endpoint.connectionIdleTimeout;
+           this.connectionTimeToLive = endpoint.connectionTimeToLive;
+           this.pullPrefetchDepth = endpoint.pullPrefetchDepth;
+           this.streamingResponses = endpoint.streamingResponses;
+           this.envelopeTemplates = endpoint.envelopeTemplates;
+           this.enumerationContextTimeout = endpoint.enumerationContextTimeout;
+           this.releaseIdleEnumerationContexts = endpoint.releaseIdleEnumerationContexts;
+           this.serverVersionNegotiation = endpoint.serverVersionNegotiation;
+           this.adaptivePageSize = endpoint.adaptivePageSize;
+           this.compression = endpoint.compression;
+           this.requestCompression = endpoint.requestCompression;
+           this.hedgingPercentile = endpoint.hedgingPercentile;
+           this.hedgingBudget = endpoint.hedgingBudget;
+           this.metricsListener = endpoint.metricsListener;
+           this.phaseTiming = endpoint.phaseTiming;
+       }
+
        public Builder withBasicAuth(String username, String password) {
            this.username = Objects.requireNonNull(username, "username cannot be null");
            this.password = Objects.requireNonNull(password, "password cannot be null");
@@ -85,6 +174,15 @@ public class WSManEndpoint {
            return this;
        }
 
+       /**
+        * Name of the JAAS login configuration used to log in to Kerberos
+        * when GSS authentication is enabled. Defaults to "WSManClient".
+        */
+       public Builder withGSSLoginContext(String gssLoginContext) {
+           this.gssLoginContext = Objects.requireNonNull(gssLoginContext, "gssLoginContext cannot be null");
+           return this;
+       }
+
        public Builder withStrictSSL(boolean strictSSL) {
            this.strictSSL = strictSSL;
            return this;
@@ -127,6 +225,137 @@ public class WSManEndpoint {
            return this;
        }
 
+       public Builder withKeepAlive(boolean keepAlive) {
+           this.keepAlive = keepAlive;
+           return this;
+       }
+
+       public Builder withMaxConnectionsPerHost(Integer maxConnectionsPerHost) {
+           if (maxConnectionsPerHost == null || maxConnectionsPerHost < 1) {
+               throw new IllegalArgumentException("maxConnectionsPerHost must be strictly positive");
+           }
+           this.maxConnectionsPerHost = maxConnectionsPerHost;
+           return this;
+       }
+
+       public Builder withConnectionIdleTimeout(Integer connectionIdleTimeout) {
+           if (connectionIdleTimeout == null || connectionIdleTimeout < 0) {
+               throw new IllegalArgumentException("connectionIdleTimeout must be non-negative");
+           }
+           this.connectionIdleTimeout = connectionIdleTimeout;
+           return this;
+       }
+
+       public Builder withConnectionTimeToLive(Integer connectionTimeToLive) {
+           if (connectionTimeToLive == null || connectionTimeToLive < 0) {
+               throw new IllegalArgumentException("connectionTimeToLive must be non-negative");
+           }
+           this.connectionTimeToLive = connectionTimeToLive;
+           return this;
+       }
+
+       public Builder withPullPrefetchDepth(Integer pullPrefetchDepth) {
+           if (pullPrefetchDepth == null || pullPrefetchDepth < 1) {
+               throw new IllegalArgumentException("pullPrefetchDepth must be strictly positive");
+           }
+           this.pullPrefetchDepth = pullPrefetchDepth;
+           return this;
+       }
+
+       /**
+        * Reads the Enumerate, Pull and Get responses straight from the response stream,
+        * instead of unmarshalling them using JAXB. Disabled by default.
+        */
+       public Builder withStreamingResponses(boolean streamingResponses) {
+           this.streamingResponses = streamingResponses;
+           return this;
+       }
+
+       public Builder withEnvelopeTemplates(boolean envelopeTemplates) {
+           this.envelopeTemplates = envelopeTemplates;
+           return this;
+       }
+
+       public Builder withEnumerationContextTimeout(Integer enumerationContextTimeout) {
+           if (enumerationContextTimeout == null || enumerationContextTimeout < 1) {
+               throw new IllegalArgumentException("enumerationContextTimeout must be strictly positive");
+           }
+           this.enumerationContextTimeout = enumerationContextTimeout;
+           return this;
+       }
+
+       /**
+        * Releases the enumeration contexts that were handed to the caller, and that were
+        * left idle for longer than the enumeration context timeout, treating them as leaked.
+        * Disabled by default, since callers may legitimately pull slower than that.
+        */
+       public Builder withReleaseIdleEnumerationContexts(boolean releaseIdleEnumerationContexts) {
+           this.releaseIdleEnumerationContexts = releaseIdleEnumerationContexts;
+           return this;
+       }
+
+       public Builder withServerVersionNegotiation(boolean serverVersionNegotiation) {
+           this.serverVersionNegotiation = serverVersionNegotiation;
+           return this;
+       }
+
+       public Builder withAdaptivePageSize(boolean adaptivePageSize) {
+           this.adaptivePageSize = adaptivePageSize;
+           return this;
+       }
+
+       public Builder withCompression(boolean compression) {
+           this.compression = compression;
+           return this;
+       }
+
+       public Builder withRequestCompression(boolean requestCompression) {
+           this.requestCompression = requestCompression;
+           return this;
+       }
+
+       /**
+        * Sends a second Get or Identify when no response was received after the given
+        * percentile of the latencies observed for the same operation against the endpoint.
+        */
+       public Builder withHedgingPercentile(Double hedgingPercentile) {
+           if (hedgingPercentile == null || hedgingPercentile <= 0 || hedgingPercentile >= 100) {
+               throw new IllegalArgumentException("hedgingPercentile must be between 0 and 100, exclusively");
+           }
+           this.hedgingPercentile = hedgingPercentile;
+           return this;
+       }
+
+       /**
+        * Maximum number of hedged requests, as a fraction of the number of requests issued
+        * against the endpoint. Since the fraction is at most 1, hedging can never more
+        * than double the load on the host. Defaults to 0.1.
+        */
+       public Builder withHedgingBudget(Double hedgingBudget) {
+           if (hedgingBudget == null || hedgingBudget <= 0 || hedgingBudget > 1) {
+               throw new IllegalArgumentException("hedgingBudget must be strictly positive, and at most 1");
+           }
+           this.hedgingBudget = hedgingBudget;
+           return this;
+       }
+
+       /**
+        * Notifies the given listener of every request issued against the endpoint.
+        */
+       public Builder withMetricsListener(WSManMetricsListener metricsListener) {
+           this.metricsListener = Objects.requireNonNull(metricsListener, "metricsListener cannot be null");
+           return this;
+       }
+
+       /**
+        * Breaks the duration of every request down into phases, which are
+        * reported to the metrics listener.
+        */
+       public Builder withPhaseTiming(boolean phaseTiming) {
+           this.phaseTiming = phaseTiming;
+           return this;
+       }
+
        public WSManEndpoint build() {
            return new WSManEndpoint(this);
        }
@@ -152,6 +381,10 @@ public class WSManEndpoint {
         return gssAuth;
     }
 
+    public String getGSSLoginContext() {
+        return gssLoginContext;
+    }
+
     public boolean isStrictSSL() {
         return strictSSL;
     }
@@ -176,11 +409,88 @@ public class WSManEndpoint {
         return receiveTimeout;
     }
 
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    public Integer getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    public Integer getConnectionIdleTimeout() {
+        return connectionIdleTimeout;
+    }
+
+    public Integer getConnectionTimeToLive() {
+        return connectionTimeToLive;
+    }
+
+    public Integer getPullPrefetchDepth() {
+        return pullPrefetchDepth;
+    }
+
+    public boolean isStreamingResponses() {
+        return streamingResponses;
+    }
+
+    public boolean isEnvelopeTemplates() {
+        return envelopeTemplates;
+    }
+
+    public Integer getEnumerationContextTimeout() {
+        return enumerationContextTimeout;
+    }
+
+    public boolean isReleaseIdleEnumerationContexts() {
+        return releaseIdleEnumerationContexts;
+    }
+
+    public boolean isServerVersionNegotiation() {
+        return serverVersionNegotiation;
+    }
+
+    public boolean isAdaptivePageSize() {
+        return adaptivePageSize;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public boolean isRequestCompression() {
+        return requestCompression;
+    }
+
+    public Double getHedgingPercentile() {
+        return hedgingPercentile;
+    }
+
+    public Double getHedgingBudget() {
+        return hedgingBudget;
+    }
+
+    public WSManMetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    public boolean isPhaseTiming() {
+        return phaseTiming;
+    }
+
     public String toString() {
-        return String.format("WSManEndpoint[url='%s', isGSSAuth='%s', isBasicAuth='%s', isStrictSSL='%s', "
-                + "serverVersion='%s',  maxElements='%s', maxEnvelopeSize='%s'"
-                + "connectionTimeout='%s', receiveTimeout='%s']",
-                url, isGSSAuth(), isBasicAuth(), isStrictSSL(), serverVersion,
-                maxElements, maxEnvelopeSize, connectionTimeout, receiveTimeout);
+        return String.format("WSManEndpoint[url='%s', isGSSAuth='%s', gssLoginContext='%s', isBasicAuth='%s', isStrictSSL='%s', "
+                + "serverVersion='%s', maxElements='%s', maxEnvelopeSize='%s', "
+                + "connectionTimeout='%s', receiveTimeout='%s', keepAlive='%s', maxConnectionsPerHost='%s', "
+                + "connectionIdleTimeout='%s', connectionTimeToLive='%s', "
+                + "pullPrefetchDepth='%s', streamingResponses='%s', envelopeTemplates='%s', "
+                + "enumerationContextTimeout='%s', releaseIdleEnumerationContexts='%s', serverVersionNegotiation='%s', "
+                + "adaptivePageSize='%s', compression='%s', requestCompression='%s', "
+                + "hedgingPercentile='%s', hedgingBudget='%s', phaseTiming='%s']",
+                url, isGSSAuth(), gssLoginContext, isBasicAuth(), isStrictSSL(), serverVersion,
+                maxElements, maxEnvelopeSize, connectionTimeout, receiveTimeout,
+                keepAlive, maxConnectionsPerHost, connectionIdleTimeout, connectionTimeToLive,
+                pullPrefetchDepth, streamingResponses, envelopeTemplates,
+                enumerationContextTimeout, releaseIdleEnumerationContexts, serverVersionNegotiation, adaptivePageSize,
+                compression, requestCompression, hedgingPercentile, hedgingBudget, phaseTiming);
     }
 }
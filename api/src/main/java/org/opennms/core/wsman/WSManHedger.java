@@ -0,0 +1,420 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.opennms.core.wsman.exceptions.WSManException;
+
+/**
+ * Issues idempotent requests, and sends a second copy of the request when
+ * no response was received after a given percentile of the latencies
+ * previously observed for the same operation. The first successful response
+ * wins, and the other request is cancelled.
+ *
+ * Hedged requests are paid for using a budget: every request earns a fraction
+ * of a token, and every hedged request spends a whole one. Since the fraction
+ * is at most 1, the number of hedged requests can never exceed the number
+ * of requests, and the load on the host can at most double.
+ *
+ * Hedgers are kept per endpoint for the lifetime of the JVM, so the
+ * observed latencies and the budget are shared by all of the clients.
+ *
+ * Latencies are measured from the moment the request is sent, so that the
+ * time spent waiting for a connection or a thread isn't mistaken for a slow host.
+ */
+public class WSManHedger {
+
+    static final double DEFAULT_BUDGET = 0.1;
+
+    /**
+     * Number of latencies kept per operation.
+     */
+    static final int WINDOW_SIZE = 128;
+
+    /**
+     * Number of latencies needed before requests are hedged.
+     */
+    static final int MIN_SAMPLES = 16;
+
+    /**
+     * Maximum number of tokens that can be saved up.
+     */
+    private static final double MAX_TOKENS = 10;
+
+    /**
+     * Maximum number of hedged blocking requests in flight across all of the hedgers.
+     * Requests aren't hedged when all of the threads are busy.
+     */
+    static final int MAX_HEDGE_THREADS = 16;
+
+    private static final Map<String, WSManHedger> s_hedgers = new ConcurrentHashMap<>();
+
+    // Fires the hedges of blocking requests, which are then issued from the hedge executor
+    private static final ScheduledThreadPoolExecutor s_timer = createTimer();
+    private static final ThreadPoolExecutor s_hedgeExecutor = createHedgeExecutor();
+
+    private final double m_percentile;
+    private final double m_budget;
+    private final Map<String, LatencyWindow> m_latencies = new ConcurrentHashMap<>();
+
+    // Guarded by this
+    private double m_tokens = 0;
+
+    WSManHedger(double percentile, double budget) {
+        m_percentile = percentile;
+        m_budget = budget;
+    }
+
+    /**
+     * Retrieves the hedger shared by all of the clients of the given endpoint.
+     *
+     * @return the hedger, or null if hedging is disabled
+     */
+    public static WSManHedger getHedger(WSManEndpoint endpoint) {
+        if (endpoint.getHedgingPercentile() == null) {
+            return null;
+        }
+        final double percentile = endpoint.getHedgingPercentile();
+        final double budget = endpoint.getHedgingBudget() != null ? endpoint.getHedgingBudget() : DEFAULT_BUDGET;
+        final String key = endpoint.getUrl().toExternalForm() + "|" + percentile + "|" + budget;
+        return s_hedgers.computeIfAbsent(key, k -> new WSManHedger(percentile, budget));
+    }
+
+    /**
+     * Issues the request from the calling thread, hedging it if it is slow, and the budget allows for it.
+     * Hedged requests are issued from a dedicated, bounded, pool of threads.
+     *
+     * @param operation the operation, used to group the observed latencies
+     * @param request issues a copy of the request and blocks until its response is received,
+     *        and aborts it once the attempt is cancelled
+     * @return the first successful response
+     */
+    public <T> T invoke(String operation, Function<Attempt, T> request) {
+        final LatencyWindow latencies = m_latencies.computeIfAbsent(operation, o -> new LatencyWindow());
+        final long delay = latencies.getPercentile(m_percentile);
+        earn();
+
+        final Attempt primary = new Attempt();
+        if (delay < 0) {
+            return timed(latencies, request, primary);
+        }
+
+        final Hedge<T> hedge = new Hedge<>();
+        final ScheduledFuture<?> timer = s_timer.schedule(() -> hedge(latencies, request, primary, hedge), delay, TimeUnit.NANOSECONDS);
+        try {
+            return timed(latencies, request, primary);
+        } catch (RuntimeException e) {
+            if (!hedge.isIssued()) {
+                throw e;
+            }
+            // The primary either failed, or was aborted in favor of the hedge
+            return await(hedge.m_response);
+        } finally {
+            timer.cancel(false);
+            // Abort the loser, this has no effect on the winner
+            hedge.close();
+        }
+    }
+
+    /**
+     * Issues the request, hedging it if it is slow, and the budget allows for it.
+     *
+     * @param operation the operation, used to group the observed latencies
+     * @param request issues a copy of the request without blocking, and aborts it once the attempt is cancelled
+     * @return the first successful response
+     */
+    public <T> T invokeAsync(String operation, Function<Attempt, CompletableFuture<T>> request) {
+        final LatencyWindow latencies = m_latencies.computeIfAbsent(operation, o -> new LatencyWindow());
+        final long delay = latencies.getPercentile(m_percentile);
+        earn();
+
+        final Attempt primaryAttempt = new Attempt();
+        final CompletableFuture<T> primary = timedAsync(latencies, request, primaryAttempt);
+        if (delay < 0) {
+            return await(primary);
+        }
+
+        try {
+            return primary.get(delay, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Too slow, hedge below
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            primaryAttempt.cancel();
+            Thread.currentThread().interrupt();
+            throw new WSManException(e);
+        }
+
+        if (!spend()) {
+            // Too slow, but the budget is exhausted
+            return await(primary);
+        }
+
+        final Attempt hedgeAttempt = new Attempt();
+        final CompletableFuture<T> hedge = timedAsync(latencies, request, hedgeAttempt);
+        try {
+            return await(firstSuccessful(primary, hedge));
+        } finally {
+            // Abort the loser, this has no effect on the winner
+            primaryAttempt.cancel();
+            hedgeAttempt.cancel();
+        }
+    }
+
+    /**
+     * Issues the hedge of a blocking request, unless the primary already returned,
+     * the budget is exhausted, or all of the hedge threads are busy.
+     */
+    private <T> void hedge(LatencyWindow latencies, Function<Attempt, T> request, Attempt primary, Hedge<T> hedge) {
+        if (!spend()) {
+            return;
+        }
+        final Attempt attempt = hedge.issue();
+        if (attempt == null) {
+            refund();
+            return;
+        }
+        try {
+            s_hedgeExecutor.execute(() -> {
+                try {
+                    hedge.m_response.complete(timed(latencies, request, attempt));
+                    // Abort the primary, which then returns the hedge's response
+                    primary.cancel();
+                } catch (Throwable t) {
+                    // Always complete the response, the primary may be waiting for it
+                    hedge.m_response.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            hedge.unissue();
+            refund();
+        }
+    }
+    private synchronized void earn() {
+        m_tokens = Math.min(MAX_TOKENS, m_tokens + m_budget);
+    }
+
+    private synchronized void refund() {
+        m_tokens = Math.min(MAX_TOKENS, m_tokens + 1);
+    }
+
+    private synchronized boolean spend() {
+        if (m_tokens < 1) {
+            return false;
+        }
+        m_tokens -= 1;
+        return true;
+    }
+
+    private static <T> T timed(LatencyWindow latencies, Function<Attempt, T> request, Attempt attempt) {
+        final T response = request.apply(attempt);
+        latencies.record(attempt.getElapsed());
+        return response;
+    }
+
+    private static <T> CompletableFuture<T> timedAsync(LatencyWindow latencies,
+            Function<Attempt, CompletableFuture<T>> request, Attempt attempt) {
+        final CompletableFuture<T> future;
+        try {
+            future = request.apply(attempt);
+        } catch (RuntimeException e) {
+            final CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        return future.whenComplete((response, t) -> {
+            if (t == null) {
+                latencies.record(attempt.getElapsed());
+            }
+        });
+    }
+
+    /**
+     * @return a future that completes with the first successful response, or with
+     * the last failure if both requests fail
+     */
+    private static <T> CompletableFuture<T> firstSuccessful(CompletableFuture<T> a, CompletableFuture<T> b) {
+        final CompletableFuture<T> first = new CompletableFuture<>();
+        final AtomicInteger remaining = new AtomicInteger(2);
+        for (CompletableFuture<T> future : Arrays.asList(a, b)) {
+            future.whenComplete((response, t) -> {
+                if (t == null) {
+                    first.complete(response);
+                } else if (remaining.decrementAndGet() == 0) {
+                    first.completeExceptionally(t);
+                }
+            });
+        }
+        return first;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable t) {
+        while (t instanceof CompletionException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        if (t instanceof RuntimeException) {
+            return (RuntimeException)t;
+        }
+        return new WSManException(t);
+    }
+
+    private static ScheduledThreadPoolExecutor createTimer() {
+        final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, r -> {
+            final Thread thread = new Thread(r, "wsman-hedge-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Most of the hedges are never fired, don't keep them around until they expire
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    private static ThreadPoolExecutor createHedgeExecutor() {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        // Hedges are not queued, they are only useful if they are sent right away
+        return new ThreadPoolExecutor(0, MAX_HEDGE_THREADS, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            final Thread thread = new Thread(r, "wsman-hedge-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * A copy of a request.
+     */
+    public static class Attempt {
+        private static final long NOT_SENT = Long.MIN_VALUE;
+
+        private final CompletableFuture<Void> m_cancellation = new CompletableFuture<>();
+        private final long m_issued = System.nanoTime();
+        private final AtomicLong m_sent = new AtomicLong(NOT_SENT);
+
+        /**
+         * @return a future that completes once the request should be aborted
+         */
+        public CompletableFuture<Void> getCancellation() {
+            return m_cancellation;
+        }
+
+        /**
+         * Marks the request as being sent, from which point its latency is measured.
+         * Requests that don't call this are measured from the moment they were issued.
+         */
+        public void sending() {
+            m_sent.compareAndSet(NOT_SENT, System.nanoTime());
+        }
+
+        long getElapsed() {
+            final long sent = m_sent.get();
+            return System.nanoTime() - (sent != NOT_SENT ? sent : m_issued);
+        }
+
+        void cancel() {
+            m_cancellation.complete(null);
+        }
+    }
+
+    /**
+     * The hedge of a blocking request, which may be issued until the primary returns.
+     */
+    private static class Hedge<T> {
+        private final CompletableFuture<T> m_response = new CompletableFuture<>();
+
+        // All of the following are guarded by this
+        private Attempt m_attempt;
+        private boolean m_closed = false;
+
+        synchronized Attempt issue() {
+            if (m_closed) {
+                return null;
+            }
+            m_attempt = new Attempt();
+            return m_attempt;
+        }
+
+        synchronized void unissue() {
+            m_attempt = null;
+        }
+
+        synchronized boolean isIssued() {
+            return m_attempt != null;
+        }
+
+        synchronized void close() {
+            m_closed = true;
+            if (m_attempt != null) {
+                m_attempt.cancel();
+            }
+        }
+    }
+
+    /**
+     * The most recent latencies observed for a given operation.
+     */
+    static class LatencyWindow {
+        // All of the following are guarded by this
+        private final long[] m_samples = new long[WINDOW_SIZE];
+        private int m_count = 0;
+        private int m_next = 0;
+
+        synchronized void record(long latency) {
+            m_samples[m_next] = latency;
+            m_next = (m_next + 1) % m_samples.length;
+            m_count = Math.min(m_count + 1, m_samples.length);
+        }
+
+        /**
+         * @return the latency at the given percentile in nanoseconds, or -1 if not enough latencies were observed
+         */
+        long getPercentile(double percentile) {
+            final long[] samples;
+            synchronized(this) {
+                if (m_count < MIN_SAMPLES) {
+                    return -1;
+                }
+                samples = Arrays.copyOf(m_samples, m_count);
+            }
+            Arrays.sort(samples);
+            final int index = (int)Math.ceil(percentile / 100 * samples.length) - 1;
+            return samples[Math.max(0, Math.min(samples.length - 1, index))];
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.opennms.core.wsman.exceptions.WSManException;
+
+/**
+ * Bounds the number of requests issued against a single host, both in
+ * terms of requests in flight, and of requests started per second.
+ *
+ * Callers that exceed either limit wait their turn. Permits are handed out
+ * in the order in which they were requested, and so are the time slots of
+ * the rate limit, so that a caller issuing many requests cannot starve the
+ * others.
+ *
+ * The rate is limited using a token bucket: the bucket holds up to
+ * maxBurst tokens, is refilled at maxRequestsPerSecond, and every request
+ * takes a token. A host that was left idle can therefore be sent up to
+ * maxBurst requests at once, after which the requests are evenly spaced.
+ *
+ * Limiters are thread-safe, and are usually shared by all of the clients
+ * communicating with a host, see {@link LimitedWSManClientFactory}.
+ */
+public class WSManHostLimiter {
+
+    private final int m_maxInFlight;
+    private final double m_maxRequestsPerSecond;
+    private final int m_maxBurst;
+    private final Semaphore m_inFlight;
+    private final long m_interval;
+    private final long m_burstWindow;
+
+    // Guarded by this, the time at which the bucket will be full again
+    private long m_fullAt = System.nanoTime();
+
+    /**
+     * @param maxInFlight maximum number of requests in flight
+     * @param maxRequestsPerSecond maximum number of requests started per second, or 0 for no limit
+     */
+    public WSManHostLimiter(int maxInFlight, double maxRequestsPerSecond) {
+        this(maxInFlight, maxRequestsPerSecond, 1);
+    }
+
+    /**
+     * @param maxInFlight maximum number of requests in flight
+     * @param maxRequestsPerSecond maximum number of requests started per second, or 0 for no limit
+     * @param maxBurst maximum number of requests started at once when the rate is limited
+     */
+    public WSManHostLimiter(int maxInFlight, double maxRequestsPerSecond, int maxBurst) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be strictly positive");
+        }
+        if (maxRequestsPerSecond < 0) {
+            throw new IllegalArgumentException("maxRequestsPerSecond cannot be negative");
+        }
+        if (maxBurst < 1) {
+            throw new IllegalArgumentException("maxBurst must be strictly positive");
+        }
+        m_maxInFlight = maxInFlight;
+        m_maxRequestsPerSecond = maxRequestsPerSecond;
+        m_maxBurst = maxBurst;
+        m_inFlight = new Semaphore(maxInFlight, true);
+        m_interval = maxRequestsPerSecond > 0 ? (long)(TimeUnit.SECONDS.toNanos(1) / maxRequestsPerSecond) : 0;
+        m_burstWindow = m_interval * (maxBurst - 1);
+    }
+
+    /**
+     * Waits until a request can be issued. Every call must be followed
+     * by a call to {@link #release()} once the request completes.
+     *
+     * @throws WSManException if interrupted while waiting
+     */
+    public void acquire() {
+        try {
+            m_inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WSManException("Interrupted while waiting to issue a request.", e);
+        }
+        try {
+            awaitSlot();
+        } catch (RuntimeException e) {
+            m_inFlight.release();
+            throw e;
+        }
+    }
+
+    public void release() {
+        m_inFlight.release();
+    }
+
+    /**
+     * Takes a token from the bucket, waiting for one to be added if it is empty.
+     */
+    private void awaitSlot() {
+        if (m_interval == 0) {
+            return;
+        }
+        final long slot;
+        synchronized(this) {
+            final long now = System.nanoTime();
+            // A token is available as long as the bucket would be full again within the burst window,
+            // otherwise wait for the window to catch up. Idle time refills the bucket, but doesn't overfill it.
+            slot = Math.max(now, m_fullAt - m_burstWindow);
+            m_fullAt = Math.max(m_fullAt, now) + m_interval;
+        }
+        long remaining;
+        while ((remaining = slot - System.nanoTime()) > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new WSManException("Interrupted while waiting to issue a request.", e);
+            }
+        }
+    }
+
+    public int getMaxInFlight() {
+        return m_maxInFlight;
+    }
+
+    public double getMaxRequestsPerSecond() {
+        return m_maxRequestsPerSecond;
+    }
+
+    public int getMaxBurst() {
+        return m_maxBurst;
+    }
+
+    /**
+     * @return the number of requests currently in flight
+     */
+    public int getInFlight() {
+        return m_maxInFlight - m_inFlight.availablePermits();
+    }
+
+    /**
+     * @return an estimate of the number of callers waiting for a request to complete
+     */
+    public int getQueueLength() {
+        return m_inFlight.getQueueLength();
+    }
+
+    public String toString() {
+        return String.format("WSManHostLimiter[maxInFlight='%d', maxRequestsPerSecond='%s', maxBurst='%d', inFlight='%d', queueLength='%d']",
+                m_maxInFlight, m_maxRequestsPerSecond, m_maxBurst, getInFlight(), getQueueLength());
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman;
+
+import java.net.URL;
+import java.util.Locale;
+
+/**
+ * Helpers used to key the state that is kept per host.
+ */
+public final class WSManHosts {
+
+    private WSManHosts() {}
+
+    /**
+     * Retrieves the key identifying the host of the given URL, which is made of the
+     * host name in lower case, and of the port, or the protocol's default port if not set.
+     */
+    public static String getKey(URL url) {
+        final int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+        return String.format("%s:%d", url.getHost().toLowerCase(Locale.ROOT), port);
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman;
+
+/**
+ * Notified of every request issued by a client, i.e. to collect
+ * latencies, volumes and failure rates per endpoint and resource.
+ *
+ * Listeners are set on the endpoint using {@link WSManEndpoint.Builder#withMetricsListener}.
+ * They are invoked from the thread that completed the request, which may
+ * be an I/O thread, so they must be thread-safe, and should return quickly.
+ * Exceptions thrown by listeners are logged, and otherwise ignored.
+ */
+@FunctionalInterface
+public interface WSManMetricsListener {
+
+    /**
+     * Invoked once a request has completed, successfully or not.
+     *
+     * @param metrics describes the request
+     */
+    public void onRequest(WSManRequestMetrics metrics);
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.w3c.dom.Node;
+
+/**
+ * An operation, or a sequence of operations, issued against a single endpoint.
+ *
+ * Used to describe the work performed by the {@link WSManCollector}.
+ *
+ * @param <T> type of result
+ */
+@FunctionalInterface
+public interface WSManOperation<T> {
+
+    /**
+     * Issues the operation using the given client.
+     *
+     * @param client client bound to the target endpoint
+     * @return the result of the operation
+     */
+    public T invoke(WSManClient client);
+
+    public static WSManOperation<Identity> identify() {
+        return WSManClient::identify;
+    }
+
+    public static WSManOperation<List<Node>> enumerateAndPull(String resourceUri) {
+        Objects.requireNonNull(resourceUri, "resourceUri cannot be null");
+        return client -> {
+            final List<Node> nodes = new ArrayList<>();
+            client.enumerateAndPull(resourceUri, nodes, true);
+            return nodes;
+        };
+    }
+
+    public static WSManOperation<List<Node>> enumerateAndPullUsingFilter(String resourceUri, String dialect, String filter) {
+        Objects.requireNonNull(resourceUri, "resourceUri cannot be null");
+        return client -> {
+            final List<Node> nodes = new ArrayList<>();
+            client.enumerateAndPullUsingFilter(resourceUri, dialect, filter, nodes, true);
+            return nodes;
+        };
+    }
+
+    public static WSManOperation<Node> get(String resourceUri, Map<String, String> selectors) {
+        Objects.requireNonNull(resourceUri, "resourceUri cannot be null");
+        Objects.requireNonNull(selectors, "selectors cannot be null");
+        return client -> client.get(resourceUri, selectors);
+    }
+}
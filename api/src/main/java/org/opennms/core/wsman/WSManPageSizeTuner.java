@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Learns the number of elements to request in every Enumerate and
+ * Pull, so that a resource can be enumerated in as little time as possible.
+ *
+ * The page size is doubled for as long as full pages are returned and the
+ * throughput (items per unit of time) does not degrade. Once bigger pages
+ * turn out to be slower, don't fit in the maximum envelope size, or
+ * cause the server to fault, the page size is capped.
+ *
+ * Only the number of elements is tuned. The maximum envelope size is left
+ * as configured on the endpoint, and only serves as a cap: asking for larger
+ * envelopes faults on servers that enforce a lower limit, and asking for
+ * smaller ones only forces smaller pages, which tuning already gets us.
+ *
+ * Tuners are kept per endpoint and resource URI for the lifetime of
+ * the JVM, so the learned page size is reused by subsequent polls.
+ */
+public class WSManPageSizeTuner {
+
+    /**
+     * Page size used when the endpoint does not specify the maximum number of elements.
+     */
+    static final int DEFAULT_PAGE_SIZE = 32;
+
+    static final int MAX_PAGE_SIZE = 1024;
+
+    /**
+     * Relative change in throughput that is considered significant.
+     */
+    private static final double THRESHOLD = 0.1;
+
+    /**
+     * Fraction of the maximum envelope size that we're willing to fill.
+     */
+    private static final double ENVELOPE_USAGE = 0.8;
+
+    private static final Map<String, WSManPageSizeTuner> s_tuners = new ConcurrentHashMap<>();
+
+    private final Integer m_maxEnvelopeSize;
+
+    // All of the following are guarded by this
+    private int m_pageSize;
+    private int m_ceiling = MAX_PAGE_SIZE;
+    private int m_previousPageSize = 0;
+    private double m_previousThroughput;
+
+    WSManPageSizeTuner(int initialPageSize, Integer maxEnvelopeSize) {
+        m_pageSize = Math.max(1, Math.min(MAX_PAGE_SIZE, initialPageSize));
+        m_maxEnvelopeSize = maxEnvelopeSize;
+    }
+
+    /**
+     * Retrieves the tuner shared by all of the clients enumerating the given resource.
+     */
+    public static WSManPageSizeTuner getTuner(WSManEndpoint endpoint, String resourceUri) {
+        final String key = endpoint.getUrl().toExternalForm() + "|" + resourceUri;
+        return s_tuners.computeIfAbsent(key, k -> new WSManPageSizeTuner(
+                endpoint.getMaxElements() != null ? endpoint.getMaxElements() : DEFAULT_PAGE_SIZE,
+                endpoint.getMaxEnvelopeSize()));
+    }
+
+    public synchronized int getPageSize() {
+        return m_pageSize;
+    }
+
+    /**
+     * Records a page that was successfully retrieved.
+     *
+     * @param pageSize number of elements that were requested
+     * @param itemCount number of elements that were returned, or -1 if unknown
+     * @param endOfSequence true if the page was the last one
+     * @param responseLength length of the response in bytes, or -1 if unknown
+     * @param elapsedNanos time it took to retrieve the page
+     */
+    public synchronized void onPage(int pageSize, int itemCount, boolean endOfSequence, long responseLength, long elapsedNanos) {
+        if (pageSize != m_pageSize) {
+            // Requested before the last change, ignore it
+            return;
+        }
+        if (itemCount < 0) {
+            // We can't tell how full the page was
+            return;
+        } else if (itemCount < pageSize) {
+            if (!endOfSequence && itemCount > 0) {
+                // The server returns fewer elements than requested, so there's no point in asking for more
+                m_ceiling = Math.min(m_ceiling, pageSize);
+            }
+            return;
+        }
+
+        final double throughput = (double)itemCount / Math.max(1, elapsedNanos);
+        if (m_previousPageSize > 0 && throughput < m_previousThroughput * (1 - THRESHOLD)) {
+            // Bigger pages are slower, go back and stay there
+            setCeiling(m_previousPageSize);
+            return;
+        }
+
+        if (m_maxEnvelopeSize != null && responseLength > 0
+                && responseLength * 2 > m_maxEnvelopeSize * ENVELOPE_USAGE) {
+            // Twice as many elements wouldn't fit
+            m_ceiling = Math.min(m_ceiling, pageSize);
+            return;
+        }
+
+        if (pageSize < m_ceiling) {
+            m_previousPageSize = pageSize;
+            m_previousThroughput = throughput;
+            m_pageSize = Math.min(m_ceiling, pageSize * 2);
+        }
+    }
+
+    /**
+     * Records a request that failed because the response would have exceeded an encoding limit.
+     *
+     * @param pageSize number of elements that were requested
+     * @return true if the request should be retried with a smaller page
+     */
+    public synchronized boolean onEncodingLimitExceeded(int pageSize) {
+        if (pageSize <= 1) {
+            return false;
+        }
+        setCeiling(Math.min(m_ceiling, pageSize / 2));
+        return true;
+    }
+
+    private void setCeiling(int ceiling) {
+        m_ceiling = ceiling;
+        m_pageSize = Math.min(m_pageSize, ceiling);
+        m_previousPageSize = 0;
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.opennms.core.wsman.exceptions.HTTPException;
+import org.opennms.core.wsman.exceptions.SOAPFault;
+import org.opennms.core.wsman.exceptions.UnauthorizedException;
+
+/**
+ * Describes a single request issued by a client, as reported to a {@link WSManMetricsListener}.
+ *
+ * Counts that are not known, i.e. the number of bytes when the request
+ * failed before being sent, are reported as -1.
+ */
+public class WSManRequestMetrics {
+
+    public static enum Operation {
+        IDENTIFY,
+        GET,
+        ENUMERATE,
+        PULL
+    }
+
+    /**
+     * Phases of a request, in the order in which they occur. Phases that
+     * weren't observed, i.e. establishing a connection when an existing
+     * one was reused, are not reported.
+     */
+    public static enum Phase {
+        /**
+         * Building and serializing the request, including acquiring a proxy.
+         */
+        PREPARE,
+        /**
+         * Establishing the TCP connection.
+         */
+        CONNECT,
+        /**
+         * Performing the TLS handshake.
+         */
+        TLS_HANDSHAKE,
+        /**
+         * Generating authorization headers, i.e. the Negotiate tokens.
+         */
+        AUTHENTICATION,
+        /**
+         * Sending the request, and waiting for the server to respond.
+         */
+        SERVER,
+        /**
+         * Reading and parsing the response.
+         */
+        PARSE
+    }
+
+    public static enum Outcome {
+        SUCCESS,
+        /**
+         * The server returned a SOAP fault.
+         */
+        FAULT,
+        /**
+         * The server rejected our credentials.
+         */
+        UNAUTHORIZED,
+        /**
+         * The server returned an HTTP error.
+         */
+        HTTP_ERROR,
+        /**
+         * The server could not be reached, or the connection failed or timed out.
+         */
+        TRANSPORT_ERROR,
+        /**
+         * Any other failure, i.e. an invalid response.
+         */
+        ERROR;
+
+        /**
+         * Classifies the failure of a request.
+         *
+         * @param failure the exception thrown by the client, or null if the request succeeded
+         */
+        public static Outcome of(Throwable failure) {
+            if (failure == null) {
+                return SUCCESS;
+            } else if (failure instanceof UnauthorizedException) {
+                return UNAUTHORIZED;
+            } else if (failure instanceof SOAPFault) {
+                return FAULT;
+            } else if (failure instanceof HTTPException) {
+                return HTTP_ERROR;
+            }
+            for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException) {
+                    return TRANSPORT_ERROR;
+                }
+            }
+            return ERROR;
+        }
+    }
+
+    private final WSManEndpoint m_endpoint;
+    private final Operation m_operation;
+    private final String m_resourceUri;
+    private final long m_duration;
+    private final long m_requestBytes;
+    private final long m_responseBytes;
+    private final int m_itemCount;
+    private final int m_pageNumber;
+    private final Throwable m_failure;
+    private final Map<Phase, Long> m_phases;
+
+    private WSManRequestMetrics(Builder builder) {
+        m_endpoint = builder.endpoint;
+        m_operation = builder.operation;
+        m_resourceUri = builder.resourceUri;
+        m_duration = builder.duration;
+        m_requestBytes = builder.requestBytes;
+        m_responseBytes = builder.responseBytes;
+        m_itemCount = builder.itemCount;
+        m_pageNumber = builder.pageNumber;
+        m_failure = builder.failure;
+        // The EnumMap copy constructor rejects empty maps, which is what we get when phase timing is off
+        m_phases = builder.phases.isEmpty() ? Collections.emptyMap()
+                : Collections.unmodifiableMap(new EnumMap<>(builder.phases));
+    }
+
+    public static class Builder {
+       private final WSManEndpoint endpoint;
+       private final Operation operation;
+       private String resourceUri;
+       private long duration;
+       private long requestBytes = -1;
+       private long responseBytes = -1;
+       private int itemCount = -1;
+       private int pageNumber = -1;
+       private Throwable failure;
+       private Map<Phase, Long> phases = Collections.emptyMap();
+
+       public Builder(WSManEndpoint endpoint, Operation operation) {
+           this.endpoint = Objects.requireNonNull(endpoint, "endpoint cannot be null");
+           this.operation = Objects.requireNonNull(operation, "operation cannot be null");
+       }
+
+       public Builder withResourceUri(String resourceUri) {
+           this.resourceUri = resourceUri;
+           return this;
+       }
+
+       /**
+        * Time elapsed between issuing the request and processing its response, in nanoseconds.
+        */
+       public Builder withDuration(long duration) {
+           this.duration = duration;
+           return this;
+       }
+
+       public Builder withRequestBytes(long requestBytes) {
+           this.requestBytes = requestBytes;
+           return this;
+       }
+
+       public Builder withResponseBytes(long responseBytes) {
+           this.responseBytes = responseBytes;
+           return this;
+       }
+
+       public Builder withItemCount(int itemCount) {
+           this.itemCount = itemCount;
+           return this;
+       }
+
+       public Builder withPageNumber(int pageNumber) {
+           this.pageNumber = pageNumber;
+           return this;
+       }
+
+       public Builder withFailure(Throwable failure) {
+           this.failure = failure;
+           return this;
+       }
+
+       /**
+        * Time spent in each of the phases of the request, in nanoseconds.
+        */
+       public Builder withPhases(Map<Phase, Long> phases) {
+           this.phases = Objects.requireNonNull(phases, "phases cannot be null");
+           return this;
+       }
+
+       public WSManRequestMetrics build() {
+           return new WSManRequestMetrics(this);
+       }
+    }
+
+    public WSManEndpoint getEndpoint() {
+        return m_endpoint;
+    }
+
+    public Operation getOperation() {
+        return m_operation;
+    }
+
+    /**
+     * @return the resource URI, or null for Identify requests
+     */
+    public String getResourceUri() {
+        return m_resourceUri;
+    }
+
+    /**
+     * @return the duration of the request, in nanoseconds
+     */
+    public long getDuration() {
+        return m_duration;
+    }
+
+    /**
+     * @return the number of bytes sent on the wire, or -1 if unknown
+     */
+    public long getRequestBytes() {
+        return m_requestBytes;
+    }
+
+    /**
+     * @return the number of bytes received on the wire, or -1 if unknown
+     */
+    public long getResponseBytes() {
+        return m_responseBytes;
+    }
+
+    /**
+     * @return the number of items returned, or -1 if unknown
+     */
+    public int getItemCount() {
+        return m_itemCount;
+    }
+
+    /**
+     * @return the position of the page within its enumeration, starting with 0 for the
+     * Enumerate, and 1 for the first Pull, or -1 if unknown or not part of an enumeration
+     */
+    public int getPageNumber() {
+        return m_pageNumber;
+    }
+
+    /**
+     * @return the exception thrown by the client, or null if the request succeeded
+     */
+    public Throwable getFailure() {
+        return m_failure;
+    }
+
+    public Outcome getOutcome() {
+        return Outcome.of(m_failure);
+    }
+
+    /**
+     * @return the time spent in each of the phases of the request, in nanoseconds,
+     * or an empty map if phase timing is disabled on the endpoint
+     */
+    public Map<Phase, Long> getPhases() {
+        return m_phases;
+    }
+
+    public String toString() {
+        return String.format("WSManRequestMetrics[endpoint='%s', operation='%s', resourceUri='%s', durationMs='%d', "
+                + "requestBytes='%d', responseBytes='%d', itemCount='%d', pageNumber='%d', outcome='%s', phases='%s']",
+                m_endpoint.getUrl(), m_operation, m_resourceUri, TimeUnit.NANOSECONDS.toMillis(m_duration),
+                m_requestBytes, m_responseBytes, m_itemCount, m_pageNumber, getOutcome(), m_phases);
+    }
+}
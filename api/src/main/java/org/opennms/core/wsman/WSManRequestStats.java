@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.opennms.core.wsman.WSManRequestMetrics.Operation;
+import org.opennms.core.wsman.WSManRequestMetrics.Outcome;
+import org.opennms.core.wsman.WSManRequestMetrics.Phase;
+
+/**
+ * A snapshot of the statistics kept by {@link InMemoryWSManMetrics} for
+ * a given endpoint, operation and resource URI.
+ */
+public class WSManRequestStats {
+
+    /**
+     * Number of buckets in the latency histogram. Bucket i holds the latencies
+     * smaller than 2^i microseconds, and greater than or equal to 2^(i-1).
+     */
+    static final int BUCKETS = 40;
+
+    private final String m_url;
+    private final Operation m_operation;
+    private final String m_resourceUri;
+    private final long m_count;
+    private final Map<Outcome, Long> m_failures;
+    private final long m_requestBytes;
+    private final long m_responseBytes;
+    private final long m_items;
+    private final long m_totalDuration;
+    private final long m_maxDuration;
+    private final long[] m_histogram;
+    private final Map<Phase, Long> m_phases;
+
+    protected WSManRequestStats(String url, Operation operation, String resourceUri, long count, Map<Outcome, Long> failures,
+            long requestBytes, long responseBytes, long items, long totalDuration, long maxDuration, long[] histogram,
+            Map<Phase, Long> phases) {
+        m_url = url;
+        m_operation = operation;
+        m_resourceUri = resourceUri;
+        m_count = count;
+        m_failures = Collections.unmodifiableMap(failures);
+        m_requestBytes = requestBytes;
+        m_responseBytes = responseBytes;
+        m_items = items;
+        m_totalDuration = totalDuration;
+        m_maxDuration = maxDuration;
+        m_histogram = histogram;
+        m_phases = Collections.unmodifiableMap(phases);
+    }
+
+    static int getBucket(long micros) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    public String getUrl() {
+        return m_url;
+    }
+
+    public Operation getOperation() {
+        return m_operation;
+    }
+
+    /**
+     * @return the resource URI, or null for Identify requests
+     */
+    public String getResourceUri() {
+        return m_resourceUri;
+    }
+
+    /**
+     * @return the number of requests, including failed ones
+     */
+    public long getCount() {
+        return m_count;
+    }
+
+    public long getFailureCount() {
+        return m_failures.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public long getFailureCount(Outcome outcome) {
+        return m_failures.getOrDefault(outcome, 0L);
+    }
+
+    /**
+     * @return the number of failed requests, by outcome
+     */
+    public Map<Outcome, Long> getFailures() {
+        return m_failures;
+    }
+
+    /**
+     * @return the total number of bytes sent, for the requests where it is known
+     */
+    public long getRequestBytes() {
+        return m_requestBytes;
+    }
+
+    /**
+     * @return the total number of bytes received, for the requests where it is known
+     */
+    public long getResponseBytes() {
+        return m_responseBytes;
+    }
+
+    /**
+     * @return the total number of items received, for the requests where it is known
+     */
+    public long getItems() {
+        return m_items;
+    }
+
+    /**
+     * @return the mean duration of the requests, in nanoseconds
+     */
+    public long getMeanDuration() {
+        return m_count > 0 ? m_totalDuration / m_count : 0;
+    }
+
+    /**
+     * @return the longest duration of the requests, in nanoseconds
+     */
+    public long getMaxDuration() {
+        return m_maxDuration;
+    }
+
+    /**
+     * Estimates the duration at the given percentile, using the histogram.
+     *
+     * @param percentile between 0 and 100
+     * @return the upper bound of the bucket holding the percentile, in nanoseconds
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+        if (m_count == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long)Math.ceil(percentile / 100 * m_count));
+        long seen = 0;
+        for (int i = 0; i < m_histogram.length; i++) {
+            seen += m_histogram[i];
+            if (seen >= rank) {
+                return Math.min(m_maxDuration, TimeUnit.MICROSECONDS.toNanos(1L << i));
+            }
+        }
+        return m_maxDuration;
+    }
+
+    /**
+     * @return the total time spent in the given phase, in nanoseconds, for the requests where it was observed
+     */
+    public long getPhaseDuration(Phase phase) {
+        return m_phases.getOrDefault(phase, 0L);
+    }
+
+    /**
+     * @return the total time spent in every phase, in nanoseconds
+     *
+     * @see WSManEndpoint#isPhaseTiming()
+     */
+    public Map<Phase, Long> getPhases() {
+        return m_phases;
+    }
+
+    public String toString() {
+        return String.format("WSManRequestStats[url='%s', operation='%s', resourceUri='%s', count='%d', failures='%s', "
+                + "requestBytes='%d', responseBytes='%d', items='%d', meanMs='%d', p99Ms='%d', maxMs='%d']",
+                m_url, m_operation, m_resourceUri, m_count, m_failures, m_requestBytes, m_responseBytes, m_items,
+                TimeUnit.NANOSECONDS.toMillis(getMeanDuration()), TimeUnit.NANOSECONDS.toMillis(getPercentile(99)),
+                TimeUnit.NANOSECONDS.toMillis(m_maxDuration));
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.exceptions;
+
+/**
+ * The server could not honor the request because it exceeded an
+ * encoding limit, i.e. the response would not fit in the maximum
+ * envelope size.
+ */
+public class EncodingLimitException extends SOAPFault {
+    private static final long serialVersionUID = -6311730562297318424L;
+
+    public EncodingLimitException(Throwable cause) {
+        super(cause);
+    }
+}
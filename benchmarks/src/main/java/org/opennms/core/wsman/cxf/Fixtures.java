@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.opennms.core.wsman.WSManConstants;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xmlsoap.schemas.ws._2004._09.enumeration.EnumerateResponse;
+import org.xmlsoap.schemas.ws._2004._09.enumeration.PullResponse;
+import org.xmlsoap.schemas.ws._2004._09.transfer.TransferElement;
+
+/**
+ * Loads the responses recorded for the integration tests, and scales them up
+ * to sizes that are closer to what is returned by real systems.
+ */
+class Fixtures {
+
+    private static final String SOAP_ENVELOPE_NS = "http://www.w3.org/2003/05/soap-envelope";
+
+    /**
+     * Knows about all of the types found in the body of the responses, as
+     * does the data binding used by the client.
+     */
+    static final JAXBContext RESPONSE_JAXB_CONTEXT;
+    static {
+        try {
+            RESPONSE_JAXB_CONTEXT = JAXBContext.newInstance(EnumerateResponse.class, PullResponse.class, TransferElement.class,
+                    schemas.dmtf.org.wbem.wsman.v1.ObjectFactory.class);
+        } catch (JAXBException e) {
+            throw new RuntimeException("Failed to create the JAXBContext.", e);
+        }
+    }
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    private Fixtures() {}
+
+    /**
+     * Loads the given response, and repeats the elements found in its items,
+     * or in its payload for responses without items, i.e. the properties of
+     * the instance returned by a Get.
+     *
+     * @param name file name, relative to the __files folder
+     * @param count number of times the elements are repeated
+     * @return the resulting SOAP envelope
+     */
+    static Document load(String name, int count) {
+        final Document doc;
+        try (InputStream is = Fixtures.class.getResourceAsStream("/__files/" + name)) {
+            if (is == null) {
+                throw new IllegalArgumentException("No such fixture: " + name);
+            }
+            final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+            dbf.setNamespaceAware(true);
+            doc = dbf.newDocumentBuilder().parse(is);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to load fixture: " + name, e);
+        }
+
+        // The recorded responses are templates, which are rendered by WireMock
+        final Element relatesTo = (Element)doc.getElementsByTagNameNS(WSManConstants.XML_NS_WS_2004_08_ADDRESSING, "RelatesTo").item(0);
+        if (relatesTo != null) {
+            relatesTo.setTextContent("uuid:00000000-0000-0000-0000-000000000000");
+        }
+
+        Element container = findItems(doc);
+        if (container == null) {
+            container = getPayload(doc);
+        }
+        final List<Node> elements = new ArrayList<>();
+        for (Node child = container.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                elements.add(child);
+            }
+        }
+        for (int i = 1; i < count; i++) {
+            for (Node element : elements) {
+                container.appendChild(element.cloneNode(true));
+            }
+        }
+        return doc;
+    }
+
+    static byte[] toBytes(Document doc) {
+        try {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            final Transformer transformer = TransformerFactory.newInstance().newTransformer();
+            transformer.setOutputProperty(OutputKeys.ENCODING, StandardCharsets.UTF_8.name());
+            transformer.transform(new DOMSource(doc), new StreamResult(baos));
+            return baos.toByteArray();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to serialize the document.", e);
+        }
+    }
+
+    /**
+     * @return the first element of the body of the given envelope, i.e. the response
+     */
+    static Element getPayload(Document doc) {
+        return firstChildElement(getBody(doc));
+    }
+
+    /**
+     * Unmarshals the first element of the body of the given envelope, reading it
+     * in a streaming fashion, as the client does.
+     */
+    static <T> T unmarshal(byte[] envelope, Class<T> type) {
+        try {
+            final XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(envelope));
+            try {
+                // Move to the payload
+                int depth = 0;
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && ++depth == 3) {
+                        return RESPONSE_JAXB_CONTEXT.createUnmarshaller().unmarshal(reader, type).getValue();
+                    }
+                }
+                throw new IllegalArgumentException("The envelope has no payload.");
+            } finally {
+                reader.close();
+            }
+        } catch (JAXBException|XMLStreamException e) {
+            throw new RuntimeException("Failed to unmarshal the payload.", e);
+        }
+    }
+
+    static <T> T unmarshal(Node node, Class<T> type) {
+        try {
+            return RESPONSE_JAXB_CONTEXT.createUnmarshaller().unmarshal(node, type).getValue();
+        } catch (JAXBException e) {
+            throw new RuntimeException("Failed to unmarshal the payload.", e);
+        }
+    }
+
+    private static Element getBody(Document doc) {
+        return (Element)doc.getElementsByTagNameNS(SOAP_ENVELOPE_NS, "Body").item(0);
+    }
+
+    private static Element findItems(Document doc) {
+        Node items = doc.getElementsByTagNameNS(WSManConstants.XML_NS_DMTF_WSMAN_V1, "Items").item(0);
+        if (items == null) {
+            items = doc.getElementsByTagNameNS(WSManConstants.XML_NS_WS_2004_09_ENUMERATION, "Items").item(0);
+        }
+        return (Element)items;
+    }
+
+    private static Element firstChildElement(Element parent) {
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                return (Element)child;
+            }
+        }
+        throw new IllegalArgumentException("No child elements in: " + parent.getNodeName());
+    }
+}
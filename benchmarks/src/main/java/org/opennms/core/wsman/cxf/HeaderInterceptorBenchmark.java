@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cxf.binding.soap.SoapMessage;
+import org.apache.cxf.headers.Header;
+import org.apache.cxf.message.MessageImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of adding the WS-Man headers to an outgoing request,
+ * with the resource URI and selectors taken from the request context,
+ * as they are when proxies are reused.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HeaderInterceptorBenchmark {
+
+    private static final String RESOURCE_URI = "http://schemas.dell.com/wbem/wscim/1/cim-schema/2/DCIM_ComputerSystem";
+
+    @Param({"0", "2", "8"})
+    public int selectors;
+
+    private final WSManHeaderInterceptor m_interceptor = new WSManHeaderInterceptor();
+    private final Map<String, String> m_selectors = new HashMap<>();
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < selectors; i++) {
+            m_selectors.put("Selector" + i, "Value" + i);
+        }
+    }
+
+    @Benchmark
+    public List<Header> handleMessage() {
+        final SoapMessage message = new SoapMessage(new MessageImpl());
+        message.put(WSManHeaderInterceptor.RESOURCE_URI, RESOURCE_URI);
+        message.put(WSManHeaderInterceptor.SELECTORS, m_selectors);
+        m_interceptor.handleMessage(message);
+        return message.getHeaders();
+    }
+}
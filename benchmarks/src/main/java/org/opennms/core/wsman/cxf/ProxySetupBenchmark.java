@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.net.MalformedURLException;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.bus.extension.ExtensionManagerBus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opennms.core.wsman.WSManConstants;
+import org.opennms.core.wsman.WSManEndpoint;
+import org.opennms.core.wsman.WSManVersion;
+
+/**
+ * Measures the cost of creating, and destroying, the proxies used to issue
+ * requests. No requests are issued.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProxySetupBenchmark {
+
+    /**
+     * Whether the proxies share the same bus, as they do within a session,
+     * or get their own, as they do otherwise.
+     */
+    @Param({"false", "true"})
+    public boolean sharedBus;
+
+    private WSManEndpoint m_endpoint;
+    private Bus m_bus;
+
+    @Setup
+    public void setUp() throws MalformedURLException {
+        m_endpoint = new WSManEndpoint.Builder("https://localhost:5986/wsman")
+                .withServerVersion(WSManVersion.WSMAN_1_0)
+                .withBasicAuth("admin", "admin")
+                .withStrictSSL(false)
+                .build();
+        if (sharedBus) {
+            m_bus = new ExtensionManagerBus(null, null, Bus.class.getClassLoader());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (m_bus != null) {
+            m_bus.shutdown(false);
+        }
+    }
+
+    @Benchmark
+    public Object createProxyFor() {
+        final EnumerationOperations enumerator = CXFWSManClient.createProxyFor(m_endpoint, m_bus, EnumerationOperations.class,
+                CXFWSManClient.getEnumerationOutTransformMap(), new HashMap<>());
+        CXFWSManClient.destroy(enumerator);
+        return enumerator;
+    }
+
+    /**
+     * Creates a proxy along with all of the interceptors used by the client, which
+     * always gets its own bus.
+     */
+    @Benchmark
+    public Object getEnumerator() {
+        final EnumerationOperations enumerator = new CXFWSManClient(m_endpoint).getEnumerator(WSManConstants.CIM_ALL_AVAILABLE_CLASSES);
+        CXFWSManClient.destroy(enumerator);
+        return enumerator;
+    }
+}
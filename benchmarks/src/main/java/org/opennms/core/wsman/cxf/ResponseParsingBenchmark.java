@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBElement;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Node;
+import org.xmlsoap.schemas.ws._2004._09.enumeration.EnumerateResponse;
+
+import schemas.dmtf.org.wbem.wsman.v1.AnyListType;
+
+/**
+ * Measures the cost of extracting the items from an optimized enumeration
+ * response, both from the unmarshalled response, and from the raw envelope.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseParsingBenchmark {
+
+    @Param({"optimized-enum-response.xml", "optimized-enum-response-with-fragments-1.xml"})
+    public String fixture;
+
+    @Param({"1", "100", "1000"})
+    public int items;
+
+    private byte[] m_envelope;
+    private EnumerateResponse m_response;
+    private Object m_item;
+
+    @Setup
+    public void setUp() {
+        m_envelope = Fixtures.toBytes(Fixtures.load(fixture, items));
+        m_response = Fixtures.unmarshal(m_envelope, EnumerateResponse.class);
+        for (Object object : m_response.getAny()) {
+            if (object instanceof JAXBElement && ((JAXBElement<?>)object).getValue() instanceof AnyListType) {
+                m_item = ((AnyListType)((JAXBElement<?>)object).getValue()).getAny().get(0);
+            }
+        }
+        if (m_item == null) {
+            throw new IllegalStateException("The response has no items: " + fixture);
+        }
+    }
+
+    @Benchmark
+    public List<Node> getItemsFrom() {
+        final List<Node> nodes = new ArrayList<>(items);
+        TypeUtils.getItemsFrom(m_response, nodes);
+        return nodes;
+    }
+
+    @Benchmark
+    public List<Node> unmarshalAndGetItemsFrom() {
+        final List<Node> nodes = new ArrayList<>(items);
+        TypeUtils.getItemsFrom(Fixtures.unmarshal(m_envelope, EnumerateResponse.class), nodes);
+        return nodes;
+    }
+
+    /**
+     * Converts a single item, which imports it into a new document when it
+     * is wrapped in a wsman:XmlFragment.
+     */
+    @Benchmark
+    public Node toNode() {
+        return TypeUtils.toNode(m_item);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Node;
+import org.xmlsoap.schemas.ws._2004._09.transfer.TransferElement;
+
+/**
+ * Measures the cost of converting the body of a Get response back to a node.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransferElementBenchmark {
+
+    private static final String RESOURCE_URI = "http://schemas.dell.com/wbem/wscim/1/cim-schema/2/DCIM_ComputerSystem";
+    private static final String ELEMENT_TYPE = "DCIM_ComputerSystem";
+
+    /**
+     * Number of times the properties of the recorded instance are repeated.
+     */
+    @Param({"1", "10", "100"})
+    public int scale;
+
+    private byte[] m_envelope;
+    private TransferElement m_transferElement;
+
+    @Setup
+    public void setUp() {
+        m_envelope = Fixtures.toBytes(Fixtures.load("get-response.xml", scale));
+        m_transferElement = Fixtures.unmarshal(m_envelope, TransferElement.class);
+    }
+
+    @Benchmark
+    public Node transferElementToNode() {
+        return TypeUtils.transferElementToNode(m_transferElement, RESOURCE_URI, ELEMENT_TYPE);
+    }
+
+    @Benchmark
+    public Node unmarshalAndTransferElementToNode() {
+        return TypeUtils.transferElementToNode(Fixtures.unmarshal(m_envelope, TransferElement.class), RESOURCE_URI, ELEMENT_TYPE);
+    }
+}
@@ -73,6 +73,9 @@ public class WSManCli {
     @Option(name="-w", usage="server version")
     private WSManVersion serverVersion = WSManVersion.WSMAN_1_2;
 
+    @Option(name="-adaptivePageSize", usage="adapt the number of elements requested per page")
+    private boolean adaptivePageSize = false;
+
     @Option(name="-v", usage="logging level")
     private StandardLevel logLevel = StandardLevel.INFO;
 
@@ -120,7 +123,8 @@ public class WSManCli {
         WSManEndpoint.Builder builder = new WSManEndpoint.Builder(url)
                 .withStrictSSL(strictSSL)
                 .withServerVersion(serverVersion)
-                .withMaxElements(100);
+                .withMaxElements(100)
+                .withAdaptivePageSize(adaptivePageSize);
         if (username != null && password != null) {
             builder.withBasicAuth(username, password);
         } else if (gssAuth) {
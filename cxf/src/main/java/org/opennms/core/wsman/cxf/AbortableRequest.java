@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.net.HttpURLConnection;
+
+/**
+ * Lets a request issued through the blocking conduit be aborted from
+ * another thread, by disconnecting the connection it is using.
+ *
+ * A request is made abortable by storing an instance in the proxy's request
+ * context under {@link #KEY}, which the {@link AbortingOutInterceptor} attaches
+ * to the connection opened by the conduit. Requests issued through the
+ * non-blocking conduit have no such connection, and run to completion,
+ * unless they are aborted before being sent.
+ */
+class AbortableRequest {
+    public static final String KEY = AbortableRequest.class.getName();
+
+    private final Runnable m_onSending;
+
+    // All of the following are guarded by this
+    private HttpURLConnection m_connection;
+    private boolean m_aborted = false;
+    private boolean m_done = false;
+
+    /**
+     * @param onSending invoked when the request is about to be sent
+     */
+    AbortableRequest(Runnable onSending) {
+        m_onSending = onSending;
+    }
+
+    /**
+     * Attaches the connection over which the request is about to be sent, if any.
+     *
+     * @return false if the request was already aborted, and shouldn't be sent
+     */
+    synchronized boolean sending(HttpURLConnection connection) {
+        if (m_aborted) {
+            return false;
+        }
+        m_connection = connection;
+        m_onSending.run();
+        return true;
+    }
+
+    /**
+     * Aborts the request, unless its response was already handled.
+     */
+    synchronized void abort() {
+        if (m_aborted || m_done) {
+            return;
+        }
+        m_aborted = true;
+        if (m_connection != null) {
+            // Closes the socket, which fails the pending write or read
+            m_connection.disconnect();
+            m_connection = null;
+        }
+    }
+
+    /**
+     * Marks the request as done, after which the connection may be reused, and must be left alone.
+     */
+    synchronized void done() {
+        m_done = true;
+        m_connection = null;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.net.HttpURLConnection;
+
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.transport.http.URLConnectionHTTPConduit;
+import org.opennms.core.wsman.exceptions.WSManException;
+
+/**
+ * Attaches the connection opened by the blocking conduit to the request,
+ * so that it can be aborted while waiting for the response.
+ *
+ * The interceptor only acts when the outgoing request carries an
+ * {@link AbortableRequest} under {@link AbortableRequest#KEY}. Requests
+ * that were aborted before reaching this point are never sent.
+ */
+public class AbortingOutInterceptor extends AbstractPhaseInterceptor<Message> {
+
+    public AbortingOutInterceptor() {
+        // The conduit sets up the connection when preparing to send
+        super(Phase.PRE_STREAM);
+    }
+
+    @Override
+    public void handleMessage(Message message) throws Fault {
+        final Object request = message.get(AbortableRequest.KEY);
+        if (!(request instanceof AbortableRequest)) {
+            return;
+        }
+        final Object connection = message.get(URLConnectionHTTPConduit.KEY_HTTP_CONNECTION);
+        if (!((AbortableRequest)request).sending(connection instanceof HttpURLConnection ? (HttpURLConnection)connection : null)) {
+            throw new Fault(new WSManException("The request was aborted before being sent."));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.cxf.interceptor.DocLiteralInInterceptor;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Captures the first element of the response body as a DOM element,
+ * bypassing JAXB.
+ *
+ * The interceptor only acts when the outgoing request carries a
+ * {@link CapturedBody} under {@link CapturedBody#KEY}, in which case
+ * the element is stored there and the operation returns null.
+ */
+public class BodyCapturingInInterceptor extends AbstractPhaseInterceptor<Message> {
+
+    /**
+     * Holds the element captured from the response body.
+     */
+    static class CapturedBody {
+        public static final String KEY = CapturedBody.class.getName();
+
+        private Element m_element;
+        private boolean m_complete = false;
+
+        Element getElement() {
+            return m_element;
+        }
+
+        boolean isComplete() {
+            return m_complete;
+        }
+    }
+
+    public BodyCapturingInInterceptor() {
+        super(Phase.UNMARSHAL);
+        addBefore(DocLiteralInInterceptor.class.getName());
+    }
+
+    @Override
+    public void handleMessage(Message message) throws Fault {
+        final Message outMessage = message.getExchange().getOutMessage();
+        final Object body = outMessage != null ? outMessage.get(CapturedBody.KEY) : null;
+        if (!(body instanceof CapturedBody)) {
+            // Let JAXB handle it
+            return;
+        }
+
+        final XMLStreamReader reader = message.getContent(XMLStreamReader.class);
+        if (reader == null) {
+            return;
+        }
+
+        final CapturedBody capturedBody = (CapturedBody)body;
+        try {
+            if (StaxDomReader.toNextStartElement(reader)) {
+                final Document document = TypeUtils.createNewDocument();
+                capturedBody.m_element = StaxDomReader.readElement(reader, document, document);
+            }
+        } catch (XMLStreamException e) {
+            throw new Fault(e);
+        }
+        capturedBody.m_complete = true;
+
+        // The body was consumed, so skip the default unmarshalling
+        StaxDomReader.skipUnmarshalling(message);
+    }
+}
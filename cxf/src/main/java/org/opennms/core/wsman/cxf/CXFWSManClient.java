@@ -21,11 +21,23 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
 
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.X509TrustManager;
 import javax.xml.bind.JAXBElement;
 import javax.xml.namespace.QName;
+import javax.xml.ws.AsyncHandler;
 import javax.xml.ws.BindingProvider;
 
 import org.apache.cxf.Bus;
@@ -43,6 +55,7 @@ import org.apache.cxf.message.Message;
 import org.apache.cxf.transport.http.HTTPConduit;
 import org.apache.cxf.transport.http.auth.DefaultBasicAuthSupplier;
 import org.apache.cxf.transport.http.auth.HttpAuthHeader;
+import org.apache.cxf.transports.http.configuration.ConnectionType;
 import org.apache.cxf.transports.http.configuration.HTTPClientPolicy;
 import org.apache.cxf.ws.addressing.AddressingProperties;
 import org.apache.cxf.ws.addressing.AttributedURIType;
@@ -51,11 +64,23 @@ import org.apache.cxf.ws.addressing.JAXWSAConstants;
 import org.apache.cxf.ws.addressing.WSAddressingFeature;
 import org.apache.cxf.ws.addressing.WSAddressingFeature.AddressingResponses;
 import org.apache.cxf.ws.addressing.soap.VersionTransformer;
+import org.opennms.core.wsman.EnumerationIterator;
 import org.opennms.core.wsman.Identity;
+import org.opennms.core.wsman.WSManAsyncClient;
 import org.opennms.core.wsman.WSManClient;
+import org.opennms.core.wsman.WSManCapabilitiesCache;
 import org.opennms.core.wsman.WSManConstants;
 import org.opennms.core.wsman.WSManEndpoint;
+import org.opennms.core.wsman.WSManHedger;
+import org.opennms.core.wsman.WSManHedger.Attempt;
+import org.opennms.core.wsman.WSManMetricsListener;
+import org.opennms.core.wsman.WSManPageSizeTuner;
+import org.opennms.core.wsman.WSManRequestMetrics;
+import org.opennms.core.wsman.WSManRequestMetrics.Operation;
 import org.opennms.core.wsman.WSManVersion;
+import org.opennms.core.wsman.cxf.BodyCapturingInInterceptor.CapturedBody;
+import org.opennms.core.wsman.cxf.EnvelopeTemplateOutInterceptor.TemplatedEnvelope;
+import org.opennms.core.wsman.exceptions.EncodingLimitException;
 import org.opennms.core.wsman.exceptions.HTTPException;
 import org.opennms.core.wsman.exceptions.InvalidResourceURI;
 import org.opennms.core.wsman.exceptions.SOAPFault;
@@ -63,17 +88,24 @@ import org.opennms.core.wsman.exceptions.UnauthorizedException;
 import org.opennms.core.wsman.exceptions.WSManException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.xmlsoap.schemas.ws._2004._09.enumeration.Enumerate;
 import org.xmlsoap.schemas.ws._2004._09.enumeration.EnumerateResponse;
 import org.xmlsoap.schemas.ws._2004._09.enumeration.EnumerationContextType;
 import org.xmlsoap.schemas.ws._2004._09.enumeration.FilterType;
+import org.xmlsoap.schemas.ws._2004._09.enumeration.GetStatus;
+import org.xmlsoap.schemas.ws._2004._09.enumeration.GetStatusResponse;
 import org.xmlsoap.schemas.ws._2004._09.enumeration.Pull;
 import org.xmlsoap.schemas.ws._2004._09.enumeration.PullResponse;
+import org.xmlsoap.schemas.ws._2004._09.enumeration.Release;
+import org.xmlsoap.schemas.ws._2004._09.enumeration.Renew;
+import org.xmlsoap.schemas.ws._2004._09.enumeration.RenewResponse;
 import org.xmlsoap.schemas.ws._2004._09.transfer.TransferElement;
 
 import schemas.dmtf.org.wbem.wsman.v1.AttributableEmpty;
 import schemas.dmtf.org.wbem.wsman.v1.AttributablePositiveInteger;
+import schemas.dmtf.org.wbem.wsman.v1.IdentifyResponseType;
 import schemas.dmtf.org.wbem.wsman.v1.IdentifyType;
 import schemas.dmtf.org.wbem.wsman.v1.MaxEnvelopeSizeType;
 
@@ -82,22 +114,62 @@ import schemas.dmtf.org.wbem.wsman.v1.MaxEnvelopeSizeType;
  *
  * @author jwhite
  */
-public class CXFWSManClient implements WSManClient {
+public class CXFWSManClient implements WSManClient, WSManAsyncClient {
     private static final Logger LOG = LoggerFactory.getLogger(CXFWSManClient.class);
     private static final String CONTENT_TYPE_HEADER = "Content-Type";
     private static final String MEDIA_TYPE_SOAP_UTF8 = "application/soap+xml;charset=UTF-8";
+    private static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+    private static final String ACCEPT_ENCODING_GZIP_DEFLATE = "gzip, deflate";
     private static final org.apache.cxf.ws.addressing.ObjectFactory WSA_OBJECT_FACTORY = new org.apache.cxf.ws.addressing.ObjectFactory();
     private static final schemas.dmtf.org.wbem.wsman.v1.ObjectFactory WSMAN_OBJECT_FACTORY = new schemas.dmtf.org.wbem.wsman.v1.ObjectFactory();
 
+    /**
+     * Maximum number of threads used to run the asynchronous operations of the
+     * clients that aren't bound to a session, unless they were given an executor.
+     */
+    public static final int DEFAULT_ASYNC_THREADS = 16;
+
+    // Operations that aren't bound to a session block while waiting for the response,
+    // so they are run on threads of their own instead of tying up the common pool
+    private static final Executor s_asyncExecutor = createAsyncExecutor();
+
     private final WSManEndpoint m_endpoint;
+    private final CXFWSManSession m_session;
+    private final Executor m_executor;
+    private volatile EnvelopeTemplates m_templates;
+    private final EnumerationContexts m_contexts;
 
     public CXFWSManClient(WSManEndpoint endpoint) {
+        this(endpoint, null, s_asyncExecutor);
+    }
+
+    /**
+     * Creates a new client that runs its asynchronous operations on the given executor.
+     */
+    public CXFWSManClient(WSManEndpoint endpoint, Executor executor) {
+        this(endpoint, null, Objects.requireNonNull(executor, "executor cannot be null"));
+    }
+
+    /**
+     * Creates a new client that borrows its proxies from the given session,
+     * or creates a new proxy for every operation if the session is null.
+     */
+    protected CXFWSManClient(WSManEndpoint endpoint, CXFWSManSession session) {
+        this(endpoint, session, s_asyncExecutor);
+    }
+
+    private CXFWSManClient(WSManEndpoint endpoint, CXFWSManSession session, Executor executor) {
         m_endpoint = Objects.requireNonNull(endpoint, "endpoint cannot be null");
+        m_session = session;
+        m_executor = executor;
+        // Contexts opened by any of the session's clients are tracked by the session. Without a session,
+        // nothing maintains them, so only the most recently used ones are tracked, see EnumerationContexts
+        m_contexts = session != null ? session.getEnumerationContexts() : new EnumerationContexts();
     }
 
     public IdentifyOperations getIdentifier() {
         // Create the proxy
-        IdentifyOperations identifier = createProxyFor(IdentifyOperations.class, new HashMap<>(), new HashMap<>());
+        IdentifyOperations identifier = createProxyFor(m_endpoint, null, IdentifyOperations.class, new HashMap<>(), new HashMap<>());
         Client cxfClient = ClientProxy.getClient(identifier);
 
         // The Identify command does not require any headers but Windows Server 2008
@@ -110,55 +182,171 @@ public class CXFWSManClient implements WSManClient {
     }
 
     public EnumerationOperations getEnumerator(String resourceUri) {
-        // Relocate the Filter element to the WS-Man namespace.
-        // Our WSDLs generate it one package but the servers expect it to be in the other
-        Map<String, String> outTransformMap = new HashMap<>();
-        outTransformMap.put("{" + WSManConstants.XML_NS_WS_2004_09_ENUMERATION + "}Filter",
-                "{" + WSManConstants.XML_NS_DMTF_WSMAN_V1 + "}Filter");
-
         // Create the proxy
-        EnumerationOperations enumerator = createProxyFor(EnumerationOperations.class, outTransformMap, new HashMap<>());
+        EnumerationOperations enumerator = createProxyFor(getNegotiatedEndpoint(), null, EnumerationOperations.class,
+                getEnumerationOutTransformMap(), new HashMap<>());
         Client cxfClient = ClientProxy.getClient(enumerator);
 
         // Add the WS-Man ResourceURI to the SOAP header
         WSManHeaderInterceptor interceptor = new WSManHeaderInterceptor(resourceUri);
         cxfClient.getOutInterceptors().add(interceptor);
 
+        // Optionally write the requests from templates, and read the responses straight from the stream
+        cxfClient.getOutInterceptors().add(new EnvelopeTemplateOutInterceptor());
+        cxfClient.getInInterceptors().add(new StreamingEnumerationInInterceptor());
+
         return enumerator;
     }
 
     public TransferOperations getTransferer(String resourceUri, String elementType, Map<String, String> selectors) {
-        // Modify the incoming response to use a generic element instead of the one provided
-        // The JAX-WS implementation excepts the element types to match those in specified
-        // by the annotated interface, but these are subject to change for every call we make
-        Map<String, String> inTransformMap = new HashMap<>();
-        inTransformMap.put(String.format("{%s}%s", resourceUri, elementType),
-                "{" + WSManConstants.XML_NS_WS_2004_09_TRANSFER + "}TransferElement");
-
         // Create the proxy
-        TransferOperations transferer = createProxyFor(TransferOperations.class, new HashMap<>(), inTransformMap);
+        TransferOperations transferer = createProxyFor(getNegotiatedEndpoint(), null, TransferOperations.class,
+                new HashMap<>(), getTransferInTransformMap(resourceUri, elementType));
         Client cxfClient = ClientProxy.getClient(transferer);
 
         // Add the WS-Man ResourceURI and SelectorSet to the SOAP header
         WSManHeaderInterceptor interceptor = new WSManHeaderInterceptor(resourceUri, selectors);
         cxfClient.getOutInterceptors().add(interceptor);
 
+        // Optionally write the requests from templates, and capture the response element as-is
+        cxfClient.getOutInterceptors().add(new EnvelopeTemplateOutInterceptor());
+        cxfClient.getInInterceptors().add(new BodyCapturingInInterceptor());
+
         return transferer;
     }
 
-    @Override
-    public Identity identify() {
-        final IdentifyOperations identifier = getIdentifier();
+    /**
+     * Retrieves the endpoint used to issue the Enumeration and Transfer operations.
+     *
+     * When server version negotiation is enabled, the server is identified on first use,
+     * and the endpoint is updated to use the version that matches its capabilities.
+     * The Identify operation itself is always issued using the configured endpoint.
+     */
+    protected WSManEndpoint getNegotiatedEndpoint() {
+        return negotiate(m_endpoint, this::identify);
+    }
+
+    protected static WSManEndpoint negotiate(WSManEndpoint endpoint, Supplier<Identity> identifier) {
+        if (!endpoint.isServerVersionNegotiation()) {
+            return endpoint;
+        }
         try {
-            return new IdentifyResponseWrapper(identifier.identify(new IdentifyType()));
+            return WSManCapabilitiesCache.getDefault().get(endpoint, e -> identifier.get()).applyTo(endpoint);
         } catch (RuntimeException e) {
-            throw wrapException(e);
-        } finally {
+            LOG.debug("Failed to identify {}. Using the configured server version: {}.",
+                    endpoint.getUrl(), endpoint.getServerVersion(), e);
+            return endpoint;
+        }
+    }
+
+    /**
+     * Retrieves the templates matching the negotiated endpoint, or null if they are disabled.
+     */
+    private EnvelopeTemplates getEnvelopeTemplates() {
+        if (!m_endpoint.isEnvelopeTemplates()) {
+            return null;
+        } else if (m_session != null) {
+            // Share the templates with all of the other clients bound to the same session
+            return m_session.getEnvelopeTemplates();
+        }
+        final WSManEndpoint endpoint = getNegotiatedEndpoint();
+        EnvelopeTemplates templates = m_templates;
+        if (templates == null || !templates.isFor(endpoint)) {
+            templates = new EnvelopeTemplates(endpoint);
+            m_templates = templates;
+        }
+        return templates;
+    }
+
+    protected static Map<String, String> getEnumerationOutTransformMap() {
+        // Relocate the Filter element to the WS-Man namespace.
+        // Our WSDLs generate it one package but the servers expect it to be in the other
+        Map<String, String> outTransformMap = new HashMap<>();
+        outTransformMap.put("{" + WSManConstants.XML_NS_WS_2004_09_ENUMERATION + "}Filter",
+                "{" + WSManConstants.XML_NS_DMTF_WSMAN_V1 + "}Filter");
+        return outTransformMap;
+    }
+
+    protected static Map<String, String> getTransferInTransformMap(String resourceUri, String elementType) {
+        // Modify the incoming response to use a generic element instead of the one provided
+        // The JAX-WS implementation excepts the element types to match those in specified
+        // by the annotated interface, but these are subject to change for every call we make
+        Map<String, String> inTransformMap = new HashMap<>();
+        inTransformMap.put(String.format("{%s}%s", resourceUri, elementType),
+                "{" + WSManConstants.XML_NS_WS_2004_09_TRANSFER + "}TransferElement");
+        return inTransformMap;
+    }
+
+    private IdentifyOperations acquireIdentifier() {
+        return m_session != null ? m_session.borrowIdentifier() : getIdentifier();
+    }
+
+    private void release(IdentifyOperations identifier) {
+        if (m_session != null) {
+            m_session.release(identifier);
+        } else {
             destroy(identifier);
         }
     }
 
-    private EnumerateResponse enumerate(String resourceUri, String dialect, String filter, boolean optimized) {
+    private EnumerationOperations acquireEnumerator(String resourceUri) {
+        return m_session != null ? m_session.borrowEnumerator(resourceUri) : getEnumerator(resourceUri);
+    }
+
+    private void release(EnumerationOperations enumerator) {
+        if (m_session != null) {
+            m_session.release(enumerator);
+        } else {
+            destroy(enumerator);
+        }
+    }
+
+    private TransferOperations acquireTransferer(String resourceUri, String elementType, Map<String, String> selectors) {
+        return m_session != null ? m_session.borrowTransferer(resourceUri, elementType, selectors)
+                : getTransferer(resourceUri, elementType, selectors);
+    }
+
+    private void release(TransferOperations transferer) {
+        if (m_session != null) {
+            m_session.release(transferer);
+        } else {
+            destroy(transferer);
+        }
+    }
+
+    @Override
+    public Identity identify() {
+        final WSManHedger hedger = WSManHedger.getHedger(m_endpoint);
+        if (hedger == null) {
+            return identifyOnce(null);
+        } else if (m_session == null) {
+            // Issue the request from the calling thread, the hedger provides the thread for the hedge
+            return hedger.invoke("Identify", this::identifyOnce);
+        }
+        return hedger.invokeAsync("Identify", this::identifyAsync);
+    }
+
+    /**
+     * Issues an Identify, which is aborted when the given attempt is cancelled, if any.
+     */
+    private Identity identifyOnce(Attempt attempt) {
+        return measure(Operation.IDENTIFY, null, -1, counts -> {
+            final IdentifyOperations identifier = acquireIdentifier();
+            countBytes(identifier, counts);
+            final AbortableRequest abortable = abortOn(identifier, attempt);
+            try {
+                return new IdentifyResponseWrapper(identifier.identify(new IdentifyType()));
+            } catch (RuntimeException e) {
+                throw wrapException(e);
+            } finally {
+                done(abortable);
+                clearRequestContext(identifier);
+                release(identifier);
+            }
+        }, identity -> -1);
+    }
+
+    private Enumerate createEnumerateRequest(String dialect, String filter, boolean optimized, Integer maxElements) {
         // Create the enumeration request
         Enumerate enumerate = new Enumerate();
 
@@ -186,58 +374,318 @@ public class CXFWSManClient implements WSManClient {
         }
 
         // Optionally specify the maximum number of elements to return
-        if (m_endpoint.getMaxElements() != null) {
+        if (maxElements != null) {
             AttributablePositiveInteger maxElementsValue = new AttributablePositiveInteger();
-            maxElementsValue.setValue(BigInteger.valueOf(m_endpoint.getMaxElements()));
-            JAXBElement<AttributablePositiveInteger> maxElements = WSMAN_OBJECT_FACTORY.createMaxElements(maxElementsValue);
-            enumerate.getAny().add(maxElements);
+            maxElementsValue.setValue(BigInteger.valueOf(maxElements));
+            JAXBElement<AttributablePositiveInteger> maxElementsElement = WSMAN_OBJECT_FACTORY.createMaxElements(maxElementsValue);
+            enumerate.getAny().add(maxElementsElement);
         }
+        return enumerate;
+    }
+
+    /**
+     * Requests for the response of the next operation issued by the given proxy to
+     * be read straight from the stream, if enabled.
+     *
+     * @return the page to be filled, or null if streaming is disabled
+     */
+    private EnumerationPage expectPage(EnumerationOperations enumerator) {
+        if (!m_endpoint.isStreamingResponses()) {
+            return null;
+        }
+        final EnumerationPage page = new EnumerationPage();
+        ClientProxy.getClient(enumerator).getRequestContext().put(EnumerationPage.KEY, page);
+        return page;
+    }
+
+    /**
+     * Requests for the next operation issued by the given proxy to be written
+     * using the given template, if enabled.
+     */
+    private void useTemplate(Object proxy, Function<EnvelopeTemplates, EnvelopeTemplate> template, Map<String, String> values) {
+        final EnvelopeTemplates templates = getEnvelopeTemplates();
+        if (templates == null) {
+            return;
+        }
+        ClientProxy.getClient(proxy).getRequestContext().put(TemplatedEnvelope.KEY,
+                new TemplatedEnvelope(template.apply(templates), values));
+    }
+
+    /**
+     * Removes any of the per-operation properties from the given proxy's request context,
+     * so that they don't apply to subsequent operations.
+     */
+    private static void clearRequestContext(Object proxy) {
+        final Map<String, Object> requestContext = ClientProxy.getClient(proxy).getRequestContext();
+        requestContext.remove(EnumerationPage.KEY);
+        requestContext.remove(CapturedBody.KEY);
+        requestContext.remove(TemplatedEnvelope.KEY);
+        requestContext.remove(RequestTrace.KEY);
+        requestContext.remove(AbortableRequest.KEY);
+    }
 
-        final EnumerationOperations enumerator = getEnumerator(resourceUri);
+    /**
+     * Lets the next operation issued by the given proxy be aborted once the given
+     * attempt is cancelled, if any, and marks the attempt as sent when it is.
+     *
+     * @return the request, which must be marked as done once the operation returns, or null
+     */
+    private static AbortableRequest abortOn(Object proxy, Attempt attempt) {
+        if (attempt == null) {
+            return null;
+        }
+        final AbortableRequest abortable = new AbortableRequest(attempt::sending);
+        ClientProxy.getClient(proxy).getRequestContext().put(AbortableRequest.KEY, abortable);
+        attempt.getCancellation().thenRun(abortable::abort);
+        return abortable;
+    }
+
+    private static void done(AbortableRequest abortable) {
+        if (abortable != null) {
+            abortable.done();
+        }
+    }
+
+    /**
+     * Requests for the next operation issued by the given proxy to be recorded
+     * in the given trace, if any.
+     */
+    private static void countBytes(Object proxy, RequestTrace trace) {
+        if (trace != null) {
+            ClientProxy.getClient(proxy).getRequestContext().put(RequestTrace.KEY, trace);
+        }
+    }
+
+    /**
+     * Issues a request, and notifies the metrics listener, if any, of its outcome.
+     *
+     * @param request issues the request, recording it in the given trace, which is null if there is no listener
+     * @param itemCount retrieves the number of items in the response
+     */
+    private <T> T measure(Operation operation, String resourceUri, int pageNumber, Function<RequestTrace, T> request,
+            ToIntFunction<T> itemCount) {
+        if (m_endpoint.getMetricsListener() == null) {
+            return request.apply(null);
+        }
+        final RequestTrace trace = new RequestTrace(System.nanoTime());
+        final T response;
         try {
-            return enumerator.enumerate(enumerate);
+            response = request.apply(trace);
         } catch (RuntimeException e) {
-            throw wrapException(e);
-        } finally {
-            destroy(enumerator);
+            report(operation, resourceUri, pageNumber, trace, -1, e);
+            throw e;
         }
+        report(operation, resourceUri, pageNumber, trace, itemCount.applyAsInt(response), null);
+        return response;
     }
 
-    private String enumerateAndPull(String resourceUri, String dialect, String filter, List<Node> nodes, boolean recursive) {
-        EnumerateResponse response = enumerate(resourceUri, dialect, filter, true);
-        if (response == null) {
-            throw new WSManException("Enumeration failed. See logs for details.");
+    /**
+     * Asynchronous variant of {@link #measure}.
+     */
+    private <T> CompletableFuture<T> measureAsync(Operation operation, String resourceUri, int pageNumber,
+            Function<RequestTrace, CompletableFuture<T>> request, ToIntFunction<T> itemCount) {
+        if (m_endpoint.getMetricsListener() == null) {
+            return request.apply(null);
+        }
+        final RequestTrace trace = new RequestTrace(System.nanoTime());
+        return request.apply(trace).whenComplete((response, t) -> report(operation, resourceUri, pageNumber, trace,
+                t == null ? itemCount.applyAsInt(response) : -1, t));
+    }
+
+    private void report(Operation operation, String resourceUri, int pageNumber, RequestTrace trace,
+            int itemCount, Throwable failure) {
+        final WSManMetricsListener listener = m_endpoint.getMetricsListener();
+        final Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        final long end = System.nanoTime();
+        final WSManRequestMetrics metrics = new WSManRequestMetrics.Builder(m_endpoint, operation)
+                .withResourceUri(resourceUri)
+                .withPageNumber(pageNumber)
+                .withDuration(end - trace.getStart())
+                .withPhases(m_endpoint.isPhaseTiming() ? trace.getPhases(end) : Collections.emptyMap())
+                .withRequestBytes(trace.getSentBytes())
+                .withResponseBytes(trace.getReceivedBytes())
+                .withItemCount(itemCount)
+                .withFailure(cause)
+                .build();
+        try {
+            listener.onRequest(metrics);
+        } catch (RuntimeException e) {
+            LOG.warn("The metrics listener failed on {}.", metrics, e);
+        }
+    }
+
+    private void useEnumerateTemplate(EnumerationOperations enumerator, String resourceUri, String dialect, String filter, boolean optimized,
+            Integer maxElements) {
+        final Map<String, String> values = new HashMap<>();
+        if (maxElements != null) {
+            values.put(EnvelopeTemplates.MAX_ELEMENTS, maxElements.toString());
+        }
+        final boolean filtered = dialect != null && filter != null;
+        if (filtered) {
+            values.put(EnvelopeTemplates.FILTER, filter);
+        }
+        useTemplate(enumerator, templates -> templates.getEnumerate(resourceUri, filtered ? dialect : null, optimized), values);
+    }
+
+    private void usePullTemplate(EnumerationOperations enumerator, String resourceUri, String contextId, Integer maxElements) {
+        final Map<String, String> values = new HashMap<>();
+        if (maxElements != null) {
+            values.put(EnvelopeTemplates.MAX_ELEMENTS, maxElements.toString());
+        }
+        values.put(EnvelopeTemplates.CONTEXT_ID, contextId);
+        useTemplate(enumerator, templates -> templates.getPull(resourceUri), values);
+    }
+
+    private void useGetTemplate(TransferOperations transferer, String resourceUri, Map<String, String> selectors) {
+        final Map<String, String> values = new HashMap<>();
+        selectors.forEach((name, value) -> values.put(EnvelopeTemplates.SELECTOR_PREFIX + name, value));
+        useTemplate(transferer, templates -> templates.getGet(resourceUri, selectors.keySet()), values);
+    }
+
+    /**
+     * Retrieves the tuner used to size the pages of the given resource, or null if the page size is fixed.
+     */
+    private WSManPageSizeTuner getPageSizeTuner(String resourceUri) {
+        return m_endpoint.isAdaptivePageSize() ? WSManPageSizeTuner.getTuner(m_endpoint, resourceUri) : null;
+    }
+
+    private Integer getMaxElements(WSManPageSizeTuner tuner) {
+        return tuner != null ? Integer.valueOf(tuner.getPageSize()) : m_endpoint.getMaxElements();
+    }
+
+    /**
+     * Issues an Enumerate, adapting the page size if enabled.
+     */
+    private EnumerationPage enumerate(String resourceUri, String dialect, String filter, boolean optimized) {
+        final WSManPageSizeTuner tuner = getPageSizeTuner(resourceUri);
+        while (true) {
+            final Integer maxElements = getMaxElements(tuner);
+            final long start = System.nanoTime();
+            final EnumerationPage page;
+            try {
+                page = enumerate(resourceUri, dialect, filter, optimized, maxElements);
+            } catch (EncodingLimitException e) {
+                if (tuner != null && tuner.onEncodingLimitExceeded(maxElements)) {
+                    continue;
+                }
+                throw e;
+            }
+            if (tuner != null) {
+                tuner.onPage(maxElements, page.getItemCount(), page.isEndOfSequence(), page.getResponseLength(),
+                        System.nanoTime() - start);
+            }
+            return page;
         }
+    }
 
-        String nextContextId = TypeUtils.getContextIdFrom(response);
-        boolean endOfSequence = TypeUtils.getItemsFrom(response, nodes);
+    private EnumerationPage enumerate(String resourceUri, String dialect, String filter, boolean optimized, Integer maxElements) {
+        final Enumerate enumerate = createEnumerateRequest(dialect, filter, optimized, maxElements);
+        return measure(Operation.ENUMERATE, resourceUri, 0, counts -> {
+            final EnumerationOperations enumerator = acquireEnumerator(resourceUri);
+            final EnumerationPage streamed = expectPage(enumerator);
+            countBytes(enumerator, counts);
+            useEnumerateTemplate(enumerator, resourceUri, dialect, filter, optimized, maxElements);
+            EnumerateResponse response = null;
+            try {
+                response = enumerator.enumerate(enumerate);
+            } catch (RuntimeException e) {
+                throw wrapException(e);
+            } finally {
+                clearRequestContext(enumerator);
+                release(enumerator);
+            }
+            final EnumerationPage page = EnumerationPage.of(streamed, response);
+            if (page == null) {
+                throw new WSManException("Enumeration failed. See logs for details.");
+            }
+            m_contexts.opened(page.isEndOfSequence() ? null : page.getContextId(), resourceUri);
+            return page;
+        }, EnumerationPage::getItemCount);
+    }
+
+    private String enumerateAndPull(String resourceUri, String dialect, String filter, List<Node> nodes, boolean recursive) {
+        final EnumerationPage page = enumerate(resourceUri, dialect, filter, true);
+
+        String nextContextId = page.getContextId();
+        if (recursive && isPrefetching() && !page.isEndOfSequence()) {
+            // Issue the first pull before converting the items from the enumeration
+            final PullPipeline pipeline = createPullPipeline(nextContextId, resourceUri);
+            page.drainTo(nodes);
+            return pull(pipeline, resourceUri, nodes);
+        }
+        boolean endOfSequence = page.drainTo(nodes);
 
         if (!endOfSequence) {
-            return pull(TypeUtils.getContextIdFrom(response), resourceUri, nodes, recursive);
+            // The caller never sees the context if the pull fails, so release it
+            return pull(nextContextId, resourceUri, nodes, recursive, true);
         }
         return nextContextId;
     }
 
     @Override
     public String enumerate(String resourceUri) {
-        EnumerateResponse response = enumerate(resourceUri, null, null, false);
-        if (response == null) {
-            throw new WSManException("Enumeration failed. See logs for details.");
-        }
-        return TypeUtils.getContextIdFrom(response);
+        return enumerate(resourceUri, null, null, false).getContextId();
     }
 
     @Override
     public String enumerateWithFilter(String resourceUri, String dialect, String filter) {
-        EnumerateResponse response = enumerate(resourceUri, dialect, filter, false);
-        if (response == null) {
-            throw new WSManException("Enumeration failed. See logs for details.");
+        return enumerate(resourceUri, dialect, filter, false).getContextId();
+    }
+
+    /**
+     * Issues a single Pull, adapting the page size if enabled.
+     */
+    private EnumerationPage pull(String contextId, String resourceUri) {
+        final WSManPageSizeTuner tuner = getPageSizeTuner(resourceUri);
+        while (true) {
+            final Integer maxElements = getMaxElements(tuner);
+            final long start = System.nanoTime();
+            final EnumerationPage page;
+            try {
+                page = pull(contextId, resourceUri, maxElements);
+            } catch (EncodingLimitException e) {
+                // The context remains valid, so we can try again with a smaller page
+                if (tuner != null && tuner.onEncodingLimitExceeded(maxElements)) {
+                    continue;
+                }
+                throw e;
+            }
+            if (tuner != null) {
+                tuner.onPage(maxElements, page.getItemCount(), page.isEndOfSequence(), page.getResponseLength(),
+                        System.nanoTime() - start);
+            }
+            return page;
         }
-        return TypeUtils.getContextIdFrom(response);
     }
 
-    @Override
-    public String pull(String contextId, String resourceUri, List<Node> nodes, boolean recursive) {
+    private EnumerationPage pull(String contextId, String resourceUri, Integer maxElements) {
+        final Pull pull = createPullRequest(contextId, maxElements);
+
+        // Issue the pull
+        return measure(Operation.PULL, resourceUri, m_contexts.getNextPageNumber(contextId), counts -> {
+            final EnumerationOperations enumerator = acquireEnumerator(resourceUri);
+            final EnumerationPage streamed = expectPage(enumerator);
+            countBytes(enumerator, counts);
+            usePullTemplate(enumerator, resourceUri, contextId, maxElements);
+            PullResponse response = null;
+            try {
+                response = enumerator.pull(pull);
+            } catch (RuntimeException e) {
+                throw wrapException(e);
+            } finally {
+                clearRequestContext(enumerator);
+                release(enumerator);
+            }
+            final EnumerationPage page = EnumerationPage.of(streamed, response);
+            if (page == null) {
+                throw new WSManException(String.format("Pull failed for context id: %s. See logs for details.", contextId));
+            }
+            m_contexts.advanced(contextId, page.isEndOfSequence() ? null : page.getContextId(), resourceUri);
+            return page;
+        }, EnumerationPage::getItemCount);
+    }
+
+    private Pull createPullRequest(String contextId, Integer maxElements) {
         // Create the pull request
         Pull pull = new Pull();
 
@@ -247,39 +695,274 @@ public class CXFWSManClient implements WSManClient {
         pull.setEnumerationContext(enumContext);
 
         // Optionally specify the maximum number of elements to return
-        if (m_endpoint.getMaxElements() != null) {
-            pull.setMaxElements(BigInteger.valueOf(m_endpoint.getMaxElements()));
+        if (maxElements != null) {
+            pull.setMaxElements(BigInteger.valueOf(maxElements));
         }
+        return pull;
+    }
 
-        // Issue the pull
-        final EnumerationOperations enumerator = getEnumerator(resourceUri);
-        PullResponse response = null;
+    private boolean isPrefetching() {
+        return m_endpoint.getPullPrefetchDepth() != null;
+    }
+
+    private PullPipeline createPullPipeline(String contextId, String resourceUri) {
+        return new PullPipeline(contextId, m_endpoint.getPullPrefetchDepth(),
+                nextContextId -> pullAsync(nextContextId, resourceUri));
+    }
+
+    private String pull(PullPipeline pipeline, String resourceUri, List<Node> nodes) {
+        boolean endOfSequence = false;
         try {
-            response = enumerator.pull(pull);
+            while (true) {
+                // The next pull is issued by the pipeline, collect the results from this one
+                final EnumerationPage page = pipeline.take();
+                if (page.drainTo(nodes)) {
+                    endOfSequence = true;
+                    return page.getContextId();
+                }
+            }
+        } finally {
+            final String lastContextId = pipeline.close();
+            if (!endOfSequence && lastContextId != null) {
+                // We failed part way through, don't leave the context open
+                releaseQuietly(lastContextId, resourceUri);
+            }
+        }
+    }
+
+    @Override
+    public String pull(String contextId, String resourceUri, List<Node> nodes, boolean recursive) {
+        // When pulling recursively, the caller can't resume from where we failed
+        return pull(contextId, resourceUri, nodes, recursive, recursive);
+    }
+
+    private String pull(String contextId, String resourceUri, List<Node> nodes, boolean recursive, boolean releaseOnError) {
+        if (recursive && isPrefetching()) {
+            return pull(createPullPipeline(contextId, resourceUri), resourceUri, nodes);
+        }
+
+        String currentContextId = contextId;
+        while (true) {
+            final EnumerationPage page;
+            try {
+                page = pull(currentContextId, resourceUri);
+            } catch (RuntimeException e) {
+                if (releaseOnError) {
+                    releaseQuietly(currentContextId, resourceUri);
+                }
+                throw e;
+            }
+
+            // Collect the results
+            boolean endOfSequence = page.drainTo(nodes);
+            String nextContextId = page.getContextId();
+
+            // If we're pulling recursively, and we haven't hit the last element, continue pulling
+            if (!recursive || endOfSequence) {
+                return nextContextId;
+            }
+            currentContextId = nextContextId;
+        }
+    }
+
+    @Override
+    public String enumerateAndPull(String resourceUri, List<Node> nodes, boolean recursive) {
+        return enumerateAndPull(resourceUri, null, null, nodes, recursive);
+    }
+
+    @Override
+    public String enumerateAndPullPage(String resourceUri, String dialect, String filter, int maxElements, List<Node> nodes) {
+        // The page size is chosen by the caller, so it isn't adapted
+        final EnumerationPage page = enumerate(resourceUri, dialect, filter, true, maxElements);
+        boolean endOfSequence = page.drainTo(nodes);
+        return endOfSequence ? null : page.getContextId();
+    }
+
+    @Override
+    public String pullPage(String contextId, String resourceUri, int maxElements, List<Node> nodes) {
+        final EnumerationPage page = pull(contextId, resourceUri, Integer.valueOf(maxElements));
+        boolean endOfSequence = page.drainTo(nodes);
+        return endOfSequence ? null : page.getContextId();
+    }
+
+    @Override
+    public void release(String contextId, String resourceUri) {
+        // Create the release request
+        Release release = new Release();
+        EnumerationContextType enumContext = new EnumerationContextType();
+        enumContext.getContent().add(contextId);
+        release.setEnumerationContext(enumContext);
+
+        final EnumerationOperations enumerator = acquireEnumerator(resourceUri);
+        try {
+            enumerator.releaseOp(release);
         } catch (RuntimeException e) {
             throw wrapException(e);
         } finally {
-            destroy(enumerator);
+            // If the release failed, the context is most likely gone already
+            m_contexts.closed(contextId);
+            release(enumerator);
         }
-        if (response == null) {
-            throw new WSManException(String.format("Pull failed for context id: %s. See logs for details.", contextId));
+    }
+
+    /**
+     * Releases the given context, logging instead of throwing any failures.
+     */
+    protected void releaseQuietly(String contextId, String resourceUri) {
+        try {
+            release(contextId, resourceUri);
+        } catch (RuntimeException e) {
+            LOG.debug("Failed to release enumeration context {} for {}.", contextId, resourceUri, e);
         }
+    }
 
-        // Collect the results
-        boolean endOfSequence = TypeUtils.getItemsFrom(response, nodes);
-        String nextContextId = TypeUtils.getContextIdFrom(response);
+    /**
+     * Requests for the given enumeration context to be kept open.
+     *
+     * @param contextId context to renew
+     * @param resourceUri resource URI of the enumeration
+     * @param expires requested expiration, as an xs:duration or an xs:dateTime
+     * @return the expiration granted by the server, or null if none was specified
+     */
+    public String renew(String contextId, String resourceUri, String expires) {
+        Renew renew = new Renew();
+        EnumerationContextType enumContext = new EnumerationContextType();
+        enumContext.getContent().add(contextId);
+        renew.setEnumerationContext(enumContext);
+        renew.setExpires(expires);
 
-        // If we're pulling recursively, and we haven't hit the last element, continue pulling
-        if (recursive && !endOfSequence) {
-            return pull(nextContextId, resourceUri, nodes, recursive);
+        final EnumerationOperations enumerator = acquireEnumerator(resourceUri);
+        final RenewResponse response;
+        try {
+            response = enumerator.renew(renew);
+        } catch (RuntimeException e) {
+            throw wrapException(e);
+        } finally {
+            release(enumerator);
         }
+        m_contexts.touch(contextId);
+        return response != null ? response.getExpires() : null;
+    }
 
-        return nextContextId;
+    /**
+     * Retrieves the expiration of the given enumeration context.
+     *
+     * @param contextId context to query
+     * @param resourceUri resource URI of the enumeration
+     * @return the expiration reported by the server, or null if none was specified
+     */
+    public String getStatus(String contextId, String resourceUri) {
+        GetStatus getStatus = new GetStatus();
+        EnumerationContextType enumContext = new EnumerationContextType();
+        enumContext.getContent().add(contextId);
+        getStatus.setEnumerationContext(enumContext);
+
+        final EnumerationOperations enumerator = acquireEnumerator(resourceUri);
+        final GetStatusResponse response;
+        try {
+            response = enumerator.getStatus(getStatus);
+        } catch (RuntimeException e) {
+            throw wrapException(e);
+        } finally {
+            release(enumerator);
+        }
+        return response != null ? response.getExpires() : null;
+    }
+
+    /**
+     * Retrieves the enumeration contexts that were opened by this client, or by any other
+     * client bound to the same session, and that have not yet been fully consumed or released.
+     *
+     * @return a snapshot of the open contexts
+     */
+    public List<OpenEnumerationContext> getOpenEnumerationContexts() {
+        return m_contexts.getOpenContexts();
+    }
+
+    /**
+     * Releases all of the enumeration contexts that are still open.
+     *
+     * Failures are logged and otherwise ignored.
+     */
+    public void releaseOpenEnumerationContexts() {
+        for (OpenEnumerationContext context : m_contexts.getOpenContexts()) {
+            releaseQuietly(context.getContextId(), context.getResourceUri());
+        }
     }
 
     @Override
-    public String enumerateAndPull(String resourceUri, List<Node> nodes, boolean recursive) {
-        return enumerateAndPull(resourceUri, null, null, nodes, recursive);
+    public Stream<Node> enumerateAndStream(String resourceUri) {
+        return enumerateAndStream(resourceUri, null, null);
+    }
+
+    @Override
+    public Stream<Node> enumerateAndStreamUsingFilter(String resourceUri, String dialect, String filter) {
+        return enumerateAndStream(resourceUri, dialect, filter);
+    }
+
+    private Stream<Node> enumerateAndStream(String resourceUri, String dialect, String filter) {
+        if (isPrefetching()) {
+            return new PrefetchingEnumerationIterator(resourceUri, dialect, filter).stream();
+        }
+        return new EnumerationIterator(this, resourceUri, (contextId, nodes) -> {
+            // Issue an optimized enumeration for the first page, and pull the following ones
+            final EnumerationPage page;
+            if (contextId == null) {
+                page = enumerate(resourceUri, dialect, filter, true);
+                // The context is owned by the stream until it is closed
+                m_contexts.hold(page.getContextId());
+            } else {
+                page = pull(contextId, resourceUri);
+            }
+            boolean endOfSequence = page.drainTo(nodes);
+            return endOfSequence ? null : page.getContextId();
+        }).stream();
+    }
+
+    /**
+     * Streams the elements of an enumeration, pulling the following
+     * pages ahead of the consumer.
+     */
+    private class PrefetchingEnumerationIterator extends EnumerationIterator {
+        private final String m_dialect;
+        private final String m_filter;
+        private PullPipeline m_pipeline;
+
+        private PrefetchingEnumerationIterator(String resourceUri, String dialect, String filter) {
+            super(CXFWSManClient.this, resourceUri);
+            m_dialect = dialect;
+            m_filter = filter;
+        }
+
+        @Override
+        protected String fetch(String contextId, List<Node> nodes) {
+            if (m_pipeline == null) {
+                // Issue an optimized enumeration, and stop if all of the elements were returned
+                final EnumerationPage page = enumerate(getResourceUri(), m_dialect, m_filter, true);
+                if (page.isEndOfSequence()) {
+                    page.drainTo(nodes);
+                    return null;
+                }
+                // Issue the first pull before converting the items from the enumeration
+                final String nextContextId = page.getContextId();
+                m_contexts.hold(nextContextId);
+                m_pipeline = createPullPipeline(nextContextId, getResourceUri());
+                page.drainTo(nodes);
+                return nextContextId;
+            }
+            final EnumerationPage page = m_pipeline.take();
+            boolean endOfSequence = page.drainTo(nodes);
+            return endOfSequence ? null : page.getContextId();
+        }
+
+        @Override
+        protected void release(String contextId) {
+            // Wait for the outstanding pulls, and release the most recent context instead
+            final String lastContextId = m_pipeline != null ? m_pipeline.close() : contextId;
+            if (lastContextId != null) {
+                super.release(lastContextId);
+            }
+        }
     }
 
     @Override
@@ -289,15 +972,61 @@ public class CXFWSManClient implements WSManClient {
 
     @Override
     public Node get(String resourceUri, Map<String, String> selectors) {
+        final WSManHedger hedger = WSManHedger.getHedger(m_endpoint);
+        if (hedger == null) {
+            return getOnce(resourceUri, selectors, null);
+        } else if (m_session == null) {
+            // Issue the request from the calling thread, the hedger provides the thread for the hedge
+            return hedger.invoke("Get " + resourceUri, attempt -> getOnce(resourceUri, selectors, attempt));
+        }
+        return hedger.invokeAsync("Get " + resourceUri, attempt -> getAsync(resourceUri, selectors, attempt));
+    }
+
+    /**
+     * Issues a Get, which is aborted when the given attempt is cancelled, if any.
+     */
+    private Node getOnce(String resourceUri, Map<String, String> selectors, Attempt attempt) {
         String elementType = TypeUtils.getElementTypeFromResourceUri(resourceUri);
-        final TransferOperations transferer = getTransferer(resourceUri, elementType, selectors);
-        TransferElement transferElement;
-        try {
-            transferElement = transferer.get();
-        } catch (RuntimeException e) {
-            throw wrapException(e);
-        } finally {
-            destroy(transferer);
+        return measure(Operation.GET, resourceUri, -1, counts -> {
+            final TransferOperations transferer = acquireTransferer(resourceUri, elementType, selectors);
+            final CapturedBody captured = expectBody(transferer);
+            countBytes(transferer, counts);
+            useGetTemplate(transferer, resourceUri, selectors);
+            final AbortableRequest abortable = abortOn(transferer, attempt);
+            TransferElement transferElement = null;
+            try {
+                transferElement = transferer.get();
+            } catch (RuntimeException e) {
+                throw wrapException(e);
+            } finally {
+                done(abortable);
+                clearRequestContext(transferer);
+                release(transferer);
+            }
+            return toNode(captured, transferElement, resourceUri, elementType);
+        }, node -> 1);
+    }
+
+    /**
+     * Requests for the response of the next operation issued by the given proxy to
+     * be captured as-is, if enabled.
+     *
+     * @return the body to be filled, or null if streaming is disabled
+     */
+    private CapturedBody expectBody(TransferOperations transferer) {
+        if (!m_endpoint.isStreamingResponses()) {
+            return null;
+        }
+        final CapturedBody body = new CapturedBody();
+        ClientProxy.getClient(transferer).getRequestContext().put(CapturedBody.KEY, body);
+        return body;
+    }
+
+    private static Node toNode(CapturedBody captured, TransferElement transferElement, String resourceUri, String elementType) {
+        if (captured != null && captured.isComplete() && captured.getElement() != null) {
+            // The element was renamed by the in transformer, restore its original name
+            final Element element = captured.getElement();
+            return element.getOwnerDocument().renameNode(element, resourceUri, elementType);
         }
         if (transferElement == null) {
             // Note that fault should be thrown if the object doesn't exist
@@ -306,17 +1035,308 @@ public class CXFWSManClient implements WSManClient {
         return TypeUtils.transferElementToNode(transferElement, resourceUri, elementType);
     }
 
-    private JaxWsProxyFactoryBean createFactoryFor(Class<?> clazz) {
+    /*
+     * Asynchronous operations
+     *
+     * When bound to a session, requests are issued through the session's non-blocking
+     * conduit, and no thread is held while waiting for the response. Otherwise, the
+     * blocking operation is issued from the client's executor, which defaults to a
+     * bounded pool shared by all of the clients.
+     */
+
+    @Override
+    public CompletableFuture<Identity> identifyAsync() {
+        return identifyAsync(null);
+    }
+
+    /**
+     * Issues an Identify, which is aborted when the given attempt is cancelled, if any.
+     * See {@link AbortableRequest} for when requests can be aborted.
+     */
+    private CompletableFuture<Identity> identifyAsync(Attempt attempt) {
+        if (m_session == null) {
+            return CompletableFuture.supplyAsync(() -> identifyOnce(attempt), m_executor);
+        }
+        return measureAsync(Operation.IDENTIFY, null, -1, counts -> m_session.borrowIdentifierAsync().thenCompose(identifier -> {
+            countBytes(identifier, counts);
+            final AbortableRequest abortable = abortOn(identifier, attempt);
+            final CompletableFuture<IdentifyResponseType> future = invokeAsync(
+                    handler -> identifier.identifyAsync(new IdentifyType(), handler));
+            return future.whenComplete((response, t) -> {
+                done(abortable);
+                clearRequestContext(identifier);
+                m_session.release(identifier);
+            });
+        }).<Identity>thenApply(IdentifyResponseWrapper::new), identity -> -1);
+    }
+
+    /**
+     * Issues an Enumerate, adapting the page size if enabled.
+     */
+    private CompletableFuture<EnumerationPage> enumerateAsync(String resourceUri, String dialect, String filter, boolean optimized) {
+        final WSManPageSizeTuner tuner = getPageSizeTuner(resourceUri);
+        final Integer maxElements = getMaxElements(tuner);
+        final long start = System.nanoTime();
+        return adapt(tuner, maxElements, start, enumerateAsync(resourceUri, dialect, filter, optimized, maxElements),
+                () -> enumerateAsync(resourceUri, dialect, filter, optimized));
+    }
+
+    /**
+     * Records the outcome of an asynchronous Enumerate or Pull with the given tuner, and
+     * issues it again if it failed because the page was too big.
+     */
+    private static CompletableFuture<EnumerationPage> adapt(WSManPageSizeTuner tuner, Integer maxElements, long start,
+            CompletableFuture<EnumerationPage> future, Supplier<CompletableFuture<EnumerationPage>> retry) {
+        if (tuner == null) {
+            return future;
+        }
+        return future.handle((page, t) -> {
+            if (t == null) {
+                tuner.onPage(maxElements, page.getItemCount(), page.isEndOfSequence(), page.getResponseLength(),
+                        System.nanoTime() - start);
+                return CompletableFuture.completedFuture(page);
+            }
+            final Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+            if (cause instanceof EncodingLimitException && tuner.onEncodingLimitExceeded(maxElements)) {
+                return retry.get();
+            }
+            final CompletableFuture<EnumerationPage> failed = new CompletableFuture<>();
+            failed.completeExceptionally(cause);
+            return failed;
+        }).thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<EnumerationPage> enumerateAsync(String resourceUri, String dialect, String filter, boolean optimized,
+            Integer maxElements) {
+        final Enumerate enumerate = createEnumerateRequest(dialect, filter, optimized, maxElements);
+        return measureAsync(Operation.ENUMERATE, resourceUri, 0, counts -> m_session.borrowEnumeratorAsync(resourceUri).thenCompose(enumerator -> {
+            final EnumerationPage streamed = expectPage(enumerator);
+            countBytes(enumerator, counts);
+            useEnumerateTemplate(enumerator, resourceUri, dialect, filter, optimized, maxElements);
+            final CompletableFuture<EnumerateResponse> future = invokeAsync(
+                    handler -> enumerator.enumerateAsync(enumerate, handler));
+            return future.whenComplete((response, t) -> {
+                clearRequestContext(enumerator);
+                m_session.release(enumerator);
+            }).thenApply(response -> EnumerationPage.of(streamed, response));
+        }).thenApply(page -> {
+            if (page == null) {
+                throw new WSManException("Enumeration failed. See logs for details.");
+            }
+            m_contexts.opened(page.isEndOfSequence() ? null : page.getContextId(), resourceUri);
+            return page;
+        }), EnumerationPage::getItemCount);
+    }
+
+    private CompletableFuture<String> enumerateAndPullAsync(String resourceUri, String dialect, String filter, List<Node> nodes, boolean recursive) {
+        return enumerateAsync(resourceUri, dialect, filter, true).thenCompose(page -> {
+            String nextContextId = page.getContextId();
+            boolean endOfSequence = page.drainTo(nodes);
+
+            if (!endOfSequence) {
+                return pullAsync(nextContextId, resourceUri, nodes, recursive, true);
+            }
+            return CompletableFuture.completedFuture(nextContextId);
+        });
+    }
+
+    @Override
+    public CompletableFuture<String> enumerateAsync(String resourceUri) {
+        if (m_session == null) {
+            return CompletableFuture.supplyAsync(() -> enumerate(resourceUri), m_executor);
+        }
+        return enumerateAsync(resourceUri, null, null, false).thenApply(EnumerationPage::getContextId);
+    }
+
+    @Override
+    public CompletableFuture<String> enumerateWithFilterAsync(String resourceUri, String dialect, String filter) {
+        if (m_session == null) {
+            return CompletableFuture.supplyAsync(() -> enumerateWithFilter(resourceUri, dialect, filter), m_executor);
+        }
+        return enumerateAsync(resourceUri, dialect, filter, false).thenApply(EnumerationPage::getContextId);
+    }
+
+    /**
+     * Issues a single pull.
+     */
+    private CompletableFuture<EnumerationPage> pullAsync(String contextId, String resourceUri) {
+        if (m_session == null) {
+            return CompletableFuture.supplyAsync(() -> pull(contextId, resourceUri), m_executor);
+        }
+        final WSManPageSizeTuner tuner = getPageSizeTuner(resourceUri);
+        final Integer maxElements = getMaxElements(tuner);
+        final long start = System.nanoTime();
+        return adapt(tuner, maxElements, start, pullAsync(contextId, resourceUri, maxElements),
+                () -> pullAsync(contextId, resourceUri));
+    }
+
+    private CompletableFuture<EnumerationPage> pullAsync(String contextId, String resourceUri, Integer maxElements) {
+        final Pull pull = createPullRequest(contextId, maxElements);
+        final int pageNumber = m_contexts.getNextPageNumber(contextId);
+        return measureAsync(Operation.PULL, resourceUri, pageNumber, counts -> m_session.borrowEnumeratorAsync(resourceUri).thenCompose(enumerator -> {
+            final EnumerationPage streamed = expectPage(enumerator);
+            countBytes(enumerator, counts);
+            usePullTemplate(enumerator, resourceUri, contextId, maxElements);
+            final CompletableFuture<PullResponse> future = invokeAsync(
+                    handler -> enumerator.pullAsync(pull, handler));
+            return future.whenComplete((response, t) -> {
+                clearRequestContext(enumerator);
+                m_session.release(enumerator);
+            }).thenApply(response -> EnumerationPage.of(streamed, response));
+        }).thenApply(page -> {
+            if (page == null) {
+                throw new WSManException(String.format("Pull failed for context id: %s. See logs for details.", contextId));
+            }
+            m_contexts.advanced(contextId, page.isEndOfSequence() ? null : page.getContextId(), resourceUri);
+            return page;
+        }), EnumerationPage::getItemCount);
+    }
+
+    @Override
+    public CompletableFuture<String> pullAsync(String contextId, String resourceUri, List<Node> nodes, boolean recursive) {
+        if (m_session == null) {
+            return CompletableFuture.supplyAsync(() -> pull(contextId, resourceUri, nodes, recursive), m_executor);
+        }
+        // When pulling recursively, the caller can't resume from where we failed
+        return pullAsync(contextId, resourceUri, nodes, recursive, recursive);
+    }
+
+    /**
+     * Pulls asynchronously, optionally releasing the context if a pull fails.
+     *
+     * Cancelling the returned future stops any further pulls, and releases the context.
+     */
+    private CompletableFuture<String> pullAsync(String contextId, String resourceUri, List<Node> nodes, boolean recursive,
+            boolean releaseOnError) {
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        pullAsync(contextId, resourceUri, nodes, recursive, releaseOnError, result);
+        return result;
+    }
+
+    private void pullAsync(String contextId, String resourceUri, List<Node> nodes, boolean recursive,
+            boolean releaseOnError, CompletableFuture<String> result) {
+        pullAsync(contextId, resourceUri).whenComplete((page, t) -> {
+            if (t != null) {
+                if (releaseOnError) {
+                    CompletableFuture.runAsync(() -> releaseQuietly(contextId, resourceUri), m_executor);
+                }
+                result.completeExceptionally(t);
+                return;
+            }
+
+            // Collect the results
+            boolean endOfSequence = page.drainTo(nodes);
+            String nextContextId = page.getContextId();
+
+            // If we're pulling recursively, and we haven't hit the last element, continue pulling
+            if (!recursive || endOfSequence) {
+                result.complete(nextContextId);
+            } else if (result.isDone()) {
+                // Cancelled by the caller
+                CompletableFuture.runAsync(() -> releaseQuietly(nextContextId, resourceUri), m_executor);
+            } else {
+                pullAsync(nextContextId, resourceUri, nodes, recursive, releaseOnError, result);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<String> enumerateAndPullAsync(String resourceUri, List<Node> nodes, boolean recursive) {
+        if (m_session == null) {
+            return CompletableFuture.supplyAsync(() -> enumerateAndPull(resourceUri, nodes, recursive), m_executor);
+        }
+        return enumerateAndPullAsync(resourceUri, null, null, nodes, recursive);
+    }
+
+    @Override
+    public CompletableFuture<String> enumerateAndPullUsingFilterAsync(String resourceUri, String dialect, String filter, List<Node> nodes, boolean recursive) {
+        if (m_session == null) {
+            return CompletableFuture.supplyAsync(() -> enumerateAndPullUsingFilter(resourceUri, dialect, filter, nodes, recursive), m_executor);
+        }
+        return enumerateAndPullAsync(resourceUri, dialect, filter, nodes, recursive);
+    }
+
+    @Override
+    public CompletableFuture<Node> getAsync(String resourceUri, Map<String, String> selectors) {
+        return getAsync(resourceUri, selectors, null);
+    }
+
+    /**
+     * Issues a Get, which is aborted when the given attempt is cancelled, if any.
+     * See {@link AbortableRequest} for when requests can be aborted.
+     */
+    private CompletableFuture<Node> getAsync(String resourceUri, Map<String, String> selectors, Attempt attempt) {
+        if (m_session == null) {
+            return CompletableFuture.supplyAsync(() -> getOnce(resourceUri, selectors, attempt), m_executor);
+        }
+        final String elementType = TypeUtils.getElementTypeFromResourceUri(resourceUri);
+        return measureAsync(Operation.GET, resourceUri, -1, counts -> m_session.borrowTransfererAsync(resourceUri, elementType, selectors).thenCompose(transferer -> {
+            final CapturedBody captured = expectBody(transferer);
+            countBytes(transferer, counts);
+            useGetTemplate(transferer, resourceUri, selectors);
+            final AbortableRequest abortable = abortOn(transferer, attempt);
+            final CompletableFuture<TransferElement> future = invokeAsync(transferer::getAsync);
+            return future.whenComplete((response, t) -> {
+                done(abortable);
+                clearRequestContext(transferer);
+                m_session.release(transferer);
+            }).thenApply(transferElement -> toNode(captured, transferElement, resourceUri, elementType));
+        }), node -> 1);
+    }
+
+    /**
+     * Issues an asynchronous call on a JAX-WS proxy, and adapts the
+     * response to a {@link CompletableFuture}.
+     *
+     * The future only completes once the response was handled, or the call failed,
+     * so that the proxy is never reused while its exchange is still in flight.
+     */
+    private static <T> CompletableFuture<T> invokeAsync(Function<AsyncHandler<T>, Future<?>> call) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            call.apply(response -> {
+                try {
+                    future.complete(response.get());
+                } catch (ExecutionException e) {
+                    future.completeExceptionally(wrapException(e.getCause()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    future.completeExceptionally(new WSManException(e));
+                }
+            });
+        } catch (RuntimeException e) {
+            future.completeExceptionally(wrapException(e));
+        }
+        return future;
+    }
+
+    private static Executor createAsyncExecutor() {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_ASYNC_THREADS, DEFAULT_ASYNC_THREADS,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                    final Thread thread = new Thread(r, "wsman-async-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // Don't keep the threads around when there's nothing to do
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static JaxWsProxyFactoryBean createFactoryFor(WSManEndpoint endpoint, Bus bus, Class<?> clazz) {
         // Setup the factory
         JaxWsProxyFactoryBean factory = new JaxWsProxyFactoryBean();
         factory.setServiceClass(clazz);
-        factory.setAddress(m_endpoint.getUrl().toExternalForm());
+        factory.setAddress(endpoint.getUrl().toExternalForm());
 
-        // Create a new ExtensionManagerBus to be used by this factory
+        // Create a new ExtensionManagerBus to be used by this factory, unless one was provided
         // This is necessary since the bus holds a reference to the org.apache.cxf.ws.policy.PolicyRegistryImpl, which contains
         // policies created by the Wsdl11AttachmentPolicyProvider, which are never removed. If we don't create our own
         // bus, the same instance will be shared across all factories, and the policies will continue to accumulate.
-        Bus bus = new ExtensionManagerBus(null, null, Bus.class.getClassLoader());
+        // Sessions provide their own bus, which is shared by a bounded number of proxies and shutdown when the session is closed.
+        if (bus == null) {
+            bus = new ExtensionManagerBus(null, null, Bus.class.getClassLoader());
+        }
         factory.setBus(bus);
 
         WSAddressingFeature feature = new WSAddressingFeature();
@@ -331,11 +1351,13 @@ public class CXFWSManClient implements WSManClient {
 
     /**
      * Creates a proxy service for the given JAX-WS annotated interface.
+     *
+     * A new bus is created for the proxy if none is given.
      */
-    private <ProxyServiceType> ProxyServiceType createProxyFor(Class<ProxyServiceType> serviceClass,
-            Map<String, String> outTransformMap, Map<String, String> inTransformMap) {
+    protected static <ProxyServiceType> ProxyServiceType createProxyFor(WSManEndpoint endpoint, Bus bus,
+            Class<ProxyServiceType> serviceClass, Map<String, String> outTransformMap, Map<String, String> inTransformMap) {
         // Create the proxy service
-        final ProxyServiceType proxyService = createFactoryFor(serviceClass).create(serviceClass);
+        final ProxyServiceType proxyService = createFactoryFor(endpoint, bus, serviceClass).create(serviceClass);
 
         // Retrieve the underlying client, so we can fine tune it
         Client cxfClient = ClientProxy.getClient(proxyService);
@@ -352,59 +1374,63 @@ public class CXFWSManClient implements WSManClient {
         // Setup timeouts
         HTTPConduit http = (HTTPConduit)cxfClient.getConduit();
         HTTPClientPolicy httpClientPolicy = new HTTPClientPolicy();
-        if (m_endpoint.getConnectionTimeout() != null) {
-            httpClientPolicy.setConnectionTimeout(m_endpoint.getConnectionTimeout());
+        if (endpoint.getConnectionTimeout() != null) {
+            httpClientPolicy.setConnectionTimeout(endpoint.getConnectionTimeout());
         }
-        if (m_endpoint.getReceiveTimeout() != null) {
-            httpClientPolicy.setReceiveTimeout(m_endpoint.getReceiveTimeout());
+        if (endpoint.getReceiveTimeout() != null) {
+            httpClientPolicy.setReceiveTimeout(endpoint.getReceiveTimeout());
         }
         // Turn off chunking so that NTLM can occur
         httpClientPolicy.setAllowChunking(false);
+        // Keep the connection open so that it can be reused by subsequent requests
+        httpClientPolicy.setConnection(endpoint.isKeepAlive() ? ConnectionType.KEEP_ALIVE : ConnectionType.CLOSE);
         http.setClient(httpClientPolicy);
 
-        if (!m_endpoint.isStrictSSL()) {
+        // Share the SSL context with all of the proxies that use the same trust configuration,
+        // so that TLS sessions can be resumed, and record the connections and handshakes.
+        // The blocking conduit uses the socket factory, whereas the non-blocking one
+        // creates its engines using the context.
+        final TLSClientParameters tlsParams = new TLSClientParameters();
+        tlsParams.setSslContext(SSLSocketFactories.getContext(endpoint.isStrictSSL()));
+        tlsParams.setSSLSocketFactory(SSLSocketFactories.get(endpoint.isStrictSSL()));
+        if (!endpoint.isStrictSSL()) {
             LOG.debug("Disabling strict SSL checking.");
-            // Accept all certificates
-            TrustManager[] simpleTrustManager = new TrustManager[] { new X509TrustManager() {
-                public void checkClientTrusted(
-                        java.security.cert.X509Certificate[] certs, String authType) {
-                }
-                public void checkServerTrusted(
-                        java.security.cert.X509Certificate[] certs, String authType) {
-                }
-                public java.security.cert.X509Certificate[] getAcceptedIssuers() {
-                    return null;
-                }
-            } };
-            TLSClientParameters tlsParams = new TLSClientParameters();
-            tlsParams.setTrustManagers(simpleTrustManager);
+            // Accept all certificates, for any host name
+            tlsParams.setTrustManagers(SSLSocketFactories.getTrustAllManagers());
             tlsParams.setDisableCNCheck(true);
-            http.setTlsClientParameters(tlsParams);
         }
+        http.setTlsClientParameters(tlsParams);
+
+        // Only time the phases when there's someone to report them to
+        final boolean tracePhases = endpoint.isPhaseTiming() && endpoint.getMetricsListener() != null;
 
         // Setup authentication
-        if (m_endpoint.isGSSAuth()) {
+        if (endpoint.isGSSAuth()) {
             // See http://cxf.apache.org/docs/client-http-transport-including-ssl-support.html#ClientHTTPTransport(includingSSLsupport)-SpnegoAuthentication(Kerberos)
             LOG.debug("Enabling GSS authentication.");
             http.getAuthorization().setAuthorizationType(HttpAuthHeader.AUTH_TYPE_NEGOTIATE);
-            http.getAuthorization().setAuthorization("WSManClient");
+            // Name of the JAAS login configuration used by the auth supplier
+            http.getAuthorization().setAuthorization(endpoint.getGSSLoginContext());
+            // Reuse the Kerberos logins, and the service tickets they obtain, across requests
+            http.setAuthSupplier(tracePhases ? new TracingAuthSupplier(new GSSAuthSupplier()) : new GSSAuthSupplier());
             // Set the username and password if provided
-            http.getAuthorization().setUserName(m_endpoint.getUsername());
-            http.getAuthorization().setPassword(m_endpoint.getPassword());
-        } else if (m_endpoint.isBasicAuth()) {
+            http.getAuthorization().setUserName(endpoint.getUsername());
+            http.getAuthorization().setPassword(endpoint.getPassword());
+        } else if (endpoint.isBasicAuth()) {
             LOG.debug("Enabling basic authentication.");
-            http.setAuthSupplier(new DefaultBasicAuthSupplier());
-            http.getAuthorization().setUserName(m_endpoint.getUsername());
-            http.getAuthorization().setPassword(m_endpoint.getPassword());
+            http.setAuthSupplier(tracePhases ? new TracingAuthSupplier(new DefaultBasicAuthSupplier())
+                    : new DefaultBasicAuthSupplier());
+            http.getAuthorization().setUserName(endpoint.getUsername());
+            http.getAuthorization().setPassword(endpoint.getPassword());
 
-            requestContext.put(BindingProvider.USERNAME_PROPERTY, m_endpoint.getUsername());
-            requestContext.put(BindingProvider.PASSWORD_PROPERTY, m_endpoint.getPassword());
+            requestContext.put(BindingProvider.USERNAME_PROPERTY, endpoint.getUsername());
+            requestContext.put(BindingProvider.PASSWORD_PROPERTY, endpoint.getPassword());
         }
 
         // Set the Reply-To header to the anonymous address
         requestContext.put(JAXWSAConstants.CLIENT_ADDRESSING_PROPERTIES, createAddressingPropertiesMap());
 
-        if (m_endpoint.getServerVersion() == WSManVersion.WSMAN_1_0) {
+        if (endpoint.getServerVersion() == WSManVersion.WSMAN_1_0) {
             // WS-Man 1.0 does not support the W3C WS-Addressing, so we need to change the namespace
             // "http://www.w3.org/2005/08/addressing" becomes "http://schemas.xmlsoap.org/ws/2004/08/addressing"
             outTransformMap.put("{" + JAXWSAConstants.NS_WSA + "}*",
@@ -431,8 +1457,28 @@ public class CXFWSManClient implements WSManClient {
         // seem to care whether it's there or not, so we remove it.
         Map<String, List<String>> headers = new HashMap<>();
         headers.put(CONTENT_TYPE_HEADER, Collections.singletonList(MEDIA_TYPE_SOAP_UTF8));
+
+        if (endpoint.isCompression()) {
+            // Ask for compressed responses, these are decompressed as they are read,
+            // and servers that don't support compression are free to ignore the header
+            headers.put(ACCEPT_ENCODING_HEADER, Collections.singletonList(ACCEPT_ENCODING_GZIP_DEFLATE));
+            cxfClient.getInInterceptors().add(new CompressionInInterceptor(endpoint.getUrl()));
+            if (endpoint.isRequestCompression()) {
+                // Only takes effect once the server has returned a compressed response
+                cxfClient.getOutInterceptors().add(new CompressionOutInterceptor(endpoint.getUrl()));
+            }
+        }
         requestContext.put(Message.PROTOCOL_HEADERS, headers);
 
+        if (endpoint.getMetricsListener() != null) {
+            // Count the bytes on the wire and time the phases, for the requests that ask for it
+            cxfClient.getInInterceptors().add(new RequestTracingInInterceptor());
+            cxfClient.getOutInterceptors().add(new RequestTracingOutInterceptor());
+        }
+
+        // Lets the requests that ask for it be aborted while waiting on the blocking conduit
+        cxfClient.getOutInterceptors().add(new AbortingOutInterceptor());
+
         // Log incoming and outgoing requests
         LoggingInInterceptor loggingInInterceptor = new LoggingInInterceptor();
         loggingInInterceptor.setPrettyLogging(true);
@@ -445,7 +1491,7 @@ public class CXFWSManClient implements WSManClient {
         return proxyService;
     }
  
-    private AddressingProperties createAddressingPropertiesMap() {
+    private static AddressingProperties createAddressingPropertiesMap() {
         AddressingProperties maps = new AddressingProperties();
         AttributedURIType address = WSA_OBJECT_FACTORY.createAttributedURIType();
         EndpointReferenceType ref = WSA_OBJECT_FACTORY.createEndpointReferenceType();
@@ -476,23 +1522,35 @@ public class CXFWSManClient implements WSManClient {
             if (subCode != null && (WSManConstants.XML_NS_WS_2004_08_ADDRESSING.equals(soapFault.getSubCode().getNamespaceURI()) &&
                     "DestinationUnreachable".equals(soapFault.getSubCode().getLocalPart()))) {
                 return new InvalidResourceURI(e);
+            } else if (subCode != null && WSManConstants.XML_NS_DMTF_WSMAN_V1.equals(subCode.getNamespaceURI()) &&
+                    "EncodingLimit".equals(subCode.getLocalPart())) {
+                return new EncodingLimitException(e);
             }
-            throw new SOAPFault(e);
+            return new SOAPFault(e);
         } else if (cause instanceof org.apache.cxf.transport.http.HTTPException) {
             if (((org.apache.cxf.transport.http.HTTPException)cause).getResponseCode() == 401) {
                 return new UnauthorizedException(e);
             }
-            throw new HTTPException(e);
+            return new HTTPException(e);
         }
         return new WSManException(e);
     }
 
+    private static RuntimeException wrapException(Throwable t) {
+        if (t instanceof WSManException) {
+            return (WSManException)t;
+        } else if (t instanceof RuntimeException) {
+            return wrapException((RuntimeException)t);
+        }
+        return new WSManException(t);
+    }
+
     /**
      * Cleanup and and destroy a JAX-WS proxy object.
      *
      * @param proxy the proxy to destroy
      */
-    private static void destroy(Object proxy) {
+    protected static void destroy(Object proxy) {
         // Destroy the client associated with the proxy
         final Client client = ClientProxy.getClient(proxy);
         client.destroy();
@@ -15,6 +15,9 @@
  */
 package org.opennms.core.wsman.cxf;
 
+import java.util.List;
+import java.util.concurrent.Executor;
+
 import org.opennms.core.wsman.WSManClientFactory;
 import org.opennms.core.wsman.WSManEndpoint;
 
@@ -30,4 +33,48 @@ public class CXFWSManClientFactory implements WSManClientFactory {
     public CXFWSManClient getClient(WSManEndpoint endpoint) {
         return new CXFWSManClient(endpoint);
     }
+
+    /**
+     * Instantiates a new client whose asynchronous operations are run on the given executor.
+     *
+     * @param endpoint target
+     * @param executor runs the blocking operations behind the asynchronous calls
+     * @return a new client
+     */
+    public CXFWSManClient getClient(WSManEndpoint endpoint, Executor executor) {
+        return new CXFWSManClient(endpoint, executor);
+    }
+
+    /**
+     * Opens a new {@link CXFWSManSession} for the given endpoint.
+     *
+     * @param endpoint target
+     * @return a new session, which must be closed by the caller
+     */
+    public CXFWSManSession openSession(WSManEndpoint endpoint) {
+        return new CXFWSManSession(endpoint);
+    }
+
+    /**
+     * Opens a new {@link CXFWSManSession} for the given endpoint.
+     *
+     * @param endpoint target
+     * @param poolSize maximum number of proxies of each type
+     * @return a new session, which must be closed by the caller
+     */
+    public CXFWSManSession openSession(WSManEndpoint endpoint, int poolSize) {
+        return new CXFWSManSession(endpoint, poolSize);
+    }
+
+    /**
+     * Retrieves the number of TLS handshakes performed with every host, and how
+     * many of them resumed a previous session.
+     *
+     * The SSL contexts are shared by all of the clients in the JVM, so these are too.
+     *
+     * @return a snapshot of the handshakes per host
+     */
+    public static List<TLSHandshakeStats> getTLSHandshakeStats() {
+        return SSLSocketFactories.getHandshakeStats();
+    }
 }
@@ -0,0 +1,416 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.bus.extension.ExtensionManagerBus;
+import org.apache.cxf.endpoint.Client;
+import org.apache.cxf.frontend.ClientProxy;
+import org.apache.cxf.interceptor.Interceptor;
+import org.apache.cxf.interceptor.transform.TransformInInterceptor;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.transport.http.asyncclient.AsyncHTTPConduit;
+import org.apache.cxf.transport.http.asyncclient.AsyncHTTPConduitFactory;
+import org.apache.http.auth.Credentials;
+import org.apache.http.auth.NTCredentials;
+import org.opennms.core.wsman.WSManConstants;
+import org.opennms.core.wsman.WSManEndpoint;
+import org.opennms.core.wsman.exceptions.WSManException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A long-lived session with a single WS-Man endpoint.
+ *
+ * The {@link CXFWSManClient} creates and destroys a new proxy (along with
+ * its bus, interceptor chain and conduit) for every operation. A session
+ * instead keeps bounded pools of Identify, Enumeration and Transfer proxies
+ * that are reused across calls, and across threads.
+ *
+ * All of the proxies created by a session share the same bus. The policies
+ * that accumulate in the bus' PolicyRegistry are bounded by the size of the
+ * pools, and are released along with the bus when the session is closed.
+ *
+ * Unless keep-alive is disabled on the endpoint, the proxies also share a pool
+ * of persistent HTTP connections, so that consecutive operations (i.e. every
+ * Pull in an enumeration) don't need to reconnect, renegotiate TLS or repeat
+ * the NTLM handshake. Connections are tagged with the credentials used to
+ * authenticate them, and are only reused by requests using the same credentials.
+ *
+ * The session tracks the enumeration contexts opened by its clients. When the
+ * endpoint has an enumeration context timeout, contexts held by open streams are
+ * renewed before they expire. Contexts that were handed to the caller and left
+ * idle for longer than the timeout are only reported as leaked and released if
+ * enabled on the endpoint, since the caller may still be pulling them slowly.
+ * Any context still open when the session is closed is also reported and released.
+ *
+ * When server version negotiation is enabled, the server is identified before the
+ * first Enumeration or Transfer proxy is created, and the result is shared with all
+ * of the other clients and sessions communicating with the same server.
+ *
+ * Sessions are thread-safe, and must be closed when they are no longer needed.
+ */
+public class CXFWSManSession implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(CXFWSManSession.class);
+
+    /**
+     * Default maximum number of proxies of each type.
+     */
+    public static final int DEFAULT_POOL_SIZE = 4;
+
+    private final WSManEndpoint m_endpoint;
+    private final Bus m_bus;
+    private final ProxyPool<IdentifyOperations> m_identifiers;
+    private final ProxyPool<EnumerationOperations> m_enumerators;
+    private final ProxyPool<TransferOperations> m_transferers;
+    private volatile EnvelopeTemplates m_templates;
+    private final EnumerationContexts m_contexts = new EnumerationContexts();
+    private final ScheduledExecutorService m_maintenance;
+    private volatile boolean m_renewSupported = true;
+    private final AtomicBoolean m_closed = new AtomicBoolean(false);
+
+    public CXFWSManSession(WSManEndpoint endpoint) {
+        this(endpoint, DEFAULT_POOL_SIZE);
+    }
+
+    public CXFWSManSession(WSManEndpoint endpoint, int poolSize) {
+        m_endpoint = Objects.requireNonNull(endpoint, "endpoint cannot be null");
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("poolSize must be strictly positive");
+        }
+        m_bus = new ExtensionManagerBus(null, null, Bus.class.getClassLoader());
+        configureConnectionPool();
+        m_identifiers = new ProxyPool<>(poolSize, this::createIdentifier, CXFWSManClient::destroy);
+        m_enumerators = new ProxyPool<>(poolSize, this::createEnumerator, CXFWSManClient::destroy);
+        m_transferers = new ProxyPool<>(poolSize, this::createTransferer, CXFWSManClient::destroy);
+        if (endpoint.getEnumerationContextTimeout() != null) {
+            m_maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread thread = new Thread(r, "wsman-session-" + endpoint.getUrl().getHost());
+                thread.setDaemon(true);
+                return thread;
+            });
+            final long period = Math.max(1, endpoint.getEnumerationContextTimeout() / 4);
+            m_maintenance.scheduleWithFixedDelay(this::maintainEnumerationContexts, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            m_maintenance = null;
+        }
+    }
+
+    /**
+     * Returns a client that issues all of its operations using this session.
+     *
+     * @return a new client instance bound to this session
+     */
+    public CXFWSManClient getClient() {
+        checkNotClosed();
+        return new CXFWSManClient(m_endpoint, this);
+    }
+
+    public WSManEndpoint getEndpoint() {
+        return m_endpoint;
+    }
+
+    public boolean isClosed() {
+        return m_closed.get();
+    }
+
+    /**
+     * Envelope templates are compiled once per session, and shared by all of its clients.
+     */
+    EnvelopeTemplates getEnvelopeTemplates() {
+        final WSManEndpoint endpoint = getNegotiatedEndpoint();
+        EnvelopeTemplates templates = m_templates;
+        if (templates == null || !templates.isFor(endpoint)) {
+            templates = new EnvelopeTemplates(endpoint);
+            m_templates = templates;
+        }
+        return templates;
+    }
+
+    /**
+     * Retrieves the endpoint used to create the Enumeration and Transfer proxies,
+     * identifying the server with one of the session's Identify proxies if needed.
+     */
+    WSManEndpoint getNegotiatedEndpoint() {
+        return CXFWSManClient.negotiate(m_endpoint, () -> new CXFWSManClient(m_endpoint, this).identify());
+    }
+
+    EnumerationContexts getEnumerationContexts() {
+        return m_contexts;
+    }
+
+    /**
+     * Retrieves the enumeration contexts that were opened by the clients of this
+     * session, and that have not yet been fully consumed or released.
+     *
+     * @return a snapshot of the open contexts
+     */
+    public List<OpenEnumerationContext> getOpenEnumerationContexts() {
+        return m_contexts.getOpenContexts();
+    }
+
+    /**
+     * Renews the contexts held by open streams that are about to expire, and
+     * releases the idle contexts that were handed to the caller, if enabled.
+     */
+    private void maintainEnumerationContexts() {
+        if (m_closed.get()) {
+            return;
+        }
+        final int timeout = m_endpoint.getEnumerationContextTimeout();
+        final CXFWSManClient client = new CXFWSManClient(m_endpoint, this);
+        try {
+            for (OpenEnumerationContext context : m_contexts.getIdleContexts(timeout / 2)) {
+                if (context.isHeld()) {
+                    if (m_renewSupported) {
+                        renew(client, context, timeout);
+                    }
+                } else if (m_endpoint.isReleaseIdleEnumerationContexts()
+                        && System.currentTimeMillis() - context.getLastUsedAt() >= timeout) {
+                    LOG.warn("Enumeration context {} for {} on {} was left idle for more than {}ms. Releasing it.",
+                            context.getContextId(), context.getResourceUri(), m_endpoint.getUrl(), timeout);
+                    client.releaseQuietly(context.getContextId(), context.getResourceUri());
+                }
+            }
+        } catch (RuntimeException e) {
+            // Don't let the failure cancel any future runs
+            LOG.warn("Failed to maintain the enumeration contexts for {}.", m_endpoint.getUrl(), e);
+        }
+    }
+
+    private void renew(CXFWSManClient client, OpenEnumerationContext context, int timeout) {
+        try {
+            client.renew(context.getContextId(), context.getResourceUri(), String.format("PT%d.%03dS", timeout / 1000, timeout % 1000));
+        } catch (RuntimeException e) {
+            // Many servers don't implement Renew, in which case the context will expire as usual
+            LOG.debug("Failed to renew enumeration context {} for {}. No further renewals will be attempted.",
+                    context.getContextId(), m_endpoint.getUrl(), e);
+            m_renewSupported = false;
+        }
+    }
+
+    protected IdentifyOperations borrowIdentifier() {
+        checkNotClosed();
+        return m_identifiers.borrow();
+    }
+
+    protected CompletableFuture<IdentifyOperations> borrowIdentifierAsync() {
+        return m_identifiers.borrowAsync();
+    }
+
+    protected void release(IdentifyOperations identifier) {
+        m_identifiers.release(identifier);
+    }
+
+    protected EnumerationOperations borrowEnumerator(String resourceUri) {
+        checkNotClosed();
+        return prepareEnumerator(m_enumerators.borrow(), resourceUri);
+    }
+
+    protected CompletableFuture<EnumerationOperations> borrowEnumeratorAsync(String resourceUri) {
+        return m_enumerators.borrowAsync().thenApply(enumerator -> prepareEnumerator(enumerator, resourceUri));
+    }
+
+    private static EnumerationOperations prepareEnumerator(EnumerationOperations enumerator, String resourceUri) {
+        final Map<String, Object> requestContext = ClientProxy.getClient(enumerator).getRequestContext();
+        requestContext.put(WSManHeaderInterceptor.RESOURCE_URI, resourceUri);
+        requestContext.put(WSManHeaderInterceptor.SELECTORS, Collections.emptyMap());
+        return enumerator;
+    }
+
+    protected void release(EnumerationOperations enumerator) {
+        m_enumerators.release(enumerator);
+    }
+
+    protected TransferOperations borrowTransferer(String resourceUri, String elementType, Map<String, String> selectors) {
+        checkNotClosed();
+        return prepareTransferer(m_transferers.borrow(), resourceUri, elementType, selectors);
+    }
+
+    protected CompletableFuture<TransferOperations> borrowTransfererAsync(String resourceUri, String elementType, Map<String, String> selectors) {
+        return m_transferers.borrowAsync().thenApply(transferer -> prepareTransferer(transferer, resourceUri, elementType, selectors));
+    }
+
+    private static TransferOperations prepareTransferer(TransferOperations transferer, String resourceUri, String elementType,
+            Map<String, String> selectors) {
+        final Client cxfClient = ClientProxy.getClient(transferer);
+        final Map<String, Object> requestContext = cxfClient.getRequestContext();
+        requestContext.put(WSManHeaderInterceptor.RESOURCE_URI, resourceUri);
+        requestContext.put(WSManHeaderInterceptor.SELECTORS, selectors);
+
+        // The borrowed proxy is ours until it is released, so it is safe to
+        // update the element mapping for this particular resource
+        for (Interceptor<? extends Message> interceptor : cxfClient.getInInterceptors()) {
+            if (interceptor instanceof TransformInInterceptor) {
+                ((TransformInInterceptor)interceptor).setInTransformElements(
+                        CXFWSManClient.getTransferInTransformMap(resourceUri, elementType));
+            }
+        }
+        return transferer;
+    }
+
+    protected void release(TransferOperations transferer) {
+        m_transferers.release(transferer);
+    }
+
+    /**
+     * Configures the pool of connections shared by the proxies in this session.
+     *
+     * These properties are read when the bus creates its conduit factory,
+     * so they must be set before any of the proxies are created.
+     */
+    private void configureConnectionPool() {
+        if (m_endpoint.getMaxConnectionsPerHost() != null) {
+            // All of our requests go to the same host
+            m_bus.setProperty(AsyncHTTPConduitFactory.MAX_CONNECTIONS, m_endpoint.getMaxConnectionsPerHost());
+            m_bus.setProperty(AsyncHTTPConduitFactory.MAX_PER_HOST_CONNECTIONS, m_endpoint.getMaxConnectionsPerHost());
+        }
+        if (m_endpoint.getConnectionIdleTimeout() != null) {
+            // Idle connections are evicted by the conduit factory's reaper
+            m_bus.setProperty(AsyncHTTPConduitFactory.CONNECTION_MAX_IDLE, m_endpoint.getConnectionIdleTimeout());
+        }
+        if (m_endpoint.getConnectionTimeToLive() != null) {
+            // Connections older than this are closed instead of being reused
+            m_bus.setProperty(AsyncHTTPConduitFactory.CONNECTION_TTL, m_endpoint.getConnectionTimeToLive());
+        }
+        // Unlike the blocking pools, the non-blocking pool needs no stale check: idle connections stay registered
+        // with the I/O reactor, which closes them as soon as the host does, and closed connections are never leased.
+        // TCP keep-alive covers the hosts that go away without closing their connections.
+        m_bus.setProperty(AsyncHTTPConduitFactory.SO_KEEPALIVE, m_endpoint.isKeepAlive());
+    }
+
+    /**
+     * Switches the given proxy over to the pooled (asynchronous) conduit.
+     */
+    private <T> T configureTransport(T proxy) {
+        final Map<String, Object> requestContext = ClientProxy.getClient(proxy).getRequestContext();
+        if (m_endpoint.isGSSAuth()) {
+            // SPNEGO is handled by the URLConnection based conduit, so we stick with it when GSS auth is enabled.
+            // Its connections are kept alive by the JVM's own cache instead, which isn't bounded by the session's
+            // settings. Since every request carries its own SPNEGO token, connections don't need to be keyed per principal.
+            requestContext.put(AsyncHTTPConduit.USE_ASYNC, Boolean.FALSE);
+            return proxy;
+        } else if (!m_endpoint.isKeepAlive()) {
+            // Only asynchronous calls will use the non-blocking conduit
+            return proxy;
+        }
+
+        requestContext.put(AsyncHTTPConduit.USE_ASYNC, Boolean.TRUE);
+        if (m_endpoint.isBasicAuth()) {
+            // The credentials are used to answer NTLM challenges, and the connections they
+            // authenticate are tagged with the user principal, so they are never reused
+            // by requests made with different credentials
+            requestContext.put(Credentials.class.getName(), getCredentials());
+        }
+        return proxy;
+    }
+
+    private Credentials getCredentials() {
+        // Split user names that are qualified with a domain
+        String username = m_endpoint.getUsername();
+        String domain = null;
+        final int idx = username.indexOf('\\');
+        if (idx >= 0) {
+            domain = username.substring(0, idx);
+            username = username.substring(idx + 1);
+        }
+        return new NTCredentials(username, m_endpoint.getPassword(), null, domain);
+    }
+
+    private IdentifyOperations createIdentifier() {
+        LOG.debug("Creating new Identify proxy for {}.", m_endpoint.getUrl());
+        final IdentifyOperations identifier = CXFWSManClient.createProxyFor(m_endpoint, m_bus, IdentifyOperations.class,
+                new HashMap<>(), new HashMap<>());
+        ClientProxy.getClient(identifier).getOutInterceptors().add(new WSManHeaderInterceptor(WSManConstants.CIM_ALL_AVAILABLE_CLASSES));
+        return configureTransport(identifier);
+    }
+
+    private EnumerationOperations createEnumerator() {
+        LOG.debug("Creating new Enumeration proxy for {}.", m_endpoint.getUrl());
+        final EnumerationOperations enumerator = CXFWSManClient.createProxyFor(getNegotiatedEndpoint(), m_bus, EnumerationOperations.class,
+                CXFWSManClient.getEnumerationOutTransformMap(), new HashMap<>());
+        // The resource URI is retrieved from the request context
+        ClientProxy.getClient(enumerator).getOutInterceptors().add(new WSManHeaderInterceptor());
+        ClientProxy.getClient(enumerator).getOutInterceptors().add(new EnvelopeTemplateOutInterceptor());
+        ClientProxy.getClient(enumerator).getInInterceptors().add(new StreamingEnumerationInInterceptor());
+        return configureTransport(enumerator);
+    }
+
+    private TransferOperations createTransferer() {
+        LOG.debug("Creating new Transfer proxy for {}.", m_endpoint.getUrl());
+        // Use a placeholder mapping so that the transformer is added to the chain,
+        // the actual mapping is set when the proxy is borrowed
+        final Map<String, String> inTransformMap = CXFWSManClient.getTransferInTransformMap(
+                WSManConstants.CIM_ALL_AVAILABLE_CLASSES, "*");
+        final TransferOperations transferer = CXFWSManClient.createProxyFor(getNegotiatedEndpoint(), m_bus, TransferOperations.class,
+                new HashMap<>(), inTransformMap);
+        // The resource URI and selectors are retrieved from the request context
+        ClientProxy.getClient(transferer).getOutInterceptors().add(new WSManHeaderInterceptor());
+        ClientProxy.getClient(transferer).getOutInterceptors().add(new EnvelopeTemplateOutInterceptor());
+        ClientProxy.getClient(transferer).getInInterceptors().add(new BodyCapturingInInterceptor());
+        return configureTransport(transferer);
+    }
+
+    private void checkNotClosed() {
+        if (m_closed.get()) {
+            throw new WSManException(String.format("The session with %s is closed.", m_endpoint.getUrl()));
+        }
+    }
+
+    /**
+     * Releases any enumeration contexts that are still open, destroys all
+     * of the idle proxies, and shuts down the bus.
+     *
+     * Proxies that are currently in use are destroyed when they are released,
+     * and the bus is only shut down once all of them have been.
+     */
+    @Override
+    public void close() {
+        if (!m_closed.compareAndSet(false, true)) {
+            return;
+        }
+        if (m_maintenance != null) {
+            m_maintenance.shutdownNow();
+        }
+        // Stop handing out proxies before anything else
+        final CompletableFuture<Void> drained = CompletableFuture.allOf(
+                m_identifiers.close(), m_enumerators.close(), m_transferers.close());
+
+        // Report and release any contexts that were left open. The pools are closed,
+        // so these requests are issued with a client that isn't bound to the session.
+        final CXFWSManClient client = new CXFWSManClient(m_endpoint);
+        for (OpenEnumerationContext context : m_contexts.getOpenContexts()) {
+            LOG.warn("Enumeration context {} for {} on {} was not released before the session was closed. Releasing it.",
+                    context.getContextId(), context.getResourceUri(), m_endpoint.getUrl());
+            client.releaseQuietly(context.getContextId(), context.getResourceUri());
+            m_contexts.closed(context.getContextId());
+        }
+
+        // The proxies that are still leased use the bus' conduits
+        drained.whenComplete((v, e) -> m_bus.shutdown(false));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.cxf.helpers.CastUtils;
+import org.apache.cxf.helpers.HttpHeaderHelper;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.interceptor.LoggingInInterceptor;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.transport.common.gzip.GZIPInInterceptor;
+
+/**
+ * Decompresses gzip and deflate encoded responses as they are read,
+ * and records the servers that compress their responses, so that they
+ * can be sent compressed requests by the {@link CompressionOutInterceptor}.
+ *
+ * Responses that aren't encoded are left as-is.
+ */
+public class CompressionInInterceptor extends GZIPInInterceptor {
+
+    private final URL m_url;
+
+    public CompressionInInterceptor(URL url) {
+        m_url = Objects.requireNonNull(url, "url cannot be null");
+        // Log the decompressed response
+        addBefore(LoggingInInterceptor.class.getName());
+    }
+
+    @Override
+    public void handleMessage(Message message) throws Fault {
+        final Map<String, List<String>> headers = CastUtils.cast((Map<?, ?>)message.get(Message.PROTOCOL_HEADERS));
+        final List<String> contentEncoding = headers != null ? HttpHeaderHelper.getHeader(headers, HttpHeaderHelper.CONTENT_ENCODING) : null;
+        if (contentEncoding != null && !contentEncoding.isEmpty()) {
+            CompressionOutInterceptor.setSupportedBy(m_url);
+            // The length is that of the compressed response, which says nothing about the size of the envelope
+            headers.keySet().removeIf(HttpHeaderHelper.CONTENT_LENGTH::equalsIgnoreCase);
+        }
+        super.handleMessage(message);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.cxf.helpers.CastUtils;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.interceptor.LoggingOutInterceptor;
+import org.apache.cxf.interceptor.StaxOutInterceptor;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.opennms.core.wsman.WSManHosts;
+
+/**
+ * Compresses outgoing requests using gzip, once the server has been
+ * seen compressing its own responses.
+ *
+ * Servers aren't required to accept compressed requests, and have no
+ * standard way of advertising that they do, so we only compress requests
+ * sent to servers that returned a compressed response to any of the
+ * clients in this JVM.
+ */
+public class CompressionOutInterceptor extends AbstractPhaseInterceptor<Message> {
+
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final String GZIP = "gzip";
+
+    private static final Set<String> s_supportedBy = ConcurrentHashMap.newKeySet();
+
+    private final URL m_url;
+
+    public CompressionOutInterceptor(URL url) {
+        super(Phase.PRE_STREAM);
+        m_url = Objects.requireNonNull(url, "url cannot be null");
+        // Log the uncompressed request, and compress anything that gets written
+        addBefore(LoggingOutInterceptor.class.getName());
+        addBefore(EnvelopeTemplateOutInterceptor.class.getName());
+        addBefore(StaxOutInterceptor.class.getName());
+    }
+
+    @Override
+    public void handleMessage(Message message) throws Fault {
+        if (!isSupportedBy(m_url)) {
+            return;
+        }
+        final OutputStream os = message.getContent(OutputStream.class);
+        if (os == null) {
+            return;
+        }
+
+        // The headers are shared with the proxy's request context, so copy them before adding ours
+        final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        final Map<String, List<String>> existingHeaders = CastUtils.cast((Map<?, ?>)message.get(Message.PROTOCOL_HEADERS));
+        if (existingHeaders != null) {
+            headers.putAll(existingHeaders);
+        }
+        headers.put(CONTENT_ENCODING, Collections.singletonList(GZIP));
+        message.put(Message.PROTOCOL_HEADERS, headers);
+
+        try {
+            // The stream is finished when it's closed by the conduit
+            message.setContent(OutputStream.class, new GZIPOutputStream(os));
+        } catch (IOException e) {
+            throw new Fault(e);
+        }
+    }
+
+    static boolean isSupportedBy(URL url) {
+        return s_supportedBy.contains(WSManHosts.getKey(url));
+    }
+
+    static void setSupportedBy(URL url) {
+        s_supportedBy.add(WSManHosts.getKey(url));
+    }
+}
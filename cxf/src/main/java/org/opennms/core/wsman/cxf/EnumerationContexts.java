@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks the enumeration contexts that are open on the server.
+ *
+ * A context is tracked from the Enumerate that opened it until the
+ * end of the sequence is reached, or until it is released. The server
+ * may return a new context id with every Pull, in which case the
+ * tracked context follows along.
+ *
+ * Contexts are held when they are owned by an open stream, as opposed
+ * to being handed to the caller, who is responsible for releasing them.
+ *
+ * Callers may abandon the contexts they were handed without releasing them,
+ * so the number of tracked contexts is bounded: once it is reached, the least
+ * recently used context that isn't held is no longer tracked.
+ */
+class EnumerationContexts {
+    private static final Logger LOG = LoggerFactory.getLogger(EnumerationContexts.class);
+
+    /**
+     * Default maximum number of tracked contexts.
+     */
+    static final int DEFAULT_MAX_CONTEXTS = 1024;
+
+    private static class Entry {
+        private final String m_resourceUri;
+        private final long m_openedAt;
+        private final long m_lastUsedAt;
+        private final boolean m_held;
+        // Number of pulls issued since the Enumerate, or -1 if we didn't see it
+        private final int m_pulls;
+
+        private Entry(String resourceUri, long openedAt, long lastUsedAt, boolean held, int pulls) {
+            m_resourceUri = resourceUri;
+            m_openedAt = openedAt;
+            m_lastUsedAt = lastUsedAt;
+            m_held = held;
+            m_pulls = pulls;
+        }
+    }
+
+    private final Map<String, Entry> m_contexts = new ConcurrentHashMap<>();
+    private final int m_maxContexts;
+
+    EnumerationContexts() {
+        this(DEFAULT_MAX_CONTEXTS);
+    }
+
+    EnumerationContexts(int maxContexts) {
+        m_maxContexts = maxContexts;
+    }
+
+    /**
+     * Records a context returned by an Enumerate.
+     */
+    void opened(String contextId, String resourceUri) {
+        if (contextId == null) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        m_contexts.put(contextId, new Entry(resourceUri, now, now, false, 0));
+        evict(contextId);
+    }
+
+    /**
+     * Records the context returned by a Pull issued with the given context.
+     *
+     * @param contextId context used to issue the Pull
+     * @param nextContextId context returned by the Pull, or null if the end of the sequence was reached
+     */
+    void advanced(String contextId, String nextContextId, String resourceUri) {
+        final Entry previous = contextId != null ? m_contexts.remove(contextId) : null;
+        if (nextContextId == null) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        final int pulls = previous != null && previous.m_pulls >= 0 ? previous.m_pulls + 1 : -1;
+        m_contexts.put(nextContextId, previous != null ? new Entry(previous.m_resourceUri, previous.m_openedAt, now, previous.m_held, pulls)
+                : new Entry(resourceUri, now, now, false, pulls));
+        if (previous == null) {
+            evict(nextContextId);
+        }
+    }
+
+    /**
+     * Stops tracking the least recently used contexts that aren't held, until the bound is met.
+     * The given context was just added, and may be about to be held by a stream, so it is kept.
+     */
+    private void evict(String addedContextId) {
+        while (m_contexts.size() > m_maxContexts) {
+            final Map.Entry<String, Entry> eldest = m_contexts.entrySet().stream()
+                    .filter(e -> !e.getValue().m_held && !e.getKey().equals(addedContextId))
+                    .min(Comparator.comparingLong(e -> e.getValue().m_lastUsedAt))
+                    .orElse(null);
+            if (eldest == null) {
+                // All of the other contexts are held by open streams, and will be removed once these are closed
+                return;
+            }
+            if (m_contexts.remove(eldest.getKey(), eldest.getValue())) {
+                LOG.debug("Tracking too many enumeration contexts. No longer tracking {} for {}.",
+                        eldest.getKey(), eldest.getValue().m_resourceUri);
+            }
+        }
+    }
+
+    /**
+     * Marks the given context as being owned by a stream.
+     */
+    void hold(String contextId) {
+        if (contextId == null) {
+            return;
+        }
+        m_contexts.computeIfPresent(contextId, (id, e) -> new Entry(e.m_resourceUri, e.m_openedAt, e.m_lastUsedAt, true, e.m_pulls));
+    }
+
+    /**
+     * Records the context as being released, or expired.
+     */
+    void closed(String contextId) {
+        if (contextId != null) {
+            m_contexts.remove(contextId);
+        }
+    }
+
+    /**
+     * Marks the context as used, after it was successfully renewed.
+     */
+    void touch(String contextId) {
+        m_contexts.computeIfPresent(contextId, (id, e) -> new Entry(e.m_resourceUri, e.m_openedAt, System.currentTimeMillis(), e.m_held, e.m_pulls));
+    }
+
+    /**
+     * @return the position, within its enumeration, of the next page pulled using the
+     * given context, or -1 if the context wasn't opened by an Enumerate we tracked
+     */
+    int getNextPageNumber(String contextId) {
+        final Entry entry = contextId != null ? m_contexts.get(contextId) : null;
+        return entry != null && entry.m_pulls >= 0 ? entry.m_pulls + 1 : -1;
+    }
+
+    List<OpenEnumerationContext> getOpenContexts() {
+        return m_contexts.entrySet().stream()
+                .map(e -> new OpenEnumerationContext(e.getKey(), e.getValue().m_resourceUri, e.getValue().m_openedAt,
+                        e.getValue().m_lastUsedAt, e.getValue().m_held))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return the contexts that weren't used in the last idleTime milliseconds
+     */
+    List<OpenEnumerationContext> getIdleContexts(long idleTime) {
+        final long threshold = System.currentTimeMillis() - idleTime;
+        return getOpenContexts().stream()
+                .filter(c -> c.getLastUsedAt() <= threshold)
+                .collect(Collectors.toList());
+    }
+}
@@ -15,6 +15,8 @@
  */
 package org.opennms.core.wsman.cxf;
 
+import java.util.concurrent.Future;
+
 import javax.jws.WebMethod;
 import javax.jws.WebParam;
 import javax.jws.WebResult;
@@ -22,6 +24,7 @@ import javax.jws.WebService;
 import javax.jws.soap.SOAPBinding;
 import javax.xml.bind.annotation.XmlSeeAlso;
 import javax.xml.ws.Action;
+import javax.xml.ws.AsyncHandler;
 import javax.xml.ws.soap.Addressing;
 
 import org.xmlsoap.schemas.ws._2004._09.enumeration.Enumerate;
@@ -65,6 +68,15 @@ public interface EnumerationOperations {
         Enumerate body
     );
 
+    @WebMethod(operationName = "Enumerate")
+    @Action(input = "http://schemas.xmlsoap.org/ws/2004/09/enumeration/Enumerate", output = "http://schemas.xmlsoap.org/ws/2004/09/enumeration/EnumerateResponse")
+    public Future<?> enumerateAsync(
+        @WebParam(partName = "Body", name = "Enumerate", targetNamespace = "http://schemas.xmlsoap.org/ws/2004/09/enumeration")
+        Enumerate body,
+        @WebParam(name = "asyncHandler", targetNamespace = "")
+        AsyncHandler<EnumerateResponse> asyncHandler
+    );
+
     @WebMethod(operationName = "Pull")
     @Action(input = "http://schemas.xmlsoap.org/ws/2004/09/enumeration/Pull", output = "http://schemas.xmlsoap.org/ws/2004/09/enumeration/PullResponse")
     @WebResult(name = "PullResponse", targetNamespace = "http://schemas.xmlsoap.org/ws/2004/09/enumeration", partName = "Body")
@@ -72,6 +84,15 @@ public interface EnumerationOperations {
         @WebParam(partName = "Body", name = "Pull", targetNamespace = "http://schemas.xmlsoap.org/ws/2004/09/enumeration")
         Pull body
     );
+
+    @WebMethod(operationName = "Pull")
+    @Action(input = "http://schemas.xmlsoap.org/ws/2004/09/enumeration/Pull", output = "http://schemas.xmlsoap.org/ws/2004/09/enumeration/PullResponse")
+    public Future<?> pullAsync(
+        @WebParam(partName = "Body", name = "Pull", targetNamespace = "http://schemas.xmlsoap.org/ws/2004/09/enumeration")
+        Pull body,
+        @WebParam(name = "asyncHandler", targetNamespace = "")
+        AsyncHandler<PullResponse> asyncHandler
+    );
     
     @WebMethod(operationName = "Release")
     @Action(input = "http://schemas.xmlsoap.org/ws/2004/09/enumeration/Release", output = "http://schemas.xmlsoap.org/ws/2004/09/enumeration/ReleaseResponse")
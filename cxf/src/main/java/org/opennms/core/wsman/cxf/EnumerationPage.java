@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.w3c.dom.Node;
+import org.xmlsoap.schemas.ws._2004._09.enumeration.EnumerateResponse;
+import org.xmlsoap.schemas.ws._2004._09.enumeration.PullResponse;
+
+/**
+ * A single page of results from an Enumerate or Pull operation.
+ *
+ * The context id and the 'end-of-sequence' marker are available as soon as
+ * the page is received, while the conversion of the items can be deferred
+ * until the page is drained.
+ *
+ * Pages are either read directly from the response stream by the
+ * {@link StreamingEnumerationInInterceptor}, in which case an empty page is
+ * placed in the request context under {@link #KEY} before issuing the
+ * operation, or built from the unmarshalled JAXB response.
+ */
+class EnumerationPage {
+    public static final String KEY = EnumerationPage.class.getName();
+
+    private final List<Node> m_items = new ArrayList<>();
+    private Consumer<List<Node>> m_converter;
+    private String m_contextId;
+    private boolean m_endOfSequence = false;
+    private boolean m_complete = false;
+    private int m_itemCount = 0;
+    private long m_responseLength = -1;
+
+    /**
+     * Creates an empty page, to be filled by the {@link StreamingEnumerationInInterceptor}.
+     */
+    EnumerationPage() {
+    }
+
+    private EnumerationPage(String contextId, boolean endOfSequence, int itemCount, Consumer<List<Node>> converter) {
+        m_contextId = contextId;
+        m_endOfSequence = endOfSequence;
+        m_itemCount = itemCount;
+        m_converter = converter;
+        m_complete = true;
+    }
+
+    static EnumerationPage of(EnumerateResponse response) {
+        // The items are nested in one of the extension elements, so we don't count them up front
+        return new EnumerationPage(TypeUtils.getContextIdFrom(response), TypeUtils.isEndOfSequence(response), -1,
+                nodes -> TypeUtils.getItemsFrom(response, nodes));
+    }
+
+    static EnumerationPage of(PullResponse response) {
+        return new EnumerationPage(TypeUtils.getContextIdFrom(response), TypeUtils.isEndOfSequence(response),
+                response.getItems() != null ? response.getItems().getAny().size() : 0,
+                nodes -> TypeUtils.getItemsFrom(response, nodes));
+    }
+
+    /**
+     * Returns the streamed page if it was filled, otherwise falls back
+     * to the unmarshalled response, which may be null.
+     */
+    static EnumerationPage of(EnumerationPage streamed, EnumerateResponse response) {
+        if (streamed != null && streamed.isComplete()) {
+            return streamed;
+        }
+        return response != null ? of(response) : null;
+    }
+
+    static EnumerationPage of(EnumerationPage streamed, PullResponse response) {
+        if (streamed != null && streamed.isComplete()) {
+            return streamed;
+        }
+        return response != null ? of(response) : null;
+    }
+
+    void addItem(Node node) {
+        m_items.add(node);
+        m_itemCount++;
+    }
+
+    void setResponseLength(long responseLength) {
+        m_responseLength = responseLength;
+    }
+
+    void setContextId(String contextId) {
+        m_contextId = contextId;
+    }
+
+    void setEndOfSequence(boolean endOfSequence) {
+        m_endOfSequence = endOfSequence;
+    }
+
+    void setComplete() {
+        m_complete = true;
+    }
+
+    boolean isComplete() {
+        return m_complete;
+    }
+
+    String getContextId() {
+        return m_contextId;
+    }
+
+    boolean isEndOfSequence() {
+        return m_endOfSequence;
+    }
+
+    /**
+     * @return the number of items in the page, or -1 if unknown
+     */
+    int getItemCount() {
+        return m_itemCount;
+    }
+
+    /**
+     * @return the length of the response, in bytes, or -1 if unknown
+     */
+    long getResponseLength() {
+        return m_responseLength;
+    }
+
+    /**
+     * Moves the items from this page to the given list.
+     *
+     * @return true if this page contains an 'end-of-sequence' marker
+     */
+    boolean drainTo(List<Node> nodes) {
+        if (m_converter != null) {
+            m_converter.accept(nodes);
+            m_converter = null;
+        } else {
+            nodes.addAll(m_items);
+            m_items.clear();
+        }
+        return m_endOfSequence;
+    }
+}
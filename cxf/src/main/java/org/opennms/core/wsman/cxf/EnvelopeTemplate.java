@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A SOAP envelope compiled into a sequence of pre-encoded byte segments
+ * separated by named slots.
+ *
+ * Slots are written as ${name} in the source, and are substituted with
+ * XML escaped values when the template is rendered.
+ */
+class EnvelopeTemplate {
+
+    private static final String SLOT_START = "${";
+    private static final String SLOT_END = "}";
+
+    private final List<byte[]> m_segments;
+    private final List<String> m_slots;
+
+    private EnvelopeTemplate(List<byte[]> segments, List<String> slots) {
+        m_segments = segments;
+        m_slots = slots;
+    }
+
+    static EnvelopeTemplate compile(String source) {
+        final List<byte[]> segments = new ArrayList<>();
+        final List<String> slots = new ArrayList<>();
+        int position = 0;
+        while (true) {
+            final int start = source.indexOf(SLOT_START, position);
+            if (start < 0) {
+                break;
+            }
+            final int end = source.indexOf(SLOT_END, start);
+            if (end < 0) {
+                throw new IllegalArgumentException("Unterminated slot in template: " + source);
+            }
+            segments.add(source.substring(position, start).getBytes(StandardCharsets.UTF_8));
+            slots.add(source.substring(start + SLOT_START.length(), end));
+            position = end + SLOT_END.length();
+        }
+        segments.add(source.substring(position).getBytes(StandardCharsets.UTF_8));
+        return new EnvelopeTemplate(segments, slots);
+    }
+
+    /**
+     * Writes the envelope to the given stream.
+     *
+     * @param os stream to write to
+     * @param values values for every slot in the template
+     */
+    void render(OutputStream os, Map<String, String> values) throws IOException {
+        for (int i = 0; i < m_slots.size(); i++) {
+            os.write(m_segments.get(i));
+            final String value = values.get(m_slots.get(i));
+            if (value == null) {
+                throw new IllegalArgumentException("No value for slot: " + m_slots.get(i));
+            }
+            os.write(escape(value).getBytes(StandardCharsets.UTF_8));
+        }
+        os.write(m_segments.get(m_segments.size() - 1));
+    }
+
+    private static String escape(String value) {
+        StringBuilder sb = null;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            final String replacement;
+            switch (c) {
+            case '<': replacement = "&lt;"; break;
+            case '>': replacement = "&gt;"; break;
+            case '&': replacement = "&amp;"; break;
+            case '"': replacement = "&quot;"; break;
+            case '\'': replacement = "&apos;"; break;
+            default: replacement = null;
+            }
+            if (replacement != null) {
+                if (sb == null) {
+                    sb = new StringBuilder(value.length() + 16);
+                    sb.append(value, 0, i);
+                }
+                sb.append(replacement);
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        return sb != null ? sb.toString() : value;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+import org.apache.cxf.binding.soap.interceptor.SoapOutInterceptor;
+import org.apache.cxf.interceptor.AbstractOutDatabindingInterceptor;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.interceptor.Interceptor;
+import org.apache.cxf.interceptor.InterceptorChain;
+import org.apache.cxf.interceptor.LoggingOutInterceptor;
+import org.apache.cxf.interceptor.StaxOutInterceptor;
+import org.apache.cxf.interceptor.transform.TransformOutInterceptor;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.ws.addressing.AddressingProperties;
+import org.apache.cxf.ws.addressing.JAXWSAConstants;
+
+/**
+ * Writes outgoing requests using a pre-rendered {@link EnvelopeTemplate}
+ * instead of marshalling the request and its headers.
+ *
+ * The interceptor only acts when the request carries a {@link TemplatedEnvelope}
+ * under {@link TemplatedEnvelope#KEY}, in which case the envelope is written
+ * straight to the output stream and the interceptors responsible for
+ * writing the XML are removed from the chain.
+ *
+ * The message id generated by the WS-Addressing interceptors is used,
+ * so that responses can still be correlated.
+ */
+public class EnvelopeTemplateOutInterceptor extends AbstractPhaseInterceptor<Message> {
+
+    /**
+     * A template along with the values for its slots.
+     */
+    static class TemplatedEnvelope {
+        public static final String KEY = TemplatedEnvelope.class.getName();
+
+        private final EnvelopeTemplate m_template;
+        private final Map<String, String> m_values;
+
+        TemplatedEnvelope(EnvelopeTemplate template, Map<String, String> values) {
+            m_template = Objects.requireNonNull(template, "template cannot be null");
+            m_values = Objects.requireNonNull(values, "values cannot be null");
+        }
+    }
+
+    public EnvelopeTemplateOutInterceptor() {
+        super(Phase.PRE_STREAM);
+        addAfter(LoggingOutInterceptor.class.getName());
+        addBefore(TransformOutInterceptor.class.getName());
+        addBefore(StaxOutInterceptor.class.getName());
+    }
+
+    @Override
+    public void handleMessage(Message message) throws Fault {
+        final Object envelope = message.get(TemplatedEnvelope.KEY);
+        if (!(envelope instanceof TemplatedEnvelope)) {
+            // Let JAXB handle it
+            return;
+        }
+        final OutputStream os = message.getContent(OutputStream.class);
+        if (os == null) {
+            return;
+        }
+
+        final TemplatedEnvelope templated = (TemplatedEnvelope)envelope;
+        templated.m_values.put(EnvelopeTemplates.MESSAGE_ID, getMessageId(message));
+        try {
+            templated.m_template.render(os, templated.m_values);
+        } catch (IOException|IllegalArgumentException e) {
+            throw new Fault(e);
+        }
+
+        // The envelope was written, so skip the default serialization
+        final InterceptorChain chain = message.getInterceptorChain();
+        final List<Interceptor<? extends Message>> writers = new ArrayList<>();
+        for (Interceptor<? extends Message> interceptor : chain) {
+            if (interceptor instanceof StaxOutInterceptor
+                    || interceptor instanceof TransformOutInterceptor
+                    || interceptor instanceof SoapOutInterceptor
+                    || interceptor instanceof AbstractOutDatabindingInterceptor) {
+                writers.add(interceptor);
+            }
+        }
+        writers.forEach(chain::remove);
+    }
+
+    private static String getMessageId(Message message) {
+        final Object maps = message.get(JAXWSAConstants.ADDRESSING_PROPERTIES_OUTBOUND);
+        if (maps instanceof AddressingProperties) {
+            final AddressingProperties addressingProperties = (AddressingProperties)maps;
+            if (addressingProperties.getMessageID() != null && addressingProperties.getMessageID().getValue() != null) {
+                return addressingProperties.getMessageID().getValue();
+            }
+        }
+        return "urn:uuid:" + UUID.randomUUID();
+    }
+}
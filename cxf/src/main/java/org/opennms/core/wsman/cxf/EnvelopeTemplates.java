@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.cxf.ws.addressing.JAXWSAConstants;
+import org.apache.cxf.ws.addressing.soap.VersionTransformer;
+import org.opennms.core.wsman.WSManConstants;
+import org.opennms.core.wsman.WSManEndpoint;
+import org.opennms.core.wsman.WSManVersion;
+
+/**
+ * Compiles and caches the envelopes of the Enumerate, Pull and Get requests
+ * issued against a single endpoint.
+ *
+ * Templates are keyed by operation, resource URI and selector names, so
+ * repeated polling of the same resource only needs to substitute the
+ * message id, the context id, the selector values and, when the page size
+ * is adaptive, the maximum number of elements.
+ *
+ * The generated envelopes match those produced by the JAX-WS proxies,
+ * including the transformations applied by their out interceptors.
+ */
+class EnvelopeTemplates {
+
+    public static final String MESSAGE_ID = "messageId";
+    public static final String CONTEXT_ID = "contextId";
+    public static final String FILTER = "filter";
+    public static final String MAX_ELEMENTS = "maxElements";
+    public static final String SELECTOR_PREFIX = "selector.";
+
+    private static final String NS_SOAP_ENV = "http://www.w3.org/2003/05/soap-envelope";
+    private static final String ACTION_ENUMERATE = WSManConstants.XML_NS_WS_2004_09_ENUMERATION + "/Enumerate";
+    private static final String ACTION_PULL = WSManConstants.XML_NS_WS_2004_09_ENUMERATION + "/Pull";
+    private static final String ACTION_GET = WSManConstants.XML_NS_WS_2004_09_TRANSFER + "/Get";
+
+    private final WSManEndpoint m_endpoint;
+    private final String m_addressingNamespace;
+    private final Map<String, EnvelopeTemplate> m_templates = new ConcurrentHashMap<>();
+
+    EnvelopeTemplates(WSManEndpoint endpoint) {
+        m_endpoint = Objects.requireNonNull(endpoint, "endpoint cannot be null");
+        // WS-Man 1.0 does not support the W3C WS-Addressing
+        m_addressingNamespace = endpoint.getServerVersion() == WSManVersion.WSMAN_1_0 ?
+                WSManConstants.XML_NS_WS_2004_08_ADDRESSING : JAXWSAConstants.NS_WSA;
+    }
+
+    /**
+     * @return true if these templates can be used to issue requests against the given endpoint
+     */
+    boolean isFor(WSManEndpoint endpoint) {
+        return m_endpoint.getServerVersion() == endpoint.getServerVersion();
+    }
+
+    EnvelopeTemplate getEnumerate(String resourceUri, String dialect, boolean optimized) {
+        final String key = String.format("Enumerate|%s|%s|%s", resourceUri, dialect, optimized);
+        return m_templates.computeIfAbsent(key, k -> {
+            final StringBuilder body = new StringBuilder();
+            body.append("<wsen:Enumerate>");
+            if (dialect != null) {
+                body.append("<wsman:Filter Dialect=\"").append(escape(dialect)).append("\">")
+                    .append(slot(FILTER)).append("</wsman:Filter>");
+            }
+            if (optimized) {
+                body.append("<wsman:OptimizeEnumeration/>");
+            }
+            if (m_endpoint.getMaxEnvelopeSize() != null) {
+                body.append("<wsman:MaxEnvelopeSize>").append(m_endpoint.getMaxEnvelopeSize()).append("</wsman:MaxEnvelopeSize>");
+            }
+            if (m_endpoint.isAdaptivePageSize() || m_endpoint.getMaxElements() != null) {
+                body.append("<wsman:MaxElements>").append(maxElements()).append("</wsman:MaxElements>");
+            }
+            body.append("</wsen:Enumerate>");
+            return compile(ACTION_ENUMERATE, resourceUri, null, body);
+        });
+    }
+
+    EnvelopeTemplate getPull(String resourceUri) {
+        final String key = String.format("Pull|%s", resourceUri);
+        return m_templates.computeIfAbsent(key, k -> {
+            final StringBuilder body = new StringBuilder();
+            body.append("<wsen:Pull>");
+            body.append("<wsen:EnumerationContext>").append(slot(CONTEXT_ID)).append("</wsen:EnumerationContext>");
+            if (m_endpoint.isAdaptivePageSize() || m_endpoint.getMaxElements() != null) {
+                body.append("<wsen:MaxElements>").append(maxElements()).append("</wsen:MaxElements>");
+            }
+            body.append("</wsen:Pull>");
+            return compile(ACTION_PULL, resourceUri, null, body);
+        });
+    }
+
+    EnvelopeTemplate getGet(String resourceUri, Collection<String> selectorNames) {
+        // Sort the names so that the same template is used regardless of the map's ordering
+        final TreeSet<String> names = new TreeSet<>(selectorNames);
+        final String key = String.format("Get|%s|%s", resourceUri, names);
+        return m_templates.computeIfAbsent(key, k -> compile(ACTION_GET, resourceUri, names, new StringBuilder()));
+    }
+
+    private EnvelopeTemplate compile(String action, String resourceUri, Collection<String> selectorNames, StringBuilder body) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        sb.append("<soap:Envelope xmlns:soap=\"").append(NS_SOAP_ENV).append("\"")
+            .append(" xmlns:wsa=\"").append(m_addressingNamespace).append("\"")
+            .append(" xmlns:wsen=\"").append(WSManConstants.XML_NS_WS_2004_09_ENUMERATION).append("\"")
+            .append(" xmlns:wsman=\"").append(WSManConstants.XML_NS_DMTF_WSMAN_V1).append("\">");
+        sb.append("<soap:Header>");
+        sb.append("<wsa:Action>").append(action).append("</wsa:Action>");
+        sb.append("<wsa:MessageID>").append(slot(MESSAGE_ID)).append("</wsa:MessageID>");
+        sb.append("<wsa:To>").append(escape(m_endpoint.getUrl().toExternalForm())).append("</wsa:To>");
+        sb.append("<wsa:ReplyTo><wsa:Address>").append(VersionTransformer.Names200408.WSA_ANONYMOUS_ADDRESS).append("</wsa:Address></wsa:ReplyTo>");
+        sb.append("<wsa:FaultTo><wsa:Address>").append(VersionTransformer.Names200408.WSA_ANONYMOUS_ADDRESS).append("</wsa:Address></wsa:FaultTo>");
+        sb.append("<wsman:ResourceURI>").append(escape(resourceUri)).append("</wsman:ResourceURI>");
+        if (selectorNames != null && !selectorNames.isEmpty()) {
+            sb.append("<wsman:SelectorSet>");
+            for (String name : selectorNames) {
+                sb.append("<wsman:Selector Name=\"").append(escape(name)).append("\">")
+                    .append(slot(SELECTOR_PREFIX + name)).append("</wsman:Selector>");
+            }
+            sb.append("</wsman:SelectorSet>");
+        }
+        sb.append("</soap:Header>");
+        if (body.length() > 0) {
+            sb.append("<soap:Body>").append(body).append("</soap:Body>");
+        } else {
+            sb.append("<soap:Body/>");
+        }
+        sb.append("</soap:Envelope>");
+        return EnvelopeTemplate.compile(sb.toString());
+    }
+
+    /**
+     * The number of elements is substituted on every call when the page size is adaptive.
+     */
+    private String maxElements() {
+        return m_endpoint.isAdaptivePageSize() ? slot(MAX_ELEMENTS) : m_endpoint.getMaxElements().toString();
+    }
+
+    private static String slot(String name) {
+        return "${" + name + "}";
+    }
+
+    private static String escape(String value) {
+        // Constant parts can't contain anything that looks like a slot
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+                .replace("\"", "&quot;").replace("$", "&#36;");
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.net.URI;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.util.Base64;
+
+import javax.security.auth.Subject;
+import javax.security.auth.login.LoginException;
+
+import org.apache.cxf.configuration.security.AuthorizationPolicy;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.transport.http.auth.HttpAuthHeader;
+import org.apache.cxf.transport.http.auth.HttpAuthSupplier;
+import org.ietf.jgss.GSSContext;
+import org.ietf.jgss.GSSException;
+import org.ietf.jgss.GSSManager;
+import org.ietf.jgss.GSSName;
+import org.ietf.jgss.Oid;
+
+/**
+ * Generates SPNEGO authorizations, like CXF's SpnegoAuthSupplier does, but
+ * using the subjects cached by {@link KerberosLogins}, instead of logging in
+ * to Kerberos for every request.
+ *
+ * Every authorization still carries a new security context, as expected by
+ * the server, but it is built from the cached service ticket. The contexts
+ * themselves can't be reused: an initiator only produces its initial token
+ * once, and the server rejects authenticators it has already seen.
+ */
+class GSSAuthSupplier implements HttpAuthSupplier {
+
+    private static final String SPNEGO_OID = "1.3.6.1.5.5.2";
+
+    @Override
+    public boolean requiresRequestCaching() {
+        return false;
+    }
+
+    @Override
+    public String getAuthorization(AuthorizationPolicy authPolicy, URI uri, Message message, String fullHeader) {
+        if (!HttpAuthHeader.AUTH_TYPE_NEGOTIATE.equals(authPolicy.getAuthorizationType())) {
+            return null;
+        }
+        try {
+            final Subject subject = KerberosLogins.getDefault().getSubject(authPolicy.getAuthorization(),
+                    authPolicy.getUserName(), authPolicy.getPassword());
+            final byte[] token = Subject.doAs(subject, (PrivilegedExceptionAction<byte[]>)() -> createToken(uri));
+            return HttpAuthHeader.AUTH_TYPE_NEGOTIATE + " " + Base64.getEncoder().encodeToString(token);
+        } catch (LoginException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        } catch (PrivilegedActionException e) {
+            throw new RuntimeException(e.getException().getMessage(), e.getException());
+        }
+    }
+
+    private static byte[] createToken(URI uri) throws GSSException {
+        final Oid oid = new Oid(SPNEGO_OID);
+        final GSSManager manager = GSSManager.getInstance();
+        final GSSName serverName = manager.createName("HTTP@" + uri.getHost(), GSSName.NT_HOSTBASED_SERVICE);
+        final GSSContext context = manager.createContext(serverName.canonicalize(oid), oid, null, GSSContext.DEFAULT_LIFETIME);
+        try {
+            context.requestCredDeleg(false);
+            final byte[] token = new byte[0];
+            return context.initSecContext(token, 0, token.length);
+        } finally {
+            context.dispose();
+        }
+    }
+}
@@ -15,12 +15,15 @@
  */
 package org.opennms.core.wsman.cxf;
 
+import java.util.concurrent.Future;
+
 import javax.jws.WebMethod;
 import javax.jws.WebParam;
 import javax.jws.WebResult;
 import javax.jws.WebService;
 import javax.jws.soap.SOAPBinding;
 import javax.xml.bind.annotation.XmlSeeAlso;
+import javax.xml.ws.AsyncHandler;
 import javax.xml.ws.soap.Addressing;
 
 import schemas.dmtf.org.wbem.wsman.v1.IdentifyResponseType;
@@ -43,4 +46,12 @@ public interface IdentifyOperations {
             @WebParam(partName = "Identify", name = "Identify", targetNamespace = "http://schemas.dmtf.org/wbem/wsman/identity/1/wsmanidentity.xsd")
             IdentifyType identify
             );
+
+    @WebMethod(operationName = "Identify")
+    public Future<?> identifyAsync(
+            @WebParam(partName = "Identify", name = "Identify", targetNamespace = "http://schemas.dmtf.org/wbem/wsman/identity/1/wsmanidentity.xsd")
+            IdentifyType identify,
+            @WebParam(name = "asyncHandler", targetNamespace = "")
+            AsyncHandler<IdentifyResponseType> asyncHandler
+            );
 }
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import javax.security.auth.Subject;
+import javax.security.auth.callback.Callback;
+import javax.security.auth.callback.CallbackHandler;
+import javax.security.auth.callback.NameCallback;
+import javax.security.auth.callback.PasswordCallback;
+import javax.security.auth.callback.UnsupportedCallbackException;
+import javax.security.auth.kerberos.KerberosTicket;
+import javax.security.auth.login.LoginContext;
+import javax.security.auth.login.LoginException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the subjects obtained by logging in to Kerberos, per login
+ * configuration and principal.
+ *
+ * Logging in obtains a ticket-granting ticket from the KDC. The JDK then
+ * stores the service tickets it obtains using that ticket in the same
+ * subject, and reuses them until they expire, so that generating
+ * the authorization of a request requires no round trip to the KDC.
+ *
+ * Logins are renewed in the background once most of the lifetime of their
+ * ticket-granting ticket has elapsed, as long as they were used since they
+ * were last renewed. Failing that, the next request logs in again.
+ */
+final class KerberosLogins {
+    private static final Logger LOG = LoggerFactory.getLogger(KerberosLogins.class);
+
+    /**
+     * Fraction of the lifetime of the ticket-granting ticket after which the login is renewed.
+     */
+    private static final double RENEWAL_THRESHOLD = 0.8;
+
+    /**
+     * Lifetime assumed for logins that yield no ticket-granting ticket, i.e. when using a keytab.
+     */
+    private static final long DEFAULT_LIFETIME_MS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final ScheduledExecutorService s_renewer = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread thread = new Thread(r, "wsman-kerberos-renewer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final KerberosLogins s_default = new KerberosLogins(System::currentTimeMillis,
+            KerberosLogins::login, (task, delay) -> s_renewer.schedule(task, delay, TimeUnit.MILLISECONDS));
+
+    /**
+     * Logs in to Kerberos, using JAAS by default.
+     */
+    @FunctionalInterface
+    interface Authenticator {
+        Subject login(String contextName, String username, String password) throws LoginException;
+    }
+
+    /**
+     * Runs the renewals, in the background by default.
+     */
+    @FunctionalInterface
+    interface Scheduler {
+        void schedule(Runnable task, long delayInMs);
+    }
+
+    private final Map<String, Login> m_logins = new ConcurrentHashMap<>();
+    private final LongSupplier m_clock;
+    private final Authenticator m_authenticator;
+    private final Scheduler m_scheduler;
+
+    KerberosLogins(LongSupplier clock, Authenticator authenticator, Scheduler scheduler) {
+        m_clock = Objects.requireNonNull(clock, "clock cannot be null");
+        m_authenticator = Objects.requireNonNull(authenticator, "authenticator cannot be null");
+        m_scheduler = Objects.requireNonNull(scheduler, "scheduler cannot be null");
+    }
+
+    /**
+     * Retrieves the logins shared by all of the clients.
+     */
+    static KerberosLogins getDefault() {
+        return s_default;
+    }
+
+    /**
+     * Retrieves the subject of the given principal, logging in if needed.
+     *
+     * @param contextName name of the JAAS login configuration
+     * @return the logged in subject, or null if there is nothing to log in with
+     * @throws LoginException if the login fails
+     */
+    Subject getSubject(String contextName, String username, String password) throws LoginException {
+        if (isEmpty(contextName) && isEmpty(username)) {
+            // Use the default credentials
+            return null;
+        }
+        final String key = String.format("%s|%s", contextName, username);
+        return m_logins.computeIfAbsent(key, k -> new Login(contextName, username)).getSubject(password);
+    }
+
+    private class Login {
+        private final String m_contextName;
+        private final String m_username;
+
+        // All of the following are guarded by this
+        private String m_password;
+        private Subject m_subject;
+        private long m_expiresAt;
+        private long m_loggedInAt;
+        private long m_lastUsedAt;
+        private boolean m_renewalScheduled = false;
+
+        private Login(String contextName, String username) {
+            m_contextName = contextName;
+            m_username = username;
+        }
+
+        private synchronized Subject getSubject(String password) throws LoginException {
+            final long now = m_clock.getAsLong();
+            m_lastUsedAt = now;
+            if (m_subject == null || now >= m_expiresAt || !Objects.equals(password, m_password)) {
+                onLogin(m_authenticator.login(m_contextName, m_username, password), password);
+            }
+            return m_subject;
+        }
+
+        /**
+         * Logs in again, without holding the lock, so that the current subject remains usable in the meantime.
+         */
+        private void renew() {
+            final String password;
+            synchronized(this) {
+                m_renewalScheduled = false;
+                if (m_lastUsedAt < m_loggedInAt) {
+                    // Not used since the last login, let it expire
+                    return;
+                }
+                password = m_password;
+            }
+            final Subject subject;
+            try {
+                subject = m_authenticator.login(m_contextName, m_username, password);
+            } catch (LoginException e) {
+                LOG.warn("Failed to renew the Kerberos login of {}. It will be retried on next use.", m_username, e);
+                return;
+            }
+            synchronized(this) {
+                if (Objects.equals(password, m_password)) {
+                    onLogin(subject, password);
+                }
+            }
+        }
+
+        private void onLogin(Subject subject, String password) {
+            final long now = m_clock.getAsLong();
+            final KerberosTicket tgt = getTicketGrantingTicket(subject);
+            m_subject = subject;
+            m_password = password;
+            m_loggedInAt = now;
+            m_expiresAt = tgt != null && tgt.getEndTime() != null ? tgt.getEndTime().getTime() : now + DEFAULT_LIFETIME_MS;
+            if (!m_renewalScheduled) {
+                m_renewalScheduled = true;
+                final long delay = Math.max(0, (long)((m_expiresAt - now) * RENEWAL_THRESHOLD));
+                m_scheduler.schedule(this::renew, delay);
+            }
+        }
+    }
+
+    private static Subject login(String contextName, String username, String password) throws LoginException {
+        LOG.debug("Logging in to Kerberos as {} using the {} configuration.", username, contextName);
+        final LoginContext lc = new LoginContext(contextName != null ? contextName : "", null,
+                createCallbackHandler(username, password), null);
+        lc.login();
+        return lc.getSubject();
+    }
+
+    private static CallbackHandler createCallbackHandler(String username, String password) {
+        return callbacks -> {
+            for (Callback callback : callbacks) {
+                if (callback instanceof NameCallback) {
+                    ((NameCallback)callback).setName(username);
+                } else if (callback instanceof PasswordCallback) {
+                    ((PasswordCallback)callback).setPassword(password != null ? password.toCharArray() : null);
+                } else {
+                    throw new UnsupportedCallbackException(callback);
+                }
+            }
+        };
+    }
+
+    private static KerberosTicket getTicketGrantingTicket(Subject subject) {
+        for (KerberosTicket ticket : subject.getPrivateCredentials(KerberosTicket.class)) {
+            if (ticket.getServer().getName().startsWith("krbtgt/")) {
+                return ticket;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.util.Objects;
+
+/**
+ * A snapshot of an enumeration context that was opened by the client,
+ * and that has not yet reached the end of its sequence or been released.
+ */
+public class OpenEnumerationContext {
+
+    private final String m_contextId;
+    private final String m_resourceUri;
+    private final long m_openedAt;
+    private final long m_lastUsedAt;
+    private final boolean m_held;
+
+    protected OpenEnumerationContext(String contextId, String resourceUri, long openedAt, long lastUsedAt, boolean held) {
+        m_contextId = Objects.requireNonNull(contextId, "contextId cannot be null");
+        m_resourceUri = Objects.requireNonNull(resourceUri, "resourceUri cannot be null");
+        m_openedAt = openedAt;
+        m_lastUsedAt = lastUsedAt;
+        m_held = held;
+    }
+
+    public String getContextId() {
+        return m_contextId;
+    }
+
+    public String getResourceUri() {
+        return m_resourceUri;
+    }
+
+    /**
+     * @return when the enumeration was started, in milliseconds since the epoch
+     */
+    public long getOpenedAt() {
+        return m_openedAt;
+    }
+
+    /**
+     * @return when the context was last returned by the server, in milliseconds since the epoch
+     */
+    public long getLastUsedAt() {
+        return m_lastUsedAt;
+    }
+
+    /**
+     * @return true if the context is held by an open stream, false if it was handed to the caller
+     */
+    public boolean isHeld() {
+        return m_held;
+    }
+
+    public String toString() {
+        return String.format("OpenEnumerationContext[contextId='%s', resourceUri='%s', openedAt='%d', lastUsedAt='%d', held='%s']",
+                m_contextId, m_resourceUri, m_openedAt, m_lastUsedAt, m_held);
+    }
+}
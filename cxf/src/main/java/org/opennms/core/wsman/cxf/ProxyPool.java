@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.opennms.core.wsman.exceptions.WSManException;
+
+/**
+ * A bounded pool of JAX-WS proxies.
+ *
+ * Proxies are created lazily, and at most maxSize proxies will be
+ * borrowed at any given time. Callers that attempt to borrow a proxy
+ * when the pool is exhausted will wait until one is released. Waiting
+ * callers are served in the order in which they arrived.
+ *
+ * A borrowed proxy is only ever used by a single caller, so it is safe
+ * to modify its request context while it is borrowed.
+ */
+class ProxyPool<T> {
+
+    private final int m_maxSize;
+    private final Supplier<T> m_factory;
+    private final Consumer<T> m_destroyer;
+
+    // All of the following are guarded by this
+    private final Deque<T> m_idle = new ArrayDeque<>();
+    private final Deque<CompletableFuture<T>> m_waiters = new ArrayDeque<>();
+    private int m_leased = 0;
+    private boolean m_closed = false;
+
+    // Completed once the pool is closed, and all of the leased proxies were released
+    private final CompletableFuture<Void> m_drained = new CompletableFuture<>();
+
+    ProxyPool(int maxSize, Supplier<T> factory, Consumer<T> destroyer) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be strictly positive");
+        }
+        m_maxSize = maxSize;
+        m_factory = Objects.requireNonNull(factory, "factory cannot be null");
+        m_destroyer = Objects.requireNonNull(destroyer, "destroyer cannot be null");
+    }
+
+    /**
+     * Borrows a proxy, blocking until one is available.
+     */
+    T borrow() {
+        final CompletableFuture<T> future = borrowAsync();
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            if (!future.cancel(false)) {
+                // A proxy was handed to us in the meantime, give it back
+                future.thenAccept(this::release);
+            }
+            Thread.currentThread().interrupt();
+            throw new WSManException("Interrupted while waiting for a proxy.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new WSManException(e.getCause());
+        }
+    }
+
+    /**
+     * Borrows a proxy without blocking. The returned future completes
+     * once a proxy is available.
+     */
+    CompletableFuture<T> borrowAsync() {
+        synchronized(this) {
+            if (m_closed) {
+                final CompletableFuture<T> future = new CompletableFuture<>();
+                future.completeExceptionally(new WSManException("The pool is closed."));
+                return future;
+            }
+            if (!m_idle.isEmpty()) {
+                // Favor the most recently used proxy
+                m_leased++;
+                return CompletableFuture.completedFuture(m_idle.pollFirst());
+            }
+            if (m_leased >= m_maxSize) {
+                final CompletableFuture<T> waiter = new CompletableFuture<>();
+                m_waiters.offerLast(waiter);
+                return waiter;
+            }
+            m_leased++;
+        }
+        // Create the proxy outside of the lock, this can take a while
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        createFor(future);
+        return future;
+    }
+
+    void release(T proxy) {
+        while (true) {
+            final CompletableFuture<T> waiter;
+            synchronized(this) {
+                if (!m_closed) {
+                    waiter = m_waiters.pollFirst();
+                    if (waiter == null) {
+                        m_idle.offerFirst(proxy);
+                        m_leased--;
+                        return;
+                    }
+                } else {
+                    waiter = null;
+                    m_leased--;
+                }
+            }
+            if (waiter == null) {
+                m_destroyer.accept(proxy);
+                completeIfDrained();
+                return;
+            }
+            // Hand the proxy directly to the next waiter, unless it gave up
+            if (waiter.complete(proxy)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Closes the pool, destroying all of the idle proxies, and failing any
+     * pending borrows. Proxies that are currently leased are destroyed when
+     * they are released.
+     *
+     * @return a future that completes once all of the leased proxies were released
+     */
+    CompletableFuture<Void> close() {
+        final Deque<T> idle;
+        final Deque<CompletableFuture<T>> waiters;
+        synchronized(this) {
+            m_closed = true;
+            idle = new ArrayDeque<>(m_idle);
+            m_idle.clear();
+            waiters = new ArrayDeque<>(m_waiters);
+            m_waiters.clear();
+        }
+        for (T proxy : idle) {
+            m_destroyer.accept(proxy);
+        }
+        for (CompletableFuture<T> waiter : waiters) {
+            waiter.completeExceptionally(new WSManException("The pool was closed while waiting for a proxy."));
+        }
+        completeIfDrained();
+        return m_drained;
+    }
+
+    private void completeIfDrained() {
+        final boolean drained;
+        synchronized(this) {
+            drained = m_closed && m_leased == 0;
+        }
+        if (drained) {
+            m_drained.complete(null);
+        }
+    }
+
+    private void createFor(CompletableFuture<T> future) {
+        try {
+            final T proxy = m_factory.get();
+            if (!future.complete(proxy)) {
+                release(proxy);
+            }
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            // Free up the slot, and let the next waiter (if any) try creating a proxy
+            final CompletableFuture<T> waiter;
+            synchronized(this) {
+                waiter = m_waiters.pollFirst();
+                if (waiter == null) {
+                    m_leased--;
+                }
+            }
+            if (waiter != null) {
+                createFor(waiter);
+            } else {
+                completeIfDrained();
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import org.opennms.core.wsman.exceptions.WSManException;
+
+/**
+ * Prefetches the pages of an enumeration.
+ *
+ * The next Pull is issued as soon as the context id is available
+ * from the previous response, so that the following page is in flight
+ * while the items from the current page are being processed.
+ *
+ * At most depth pages will be fetched, or in flight, ahead of the
+ * page that was last taken. Once this limit is reached, the pipeline
+ * stalls until a page is taken.
+ */
+class PullPipeline {
+
+    private final int m_depth;
+    private final Function<String, CompletableFuture<EnumerationPage>> m_puller;
+
+    // All of the following are guarded by this
+    private final Deque<CompletableFuture<EnumerationPage>> m_pages = new ArrayDeque<>();
+    private boolean m_stalled = false;
+    private String m_stalledContextId;
+    private String m_lastContextId;
+    private boolean m_closed = false;
+
+    /**
+     * @param contextId the context id used to issue the first Pull
+     * @param depth maximum number of pages that can be fetched ahead
+     * @param puller issues a single Pull using the given context id
+     */
+    PullPipeline(String contextId, int depth, Function<String, CompletableFuture<EnumerationPage>> puller) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("depth must be strictly positive");
+        }
+        m_depth = depth;
+        m_puller = Objects.requireNonNull(puller, "puller cannot be null");
+        m_lastContextId = contextId;
+
+        final CompletableFuture<EnumerationPage> page = new CompletableFuture<>();
+        m_pages.offerLast(page);
+        issue(contextId, page);
+    }
+
+    /**
+     * Retrieves the next page, blocking until it is available.
+     *
+     * This should only be called if the previously taken page
+     * did not contain an 'EndOfSequence' marker.
+     */
+    EnumerationPage take() {
+        final CompletableFuture<EnumerationPage> page;
+        String resumeWith = null;
+        CompletableFuture<EnumerationPage> resumed = null;
+        synchronized(this) {
+            page = m_pages.pollFirst();
+            if (page == null) {
+                throw new IllegalStateException("No more pages are available.");
+            }
+            if (m_stalled && !m_closed) {
+                // Room was made, resume the pipeline
+                resumeWith = m_stalledContextId;
+                m_stalled = false;
+                m_stalledContextId = null;
+                resumed = new CompletableFuture<>();
+                m_pages.offerLast(resumed);
+            }
+        }
+        if (resumed != null) {
+            issue(resumeWith, resumed);
+        }
+
+        try {
+            return page.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WSManException("Interrupted while waiting for a pull response.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new WSManException(e.getCause());
+        }
+    }
+
+    /**
+     * Stops issuing new Pulls and waits for the outstanding ones to complete.
+     *
+     * @return the context id that can be used to continue, or release,
+     * the enumeration, or null if the end of the sequence was reached
+     */
+    String close() {
+        final Deque<CompletableFuture<EnumerationPage>> pages;
+        synchronized(this) {
+            m_closed = true;
+            m_stalled = false;
+            m_stalledContextId = null;
+            pages = new ArrayDeque<>(m_pages);
+            m_pages.clear();
+        }
+        for (CompletableFuture<EnumerationPage> page : pages) {
+            try {
+                page.join();
+            } catch (RuntimeException e) {
+                // Failures are reported by take(), there's nothing more we can do here
+            }
+        }
+        synchronized(this) {
+            return m_lastContextId;
+        }
+    }
+
+    private void issue(String contextId, CompletableFuture<EnumerationPage> page) {
+        final CompletableFuture<EnumerationPage> future;
+        try {
+            future = m_puller.apply(contextId);
+        } catch (RuntimeException e) {
+            page.completeExceptionally(e);
+            return;
+        }
+        future.whenComplete((response, t) -> {
+            // Chain the next pull before handing out this page, so that
+            // the next call to take() always finds a page in the queue
+            if (t == null) {
+                try {
+                    onResponse(response);
+                } catch (RuntimeException e) {
+                    page.completeExceptionally(e);
+                    return;
+                }
+                page.complete(response);
+            } else {
+                page.completeExceptionally(t);
+            }
+        });
+    }
+
+    private void onResponse(EnumerationPage response) {
+        if (response == null) {
+            // The failure will be reported when the page is taken
+            return;
+        }
+        final boolean endOfSequence = response.isEndOfSequence();
+        final String nextContextId = endOfSequence ? null : response.getContextId();
+        final CompletableFuture<EnumerationPage> next;
+        synchronized(this) {
+            m_lastContextId = nextContextId;
+            if (endOfSequence || m_closed) {
+                return;
+            }
+            if (m_pages.size() >= m_depth) {
+                // The pipeline is full, wait until a page is taken
+                m_stalled = true;
+                m_stalledContextId = nextContextId;
+                return;
+            }
+            next = new CompletableFuture<>();
+            m_pages.offerLast(next);
+        }
+        issue(nextContextId, next);
+    }
+}
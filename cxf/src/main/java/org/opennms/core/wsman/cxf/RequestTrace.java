@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opennms.core.wsman.WSManRequestMetrics.Phase;
+
+/**
+ * Records the bytes sent and received by a single request, along with
+ * the time at which it went through each of its phases.
+ *
+ * A trace is attached to a request by storing it in the proxy's request
+ * context under {@link #KEY}, and is filled by the {@link RequestTracingOutInterceptor},
+ * the {@link RequestTracingInInterceptor}, and, when phase timing is enabled,
+ * by the {@link TracingSSLSocketFactory} and the {@link TracingAuthSupplier}.
+ *
+ * Timestamps are taken using {@link System#nanoTime()}, and are 0
+ * until the corresponding event is observed.
+ */
+class RequestTrace {
+    public static final String KEY = RequestTrace.class.getName();
+
+    /**
+     * The trace of the request being sent by the current thread, if any. Used to
+     * correlate the events of the socket factory, which has no access to the message.
+     */
+    private static final ThreadLocal<RequestTrace> s_current = new ThreadLocal<>();
+
+    private final long m_start;
+
+    // Each count is only updated by the thread writing or reading the message
+    private volatile long m_sentBytes = -1;
+    private volatile long m_receivedBytes = -1;
+
+    private volatile long m_sending;
+    private volatile long m_connected;
+    private volatile long m_handshaken;
+    private volatile long m_received;
+    private final AtomicLong m_authBeforeSending = new AtomicLong();
+    private final AtomicLong m_authAfterSending = new AtomicLong();
+
+    RequestTrace(long start) {
+        m_start = start;
+    }
+
+    static RequestTrace current() {
+        return s_current.get();
+    }
+
+    /**
+     * @return when the request was issued, as returned by {@link System#nanoTime()}
+     */
+    long getStart() {
+        return m_start;
+    }
+
+    long getSentBytes() {
+        return m_sentBytes;
+    }
+
+    long getReceivedBytes() {
+        return m_receivedBytes;
+    }
+
+    void addSentBytes(long count) {
+        m_sentBytes = Math.max(0, m_sentBytes) + count;
+    }
+
+    void addReceivedBytes(long count) {
+        m_receivedBytes = Math.max(0, m_receivedBytes) + count;
+    }
+
+    /**
+     * Marks the request as serialized, and makes the trace current while it is being sent.
+     *
+     * @return the trace that was previously current, to be restored by {@link #sent(RequestTrace)}
+     */
+    RequestTrace sending() {
+        if (m_sending == 0) {
+            m_sending = System.nanoTime();
+        }
+        final RequestTrace previous = s_current.get();
+        s_current.set(this);
+        return previous;
+    }
+
+    void sent(RequestTrace previous) {
+        if (previous != null) {
+            s_current.set(previous);
+        } else {
+            s_current.remove();
+        }
+    }
+
+    void connected() {
+        m_connected = System.nanoTime();
+    }
+
+    void handshaken() {
+        m_handshaken = System.nanoTime();
+    }
+
+    void received() {
+        if (m_received == 0) {
+            m_received = System.nanoTime();
+        }
+    }
+
+    void authenticated(long duration) {
+        (m_sending == 0 ? m_authBeforeSending : m_authAfterSending).addAndGet(duration);
+    }
+
+    /**
+     * Breaks the request down into phases.
+     *
+     * @param end when the response was processed
+     * @return the duration of the phases that were observed, in nanoseconds
+     */
+    Map<Phase, Long> getPhases(long end) {
+        final Map<Phase, Long> phases = new EnumMap<>(Phase.class);
+        if (m_sending == 0) {
+            // The request was never sent
+            return phases;
+        }
+        phases.put(Phase.PREPARE, positive(m_sending - m_start - m_authBeforeSending.get()));
+        long serverStart = m_sending;
+        if (m_connected != 0) {
+            phases.put(Phase.CONNECT, positive(m_connected - m_sending));
+            serverStart = m_connected;
+            if (m_handshaken != 0) {
+                phases.put(Phase.TLS_HANDSHAKE, positive(m_handshaken - m_connected));
+                serverStart = m_handshaken;
+            }
+        }
+        final long auth = m_authBeforeSending.get() + m_authAfterSending.get();
+        if (auth > 0) {
+            phases.put(Phase.AUTHENTICATION, auth);
+        }
+        if (m_received != 0) {
+            phases.put(Phase.SERVER, positive(m_received - serverStart - m_authAfterSending.get()));
+            phases.put(Phase.PARSE, positive(end - m_received));
+        }
+        return phases;
+    }
+
+    private static long positive(long duration) {
+        return Math.max(0, duration);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.interceptor.LoggingInInterceptor;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+
+/**
+ * Counts the number of bytes read from the wire, and records when the
+ * response was received, see {@link RequestTracingOutInterceptor}.
+ */
+public class RequestTracingInInterceptor extends AbstractPhaseInterceptor<Message> {
+
+    public RequestTracingInInterceptor() {
+        super(Phase.RECEIVE);
+        // Wrap the conduit's stream directly, so that we count compressed bytes
+        addBefore(CompressionInInterceptor.class.getName());
+        addBefore(LoggingInInterceptor.class.getName());
+    }
+
+    @Override
+    public void handleMessage(Message message) throws Fault {
+        final Message outMessage = message.getExchange().getOutMessage();
+        final Object trace = outMessage != null ? outMessage.get(RequestTrace.KEY) : null;
+        if (!(trace instanceof RequestTrace)) {
+            return;
+        }
+        final RequestTrace requestTrace = (RequestTrace)trace;
+        requestTrace.received();
+
+        final InputStream is = message.getContent(InputStream.class);
+        if (is == null) {
+            return;
+        }
+        requestTrace.addReceivedBytes(0);
+        message.setContent(InputStream.class, new FilterInputStream(is) {
+            @Override
+            public int read() throws IOException {
+                final int b = in.read();
+                if (b != -1) {
+                    requestTrace.addReceivedBytes(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                final int n = in.read(b, off, len);
+                if (n > 0) {
+                    requestTrace.addReceivedBytes(n);
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                final long skipped = in.skip(n);
+                requestTrace.addReceivedBytes(skipped);
+                return skipped;
+            }
+        });
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.interceptor.LoggingOutInterceptor;
+import org.apache.cxf.interceptor.StaxOutInterceptor;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+
+/**
+ * Counts the number of bytes written to the wire, and records when the
+ * request is handed over to the conduit.
+ *
+ * The interceptor only acts when the outgoing request carries a
+ * {@link RequestTrace} under {@link RequestTrace#KEY}, in which case it is
+ * updated as the request is written, and as the response is read by the
+ * {@link RequestTracingInInterceptor}.
+ */
+public class RequestTracingOutInterceptor extends AbstractPhaseInterceptor<Message> {
+
+    public RequestTracingOutInterceptor() {
+        super(Phase.PRE_STREAM);
+        // Wrap the conduit's stream directly, so that we count compressed bytes
+        addBefore(CompressionOutInterceptor.class.getName());
+        addBefore(LoggingOutInterceptor.class.getName());
+        addBefore(EnvelopeTemplateOutInterceptor.class.getName());
+        addBefore(StaxOutInterceptor.class.getName());
+    }
+
+    @Override
+    public void handleMessage(Message message) throws Fault {
+        final Object trace = message.get(RequestTrace.KEY);
+        final OutputStream os = message.getContent(OutputStream.class);
+        if (!(trace instanceof RequestTrace) || os == null) {
+            return;
+        }
+        final RequestTrace requestTrace = (RequestTrace)trace;
+        requestTrace.addSentBytes(0);
+        message.setContent(OutputStream.class, new FilterOutputStream(os) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                requestTrace.addSentBytes(1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                requestTrace.addSentBytes(len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                // The conduit connects, sends the request and, for synchronous calls, waits
+                // for the response once the stream is closed
+                final RequestTrace previous = requestTrace.sending();
+                try {
+                    super.close();
+                } finally {
+                    requestTrace.sent(previous);
+                }
+            }
+        });
+    }
+}
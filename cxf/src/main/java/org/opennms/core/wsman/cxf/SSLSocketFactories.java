@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+import org.opennms.core.wsman.exceptions.WSManException;
+
+/**
+ * SSL contexts and socket factories shared by all of the proxies with the same trust configuration.
+ *
+ * TLS sessions are cached by the SSL context that established them. CXF creates
+ * a new context for every proxy, so every connection would otherwise perform a
+ * full handshake. Sharing the context lets the following connections to the same
+ * host resume the session instead, using the JDK's default session cache size
+ * and timeout.
+ *
+ * The strict context is the JVM's default context, so the key and trust stores
+ * configured using the javax.net.ssl system properties apply. The trust-all context
+ * uses the same key store, so client certificates work either way.
+ *
+ * The handshakes performed using these contexts are counted per host, whether they
+ * are performed by the sockets of the blocking conduit or by the engines of the
+ * non-blocking one.
+ */
+final class SSLSocketFactories {
+    private static final Map<Boolean, SSLContext> s_contexts = new ConcurrentHashMap<>();
+
+    private static final Map<String, Counters> s_counters = new ConcurrentHashMap<>();
+
+    private static class Counters {
+        private final AtomicLong m_handshakes = new AtomicLong();
+        private final AtomicLong m_resumed = new AtomicLong();
+    }
+
+    private SSLSocketFactories() {}
+
+    /**
+     * Retrieves the SSL context for the given trust configuration.
+     *
+     * @param strictSSL when false, all certificates are trusted
+     */
+    static SSLContext getContext(boolean strictSSL) {
+        return s_contexts.computeIfAbsent(strictSSL, k -> new TracingSSLContext(createSSLContext(strictSSL)));
+    }
+
+    /**
+     * Retrieves the socket factory for the given trust configuration.
+     *
+     * @param strictSSL when false, all certificates are trusted
+     */
+    static SSLSocketFactory get(boolean strictSSL) {
+        return getContext(strictSSL).getSocketFactory();
+    }
+
+    /**
+     * Records a completed handshake.
+     *
+     * A resumed session keeps the creation time of the session it was derived
+     * from, which predates the socket (or engine) that resumed it, whereas a full
+     * handshake creates a new session.
+     *
+     * @param session the session established by the handshake
+     * @param socketCreatedAt when the socket or engine was created, in milliseconds since the epoch
+     */
+    static void handshakeCompleted(SSLSession session, long socketCreatedAt) {
+        final Counters counters = s_counters.computeIfAbsent(String.format("%s:%d", session.getPeerHost(), session.getPeerPort()),
+                h -> new Counters());
+        counters.m_handshakes.incrementAndGet();
+        if (session.getCreationTime() < socketCreatedAt) {
+            counters.m_resumed.incrementAndGet();
+        }
+    }
+
+    static List<TLSHandshakeStats> getHandshakeStats() {
+        return s_counters.entrySet().stream()
+                .map(e -> new TLSHandshakeStats(e.getKey(), e.getValue().m_handshakes.get(), e.getValue().m_resumed.get()))
+                .collect(Collectors.toList());
+    }
+
+    private static SSLContext createSSLContext(boolean strictSSL) {
+        try {
+            if (strictSSL) {
+                return SSLContext.getDefault();
+            }
+            final SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(getDefaultKeyManagers(), getTrustAllManagers(), null);
+            return sslContext;
+        } catch (GeneralSecurityException | IOException e) {
+            throw new WSManException("Failed to initialize the SSL context.", e);
+        }
+    }
+
+    /**
+     * Loads the key store configured using the javax.net.ssl system properties,
+     * as done by the JVM's default context.
+     *
+     * @return the key managers, or null if no key store is configured
+     */
+    private static KeyManager[] getDefaultKeyManagers() throws GeneralSecurityException, IOException {
+        final String location = System.getProperty("javax.net.ssl.keyStore");
+        if (location == null || location.isEmpty()) {
+            return null;
+        }
+        final String password = System.getProperty("javax.net.ssl.keyStorePassword");
+        final char[] passwordChars = password != null ? password.toCharArray() : null;
+        final KeyStore keyStore = KeyStore.getInstance(System.getProperty("javax.net.ssl.keyStoreType", KeyStore.getDefaultType()));
+        try (InputStream is = new FileInputStream(location)) {
+            keyStore.load(is, passwordChars);
+        }
+        final KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, passwordChars);
+        return keyManagerFactory.getKeyManagers();
+    }
+
+    /**
+     * @return trust managers that accept all certificates
+     */
+    static TrustManager[] getTrustAllManagers() {
+        return new TrustManager[] { new X509TrustManager() {
+            public void checkClientTrusted(X509Certificate[] certs, String authType) {
+            }
+            public void checkServerTrusted(X509Certificate[] certs, String authType) {
+            }
+            public X509Certificate[] getAcceptedIssuers() {
+                return new X509Certificate[0];
+            }
+        } };
+    }
+}
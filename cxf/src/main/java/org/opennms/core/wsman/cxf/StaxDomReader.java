@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.cxf.interceptor.DocLiteralInInterceptor;
+import org.apache.cxf.interceptor.Interceptor;
+import org.apache.cxf.interceptor.InterceptorChain;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageContentsList;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Helpers used by the interceptors that read response bodies
+ * straight from the stream.
+ */
+final class StaxDomReader {
+
+    private StaxDomReader() {
+    }
+
+    /**
+     * Removes the JAXB unmarshaller from the chain of the given message,
+     * after its body was consumed. The operation will return null.
+     */
+    static void skipUnmarshalling(Message message) {
+        final InterceptorChain chain = message.getInterceptorChain();
+        for (Interceptor<? extends Message> interceptor : chain) {
+            if (interceptor instanceof DocLiteralInInterceptor) {
+                chain.remove(interceptor);
+                break;
+            }
+        }
+        message.setContent(List.class, new MessageContentsList());
+    }
+
+    /**
+     * Builds the element at the current position and appends it to the given parent,
+     * leaving the reader on its end tag.
+     */
+    static Element readElement(XMLStreamReader reader, Document document, Node parent) throws XMLStreamException {
+        final String namespace = emptyToNull(reader.getNamespaceURI());
+        final String prefix = emptyToNull(reader.getPrefix());
+        final Element element = document.createElementNS(namespace, toQualifiedName(prefix, reader.getLocalName()));
+        parent.appendChild(element);
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            final String declaredPrefix = emptyToNull(reader.getNamespacePrefix(i));
+            element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+                    declaredPrefix == null ? XMLConstants.XMLNS_ATTRIBUTE : XMLConstants.XMLNS_ATTRIBUTE + ":" + declaredPrefix,
+                    reader.getNamespaceURI(i));
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            element.setAttributeNS(emptyToNull(reader.getAttributeNamespace(i)),
+                    toQualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+                    reader.getAttributeValue(i));
+        }
+        // The prefixes may have been declared outside of the item, i.e. on the envelope
+        declareIfMissing(element, prefix, namespace);
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            final String attributePrefix = emptyToNull(reader.getAttributePrefix(i));
+            if (attributePrefix != null) {
+                declareIfMissing(element, attributePrefix, reader.getAttributeNamespace(i));
+            }
+        }
+
+        int event = reader.next();
+        while (event != XMLStreamConstants.END_ELEMENT) {
+            switch (event) {
+            case XMLStreamConstants.START_ELEMENT:
+                readElement(reader, document, element);
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.SPACE:
+                element.appendChild(document.createTextNode(reader.getText()));
+                break;
+            case XMLStreamConstants.CDATA:
+                element.appendChild(document.createCDATASection(reader.getText()));
+                break;
+            default:
+                // Comments and processing instructions are dropped
+                break;
+            }
+            event = reader.next();
+        }
+        return element;
+    }
+
+    private static void declareIfMissing(Element element, String prefix, String namespace) {
+        if (namespace != null && !namespace.equals(element.lookupNamespaceURI(prefix))) {
+            element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+                    prefix == null ? XMLConstants.XMLNS_ATTRIBUTE : XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix,
+                    namespace);
+        }
+    }
+
+    private static String toQualifiedName(String prefix, String localName) {
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    static boolean toNextStartElement(XMLStreamReader reader) throws XMLStreamException {
+        while (!reader.isStartElement()) {
+            if (reader.isEndElement() || !reader.hasNext()) {
+                return false;
+            }
+            reader.next();
+        }
+        return true;
+    }
+
+    static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+}
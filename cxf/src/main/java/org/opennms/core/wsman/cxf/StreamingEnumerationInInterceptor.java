@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.cxf.interceptor.DocLiteralInInterceptor;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.opennms.core.wsman.WSManConstants;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Reads the body of EnumerateResponse and PullResponse messages directly
+ * from the response stream, bypassing JAXB.
+ *
+ * Items are converted to DOM nodes as they are read, and the contents of
+ * any wsman:XmlFragment are built directly in their own document instead
+ * of being copied over from the unmarshalled object graph.
+ *
+ * The interceptor only acts when the outgoing request carries an
+ * {@link EnumerationPage} under {@link EnumerationPage#KEY}, in which case
+ * the page is filled and the operation returns null.
+ */
+public class StreamingEnumerationInInterceptor extends AbstractPhaseInterceptor<Message> {
+
+    private static final String ITEMS = "Items";
+    private static final String END_OF_SEQUENCE = "EndOfSequence";
+    private static final String ENUMERATION_CONTEXT = "EnumerationContext";
+    private static final String XML_FRAGMENT = "XmlFragment";
+    private static final String CONTENT_LENGTH = "Content-Length";
+
+    public StreamingEnumerationInInterceptor() {
+        super(Phase.UNMARSHAL);
+        addBefore(DocLiteralInInterceptor.class.getName());
+    }
+
+    @Override
+    public void handleMessage(Message message) throws Fault {
+        final Message outMessage = message.getExchange().getOutMessage();
+        final Object page = outMessage != null ? outMessage.get(EnumerationPage.KEY) : null;
+        if (!(page instanceof EnumerationPage)) {
+            // Let JAXB handle it
+            return;
+        }
+
+        final XMLStreamReader reader = message.getContent(XMLStreamReader.class);
+        if (reader == null) {
+            return;
+        }
+
+        ((EnumerationPage)page).setResponseLength(getContentLength(message));
+        try {
+            readPage(reader, (EnumerationPage)page);
+        } catch (XMLStreamException e) {
+            throw new Fault(e);
+        }
+
+        // The body was consumed, so skip the default unmarshalling
+        StaxDomReader.skipUnmarshalling(message);
+    }
+
+    private static long getContentLength(Message message) {
+        final Object headers = message.get(Message.PROTOCOL_HEADERS);
+        if (!(headers instanceof Map)) {
+            return -1;
+        }
+        // The header names are case-insensitive
+        for (Map.Entry<?, ?> header : ((Map<?, ?>)headers).entrySet()) {
+            if (CONTENT_LENGTH.equalsIgnoreCase(String.valueOf(header.getKey())) && header.getValue() instanceof List
+                    && !((List<?>)header.getValue()).isEmpty()) {
+                try {
+                    return Long.parseLong(String.valueOf(((List<?>)header.getValue()).get(0)).trim());
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the EnumerateResponse or PullResponse element at the
+     * current position into the given page.
+     */
+    protected static void readPage(XMLStreamReader reader, EnumerationPage page) throws XMLStreamException {
+        if (!StaxDomReader.toNextStartElement(reader)) {
+            // Empty body
+            return;
+        }
+
+        // We're positioned on the response element, walk through its children
+        int event = reader.nextTag();
+        while (event == XMLStreamConstants.START_ELEMENT) {
+            final String namespace = reader.getNamespaceURI();
+            final String localName = reader.getLocalName();
+            if (ENUMERATION_CONTEXT.equals(localName) && WSManConstants.XML_NS_WS_2004_09_ENUMERATION.equals(namespace)) {
+                // The EnumerationContext can be empty if we issue an optimized enumeration
+                // and all of the records are immediately returned
+                final String contextId = reader.getElementText().trim();
+                page.setContextId(contextId.isEmpty() ? null : contextId);
+            } else if (ITEMS.equals(localName) && isEnumerationNamespace(namespace)) {
+                readItems(reader, page::addItem);
+            } else if (END_OF_SEQUENCE.equals(localName) && isEnumerationNamespace(namespace)) {
+                page.setEndOfSequence(true);
+                StaxDomReader.skipElement(reader);
+            } else {
+                // Ignore any other extensions
+                StaxDomReader.skipElement(reader);
+            }
+            event = reader.nextTag();
+        }
+        page.setComplete();
+    }
+
+    private static void readItems(XMLStreamReader reader, Consumer<Node> items) throws XMLStreamException {
+        int event = reader.next();
+        while (event != XMLStreamConstants.END_ELEMENT) {
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (XML_FRAGMENT.equals(reader.getLocalName())
+                        && WSManConstants.XML_NS_DMTF_WSMAN_V1.equals(reader.getNamespaceURI())) {
+                    items.accept(readFragment(reader));
+                } else {
+                    final Document document = TypeUtils.createNewDocument();
+                    items.accept(StaxDomReader.readElement(reader, document, document));
+                }
+            }
+            // Whitespace and comments between the items are skipped
+            event = reader.next();
+        }
+    }
+
+    private static Element readFragment(XMLStreamReader reader) throws XMLStreamException {
+        // Create a new document/node that contains the elements within the fragment
+        final Document document = TypeUtils.createNewDocument();
+        final Element rootElement = document.createElementNS(WSManConstants.XML_NS_DMTF_WSMAN_V1, XML_FRAGMENT);
+        document.appendChild(rootElement);
+
+        int event = reader.next();
+        while (event != XMLStreamConstants.END_ELEMENT) {
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                // Build the nested element straight into the fragment's document
+                StaxDomReader.readElement(reader, document, rootElement);
+            }
+            // Skip over whitespace
+            event = reader.next();
+        }
+        return rootElement;
+    }
+
+    private static boolean isEnumerationNamespace(String namespace) {
+        return WSManConstants.XML_NS_WS_2004_09_ENUMERATION.equals(namespace)
+                || WSManConstants.XML_NS_DMTF_WSMAN_V1.equals(namespace);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.util.Objects;
+
+/**
+ * A snapshot of the TLS handshakes performed with a given host, since the JVM started.
+ */
+public class TLSHandshakeStats {
+
+    private final String m_host;
+    private final long m_handshakes;
+    private final long m_resumedHandshakes;
+
+    protected TLSHandshakeStats(String host, long handshakes, long resumedHandshakes) {
+        m_host = Objects.requireNonNull(host, "host cannot be null");
+        m_handshakes = handshakes;
+        m_resumedHandshakes = resumedHandshakes;
+    }
+
+    /**
+     * @return the host and port of the server
+     */
+    public String getHost() {
+        return m_host;
+    }
+
+    /**
+     * @return the number of handshakes, including the resumed ones
+     */
+    public long getHandshakes() {
+        return m_handshakes;
+    }
+
+    /**
+     * @return the number of handshakes that resumed a previous session
+     */
+    public long getResumedHandshakes() {
+        return m_resumedHandshakes;
+    }
+
+    /**
+     * @return the number of full handshakes
+     */
+    public long getFullHandshakes() {
+        return m_handshakes - m_resumedHandshakes;
+    }
+
+    /**
+     * @return the fraction of the handshakes that resumed a previous session, between 0 and 1
+     */
+    public double getResumptionRate() {
+        return m_handshakes > 0 ? (double)m_resumedHandshakes / m_handshakes : 0;
+    }
+
+    public String toString() {
+        return String.format("TLSHandshakeStats[host='%s', handshakes='%d', resumedHandshakes='%d']",
+                m_host, m_handshakes, m_resumedHandshakes);
+    }
+}
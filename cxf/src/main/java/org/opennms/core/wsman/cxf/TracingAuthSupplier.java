@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.net.URI;
+import java.util.Objects;
+
+import org.apache.cxf.configuration.security.AuthorizationPolicy;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.transport.http.auth.HttpAuthSupplier;
+
+/**
+ * Accounts for the time spent computing the authorization of a
+ * request in its {@link RequestTrace}, if any.
+ *
+ * This is mostly useful with SPNEGO, where obtaining a service ticket
+ * may require a round trip to the KDC.
+ */
+class TracingAuthSupplier implements HttpAuthSupplier {
+
+    private final HttpAuthSupplier m_delegate;
+
+    TracingAuthSupplier(HttpAuthSupplier delegate) {
+        m_delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+    }
+
+    @Override
+    public boolean requiresRequestCaching() {
+        return m_delegate.requiresRequestCaching();
+    }
+
+    @Override
+    public String getAuthorization(AuthorizationPolicy authPolicy, URI uri, Message message, String fullHeader) {
+        final Object trace = message.get(RequestTrace.KEY);
+        if (!(trace instanceof RequestTrace)) {
+            return m_delegate.getAuthorization(authPolicy, uri, message, fullHeader);
+        }
+        final long start = System.nanoTime();
+        try {
+            return m_delegate.getAuthorization(authPolicy, uri, message, fullHeader);
+        } finally {
+            ((RequestTrace)trace).authenticated(System.nanoTime() - start);
+        }
+    }
+}
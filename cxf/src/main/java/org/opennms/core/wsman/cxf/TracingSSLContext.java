@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.security.KeyManagementException;
+import java.security.SecureRandom;
+import java.util.Objects;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLContextSpi;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+
+/**
+ * An initialized SSL context that counts the handshakes performed by its sockets
+ * and engines, see {@link TracingSSLSocketFactory} and {@link TracingSSLEngine}.
+ *
+ * The sessions are cached by the delegate, so they are shared with anyone else using it.
+ */
+class TracingSSLContext extends SSLContext {
+
+    TracingSSLContext(SSLContext delegate) {
+        super(new Spi(delegate), delegate.getProvider(), delegate.getProtocol());
+    }
+
+    private static class Spi extends SSLContextSpi {
+        private final SSLContext m_delegate;
+        private final SSLSocketFactory m_socketFactory;
+
+        private Spi(SSLContext delegate) {
+            m_delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+            m_socketFactory = new TracingSSLSocketFactory(delegate.getSocketFactory());
+        }
+
+        @Override
+        protected void engineInit(KeyManager[] km, TrustManager[] tm, SecureRandom sr) throws KeyManagementException {
+            throw new KeyManagementException("The context is already initialized.");
+        }
+
+        @Override
+        protected SSLSocketFactory engineGetSocketFactory() {
+            return m_socketFactory;
+        }
+
+        @Override
+        protected SSLServerSocketFactory engineGetServerSocketFactory() {
+            return m_delegate.getServerSocketFactory();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine() {
+            return new TracingSSLEngine(m_delegate.createSSLEngine());
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine(String host, int port) {
+            return new TracingSSLEngine(m_delegate.createSSLEngine(host, port));
+        }
+
+        @Override
+        protected SSLSessionContext engineGetServerSessionContext() {
+            return m_delegate.getServerSessionContext();
+        }
+
+        @Override
+        protected SSLSessionContext engineGetClientSessionContext() {
+            return m_delegate.getClientSessionContext();
+        }
+
+        @Override
+        protected SSLParameters engineGetDefaultSSLParameters() {
+            return m_delegate.getDefaultSSLParameters();
+        }
+
+        @Override
+        protected SSLParameters engineGetSupportedSSLParameters() {
+            return m_delegate.getSupportedSSLParameters();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Objects;
+
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Records when the connection of the request being sent by the current thread,
+ * see {@link RequestTrace#current()}, is established, and when its TLS
+ * handshake completes.
+ *
+ * The unconnected {@link #createSocket()} is deliberately left unimplemented, so
+ * that the JDK's HTTPS client falls back to opening a plain socket, and layers TLS on
+ * top of it using {@link #createSocket(Socket, String, int, boolean)} once it is connected.
+ * Connections that are reused from the keep-alive cache create no sockets, and
+ * report neither phase.
+ *
+ * The handshakes are also counted, see {@link SSLSocketFactories#handshakeCompleted},
+ * whether or not there is a request being traced.
+ */
+class TracingSSLSocketFactory extends SSLSocketFactory {
+
+    private final SSLSocketFactory m_delegate;
+
+    TracingSSLSocketFactory(SSLSocketFactory delegate) {
+        m_delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+    }
+
+    @Override
+    public String[] getDefaultCipherSuites() {
+        return m_delegate.getDefaultCipherSuites();
+    }
+
+    @Override
+    public String[] getSupportedCipherSuites() {
+        return m_delegate.getSupportedCipherSuites();
+    }
+
+    @Override
+    public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
+        return trace(m_delegate.createSocket(s, host, port, autoClose));
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return trace(m_delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        return trace(m_delegate.createSocket(host, port, localHost, localPort));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        return trace(m_delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+        return trace(m_delegate.createSocket(address, port, localAddress, localPort));
+    }
+
+    private static Socket trace(Socket socket) {
+        if (socket instanceof SSLSocket) {
+            final long createdAt = System.currentTimeMillis();
+            ((SSLSocket)socket).addHandshakeCompletedListener(e -> SSLSocketFactories.handshakeCompleted(e.getSession(), createdAt));
+        }
+        final RequestTrace trace = RequestTrace.current();
+        if (trace == null) {
+            return socket;
+        }
+        // All of the above are invoked once the TCP connection is established
+        trace.connected();
+        if (socket instanceof SSLSocket) {
+            // Invoked from the thread performing the handshake, before it returns
+            ((SSLSocket)socket).addHandshakeCompletedListener(e -> trace.handshaken());
+        }
+        return socket;
+    }
+}
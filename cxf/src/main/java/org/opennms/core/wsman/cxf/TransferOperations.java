@@ -15,6 +15,8 @@
  */
 package org.opennms.core.wsman.cxf;
 
+import java.util.concurrent.Future;
+
 import javax.jws.WebMethod;
 import javax.jws.WebParam;
 import javax.jws.WebResult;
@@ -22,6 +24,7 @@ import javax.jws.WebService;
 import javax.jws.soap.SOAPBinding;
 import javax.xml.bind.annotation.XmlSeeAlso;
 import javax.xml.ws.Action;
+import javax.xml.ws.AsyncHandler;
 import javax.xml.ws.soap.Addressing;
 
 import org.xmlsoap.schemas.ws._2004._09.transfer.ObjectFactory;
@@ -50,6 +53,13 @@ public interface TransferOperations {
     @WebResult(name = "TransferElement", targetNamespace = "http://schemas.xmlsoap.org/ws/2004/09/transfer", partName = "Body")
     public TransferElement get();
 
+    @WebMethod(operationName = "Get")
+    @Action(input = "http://schemas.xmlsoap.org/ws/2004/09/transfer/Get", output = "http://schemas.xmlsoap.org/ws/2004/09/transfer/GetResponse")
+    public Future<?> getAsync(
+        @WebParam(name = "asyncHandler", targetNamespace = "")
+        AsyncHandler<TransferElement> asyncHandler
+    );
+
     @WebMethod(operationName = "Put")
     @Action(input = "http://schemas.xmlsoap.org/ws/2004/09/transfer/Put", output = "http://schemas.xmlsoap.org/ws/2004/09/transfer/PutResponse")
     public void put(
@@ -14,6 +14,7 @@ import javax.xml.transform.dom.DOMResult;
 
 import org.opennms.core.wsman.WSManConstants;
 import org.opennms.core.wsman.exceptions.WSManException;
+import org.w3c.dom.DOMException;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -43,6 +44,31 @@ public class TypeUtils {
 
     private final static DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY = DocumentBuilderFactory.newInstance();
 
+    // DocumentBuilders aren't thread safe, so every thread gets its own, instead of having
+    // every document go through the factory. The factory provides no guarantees on thread safety
+    // either, so we still lock it, but only the first time a thread needs a builder.
+    // The builders are only used to create empty documents, which neither depends on nor
+    // changes any of their state, so they don't need to be reset between uses.
+    private final static ThreadLocal<DocumentBuilder> DOCUMENT_BUILDER = ThreadLocal.withInitial(() -> {
+        synchronized(DOCUMENT_BUILDER_FACTORY) {
+            try {
+                return DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
+            } catch (ParserConfigurationException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    });
+
+    // JAXBContexts are thread safe and expensive to create, so we reuse the same instance
+    private final static JAXBContext TRANSFER_ELEMENT_JAXB_CONTEXT;
+    static {
+        try {
+            TRANSFER_ELEMENT_JAXB_CONTEXT = JAXBContext.newInstance(TransferElement.class);
+        } catch (JAXBException e) {
+            throw new RuntimeException("Failed to create JAXBContext for: " + TransferElement.class, e);
+        }
+    }
+
     protected static String getContextIdFrom(EnumerateResponse response) {
         // A valid response must always include the EnumerationContext element
         return getContextIdFrom(response.getEnumerationContext());
@@ -127,18 +153,34 @@ public class TypeUtils {
         return endOfSequence;
     }
 
-    private static Document createNewDocument() {
-        final DocumentBuilder builder;
-        // The DocumentBuilderFactory provides no guarantees on thread safety
-        // so we lock it in order to avoid creating new or separate instances per thread
-        synchronized(DOCUMENT_BUILDER_FACTORY) {
-            try {
-                builder = DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
-            } catch (ParserConfigurationException e) {
-                throw new RuntimeException(e);
+    /**
+     * Returns true if the given response contains an 'end-of-sequence' marker,
+     * without converting any of the items.
+     */
+    protected static boolean isEndOfSequence(EnumerateResponse response) {
+        for (Object object : response.getAny()) {
+            if (object instanceof JAXBElement) {
+                QName name = ((JAXBElement<?>)object).getName();
+                if (WSEN_EndOfSequence_QNAME.equals(name) || WSMAN_EndOfSequence_QNAME.equals(name)) {
+                    return true;
+                }
+            } else if (object instanceof Node) {
+                Node node = (Node)object;
+                if ((WSEN_EndOfSequence_QNAME.getNamespaceURI().equals(node.getNamespaceURI()) && WSEN_EndOfSequence_QNAME.getLocalPart().equals(node.getLocalName())) ||
+                        (WSMAN_EndOfSequence_QNAME.getNamespaceURI().equals(node.getNamespaceURI()) && WSMAN_EndOfSequence_QNAME.getLocalPart().equals(node.getLocalName()))) {
+                    return true;
+                }
             }
         }
-        return builder.newDocument();
+        return false;
+    }
+
+    protected static boolean isEndOfSequence(PullResponse response) {
+        return response.getEndOfSequence() != null;
+    }
+
+    protected static Document createNewDocument() {
+        return DOCUMENT_BUILDER.get().newDocument();
     }
 
     protected static Node toNode(Object item) {
@@ -158,9 +200,7 @@ public class TypeUtils {
                         if (nestedItem instanceof String) {
                             // Skip over whitespace
                         } else if (nestedItem instanceof Node) {
-                            // Node's can't belong to two different documents, so we need to import it first
-                            Node nestedNode = document.importNode((Node)nestedItem, true);
-                            rootElement.appendChild(nestedNode);
+                            rootElement.appendChild(adopt(document, (Node)nestedItem));
                         } else {
                             throw new WSManException(String.format("Unsupported element of type %s in XmlFragment: %s", nestedItem.getClass(), nestedItem));
                         }
@@ -172,6 +212,25 @@ public class TypeUtils {
         return null;
     }
 
+    /**
+     * Moves the given node, which was parsed into some other document, into the given document.
+     *
+     * Adopting the node detaches it from its parser's document instead of copying it,
+     * so the items aren't held in memory twice. Nodes that can't be adopted, i.e. when
+     * they're read-only or come from a different DOM implementation, are imported instead.
+     */
+    private static Node adopt(Document document, Node node) {
+        try {
+            final Node adopted = document.adoptNode(node);
+            if (adopted != null) {
+                return adopted;
+            }
+        } catch (DOMException e) {
+            // Fall back to a copy
+        }
+        return document.importNode(node, true);
+    }
+
     protected static boolean getItemsFrom(PullResponse response, List<Node> items) {
         for (Object item : response.getItems().getAny()) {
             final Node node = toNode(item);
@@ -189,8 +248,7 @@ public class TypeUtils {
         try {
             // Marshall the transfer element back to a DOM Node
             DOMResult domResult = new DOMResult();
-            JAXBContext context = JAXBContext.newInstance(el.getClass());
-            context.createMarshaller().marshal(el, domResult);
+            TRANSFER_ELEMENT_JAXB_CONTEXT.createMarshaller().marshal(el, domResult);
 
             // Convert the node back to it's original type
             Document doc = (Document)domResult.getNode();
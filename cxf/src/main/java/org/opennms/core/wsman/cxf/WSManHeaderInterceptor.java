@@ -40,9 +40,17 @@ import schemas.dmtf.org.wbem.wsman.v1.SelectorType;
 /**
  * Used to add WS-Man specific headers to outgoing requests.
  *
+ * The resource URI and selectors can either be fixed when the interceptor
+ * is created, or supplied per request using the {@link #RESOURCE_URI} and
+ * {@link #SELECTORS} properties of the client's request context. The latter
+ * allows the same proxy to be reused for different resources.
+ *
  * @author jwhite
  */
 public class WSManHeaderInterceptor extends AbstractSoapInterceptor {
+    public static final String RESOURCE_URI = WSManHeaderInterceptor.class.getName() + ".resourceUri";
+    public static final String SELECTORS = WSManHeaderInterceptor.class.getName() + ".selectors";
+
     private static final JAXBDataBinding ATTRIBUTABLE_URI_JAXB_DATA_BINDING;
     static {
         try {
@@ -56,6 +64,17 @@ public class WSManHeaderInterceptor extends AbstractSoapInterceptor {
     private final Map<String, String> m_selectors;
     private final ObjectFactory factory = new ObjectFactory();
 
+    /**
+     * Creates an interceptor that retrieves the resource URI and selectors
+     * from the request context.
+     */
+    public WSManHeaderInterceptor() {
+        super(Phase.POST_LOGICAL);
+        addAfter(SoapPreProtocolOutInterceptor.class.getName());
+        m_resourceUri = null;
+        m_selectors = Collections.emptyMap();
+    }
+
     public WSManHeaderInterceptor(String resourceUri) {
         this(resourceUri, Collections.emptyMap());
     }
@@ -68,28 +87,42 @@ public class WSManHeaderInterceptor extends AbstractSoapInterceptor {
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public void handleMessage(SoapMessage message) throws Fault {
+        // Prefer the values from the request context, if set
+        String resourceUri = (String)message.getContextualProperty(RESOURCE_URI);
+        if (resourceUri == null) {
+            resourceUri = m_resourceUri;
+        }
+        if (resourceUri == null) {
+            throw new Fault(new IllegalStateException("No resource URI was set on the interceptor or in the request context."));
+        }
+        Map<String, String> selectors = (Map<String, String>)message.getContextualProperty(SELECTORS);
+        if (selectors == null) {
+            selectors = m_selectors;
+        }
+
         // Retrieve the current list of headers
         List<Header> headers = message.getHeaders();
         // Always add the resourceUri header
-        headers.add(getResourceUriHeader());
+        headers.add(getResourceUriHeader(resourceUri));
         // Add the selectorSet header iff have one or more selectors
-        if (!m_selectors.isEmpty()) {
-            headers.add(getSelectorSetHeader());
+        if (!selectors.isEmpty()) {
+            headers.add(getSelectorSetHeader(selectors));
         }
         message.put(Header.HEADER_LIST, headers);
     }
 
-    private Header getResourceUriHeader() {
+    private Header getResourceUriHeader(String resourceUri) {
         AttributableURI uri = new AttributableURI();
-        uri.setValue(m_resourceUri);
+        uri.setValue(resourceUri);
         JAXBElement<AttributableURI> resourceURI = factory.createResourceURI(uri);
         return new Header(resourceURI.getName(), resourceURI, ATTRIBUTABLE_URI_JAXB_DATA_BINDING);
     }
 
-    private Header getSelectorSetHeader() {
+    private Header getSelectorSetHeader(Map<String, String> selectors) {
         SelectorSetType selectorSetType = factory.createSelectorSetType();
-        for (Entry<String, String> selectorEntry : m_selectors.entrySet()) {
+        for (Entry<String, String> selectorEntry : selectors.entrySet()) {
             SelectorType selector = factory.createSelectorType();
             selector.setName(selectorEntry.getKey());
             selector.getContent().add(selectorEntry.getValue());
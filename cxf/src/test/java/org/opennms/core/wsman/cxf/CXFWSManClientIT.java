@@ -15,12 +15,180 @@
  */
 package org.opennms.core.wsman.cxf;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
 import org.opennms.core.wsman.AbstractWSManClientIT;
+import org.opennms.core.wsman.WSManClient;
 import org.opennms.core.wsman.WSManClientFactory;
+import org.opennms.core.wsman.WSManEndpoint;
+import org.opennms.core.wsman.WSManVersion;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
 
 public class CXFWSManClientIT extends AbstractWSManClientIT {
     @Override
     public WSManClientFactory getFactory() {
         return new CXFWSManClientFactory();
     }
+
+    @Test
+    public void canResumeTLSSessions() {
+        WireMockServer server = startHttpsServer();
+        try {
+            server.stubFor(post(urlEqualTo("/wsman"))
+                    .willReturn(aResponse()
+                        .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                        .withBodyFile("identify-response.xml")));
+
+            WSManEndpoint endpoint = new WSManEndpoint.Builder(String.format("https://127.0.0.1:%d/wsman", server.httpsPort()))
+                    .withServerVersion(WSManVersion.WSMAN_1_0)
+                    .withStrictSSL(false)
+                    // Open a new connection for every operation
+                    .withKeepAlive(false)
+                    .build();
+
+            // Every operation uses a new proxy, which used to mean a new SSL context
+            WSManClient client = getFactory().getClient(endpoint);
+            client.identify();
+            client.identify();
+
+            TLSHandshakeStats stats = getHandshakeStats(server.httpsPort());
+            assertEquals(2, stats.getHandshakes());
+            assertEquals(1, stats.getFullHandshakes());
+            assertEquals(1, stats.getResumedHandshakes());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void canRunAsynchronousOperationsOnTheGivenExecutor() throws Exception {
+        stubFor(post(urlEqualTo("/wsman"))
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("identify-response.xml")));
+
+        WSManEndpoint endpoint = new WSManEndpoint.Builder(String.format("http://127.0.0.1:%d/wsman", wireMockRule.port()))
+                .withServerVersion(WSManVersion.WSMAN_1_0)
+                .build();
+        AtomicInteger numTasks = new AtomicInteger();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CXFWSManClient client = new CXFWSManClientFactory().getClient(endpoint, task -> {
+                numTasks.incrementAndGet();
+                executor.execute(task);
+            });
+            assertNotNull(client.identifyAsync().get(30, TimeUnit.SECONDS));
+            assertEquals(1, numTasks.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void canAbortTheLosingHedge() throws Exception {
+        stubFor(post(urlEqualTo("/wsman"))
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("get-response.xml")));
+
+        CountDownLatch aborted = new CountDownLatch(1);
+        WSManEndpoint endpoint = new WSManEndpoint.Builder(String.format("http://127.0.0.1:%d/wsman", wireMockRule.port()))
+                .withServerVersion(WSManVersion.WSMAN_1_0)
+                .withHedgingPercentile(50d)
+                .withHedgingBudget(1d)
+                .withMetricsListener(metrics -> {
+                    if (metrics.getFailure() != null) {
+                        aborted.countDown();
+                    }
+                })
+                .build();
+        WSManClient client = getFactory().getClient(endpoint);
+
+        Map<String, String> selectors = new HashMap<>();
+        selectors.put("CreationClassName", "DCIM_ComputerSystem");
+        selectors.put("Name", "srv:system");
+        String resourceUri = "http://schemas.dell.com/wbem/wscim/1/cim-schema/2/DCIM_ComputerSystem";
+
+        // Learn the latencies
+        for (int i = 0; i < 20; i++) {
+            assertNotNull(client.get(resourceUri, selectors));
+        }
+
+        // The next response is very slow, the one after that isn't
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Slow response")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("get-response.xml")
+                    .withFixedDelay(20000))
+                .willSetStateTo("Hedged"));
+
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Slow response")
+                .whenScenarioStateIs("Hedged")
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("get-response.xml")));
+
+        assertNotNull(client.get(resourceUri, selectors));
+
+        // The slow request was sent, and is disconnected instead of waiting for its response
+        assertTrue("The losing request should have been aborted", aborted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void canIssueHedgedRequestsWithoutTheAsyncExecutor() throws Exception {
+        stubFor(post(urlEqualTo("/wsman"))
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("get-response.xml")));
+
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        WSManEndpoint endpoint = new WSManEndpoint.Builder(String.format("http://127.0.0.1:%d/wsman", wireMockRule.port()))
+                .withServerVersion(WSManVersion.WSMAN_1_0)
+                .withHedgingPercentile(50d)
+                .withHedgingBudget(1d)
+                .withMetricsListener(metrics -> threads.add(Thread.currentThread().getName()))
+                .build();
+        WSManClient client = getFactory().getClient(endpoint);
+
+        Map<String, String> selectors = new HashMap<>();
+        selectors.put("CreationClassName", "DCIM_ComputerSystem");
+        selectors.put("Name", "srv:system");
+        String resourceUri = "http://schemas.dell.com/wbem/wscim/1/cim-schema/2/DCIM_ComputerSystem";
+        for (int i = 0; i < 40; i++) {
+            assertNotNull(client.get(resourceUri, selectors));
+        }
+
+        // The primary requests are issued from the calling thread, and the hedges from the hedger's threads
+        assertTrue(threads.contains(Thread.currentThread().getName()));
+        assertFalse(threads.stream().anyMatch(thread -> thread.startsWith("wsman-async-")));
+    }
+
+    static TLSHandshakeStats getHandshakeStats(int port) {
+        final String host = String.format("127.0.0.1:%d", port);
+        return CXFWSManClientFactory.getTLSHandshakeStats().stream()
+                .filter(stats -> host.equals(stats.getHost()))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No handshakes were performed with " + host));
+    }
 }
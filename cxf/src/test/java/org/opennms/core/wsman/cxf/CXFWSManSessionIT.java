@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.opennms.core.wsman.AbstractWSManClientIT;
+import org.opennms.core.wsman.WSManClientFactory;
+import org.opennms.core.wsman.WSManConstants;
+import org.opennms.core.wsman.WSManEndpoint;
+import org.opennms.core.wsman.WSManVersion;
+import org.opennms.core.wsman.exceptions.WSManException;
+import org.w3c.dom.Node;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+
+/**
+ * Runs the client tests using proxies pooled by a {@link CXFWSManSession}.
+ */
+public class CXFWSManSessionIT extends AbstractWSManClientIT {
+
+    private final List<CXFWSManSession> sessions = new ArrayList<>();
+
+    @Override
+    public WSManClientFactory getFactory() {
+        // Use a single proxy of each type, so that it gets reused by consecutive operations
+        return endpoint -> {
+            CXFWSManSession session = new CXFWSManClientFactory().openSession(endpoint, 1);
+            sessions.add(session);
+            return session.getClient();
+        };
+    }
+
+    @Test
+    public void canPullRecursivelyAsynchronously() throws Exception {
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Recursive pull")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("recursive-pull-response-1.xml"))
+                .willSetStateTo("Pull #2"));
+
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Recursive pull")
+                .whenScenarioStateIs("Pull #2")
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("recursive-pull-response-2.xml")));
+
+        List<Node> nodes = new ArrayList<>();
+        String contextId = sessions.get(0).getClient().pullAsync("c6595ee1-2664-1664-801f-c115cfb5fe14",
+                WSManConstants.CIM_ALL_AVAILABLE_CLASSES, nodes, true).get(30, TimeUnit.SECONDS);
+
+        assertNull(contextId);
+        assertEquals(2, nodes.size());
+    }
+
+    @Test
+    public void canReleaseLeakedContextsOnClose() {
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Leaked context")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("enum-response.xml"))
+                .willSetStateTo("Release"));
+
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Leaked context")
+                .whenScenarioStateIs("Release")
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("release-response.xml")));
+
+        CXFWSManSession session = sessions.get(0);
+        String contextId = session.getClient().enumerate(WSManConstants.CIM_ALL_AVAILABLE_CLASSES);
+
+        // The context was handed to us, and should be tracked until it is released
+        List<OpenEnumerationContext> openContexts = session.getOpenEnumerationContexts();
+        assertEquals(1, openContexts.size());
+        assertEquals(contextId, openContexts.get(0).getContextId());
+        assertFalse(openContexts.get(0).isHeld());
+
+        session.close();
+
+        assertTrue(session.getOpenEnumerationContexts().isEmpty());
+        verify(1, postRequestedFor(urlEqualTo("/wsman"))
+                .withRequestBody(containing(contextId))
+                .withRequestBody(containing("Release")));
+    }
+
+    @Test
+    public void canFailPendingBorrowsOnClose() throws Exception {
+        CXFWSManSession session = sessions.get(0);
+
+        // The session only has a single proxy of each type, so the second borrow has to wait for it
+        IdentifyOperations identifier = session.borrowIdentifier();
+        CompletableFuture<IdentifyOperations> pending = session.borrowIdentifierAsync();
+        assertFalse(pending.isDone());
+
+        session.close();
+        assertTrue(session.isClosed());
+
+        try {
+            pending.get(30, TimeUnit.SECONDS);
+            fail("The borrow should have failed when the session was closed.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof WSManException);
+        }
+
+        // The leased proxy is destroyed when it's given back
+        session.release(identifier);
+    }
+
+    @Test
+    public void canResumeTLSSessionsAsynchronously() throws Exception {
+        WireMockServer server = startHttpsServer();
+        try {
+            server.stubFor(post(urlEqualTo("/wsman"))
+                    .willReturn(aResponse()
+                        .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                        .withBodyFile("identify-response.xml")));
+
+            WSManEndpoint endpoint = new WSManEndpoint.Builder(String.format("https://127.0.0.1:%d/wsman", server.httpsPort()))
+                    .withServerVersion(WSManVersion.WSMAN_1_0)
+                    .withStrictSSL(false)
+                    // Open a new connection for every operation
+                    .withKeepAlive(false)
+                    .build();
+            CXFWSManSession session = new CXFWSManClientFactory().openSession(endpoint, 1);
+            sessions.add(session);
+
+            // Asynchronous calls are issued through the non-blocking conduit
+            CXFWSManClient client = session.getClient();
+            client.identifyAsync().get(30, TimeUnit.SECONDS);
+            client.identifyAsync().get(30, TimeUnit.SECONDS);
+
+            TLSHandshakeStats stats = CXFWSManClientIT.getHandshakeStats(server.httpsPort());
+            assertEquals(2, stats.getHandshakes());
+            assertEquals(1, stats.getFullHandshakes());
+            assertEquals(1, stats.getResumedHandshakes());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void canReuseConnectionsAcrossOperations() throws Exception {
+        WireMockServer server = startHttpsServer();
+        try {
+            server.stubFor(post(urlEqualTo("/wsman"))
+                    .willReturn(aResponse()
+                        .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                        .withBodyFile("identify-response.xml")));
+
+            WSManEndpoint endpoint = new WSManEndpoint.Builder(String.format("https://127.0.0.1:%d/wsman", server.httpsPort()))
+                    .withServerVersion(WSManVersion.WSMAN_1_0)
+                    .withStrictSSL(false)
+                    .withMaxConnectionsPerHost(1)
+                    .build();
+            CXFWSManSession session = new CXFWSManClientFactory().openSession(endpoint, 1);
+            sessions.add(session);
+
+            // Issue the operations one after the other, so that each can reuse the pooled connection
+            CXFWSManClient client = session.getClient();
+            final int numOperations = 5;
+            for (int i = 0; i < numOperations; i++) {
+                client.identify();
+            }
+            server.verify(numOperations, postRequestedFor(urlEqualTo("/wsman")));
+
+            // A single connection means a single handshake, a second connection would show up as a resumed one
+            TLSHandshakeStats stats = CXFWSManClientIT.getHandshakeStats(server.httpsPort());
+            assertEquals(1, stats.getHandshakes());
+            assertEquals(1, stats.getFullHandshakes());
+            assertEquals(0, stats.getResumedHandshakes());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (CXFWSManSession session : sessions) {
+            session.close();
+        }
+        sessions.clear();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+/**
+ * Verifies that the number of tracked enumeration contexts stays bounded.
+ */
+public class EnumerationContextsTest {
+
+    private static final String RESOURCE_URI = "http://schemas.dmtf.org/wbem/wscim/1/*";
+
+    @Test
+    public void canForgetTheLeastRecentlyUsedContexts() throws InterruptedException {
+        EnumerationContexts contexts = new EnumerationContexts(2);
+        contexts.opened("a", RESOURCE_URI);
+        Thread.sleep(5);
+        contexts.opened("b", RESOURCE_URI);
+        Thread.sleep(5);
+        // Pulling a moves it ahead of b
+        contexts.advanced("a", "a2", RESOURCE_URI);
+        Thread.sleep(5);
+        contexts.opened("c", RESOURCE_URI);
+
+        assertEquals(new TreeSet<>(Arrays.asList("a2", "c")), getContextIds(contexts));
+        // The position of the pulled context is preserved
+        assertEquals(2, contexts.getNextPageNumber("a2"));
+    }
+
+    @Test
+    public void canKeepTrackingHeldContexts() throws InterruptedException {
+        EnumerationContexts contexts = new EnumerationContexts(1);
+        contexts.opened("a", RESOURCE_URI);
+        contexts.hold("a");
+        Thread.sleep(5);
+        contexts.opened("b", RESOURCE_URI);
+        Thread.sleep(5);
+        contexts.opened("c", RESOURCE_URI);
+
+        // The held context is the oldest, but b is forgotten instead. The context that was
+        // just opened is kept, since the stream that opened it may be about to hold it.
+        assertEquals(new TreeSet<>(Arrays.asList("a", "c")), getContextIds(contexts));
+
+        // Contexts beyond the bound are tracked while all of the others are held
+        contexts.hold("c");
+        contexts.opened("d", RESOURCE_URI);
+        assertEquals(new TreeSet<>(Arrays.asList("a", "c", "d")), getContextIds(contexts));
+    }
+
+    private static Set<String> getContextIds(EnumerationContexts contexts) {
+        return contexts.getOpenContexts().stream()
+                .map(OpenEnumerationContext::getContextId)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+}
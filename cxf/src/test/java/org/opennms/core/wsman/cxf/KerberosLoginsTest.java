@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.security.auth.Subject;
+import javax.security.auth.kerberos.KerberosPrincipal;
+import javax.security.auth.kerberos.KerberosTicket;
+import javax.security.auth.login.LoginException;
+
+import org.junit.Test;
+
+/**
+ * Verifies the caching and renewal of the Kerberos logins, using a fake
+ * clock and KDC so that no login configuration is required.
+ */
+public class KerberosLoginsTest {
+
+    private static final long TGT_LIFETIME = TimeUnit.HOURS.toMillis(10);
+
+    private long now = TimeUnit.DAYS.toMillis(1);
+    private final List<String> logins = new ArrayList<>();
+    private final List<Runnable> renewals = new ArrayList<>();
+    private final List<Long> renewalDelays = new ArrayList<>();
+    private boolean kdcAvailable = true;
+
+    private final KerberosLogins kerberosLogins = new KerberosLogins(() -> now, this::login, (task, delay) -> {
+        renewals.add(task);
+        renewalDelays.add(delay);
+    });
+
+    @Test
+    public void canUseTheDefaultCredentials() throws LoginException {
+        assertNull(kerberosLogins.getSubject(null, null, null));
+        assertEquals(0, logins.size());
+    }
+
+    @Test
+    public void canReuseLogins() throws LoginException {
+        Subject subject = kerberosLogins.getSubject("wsman", "alice", "secret");
+        now += TimeUnit.HOURS.toMillis(1);
+        assertSame(subject, kerberosLogins.getSubject("wsman", "alice", "secret"));
+        assertEquals(1, logins.size());
+    }
+
+    @Test
+    public void canKeyLoginsPerPrincipal() throws LoginException {
+        Subject alice = kerberosLogins.getSubject("wsman", "alice", "secret");
+        Subject bob = kerberosLogins.getSubject("wsman", "bob", "secret");
+        Subject otherAlice = kerberosLogins.getSubject("other", "alice", "secret");
+
+        assertNotSame(alice, bob);
+        assertNotSame(alice, otherAlice);
+        assertSame(alice, kerberosLogins.getSubject("wsman", "alice", "secret"));
+        assertSame(bob, kerberosLogins.getSubject("wsman", "bob", "secret"));
+        assertEquals(3, logins.size());
+    }
+
+    @Test
+    public void canLoginAgainWhenThePasswordChanges() throws LoginException {
+        Subject subject = kerberosLogins.getSubject("wsman", "alice", "secret");
+        assertNotSame(subject, kerberosLogins.getSubject("wsman", "alice", "changed"));
+        assertEquals(2, logins.size());
+    }
+
+    @Test
+    public void canRenewLoginsBeforeTheyExpire() throws LoginException {
+        Subject subject = kerberosLogins.getSubject("wsman", "alice", "secret");
+
+        // The renewal is scheduled once most of the lifetime of the ticket-granting ticket has elapsed
+        assertEquals(1, renewals.size());
+        assertEquals((long)(TGT_LIFETIME * 0.8), (long)renewalDelays.get(0));
+
+        now += renewalDelays.get(0);
+        renewals.remove(0).run();
+        assertEquals(2, logins.size());
+
+        // The renewed subject is used right away, without waiting for the previous one to expire
+        Subject renewed = kerberosLogins.getSubject("wsman", "alice", "secret");
+        assertNotSame(subject, renewed);
+        assertEquals(2, logins.size());
+
+        // And the next renewal was scheduled
+        assertEquals(1, renewals.size());
+    }
+
+    @Test
+    public void canLetUnusedLoginsExpire() throws LoginException {
+        kerberosLogins.getSubject("wsman", "alice", "secret");
+        now += renewalDelays.get(0);
+        renewals.remove(0).run();
+        assertEquals(2, logins.size());
+
+        // The login wasn't used since it was renewed
+        now += renewalDelays.get(1);
+        renewals.remove(0).run();
+        assertEquals(2, logins.size());
+        assertEquals(0, renewals.size());
+    }
+
+    @Test
+    public void canLoginAgainWhenTheTicketExpired() throws LoginException {
+        Subject subject = kerberosLogins.getSubject("wsman", "alice", "secret");
+
+        // The renewal fails, and the ticket-granting ticket expires in the meantime
+        kdcAvailable = false;
+        now += renewalDelays.get(0);
+        renewals.remove(0).run();
+        now += TGT_LIFETIME;
+        kdcAvailable = true;
+
+        // The next request logs in again instead of using the expired ticket
+        Subject renewed = kerberosLogins.getSubject("wsman", "alice", "secret");
+        assertNotSame(subject, renewed);
+        assertEquals(2, logins.size());
+        assertSame(renewed, kerberosLogins.getSubject("wsman", "alice", "secret"));
+    }
+
+    private Subject login(String contextName, String username, String password) throws LoginException {
+        if (!kdcAvailable) {
+            throw new LoginException("The KDC is unreachable.");
+        }
+        logins.add(String.format("%s|%s", contextName, username));
+
+        final KerberosPrincipal client = new KerberosPrincipal(username + "@EXAMPLE.ORG");
+        final KerberosPrincipal server = new KerberosPrincipal("krbtgt/EXAMPLE.ORG@EXAMPLE.ORG");
+        final KerberosTicket tgt = new KerberosTicket(new byte[1], client, server, new byte[16], 17, null,
+                new Date(now), new Date(now), new Date(now + TGT_LIFETIME), null, null);
+        final Subject subject = new Subject();
+        subject.getPrincipals().add(client);
+        subject.getPrivateCredentials().add(tgt);
+        return subject;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.cxf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.junit.Test;
+import org.opennms.core.wsman.WSManConstants;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+
+import schemas.dmtf.org.wbem.wsman.v1.MixedDataType;
+
+/**
+ * Verifies the conversion of the XmlFragment items, which are adopted
+ * into documents created by the per-thread DocumentBuilder.
+ */
+public class TypeUtilsTest {
+
+    private static final QName XML_FRAGMENT = new QName(WSManConstants.XML_NS_DMTF_WSMAN_V1, "XmlFragment");
+
+    @Test
+    public void canAdoptFragmentsWithTheirNamespaces() throws Exception {
+        Element item = parse("<p:DCIM_Item xmlns:p=\"urn:example:p\" xmlns:q=\"urn:example:q\" q:attr=\"x\">"
+                + "<p:Name>one</p:Name><q:Other>two</q:Other></p:DCIM_Item>");
+        Document parsedDocument = item.getOwnerDocument();
+
+        Node fragment = TypeUtils.toNode(toFragment(item));
+
+        assertEquals(WSManConstants.XML_NS_DMTF_WSMAN_V1, fragment.getNamespaceURI());
+        assertEquals("XmlFragment", fragment.getLocalName());
+
+        // The item was moved over to the fragment's document, and not copied
+        Element adopted = (Element)fragment.getFirstChild();
+        assertSame(item, adopted);
+        assertSame(fragment.getOwnerDocument(), adopted.getOwnerDocument());
+        assertNotSame(parsedDocument, adopted.getOwnerDocument());
+
+        // The namespaces and prefixes are preserved
+        assertEquals("urn:example:p", adopted.getNamespaceURI());
+        assertEquals("p", adopted.getPrefix());
+        assertEquals("DCIM_Item", adopted.getLocalName());
+        assertEquals("x", adopted.getAttributeNS("urn:example:q", "attr"));
+        Element other = (Element)adopted.getElementsByTagNameNS("urn:example:q", "Other").item(0);
+        assertEquals("q", other.getPrefix());
+        assertEquals("two", other.getTextContent());
+        assertEquals("<p:DCIM_Item xmlns:p=\"urn:example:p\" xmlns:q=\"urn:example:q\" q:attr=\"x\">"
+                + "<p:Name>one</p:Name><q:Other>two</q:Other></p:DCIM_Item>", toString(adopted));
+    }
+
+    @Test
+    public void canReuseTheBuilderWithoutAffectingPreviousNodes() throws Exception {
+        Node first = TypeUtils.toNode(toFragment(parse("<p:Item xmlns:p=\"urn:example:p\">first</p:Item>")));
+        final String expected = toString(first);
+
+        // Converting more fragments on the same thread reuses the same builder
+        Node last = null;
+        for (int i = 0; i < 10; i++) {
+            last = TypeUtils.toNode(toFragment(parse("<p:Item xmlns:p=\"urn:example:p\">" + i + "</p:Item>")));
+        }
+
+        // Every fragment gets a document of its own, and the previous ones are left untouched
+        assertNotSame(first.getOwnerDocument(), last.getOwnerDocument());
+        assertEquals(expected, toString(first));
+        assertEquals(1, first.getChildNodes().getLength());
+        assertEquals("first", first.getTextContent());
+        assertEquals("9", last.getTextContent());
+    }
+
+    @Test
+    public void canCreateDocumentsOnSeveralThreads() throws Exception {
+        final Node[] nodes = new Node[2];
+        Thread thread = new Thread(() -> {
+            nodes[1] = TypeUtils.toNode(toFragment(parse("<p:Item xmlns:p=\"urn:example:p\">other</p:Item>")));
+        });
+        nodes[0] = TypeUtils.toNode(toFragment(parse("<p:Item xmlns:p=\"urn:example:p\">main</p:Item>")));
+        thread.start();
+        thread.join();
+
+        assertNotSame(nodes[0].getOwnerDocument(), nodes[1].getOwnerDocument());
+        assertEquals("main", nodes[0].getTextContent());
+        assertEquals("other", nodes[1].getTextContent());
+    }
+
+    private static JAXBElement<MixedDataType> toFragment(Node... items) {
+        MixedDataType mixed = new MixedDataType();
+        for (Node item : items) {
+            // Whitespace is interleaved with the elements, as when parsed from a response
+            mixed.getContent().add("\n  ");
+            mixed.getContent().add(item);
+        }
+        return new JAXBElement<>(XML_FRAGMENT, MixedDataType.class, mixed);
+    }
+
+    private static Element parse(String xml) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            return factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml))).getDocumentElement();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String toString(Node node) throws Exception {
+        StringWriter writer = new StringWriter();
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+        transformer.transform(new DOMSource(node), new StreamResult(writer));
+        return writer.toString();
+    }
+}
@@ -16,14 +16,20 @@
 package org.opennms.core.wsman;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.findAll;
 import static com.github.tomakehurst.wiremock.client.WireMock.post;
 import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -32,9 +38,19 @@ import java.io.StringWriter;
 import java.net.MalformedURLException;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Source;
@@ -47,11 +63,16 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
+import org.opennms.core.wsman.WSManRequestMetrics.Phase;
+import org.opennms.core.wsman.exceptions.CircuitBreakerOpenException;
+import org.opennms.core.wsman.exceptions.HTTPException;
 import org.opennms.core.wsman.exceptions.InvalidResourceURI;
 import org.opennms.core.wsman.exceptions.UnauthorizedException;
+import org.opennms.core.wsman.exceptions.WSManException;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
+import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
 import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
@@ -75,6 +96,8 @@ public abstract class AbstractWSManClientIT {
             .extensions(new ResponseTemplateTransformer(true))
             .dynamicPort());
 
+    private WSManEndpoint endpoint;
+
     private WSManClient client;
 
     public abstract WSManClientFactory getFactory();
@@ -86,7 +109,7 @@ public abstract class AbstractWSManClientIT {
 
     @Before
     public void setUp() throws MalformedURLException {
-        WSManEndpoint endpoint = new WSManEndpoint.Builder(String.format("http://127.0.0.1:%d/wsman", wireMockRule.port()))
+        endpoint = new WSManEndpoint.Builder(String.format("http://127.0.0.1:%d/wsman", wireMockRule.port()))
                 .withServerVersion(WSManVersion.WSMAN_1_0)
                 .build();
         client = getFactory().getClient(endpoint);
@@ -176,6 +199,45 @@ public abstract class AbstractWSManClientIT {
         assertEquals(121, inputVoltage);
     }
 
+    @Test
+    public void canPullRecursivelyWithPrefetch() throws MalformedURLException, InterruptedException {
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Recursive pull with prefetch")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("recursive-pull-response-1.xml"))
+                .willSetStateTo("Pull #2"));
+
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Recursive pull with prefetch")
+                .whenScenarioStateIs("Pull #2")
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("recursive-pull-response-2.xml")));
+
+        WSManEndpoint endpoint = new WSManEndpoint.Builder(String.format("http://127.0.0.1:%d/wsman", wireMockRule.port()))
+                .withServerVersion(WSManVersion.WSMAN_1_0)
+                .withPullPrefetchDepth(2)
+                .build();
+        WSManClient prefetchingClient = getFactory().getClient(endpoint);
+
+        List<Node> nodes = new ArrayList<>();
+        prefetchingClient.pull("c6595ee1-2664-1664-801f-c115cfb5fe14", WSManConstants.CIM_ALL_AVAILABLE_CLASSES, nodes, true);
+
+        dumpRequestsToStdout();
+
+        // The pages must be collected in order, and no pulls should be issued past the end of the sequence
+        assertEquals(2, nodes.size());
+        verify(2, postRequestedFor(urlEqualTo("/wsman")));
+
+        XMLTag tag = XMLDoc.from(nodes.get(0), true);
+        int inputVoltage = Integer.valueOf(tag.gotoChild("n1:InputVoltage").getText());
+        assertEquals(120, inputVoltage);
+
+        tag = XMLDoc.from(nodes.get(1), true);
+        inputVoltage = Integer.valueOf(tag.gotoChild("n1:InputVoltage").getText());
+        assertEquals(121, inputVoltage);
+    }
+
     @Test
     public void canEnumerateAndPullUsingWQLFilter() throws InterruptedException {
         stubFor(post(urlEqualTo("/wsman"))
@@ -231,6 +293,358 @@ public abstract class AbstractWSManClientIT {
         assertEquals("64421359616", props.get("Size"));
     }
 
+    @Test
+    public void canEnumerateAndPullFragmentUsingStreaming() throws MalformedURLException, InterruptedException {
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Enum and pull fragments using streaming")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("optimized-enum-response-with-fragments-1.xml"))
+                .willSetStateTo("Pull"));
+
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Enum and pull fragments using streaming")
+                .whenScenarioStateIs("Pull")
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("optimized-enum-response-with-fragments-2.xml")));
+
+        WSManEndpoint endpoint = new WSManEndpoint.Builder(String.format("http://127.0.0.1:%d/wsman", wireMockRule.port()))
+                .withServerVersion(WSManVersion.WSMAN_1_0)
+                .withStreamingResponses(true)
+                .build();
+        WSManClient streamingClient = getFactory().getClient(endpoint);
+
+        List<Node> nodes = new ArrayList<>();
+        streamingClient.enumerateAndPullUsingFilter("http://schemas.microsoft.com/wbem/wsman/1/wmi/root/cimv2/*",
+                "select Name, Size, FreeSpace FROM Win32_LogicalDisk",
+                WSManConstants.XML_NS_WQL_DIALECT,
+                nodes,
+                true);
+
+        dumpRequestsToStdout();
+
+        // The results should be the same as those unmarshalled using JAXB
+        assertEquals(4, nodes.size());
+        Map<String, String> props = toMap(nodes.get(0));
+        assertEquals("A:", props.get("Name"));
+        assertEquals("", props.get("Size"));
+
+        props = toMap(nodes.get(2));
+        assertEquals("D:", props.get("Name"));
+        assertEquals("64421359616", props.get("Size"));
+    }
+
+    @Test
+    public void canEnumerateAndPullWithCompression() throws InterruptedException, MalformedURLException {
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Compression")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("enum-response.xml"))
+                .willSetStateTo("Pull"));
+
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Compression")
+                .whenScenarioStateIs("Pull")
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("pull-response.xml")));
+
+        WSManEndpoint endpoint = new WSManEndpoint.Builder(String.format("http://127.0.0.1:%d/wsman", wireMockRule.port()))
+                .withServerVersion(WSManVersion.WSMAN_1_0)
+                .withCompression(true)
+                .withRequestCompression(true)
+                .build();
+        WSManClient client = getFactory().getClient(endpoint);
+
+        List<Node> nodes = new ArrayList<>();
+        client.enumerateAndPull(WSManConstants.CIM_ALL_AVAILABLE_CLASSES, nodes, true);
+
+        dumpRequestsToStdout();
+
+        // WireMock compresses its responses when asked to, and accepts compressed requests
+        assertEquals(1, nodes.size());
+        verify(2, postRequestedFor(urlEqualTo("/wsman"))
+                .withHeader("Accept-Encoding", containing("gzip")));
+        verify(1, postRequestedFor(urlEqualTo("/wsman"))
+                .withHeader("Content-Encoding", equalTo("gzip"))
+                .withRequestBody(containing("http://schemas.xmlsoap.org/ws/2004/09/enumeration/Pull")));
+    }
+
+    @Test
+    public void canReportMetrics() throws InterruptedException {
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Metrics")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("enum-response.xml"))
+                .willSetStateTo("Pull"));
+
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Metrics")
+                .whenScenarioStateIs("Pull")
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("pull-response.xml")));
+
+        InMemoryWSManMetrics metrics = new InMemoryWSManMetrics();
+        WSManEndpoint metricsEndpoint = new WSManEndpoint.Builder(endpoint)
+                .withMetricsListener(metrics)
+                .build();
+        WSManClient client = getFactory().getClient(metricsEndpoint);
+
+        List<Node> nodes = new ArrayList<>();
+        client.enumerateAndPull(WSManConstants.CIM_ALL_AVAILABLE_CLASSES, nodes, true);
+
+        List<WSManRequestStats> stats = metrics.getStats(metricsEndpoint);
+        assertEquals(2, stats.size());
+        for (WSManRequestStats stat : stats) {
+            assertEquals(WSManConstants.CIM_ALL_AVAILABLE_CLASSES, stat.getResourceUri());
+            assertEquals(1, stat.getCount());
+            assertEquals(0, stat.getFailureCount());
+            assertTrue(stat.getRequestBytes() > 0);
+            assertTrue(stat.getResponseBytes() > 0);
+            assertTrue(stat.getMaxDuration() > 0);
+        }
+        assertEquals(nodes.size(), stats.stream().mapToLong(WSManRequestStats::getItems).sum());
+    }
+
+    @Test
+    public void canReportPhaseTimings() {
+        stubFor(post(urlEqualTo("/wsman"))
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("get-response.xml")
+                    .withFixedDelay(50)));
+
+        List<WSManRequestMetrics> requests = new CopyOnWriteArrayList<>();
+        WSManEndpoint tracedEndpoint = new WSManEndpoint.Builder(endpoint)
+                .withMetricsListener(requests::add)
+                .withPhaseTiming(true)
+                .build();
+        WSManClient client = getFactory().getClient(tracedEndpoint);
+
+        Map<String, String> selectors = new HashMap<>();
+        selectors.put("CreationClassName", "DCIM_ComputerSystem");
+        selectors.put("Name", "srv:system");
+        client.get("http://schemas.dell.com/wbem/wscim/1/cim-schema/2/DCIM_ComputerSystem", selectors);
+
+        assertEquals(1, requests.size());
+        Map<Phase, Long> phases = requests.get(0).getPhases();
+        assertTrue(phases.containsKey(Phase.PREPARE));
+        assertTrue(phases.containsKey(Phase.PARSE));
+        // The server's delay is attributed to the server
+        assertTrue(phases.get(Phase.SERVER) >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(phases.values().stream().mapToLong(Long::longValue).sum() <= requests.get(0).getDuration());
+    }
+
+    @Test
+    public void canReportMetricsWithoutPhaseTimings() {
+        stubFor(post(urlEqualTo("/wsman"))
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("get-response.xml")));
+
+        List<WSManRequestMetrics> requests = new CopyOnWriteArrayList<>();
+        WSManEndpoint metricsEndpoint = new WSManEndpoint.Builder(endpoint)
+                .withMetricsListener(requests::add)
+                .withPhaseTiming(false)
+                .build();
+        WSManClient client = getFactory().getClient(metricsEndpoint);
+
+        Map<String, String> selectors = new HashMap<>();
+        selectors.put("CreationClassName", "DCIM_ComputerSystem");
+        selectors.put("Name", "srv:system");
+        client.get("http://schemas.dell.com/wbem/wscim/1/cim-schema/2/DCIM_ComputerSystem", selectors);
+
+        assertEquals(1, requests.size());
+        assertNull(requests.get(0).getFailure());
+        assertTrue(requests.get(0).getPhases().isEmpty());
+    }
+
+    @Test
+    public void canReducePageSizeWhenEncodingLimitIsExceeded() throws InterruptedException, MalformedURLException {
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Encoding limit")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("pull-response-fault-encoding-limit.xml"))
+                .willSetStateTo("Retry"));
+
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Encoding limit")
+                .whenScenarioStateIs("Retry")
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("pull-response.xml")));
+
+        WSManEndpoint endpoint = new WSManEndpoint.Builder(String.format("http://127.0.0.1:%d/wsman", wireMockRule.port()))
+                .withServerVersion(WSManVersion.WSMAN_1_0)
+                .withMaxElements(8)
+                .withAdaptivePageSize(true)
+                .build();
+        WSManClient client = getFactory().getClient(endpoint);
+
+        List<Node> nodes = new ArrayList<>();
+        String nextContextId = client.pull("c6595ee1-2664-1664-801f-c115cfb5fe14", WSManConstants.CIM_ALL_AVAILABLE_CLASSES, nodes, false);
+
+        dumpRequestsToStdout();
+
+        // The same context is pulled again, asking for half as many elements
+        assertNull(nextContextId);
+        assertEquals(1, nodes.size());
+        verify(1, postRequestedFor(urlEqualTo("/wsman"))
+                .withRequestBody(containing("c6595ee1-2664-1664-801f-c115cfb5fe14"))
+                .withRequestBody(containing("MaxElements>8<")));
+        verify(1, postRequestedFor(urlEqualTo("/wsman"))
+                .withRequestBody(containing("c6595ee1-2664-1664-801f-c115cfb5fe14"))
+                .withRequestBody(containing("MaxElements>4<")));
+    }
+
+    @Test
+    public void canEnumerateAndPullUsingEnvelopeTemplates() throws MalformedURLException, InterruptedException {
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Enum and pull using templates")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("optimized-enum-response-with-fragments-1.xml"))
+                .willSetStateTo("Pull"));
+
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Enum and pull using templates")
+                .whenScenarioStateIs("Pull")
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("optimized-enum-response-with-fragments-2.xml")));
+
+        WSManEndpoint endpoint = new WSManEndpoint.Builder(String.format("http://127.0.0.1:%d/wsman", wireMockRule.port()))
+                .withServerVersion(WSManVersion.WSMAN_1_0)
+                .withMaxElements(2)
+                .withEnvelopeTemplates(true)
+                .build();
+        WSManClient templatedClient = getFactory().getClient(endpoint);
+
+        List<Node> nodes = new ArrayList<>();
+        templatedClient.enumerateAndPullUsingFilter("http://schemas.microsoft.com/wbem/wsman/1/wmi/root/cimv2/*",
+                WSManConstants.XML_NS_WQL_DIALECT,
+                "select Name, Size, FreeSpace FROM Win32_LogicalDisk where Size > 0 & FreeSpace < 1",
+                nodes,
+                true);
+
+        dumpRequestsToStdout();
+
+        assertEquals(4, nodes.size());
+        assertEquals("A:", toMap(nodes.get(0)).get("Name"));
+
+        // The filter should be escaped, and the context id substituted in the pull
+        verify(1, postRequestedFor(urlEqualTo("/wsman"))
+                .withRequestBody(containing("http://schemas.xmlsoap.org/ws/2004/09/enumeration/Enumerate"))
+                .withRequestBody(containing("FreeSpace &lt; 1"))
+                .withRequestBody(containing("<wsman:MaxElements>2</wsman:MaxElements>")));
+        verify(1, postRequestedFor(urlEqualTo("/wsman"))
+                .withRequestBody(containing("http://schemas.xmlsoap.org/ws/2004/09/enumeration/Pull"))
+                .withRequestBody(containing("uuid:9BF32A71-F913-4F19-95C9-A642AD4B758F"))
+                .withRequestBody(containing("http://schemas.microsoft.com/wbem/wsman/1/wmi/root/cimv2/*")));
+    }
+
+    @Test
+    public void canStreamFragmentsUsingWQLFilter() throws InterruptedException {
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Stream fragments")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("optimized-enum-response-with-fragments-1.xml"))
+                .willSetStateTo("Pull"));
+
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Stream fragments")
+                .whenScenarioStateIs("Pull")
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("optimized-enum-response-with-fragments-2.xml")));
+
+        List<String> names;
+        try (Stream<Node> nodes = client.enumerateAndStreamUsingFilter("http://schemas.microsoft.com/wbem/wsman/1/wmi/root/cimv2/*",
+                WSManConstants.XML_NS_WQL_DIALECT,
+                "select Name, Size, FreeSpace FROM Win32_LogicalDisk")) {
+            names = nodes.map(n -> toMap(n).get("Name")).collect(Collectors.toList());
+        }
+
+        dumpRequestsToStdout();
+
+        assertEquals(Arrays.asList("A:", "C:", "D:", "E:"), names);
+        verify(2, postRequestedFor(urlEqualTo("/wsman")));
+    }
+
+    @Test
+    public void canReleaseStreamBeforeEndOfSequence() throws InterruptedException {
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Release stream")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("optimized-enum-response-with-fragments-1.xml"))
+                .willSetStateTo("Release"));
+
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Release stream")
+                .whenScenarioStateIs("Release")
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("release-response.xml")));
+
+        Optional<Node> first;
+        try (Stream<Node> nodes = client.enumerateAndStreamUsingFilter("http://schemas.microsoft.com/wbem/wsman/1/wmi/root/cimv2/*",
+                WSManConstants.XML_NS_WQL_DIALECT,
+                "select Name, Size, FreeSpace FROM Win32_LogicalDisk")) {
+            first = nodes.findFirst();
+        }
+
+        dumpRequestsToStdout();
+
+        assertEquals("A:", toMap(first.get()).get("Name"));
+        verify(2, postRequestedFor(urlEqualTo("/wsman")));
+        verify(1, postRequestedFor(urlEqualTo("/wsman"))
+                .withRequestBody(containing("uuid:9BF32A71-F913-4F19-95C9-A642AD4B758F"))
+                .withRequestBody(containing("Release")));
+    }
+
+    @Test
+    public void canReleaseContextWhenPullFails() throws InterruptedException {
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Failed pull")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("optimized-enum-response-with-fragments-1.xml"))
+                .willSetStateTo("Pull"));
+
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Failed pull")
+                .whenScenarioStateIs("Pull")
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("get-response-fault.xml"))
+                .willSetStateTo("Release"));
+
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Failed pull")
+                .whenScenarioStateIs("Release")
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("release-response.xml")));
+
+        List<Node> nodes = new ArrayList<>();
+        try {
+            client.enumerateAndPullUsingFilter("http://schemas.microsoft.com/wbem/wsman/1/wmi/root/cimv2/*",
+                    WSManConstants.XML_NS_WQL_DIALECT,
+                    "select Name, Size, FreeSpace FROM Win32_LogicalDisk",
+                    nodes,
+                    true);
+            fail("The pull should have failed.");
+        } catch (WSManException e) {
+            // Expected
+        }
+
+        dumpRequestsToStdout();
+
+        // The context is never handed back to us, so it should have been released
+        verify(3, postRequestedFor(urlEqualTo("/wsman")));
+        verify(1, postRequestedFor(urlEqualTo("/wsman"))
+                .withRequestBody(containing("uuid:9BF32A71-F913-4F19-95C9-A642AD4B758F"))
+                .withRequestBody(containing("Release")));
+    }
+
     private static Map<String, String> toMap(Node node) {
         Map<String, String> map = new HashMap<>();
         // Parse the values from the child nodes
@@ -262,12 +676,167 @@ public abstract class AbstractWSManClientIT {
         dumpRequestsToStdout();
 
         assertNotNull(node);
+        assertEquals("http://schemas.dell.com/wbem/wscim/1/cim-schema/2/DCIM_ComputerSystem", node.getNamespaceURI());
+        assertEquals("DCIM_ComputerSystem", node.getLocalName());
 
         XMLTag tag = XMLDoc.from(node, true);
         int primaryStatus = Integer.valueOf(tag.gotoChild("n1:PrimaryStatus").getText());
         assertEquals(1, primaryStatus);
     }
 
+    @Test
+    public void canNegotiateServerVersion() throws FileNotFoundException, IOException {
+        stubFor(post(urlEqualTo("/wsman"))
+                .withRequestBody(containing("Identify"))
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("identify-response.xml")));
+        stubFor(post(urlEqualTo("/wsman"))
+                .withRequestBody(containing("http://schemas.xmlsoap.org/ws/2004/09/transfer/Get"))
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("get-response.xml")));
+
+        // Leave the default version, the server identifies itself as Openwsman, which requires 1.0
+        WSManCapabilitiesCache.getDefault().clear();
+        WSManEndpoint endpoint = new WSManEndpoint.Builder(String.format("http://127.0.0.1:%d/wsman", wireMockRule.port()))
+                .withServerVersionNegotiation(true)
+                .build();
+
+        Map<String, String> selectors = new HashMap<>();
+        selectors.put("CreationClassName", "DCIM_ComputerSystem");
+        selectors.put("Name", "srv:system");
+        for (int i = 0; i < 2; i++) {
+            // The capabilities are shared across clients
+            Node node = getFactory().getClient(endpoint).get("http://schemas.dell.com/wbem/wscim/1/cim-schema/2/DCIM_ComputerSystem", selectors);
+            assertNotNull(node);
+        }
+
+        dumpRequestsToStdout();
+
+        verify(1, postRequestedFor(urlEqualTo("/wsman"))
+                .withRequestBody(containing("Identify")));
+        verify(2, postRequestedFor(urlEqualTo("/wsman"))
+                .withRequestBody(containing("http://schemas.xmlsoap.org/ws/2004/09/transfer/Get"))
+                .withRequestBody(containing(WSManConstants.XML_NS_WS_2004_08_ADDRESSING)));
+        assertEquals(WSManVersion.WSMAN_1_0, WSManCapabilitiesCache.getDefault()
+                .get(endpoint, e -> { throw new AssertionError("should be cached"); }).getServerVersion());
+    }
+
+    @Test
+    public void canGetUsingStreaming() throws FileNotFoundException, IOException {
+        stubFor(post(urlEqualTo("/wsman"))
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("get-response.xml")));
+
+        WSManEndpoint endpoint = new WSManEndpoint.Builder(String.format("http://127.0.0.1:%d/wsman", wireMockRule.port()))
+                .withServerVersion(WSManVersion.WSMAN_1_0)
+                .withStreamingResponses(true)
+                .build();
+        WSManClient streamingClient = getFactory().getClient(endpoint);
+
+        Map<String, String> selectors = new HashMap<>();
+        selectors.put("CreationClassName", "DCIM_ComputerSystem");
+        selectors.put("Name", "srv:system");
+        Node node = streamingClient.get("http://schemas.dell.com/wbem/wscim/1/cim-schema/2/DCIM_ComputerSystem", selectors);
+
+        dumpRequestsToStdout();
+
+        // The node should have the same name as the one unmarshalled using JAXB
+        assertNotNull(node);
+        assertEquals("http://schemas.dell.com/wbem/wscim/1/cim-schema/2/DCIM_ComputerSystem", node.getNamespaceURI());
+        assertEquals("DCIM_ComputerSystem", node.getLocalName());
+
+        XMLTag tag = XMLDoc.from(node, true);
+        int primaryStatus = Integer.valueOf(tag.gotoChild("n1:PrimaryStatus").getText());
+        assertEquals(1, primaryStatus);
+    }
+
+    @Test
+    public void canGetUsingEnvelopeTemplates() throws FileNotFoundException, IOException {
+        stubFor(post(urlEqualTo("/wsman"))
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("get-response.xml")));
+
+        WSManEndpoint endpoint = new WSManEndpoint.Builder(String.format("http://127.0.0.1:%d/wsman", wireMockRule.port()))
+                .withServerVersion(WSManVersion.WSMAN_1_0)
+                .withEnvelopeTemplates(true)
+                .build();
+        WSManClient templatedClient = getFactory().getClient(endpoint);
+
+        Map<String, String> selectors = new HashMap<>();
+        selectors.put("CreationClassName", "DCIM_ComputerSystem");
+        selectors.put("Name", "srv:system");
+        Node node = templatedClient.get("http://schemas.dell.com/wbem/wscim/1/cim-schema/2/DCIM_ComputerSystem", selectors);
+        // The second request reuses the compiled template
+        node = templatedClient.get("http://schemas.dell.com/wbem/wscim/1/cim-schema/2/DCIM_ComputerSystem", selectors);
+
+        dumpRequestsToStdout();
+
+        assertNotNull(node);
+        assertEquals("DCIM_ComputerSystem", node.getLocalName());
+        XMLTag tag = XMLDoc.from(node, true);
+        int primaryStatus = Integer.valueOf(tag.gotoChild("n1:PrimaryStatus").getText());
+        assertEquals(1, primaryStatus);
+
+        verify(2, postRequestedFor(urlEqualTo("/wsman"))
+                .withRequestBody(containing("http://schemas.xmlsoap.org/ws/2004/09/transfer/Get"))
+                .withRequestBody(containing("<wsman:Selector Name=\"Name\">srv:system</wsman:Selector>")));
+    }
+
+    @Test
+    public void canCollectFromManyEndpoints() throws Exception {
+        stubFor(post(urlEqualTo("/wsman"))
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("get-response.xml")));
+        stubFor(post(urlEqualTo("/unauthorized"))
+                .willReturn(aResponse()
+                    .withStatus(401)
+                    .withHeader("Content-Type", "text/plain")
+                    .withBody("Not allowed!")));
+
+        List<WSManEndpoint> endpoints = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            endpoints.add(new WSManEndpoint.Builder(String.format("http://127.0.0.1:%d/wsman", wireMockRule.port()))
+                    .withServerVersion(WSManVersion.WSMAN_1_0)
+                    .build());
+        }
+        endpoints.add(new WSManEndpoint.Builder(String.format("http://127.0.0.1:%d/unauthorized", wireMockRule.port()))
+                .withServerVersion(WSManVersion.WSMAN_1_0)
+                .build());
+
+        Map<String, String> selectors = new HashMap<>();
+        selectors.put("CreationClassName", "DCIM_ComputerSystem");
+        selectors.put("Name", "srv:system");
+        List<WSManOperation<?>> operations = Arrays.asList(
+                WSManOperation.get("http://schemas.dell.com/wbem/wscim/1/cim-schema/2/DCIM_ComputerSystem", selectors));
+
+        List<WSManCollectorResult> results = Collections.synchronizedList(new ArrayList<>());
+        WSManCollector collector = new WSManCollector.Builder(getFactory())
+                .withMaxConcurrency(4)
+                .withMaxConcurrencyPerHost(2)
+                .build();
+        collector.collect(endpoints, operations, results::add).get(30, TimeUnit.SECONDS);
+
+        // Every endpoint should report back, failures included
+        assertEquals(9, results.size());
+        List<WSManCollectorResult> failures = results.stream()
+                .filter(r -> !r.isSuccessful())
+                .collect(Collectors.toList());
+        assertEquals(1, failures.size());
+        assertEquals("/unauthorized", failures.get(0).getEndpoint().getUrl().getPath());
+        assertEquals(UnauthorizedException.class, failures.get(0).getFailure(0).getClass());
+
+        results.stream().filter(WSManCollectorResult::isSuccessful).forEach(r -> {
+            Node node = r.getResult(0);
+            assertEquals("DCIM_ComputerSystem", node.getLocalName());
+        });
+        verify(9, postRequestedFor(urlMatching("/.*")));
+    }
+
     @Test(expected=UnauthorizedException.class)
     public void throwsUnauthorizedExceptionOn401() {
         stubFor(post(urlEqualTo("/wsman"))
@@ -279,6 +848,217 @@ public abstract class AbstractWSManClientIT {
         client.enumerate("http://schemas.dell.com/wbem/wscim/1/cim-schema/2/DCIM_ComputerSystem");
     }
 
+    @Test
+    public void canRetryGetAfterTransientFailure() throws MalformedURLException {
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Transient failure")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse()
+                    .withStatus(503))
+                .willSetStateTo("Recovered"));
+
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Transient failure")
+                .whenScenarioStateIs("Recovered")
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("get-response.xml")));
+
+        WSManClient client = new ResilientWSManClientFactory.Builder(getFactory())
+                .withBackoff(10, 100)
+                .build()
+                .getClient(endpoint);
+
+        Map<String, String> selectors = new HashMap<>();
+        selectors.put("CreationClassName", "DCIM_ComputerSystem");
+        selectors.put("Name", "srv:system");
+        Node node = client.get("http://schemas.dell.com/wbem/wscim/1/cim-schema/2/DCIM_ComputerSystem", selectors);
+
+        assertNotNull(node);
+        verify(2, postRequestedFor(urlEqualTo("/wsman")));
+    }
+
+    @Test
+    public void canHedgeSlowGet() throws MalformedURLException {
+        stubFor(post(urlEqualTo("/wsman"))
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("get-response.xml")));
+
+        WSManEndpoint hedgingEndpoint = new WSManEndpoint.Builder(endpoint)
+                .withHedgingPercentile(50d)
+                .withHedgingBudget(1d)
+                .build();
+        WSManClient client = getFactory().getClient(hedgingEndpoint);
+
+        Map<String, String> selectors = new HashMap<>();
+        selectors.put("CreationClassName", "DCIM_ComputerSystem");
+        selectors.put("Name", "srv:system");
+        String resourceUri = "http://schemas.dell.com/wbem/wscim/1/cim-schema/2/DCIM_ComputerSystem";
+
+        // Learn the latencies
+        for (int i = 0; i < 20; i++) {
+            assertNotNull(client.get(resourceUri, selectors));
+        }
+
+        // The next response is slow, the one after that isn't
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Slow response")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("get-response.xml")
+                    .withFixedDelay(5000))
+                .willSetStateTo("Hedged"));
+
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Slow response")
+                .whenScenarioStateIs("Hedged")
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("get-response.xml")));
+        wireMockRule.resetRequests();
+
+        long start = System.currentTimeMillis();
+        Node node = client.get(resourceUri, selectors);
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertNotNull(node);
+        assertTrue("The hedged request should have won, but took " + elapsed + "ms", elapsed < 5000);
+        verify(2, postRequestedFor(urlEqualTo("/wsman")));
+    }
+
+    @Test
+    public void canLimitConcurrentRequestsPerHost() throws Exception {
+        stubFor(post(urlEqualTo("/wsman"))
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("get-response.xml")
+                    .withFixedDelay(300)));
+
+        LimitedWSManClientFactory factory = new LimitedWSManClientFactory.Builder(getFactory())
+                .withMaxInFlight(1)
+                .build();
+
+        Map<String, String> selectors = new HashMap<>();
+        selectors.put("CreationClassName", "DCIM_ComputerSystem");
+        selectors.put("Name", "srv:system");
+
+        // Every thread uses its own client, they share the limiter
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            long start = System.currentTimeMillis();
+            List<Future<Node>> futures = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                futures.add(executor.submit(() -> factory.getClient(endpoint)
+                        .get("http://schemas.dell.com/wbem/wscim/1/cim-schema/2/DCIM_ComputerSystem", selectors)));
+            }
+            for (Future<Node> future : futures) {
+                assertNotNull(future.get());
+            }
+            long elapsed = System.currentTimeMillis() - start;
+
+            assertTrue("The requests should have been issued one after the other, but took " + elapsed + "ms", elapsed >= 900);
+            assertEquals(0, factory.getLimiter(endpoint).getInFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void canShareLimitersAcrossFactories() throws Exception {
+        stubFor(post(urlEqualTo("/wsman"))
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("get-response.xml")
+                    .withFixedDelay(300)));
+
+        Map<String, String> selectors = new HashMap<>();
+        selectors.put("CreationClassName", "DCIM_ComputerSystem");
+        selectors.put("Name", "srv:system");
+
+        // Every thread uses a client created by a different factory, they still share the limiter
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            long start = System.currentTimeMillis();
+            List<Future<Node>> futures = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                LimitedWSManClientFactory factory = new LimitedWSManClientFactory.Builder(getFactory())
+                        .withMaxInFlight(1)
+                        .build();
+                futures.add(executor.submit(() -> factory.getClient(endpoint)
+                        .get("http://schemas.dell.com/wbem/wscim/1/cim-schema/2/DCIM_ComputerSystem", selectors)));
+            }
+            for (Future<Node> future : futures) {
+                assertNotNull(future.get());
+            }
+            long elapsed = System.currentTimeMillis() - start;
+
+            assertTrue("The requests should have been issued one after the other, but took " + elapsed + "ms", elapsed >= 600);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void canBurstRequestsAfterIdle() throws Exception {
+        stubFor(post(urlEqualTo("/wsman"))
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("get-response.xml")));
+
+        LimitedWSManClientFactory factory = new LimitedWSManClientFactory.Builder(getFactory())
+                .withMaxInFlight(4)
+                .withMaxRequestsPerSecond(2)
+                .withMaxBurst(3)
+                .build();
+        WSManClient client = factory.getClient(endpoint);
+
+        Map<String, String> selectors = new HashMap<>();
+        selectors.put("CreationClassName", "DCIM_ComputerSystem");
+        selectors.put("Name", "srv:system");
+
+        // The first requests use up the bucket, the next one waits for a token to be added
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(client.get("http://schemas.dell.com/wbem/wscim/1/cim-schema/2/DCIM_ComputerSystem", selectors));
+        }
+        long burst = System.currentTimeMillis() - start;
+        assertNotNull(client.get("http://schemas.dell.com/wbem/wscim/1/cim-schema/2/DCIM_ComputerSystem", selectors));
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertTrue("The first requests should have been issued at once, but took " + burst + "ms", burst < 400);
+        assertTrue("The last request should have waited for a token, but took " + elapsed + "ms", elapsed >= 400);
+    }
+
+    @Test
+    public void canFailFastWhenCircuitBreakerIsOpen() throws MalformedURLException {
+        stubFor(post(urlEqualTo("/wsman"))
+                .willReturn(aResponse()
+                    .withStatus(503)));
+
+        ResilientWSManClientFactory factory = new ResilientWSManClientFactory.Builder(getFactory())
+                .withMaxAttempts(1)
+                .withFailureThreshold(2)
+                .build();
+        WSManClient client = factory.getClient(endpoint);
+
+        Map<String, String> selectors = new HashMap<>();
+        selectors.put("CreationClassName", "DCIM_ComputerSystem");
+        selectors.put("Name", "srv:system");
+        for (int i = 0; i < 3; i++) {
+            try {
+                client.get("http://schemas.dell.com/wbem/wscim/1/cim-schema/2/DCIM_ComputerSystem", selectors);
+                fail("The get should have failed.");
+            } catch (CircuitBreakerOpenException e) {
+                // Expected on the last attempt
+                assertEquals(2, i);
+            } catch (HTTPException e) {
+                // Expected on the first two attempts
+            }
+        }
+
+        // The last attempt was never issued
+        verify(2, postRequestedFor(urlEqualTo("/wsman")));
+        assertEquals(WSManCircuitBreaker.State.OPEN, factory.getCircuitBreaker(endpoint).getState());
+    }
+
     @Test(expected=InvalidResourceURI.class)
     public void throwsInvalidResourceURIOnFault() {
         stubFor(post(urlEqualTo("/wsman"))
@@ -291,6 +1071,22 @@ public abstract class AbstractWSManClientIT {
         client.get("http://schemas.dell.com/wbem/wscim/1/cim-schema/2/DCIM_ComputerSystem", selectors);
     }
 
+    /**
+     * Starts a server serving the same files as {@link #wireMockRule}, that also
+     * listens for HTTPS connections using WireMock's self-signed certificate.
+     *
+     * The caller is responsible for stopping the server.
+     */
+    protected static WireMockServer startHttpsServer() {
+        WireMockServer server = new WireMockServer(WireMockConfiguration.wireMockConfig()
+                .withRootDirectory(Paths.get("..", "itests", "src", "main", "resources").toString())
+                .extensions(new ResponseTemplateTransformer(true))
+                .dynamicPort()
+                .dynamicHttpsPort());
+        server.start();
+        return server;
+    }
+
     private void dumpRequestsToStdout() {
         findAll(postRequestedFor(urlMatching("/.*"))).forEach(r -> System.out.println(prettyFormat(r.getBodyAsString(), 4)));
     }
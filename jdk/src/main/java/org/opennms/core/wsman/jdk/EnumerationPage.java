@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.jdk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.w3c.dom.Node;
+
+/**
+ * A single page of results from an Enumerate or Pull operation,
+ * filled by the {@link EnvelopeReader}.
+ */
+class EnumerationPage {
+
+    private final List<Node> m_items = new ArrayList<>();
+    private String m_contextId;
+    private boolean m_endOfSequence = false;
+    private long m_responseLength = -1;
+
+    void addItem(Node node) {
+        m_items.add(node);
+    }
+
+    void setContextId(String contextId) {
+        m_contextId = contextId;
+    }
+
+    void setEndOfSequence(boolean endOfSequence) {
+        m_endOfSequence = endOfSequence;
+    }
+
+    void setResponseLength(long responseLength) {
+        m_responseLength = responseLength;
+    }
+
+    String getContextId() {
+        return m_contextId;
+    }
+
+    boolean isEndOfSequence() {
+        return m_endOfSequence;
+    }
+
+    int getItemCount() {
+        return m_items.size();
+    }
+
+    /**
+     * @return the length of the decoded response, in bytes, or -1 if unknown
+     */
+    long getResponseLength() {
+        return m_responseLength;
+    }
+
+    /**
+     * Moves the items from this page to the given list.
+     *
+     * @return true if this page contains an 'end-of-sequence' marker
+     */
+    boolean drainTo(List<Node> nodes) {
+        nodes.addAll(m_items);
+        m_items.clear();
+        return m_endOfSequence;
+    }
+}
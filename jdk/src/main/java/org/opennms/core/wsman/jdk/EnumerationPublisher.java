@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.jdk;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opennms.core.wsman.WSManClient;
+import org.w3c.dom.Node;
+
+/**
+ * Publishes the elements of an enumeration, pulling pages as they are requested.
+ *
+ * Every subscriber gets its own enumeration. Pages are only retrieved once the
+ * elements of the previous page were delivered, and while there is outstanding
+ * demand, which also bounds the number of elements requested with every page.
+ * A slow subscriber therefore paces the enumeration, and no more than a page
+ * of elements is ever held on its behalf.
+ *
+ * Cancelling the subscription before reaching the end of the sequence, or failing
+ * to retrieve a page, releases the enumeration context.
+ *
+ * Requests are issued with {@link WSManClient#enumerateAndPullPage} and {@link WSManClient#pullPage},
+ * and block the executor's thread while they are in progress. Works with any client,
+ * although those that don't support choosing the page size fall back to the endpoint's.
+ */
+public class EnumerationPublisher implements Flow.Publisher<Node> {
+
+    /**
+     * Default maximum number of elements requested with a single page.
+     */
+    public static final int DEFAULT_MAX_ELEMENTS = 32;
+
+    private final WSManClient m_client;
+    private final String m_resourceUri;
+    private final String m_dialect;
+    private final String m_filter;
+    private final int m_maxElements;
+    private final Executor m_executor;
+
+    private EnumerationPublisher(Builder builder) {
+        m_client = builder.client;
+        m_resourceUri = builder.resourceUri;
+        m_dialect = builder.dialect;
+        m_filter = builder.filter;
+        m_maxElements = builder.maxElements;
+        m_executor = builder.executor;
+    }
+
+    public static class Builder {
+       private final WSManClient client;
+       private final String resourceUri;
+       private String dialect;
+       private String filter;
+       private int maxElements = DEFAULT_MAX_ELEMENTS;
+       private Executor executor = ForkJoinPool.commonPool();
+
+       public Builder(WSManClient client, String resourceUri) {
+           this.client = Objects.requireNonNull(client, "client cannot be null");
+           this.resourceUri = Objects.requireNonNull(resourceUri, "resourceUri cannot be null");
+       }
+
+       public Builder withFilter(String dialect, String filter) {
+           this.dialect = Objects.requireNonNull(dialect, "dialect cannot be null");
+           this.filter = Objects.requireNonNull(filter, "filter cannot be null");
+           return this;
+       }
+
+       /**
+        * Sets the maximum number of elements requested with a single page,
+        * regardless of the outstanding demand.
+        */
+       public Builder withMaxElements(int maxElements) {
+           if (maxElements < 1) {
+               throw new IllegalArgumentException("maxElements must be strictly positive");
+           }
+           this.maxElements = maxElements;
+           return this;
+       }
+
+       /**
+        * Issues the requests, and signals the subscribers, using the given executor.
+        * Defaults to the common pool.
+        */
+       public Builder withExecutor(Executor executor) {
+           this.executor = Objects.requireNonNull(executor, "executor cannot be null");
+           return this;
+       }
+
+       public EnumerationPublisher build() {
+           return new EnumerationPublisher(this);
+       }
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Node> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber cannot be null");
+        final EnumerationSubscription subscription = new EnumerationSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * Tracks the state of a single enumeration.
+     *
+     * The subscriber is only ever signaled from the drain loop, which never runs
+     * concurrently with itself: calls to {@link #request(long)} and {@link #cancel()}
+     * only record the new state, and schedule the loop if it isn't already running.
+     */
+    private class EnumerationSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super Node> m_subscriber;
+        private final AtomicLong m_demand = new AtomicLong();
+        private final AtomicInteger m_pending = new AtomicInteger();
+        private volatile boolean m_cancelled = false;
+        private volatile Throwable m_invalidRequest;
+
+        // All of the following are confined to the drain loop
+        private final Deque<Node> m_page = new ArrayDeque<>();
+        private String m_contextId;
+        private boolean m_started = false;
+        private boolean m_done = false;
+
+        private EnumerationSubscription(Flow.Subscriber<? super Node> subscriber) {
+            m_subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                m_invalidRequest = new IllegalArgumentException("The number of requested elements must be strictly positive, got: " + n);
+            } else {
+                // Cap at Long.MAX_VALUE, which means unbounded
+                m_demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            m_cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (m_pending.getAndIncrement() == 0) {
+                try {
+                    m_executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    m_cancelled = true;
+                    m_subscriber.onError(e);
+                }
+            }
+        }
+
+        private void drain() {
+            int pending = m_pending.get();
+            do {
+                drainOnce();
+                pending = m_pending.addAndGet(-pending);
+            } while (pending != 0);
+        }
+
+        /**
+         * Delivers as many elements as possible, retrieving the next page if needed.
+         */
+        private void drainOnce() {
+            while (!m_done) {
+                if (m_cancelled) {
+                    terminate();
+                    return;
+                } else if (m_invalidRequest != null) {
+                    terminate();
+                    m_subscriber.onError(m_invalidRequest);
+                    return;
+                }
+
+                // Deliver what we have
+                final long demand = m_demand.get();
+                long delivered = 0;
+                while (delivered < demand && !m_page.isEmpty() && !m_cancelled) {
+                    try {
+                        m_subscriber.onNext(m_page.poll());
+                    } catch (RuntimeException e) {
+                        // The subscriber is broken, stop here
+                        m_cancelled = true;
+                        break;
+                    }
+                    delivered++;
+                }
+                if (delivered > 0 && demand != Long.MAX_VALUE) {
+                    m_demand.addAndGet(-delivered);
+                }
+                if (m_cancelled || !m_page.isEmpty()) {
+                    continue;
+                }
+
+                if (m_started && m_contextId == null) {
+                    m_done = true;
+                    m_subscriber.onComplete();
+                    return;
+                } else if (m_demand.get() == 0) {
+                    // Wait for the subscriber to ask for more
+                    return;
+                }
+
+                // Retrieve the next page, asking for no more than what was requested
+                final int maxElements = (int)Math.min(m_demand.get(), m_maxElements);
+                final List<Node> nodes = new ArrayList<>(maxElements);
+                final String contextId = m_contextId;
+                m_contextId = null;
+                try {
+                    if (!m_started) {
+                        m_started = true;
+                        m_contextId = m_client.enumerateAndPullPage(m_resourceUri, m_dialect, m_filter, maxElements, nodes);
+                    } else {
+                        m_contextId = m_client.pullPage(contextId, m_resourceUri, maxElements, nodes);
+                    }
+                } catch (RuntimeException e) {
+                    m_done = true;
+                    if (contextId != null) {
+                        // Don't leave the context open on the server
+                        try {
+                            m_client.release(contextId, m_resourceUri);
+                        } catch (RuntimeException releaseFailure) {
+                            e.addSuppressed(releaseFailure);
+                        }
+                    }
+                    m_subscriber.onError(e);
+                    return;
+                }
+                m_page.addAll(nodes);
+            }
+        }
+
+        /**
+         * Stops the enumeration, releasing the context if the end of the sequence wasn't reached.
+         */
+        private void terminate() {
+            m_done = true;
+            m_page.clear();
+            if (m_contextId != null) {
+                final String contextId = m_contextId;
+                m_contextId = null;
+                try {
+                    m_client.release(contextId, m_resourceUri);
+                } catch (RuntimeException e) {
+                    // The context will expire on its own
+                }
+            }
+        }
+    }
+}
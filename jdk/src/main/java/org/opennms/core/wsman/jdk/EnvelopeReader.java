@@ -0,0 +1,401 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.jdk;
+
+import java.io.InputStream;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.opennms.core.wsman.WSManConstants;
+import org.opennms.core.wsman.exceptions.WSManException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Reads the responses received by the {@link JdkWSManClient} using StAX.
+ *
+ * The envelope and its headers are skipped over, and the contents of
+ * the body are read straight from the stream. Only the elements that are
+ * handed back to the caller are built as DOM nodes.
+ */
+final class EnvelopeReader {
+
+    private static final String ENVELOPE = "Envelope";
+    private static final String BODY = "Body";
+    private static final String FAULT = "Fault";
+    private static final String CODE = "Code";
+    private static final String SUBCODE = "Subcode";
+    private static final String VALUE = "Value";
+    private static final String REASON = "Reason";
+    private static final String TEXT = "Text";
+    private static final String ITEMS = "Items";
+    private static final String END_OF_SEQUENCE = "EndOfSequence";
+    private static final String ENUMERATION_CONTEXT = "EnumerationContext";
+    private static final String XML_FRAGMENT = "XmlFragment";
+    private static final String PROTOCOL_VERSION = "ProtocolVersion";
+    private static final String PRODUCT_VENDOR = "ProductVendor";
+    private static final String PRODUCT_VERSION = "ProductVersion";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+    static {
+        // We never need to resolve anything outside of the response
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    }
+
+    private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY = DocumentBuilderFactory.newInstance();
+
+    // Builders aren't thread safe, so every thread keeps its own and only goes through the factory once
+    private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDER = ThreadLocal.withInitial(() -> {
+        // The DocumentBuilderFactory provides no guarantees on thread safety
+        synchronized(DOCUMENT_BUILDER_FACTORY) {
+            try {
+                return DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
+            } catch (ParserConfigurationException e) {
+                throw new WSManException("Failed to create a new document builder.", e);
+            }
+        }
+    });
+
+    /**
+     * Reads the contents of the body.
+     */
+    @FunctionalInterface
+    interface BodyReader<T> {
+        /**
+         * @param reader positioned on the first element of the body,
+         * or on the end of the body if it is empty
+         */
+        T read(XMLStreamReader reader) throws XMLStreamException;
+    }
+
+    private EnvelopeReader() {
+    }
+
+    /**
+     * Reads a response envelope.
+     *
+     * @param is the response
+     * @param bodyReader reads the contents of the body
+     * @return the value returned by the body reader
+     * @throws FaultResponse if the body contains a fault
+     */
+    static <T> T read(InputStream is, BodyReader<T> bodyReader) throws XMLStreamException, FaultResponse {
+        final XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(is);
+        try {
+            if (!toNextStartElement(reader) || !isSoap(reader, ENVELOPE)) {
+                throw new XMLStreamException("The response is not a SOAP envelope.");
+            }
+            // Skip over the header, and any other extensions
+            int event = reader.nextTag();
+            while (event == XMLStreamConstants.START_ELEMENT && !isSoap(reader, BODY)) {
+                skipElement(reader);
+                event = reader.nextTag();
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                throw new XMLStreamException("The SOAP envelope has no body.");
+            }
+
+            reader.nextTag();
+            if (reader.isStartElement() && isSoap(reader, FAULT)) {
+                throw readFault(reader);
+            }
+            return bodyReader.read(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    static IdentifyResponse readIdentity(XMLStreamReader reader) throws XMLStreamException {
+        if (!reader.isStartElement()) {
+            throw new XMLStreamException("The response body is empty.");
+        }
+        final IdentifyResponse identity = new IdentifyResponse();
+        int event = reader.nextTag();
+        while (event == XMLStreamConstants.START_ELEMENT) {
+            final String localName = reader.getLocalName();
+            if (!WSManConstants.XML_NS_DMTF_WSMAN_IDENTITY_V1.equals(reader.getNamespaceURI())) {
+                skipElement(reader);
+            } else if (PROTOCOL_VERSION.equals(localName)) {
+                identity.addProtocolVersion(reader.getElementText().trim());
+            } else if (PRODUCT_VENDOR.equals(localName)) {
+                identity.setProductVendor(reader.getElementText().trim());
+            } else if (PRODUCT_VERSION.equals(localName)) {
+                identity.setProductVersion(reader.getElementText().trim());
+            } else {
+                skipElement(reader);
+            }
+            event = reader.nextTag();
+        }
+        return identity;
+    }
+
+    /**
+     * Reads an EnumerateResponse or a PullResponse.
+     */
+    static EnumerationPage readPage(XMLStreamReader reader) throws XMLStreamException {
+        if (!reader.isStartElement()) {
+            throw new XMLStreamException("The response body is empty.");
+        }
+        final EnumerationPage page = new EnumerationPage();
+        int event = reader.nextTag();
+        while (event == XMLStreamConstants.START_ELEMENT) {
+            final String namespace = reader.getNamespaceURI();
+            final String localName = reader.getLocalName();
+            if (ENUMERATION_CONTEXT.equals(localName) && WSManConstants.XML_NS_WS_2004_09_ENUMERATION.equals(namespace)) {
+                // The EnumerationContext can be empty if we issue an optimized enumeration
+                // and all of the records are immediately returned
+                final String contextId = reader.getElementText().trim();
+                page.setContextId(contextId.isEmpty() ? null : contextId);
+            } else if (ITEMS.equals(localName) && isEnumerationNamespace(namespace)) {
+                readItems(reader, page);
+            } else if (END_OF_SEQUENCE.equals(localName) && isEnumerationNamespace(namespace)) {
+                page.setEndOfSequence(true);
+                skipElement(reader);
+            } else {
+                // Ignore any other extensions
+                skipElement(reader);
+            }
+            event = reader.nextTag();
+        }
+        return page;
+    }
+
+    /**
+     * Reads the first element of the body, i.e. the resource returned by a Get.
+     */
+    static Element readElement(XMLStreamReader reader) throws XMLStreamException {
+        if (!reader.isStartElement()) {
+            throw new XMLStreamException("The response body is empty.");
+        }
+        final Document document = createNewDocument();
+        return readElement(reader, document, document);
+    }
+
+    /**
+     * Ignores the contents of the body, which may be empty.
+     */
+    static Void skipBody(XMLStreamReader reader) {
+        return null;
+    }
+
+    private static FaultResponse readFault(XMLStreamReader reader) throws XMLStreamException {
+        QName code = null;
+        QName subcode = null;
+        String reason = null;
+        int event = reader.nextTag();
+        while (event == XMLStreamConstants.START_ELEMENT) {
+            if (isSoap(reader, CODE)) {
+                int codeEvent = reader.nextTag();
+                while (codeEvent == XMLStreamConstants.START_ELEMENT) {
+                    if (isSoap(reader, VALUE)) {
+                        code = readQName(reader);
+                    } else if (isSoap(reader, SUBCODE)) {
+                        subcode = readSubcode(reader);
+                    } else {
+                        skipElement(reader);
+                    }
+                    codeEvent = reader.nextTag();
+                }
+            } else if (isSoap(reader, REASON)) {
+                int reasonEvent = reader.nextTag();
+                while (reasonEvent == XMLStreamConstants.START_ELEMENT) {
+                    if (reason == null && isSoap(reader, TEXT)) {
+                        reason = reader.getElementText().trim();
+                    } else {
+                        skipElement(reader);
+                    }
+                    reasonEvent = reader.nextTag();
+                }
+            } else {
+                // Ignore the details
+                skipElement(reader);
+            }
+            event = reader.nextTag();
+        }
+        return new FaultResponse(code, subcode, reason);
+    }
+
+    private static QName readSubcode(XMLStreamReader reader) throws XMLStreamException {
+        // Only the outermost subcode is kept, nested ones are skipped along with the element
+        QName subcode = null;
+        int event = reader.nextTag();
+        while (event == XMLStreamConstants.START_ELEMENT) {
+            if (subcode == null && isSoap(reader, VALUE)) {
+                subcode = readQName(reader);
+            } else {
+                skipElement(reader);
+            }
+            event = reader.nextTag();
+        }
+        return subcode;
+    }
+
+    private static QName readQName(XMLStreamReader reader) throws XMLStreamException {
+        final String value = reader.getElementText().trim();
+        final int colon = value.indexOf(':');
+        final String prefix = colon > 0 ? value.substring(0, colon) : XMLConstants.DEFAULT_NS_PREFIX;
+        // The prefixes declared on the element are still in scope on its end tag
+        final String namespace = reader.getNamespaceContext().getNamespaceURI(prefix);
+        return new QName(namespace, value.substring(colon + 1), prefix);
+    }
+
+    private static void readItems(XMLStreamReader reader, EnumerationPage page) throws XMLStreamException {
+        int event = reader.next();
+        while (event != XMLStreamConstants.END_ELEMENT) {
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (XML_FRAGMENT.equals(reader.getLocalName())
+                        && WSManConstants.XML_NS_DMTF_WSMAN_V1.equals(reader.getNamespaceURI())) {
+                    page.addItem(readFragment(reader));
+                } else {
+                    final Document document = createNewDocument();
+                    page.addItem(readElement(reader, document, document));
+                }
+            }
+            // Whitespace and comments between the items are skipped
+            event = reader.next();
+        }
+    }
+
+    private static Element readFragment(XMLStreamReader reader) throws XMLStreamException {
+        // Create a new document/node that contains the elements within the fragment
+        final Document document = createNewDocument();
+        final Element rootElement = document.createElementNS(WSManConstants.XML_NS_DMTF_WSMAN_V1, XML_FRAGMENT);
+        document.appendChild(rootElement);
+
+        int event = reader.next();
+        while (event != XMLStreamConstants.END_ELEMENT) {
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                readElement(reader, document, rootElement);
+            }
+            // Skip over whitespace
+            event = reader.next();
+        }
+        return rootElement;
+    }
+
+    /**
+     * Builds the element at the current position and appends it to the given parent,
+     * leaving the reader on its end tag.
+     */
+    private static Element readElement(XMLStreamReader reader, Document document, Node parent) throws XMLStreamException {
+        final String namespace = emptyToNull(reader.getNamespaceURI());
+        final String prefix = emptyToNull(reader.getPrefix());
+        final Element element = document.createElementNS(namespace, toQualifiedName(prefix, reader.getLocalName()));
+        parent.appendChild(element);
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            final String declaredPrefix = emptyToNull(reader.getNamespacePrefix(i));
+            element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+                    declaredPrefix == null ? XMLConstants.XMLNS_ATTRIBUTE : XMLConstants.XMLNS_ATTRIBUTE + ":" + declaredPrefix,
+                    reader.getNamespaceURI(i));
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            element.setAttributeNS(emptyToNull(reader.getAttributeNamespace(i)),
+                    toQualifiedName(emptyToNull(reader.getAttributePrefix(i)), reader.getAttributeLocalName(i)),
+                    reader.getAttributeValue(i));
+        }
+        // The prefixes may have been declared outside of the item, i.e. on the envelope
+        declareIfMissing(element, prefix, namespace);
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            final String attributePrefix = emptyToNull(reader.getAttributePrefix(i));
+            if (attributePrefix != null) {
+                declareIfMissing(element, attributePrefix, reader.getAttributeNamespace(i));
+            }
+        }
+
+        int event = reader.next();
+        while (event != XMLStreamConstants.END_ELEMENT) {
+            switch (event) {
+            case XMLStreamConstants.START_ELEMENT:
+                readElement(reader, document, element);
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.SPACE:
+                element.appendChild(document.createTextNode(reader.getText()));
+                break;
+            case XMLStreamConstants.CDATA:
+                element.appendChild(document.createCDATASection(reader.getText()));
+                break;
+            default:
+                // Comments and processing instructions are dropped
+                break;
+            }
+            event = reader.next();
+        }
+        return element;
+    }
+
+    private static Document createNewDocument() {
+        return DOCUMENT_BUILDER.get().newDocument();
+    }
+
+    private static void declareIfMissing(Element element, String prefix, String namespace) {
+        if (namespace != null && !namespace.equals(element.lookupNamespaceURI(prefix))) {
+            element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+                    prefix == null ? XMLConstants.XMLNS_ATTRIBUTE : XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix,
+                    namespace);
+        }
+    }
+
+    private static String toQualifiedName(String prefix, String localName) {
+        return prefix == null ? localName : prefix + ":" + localName;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static boolean isSoap(XMLStreamReader reader, String localName) {
+        return localName.equals(reader.getLocalName()) && Envelopes.NS_SOAP_ENV.equals(reader.getNamespaceURI());
+    }
+
+    private static boolean isEnumerationNamespace(String namespace) {
+        return WSManConstants.XML_NS_WS_2004_09_ENUMERATION.equals(namespace)
+                || WSManConstants.XML_NS_DMTF_WSMAN_V1.equals(namespace);
+    }
+
+    private static boolean toNextStartElement(XMLStreamReader reader) throws XMLStreamException {
+        while (!reader.isStartElement()) {
+            if (!reader.hasNext()) {
+                return false;
+            }
+            reader.next();
+        }
+        return true;
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.jdk;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.opennms.core.wsman.WSManConstants;
+import org.opennms.core.wsman.WSManEndpoint;
+import org.opennms.core.wsman.WSManVersion;
+
+/**
+ * Writes the envelopes of the requests issued by the {@link JdkWSManClient}.
+ *
+ * The envelopes match those written by the CXF implementation, using the
+ * same prefixes, so that servers can't tell the two apart.
+ */
+final class Envelopes {
+
+    static final String NS_SOAP_ENV = "http://www.w3.org/2003/05/soap-envelope";
+    private static final String NS_WSA = "http://www.w3.org/2005/08/addressing";
+    private static final String WSA_ANONYMOUS_ADDRESS = WSManConstants.XML_NS_WS_2004_08_ADDRESSING + "/role/anonymous";
+    private static final String ACTION_ENUMERATE = WSManConstants.XML_NS_WS_2004_09_ENUMERATION + "/Enumerate";
+    private static final String ACTION_PULL = WSManConstants.XML_NS_WS_2004_09_ENUMERATION + "/Pull";
+    private static final String ACTION_RELEASE = WSManConstants.XML_NS_WS_2004_09_ENUMERATION + "/Release";
+    private static final String ACTION_GET = WSManConstants.XML_NS_WS_2004_09_TRANSFER + "/Get";
+
+    private Envelopes() {
+    }
+
+    static String identify() {
+        // The Identify command does not require any headers but Windows Server 2008
+        // fails if the SOAP Envelope Header section is missing. In order to work around this
+        // we add the ResourceURI header, which should be ignored.
+        final StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        sb.append("<soap:Envelope xmlns:soap=\"").append(NS_SOAP_ENV).append("\"")
+            .append(" xmlns:wsman=\"").append(WSManConstants.XML_NS_DMTF_WSMAN_V1).append("\"")
+            .append(" xmlns:wsmid=\"").append(WSManConstants.XML_NS_DMTF_WSMAN_IDENTITY_V1).append("\">");
+        sb.append("<soap:Header>");
+        sb.append("<wsman:ResourceURI>").append(escape(WSManConstants.CIM_ALL_AVAILABLE_CLASSES)).append("</wsman:ResourceURI>");
+        sb.append("</soap:Header>");
+        sb.append("<soap:Body><wsmid:Identify/></soap:Body>");
+        sb.append("</soap:Envelope>");
+        return sb.toString();
+    }
+
+    static String enumerate(WSManEndpoint endpoint, String resourceUri, String dialect, String filter, boolean optimized,
+            Integer maxElements) {
+        final StringBuilder body = new StringBuilder();
+        body.append("<wsen:Enumerate>");
+        if (dialect != null && filter != null) {
+            body.append("<wsman:Filter Dialect=\"").append(escape(dialect)).append("\">")
+                .append(escape(filter)).append("</wsman:Filter>");
+        }
+        if (optimized) {
+            body.append("<wsman:OptimizeEnumeration/>");
+        }
+        if (endpoint.getMaxEnvelopeSize() != null) {
+            body.append("<wsman:MaxEnvelopeSize>").append(endpoint.getMaxEnvelopeSize()).append("</wsman:MaxEnvelopeSize>");
+        }
+        if (maxElements != null) {
+            body.append("<wsman:MaxElements>").append(maxElements).append("</wsman:MaxElements>");
+        }
+        body.append("</wsen:Enumerate>");
+        return envelope(endpoint, ACTION_ENUMERATE, resourceUri, null, body);
+    }
+
+    static String pull(WSManEndpoint endpoint, String resourceUri, String contextId, Integer maxElements) {
+        final StringBuilder body = new StringBuilder();
+        body.append("<wsen:Pull>");
+        body.append("<wsen:EnumerationContext>").append(escape(contextId)).append("</wsen:EnumerationContext>");
+        if (maxElements != null) {
+            body.append("<wsen:MaxElements>").append(maxElements).append("</wsen:MaxElements>");
+        }
+        body.append("</wsen:Pull>");
+        return envelope(endpoint, ACTION_PULL, resourceUri, null, body);
+    }
+
+    static String release(WSManEndpoint endpoint, String resourceUri, String contextId) {
+        final StringBuilder body = new StringBuilder();
+        body.append("<wsen:Release>");
+        body.append("<wsen:EnumerationContext>").append(escape(contextId)).append("</wsen:EnumerationContext>");
+        body.append("</wsen:Release>");
+        return envelope(endpoint, ACTION_RELEASE, resourceUri, null, body);
+    }
+
+    static String get(WSManEndpoint endpoint, String resourceUri, Map<String, String> selectors) {
+        return envelope(endpoint, ACTION_GET, resourceUri, selectors, new StringBuilder());
+    }
+
+    private static String envelope(WSManEndpoint endpoint, String action, String resourceUri, Map<String, String> selectors,
+            StringBuilder body) {
+        // WS-Man 1.0 does not support the W3C WS-Addressing
+        final String addressingNamespace = endpoint.getServerVersion() == WSManVersion.WSMAN_1_0 ?
+                WSManConstants.XML_NS_WS_2004_08_ADDRESSING : NS_WSA;
+        final StringBuilder sb = new StringBuilder(512 + body.length());
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        sb.append("<soap:Envelope xmlns:soap=\"").append(NS_SOAP_ENV).append("\"")
+            .append(" xmlns:wsa=\"").append(addressingNamespace).append("\"")
+            .append(" xmlns:wsen=\"").append(WSManConstants.XML_NS_WS_2004_09_ENUMERATION).append("\"")
+            .append(" xmlns:wsman=\"").append(WSManConstants.XML_NS_DMTF_WSMAN_V1).append("\">");
+        sb.append("<soap:Header>");
+        sb.append("<wsa:Action>").append(action).append("</wsa:Action>");
+        sb.append("<wsa:MessageID>urn:uuid:").append(UUID.randomUUID()).append("</wsa:MessageID>");
+        sb.append("<wsa:To>").append(escape(endpoint.getUrl().toExternalForm())).append("</wsa:To>");
+        sb.append("<wsa:ReplyTo><wsa:Address>").append(WSA_ANONYMOUS_ADDRESS).append("</wsa:Address></wsa:ReplyTo>");
+        sb.append("<wsa:FaultTo><wsa:Address>").append(WSA_ANONYMOUS_ADDRESS).append("</wsa:Address></wsa:FaultTo>");
+        sb.append("<wsman:ResourceURI>").append(escape(resourceUri)).append("</wsman:ResourceURI>");
+        if (selectors != null && !selectors.isEmpty()) {
+            sb.append("<wsman:SelectorSet>");
+            // Sort the selectors so that the same request always produces the same envelope
+            for (Map.Entry<String, String> selector : new TreeMap<>(selectors).entrySet()) {
+                sb.append("<wsman:Selector Name=\"").append(escape(selector.getKey())).append("\">")
+                    .append(escape(selector.getValue())).append("</wsman:Selector>");
+            }
+            sb.append("</wsman:SelectorSet>");
+        }
+        sb.append("</soap:Header>");
+        if (body.length() > 0) {
+            sb.append("<soap:Body>").append(body).append("</soap:Body>");
+        } else {
+            sb.append("<soap:Body/>");
+        }
+        sb.append("</soap:Envelope>");
+        return sb.toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
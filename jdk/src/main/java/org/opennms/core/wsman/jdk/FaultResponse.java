@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.jdk;
+
+import javax.xml.namespace.QName;
+
+/**
+ * A SOAP 1.2 fault returned by the server, read by the {@link EnvelopeReader}.
+ *
+ * Used as the cause of the exceptions thrown by the client.
+ */
+class FaultResponse extends Exception {
+    private static final long serialVersionUID = 2807416380357329616L;
+
+    private final QName m_code;
+    private final QName m_subcode;
+
+    FaultResponse(QName code, QName subcode, String reason) {
+        super(String.format("%s%s: %s", code, subcode != null ? "/" + subcode : "", reason));
+        m_code = code;
+        m_subcode = subcode;
+    }
+
+    QName getCode() {
+        return m_code;
+    }
+
+    /**
+     * @return the first subcode, or null if none was set
+     */
+    QName getSubcode() {
+        return m_subcode;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.jdk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.opennms.core.wsman.Identity;
+
+/**
+ * The contents of an IdentifyResponse, filled by the {@link EnvelopeReader}.
+ */
+class IdentifyResponse implements Identity {
+
+    private final List<String> m_protocolVersions = new ArrayList<>();
+    private String m_productVendor;
+    private String m_productVersion;
+
+    void addProtocolVersion(String protocolVersion) {
+        m_protocolVersions.add(protocolVersion);
+    }
+
+    void setProductVendor(String productVendor) {
+        m_productVendor = productVendor;
+    }
+
+    void setProductVersion(String productVersion) {
+        m_productVersion = productVersion;
+    }
+
+    @Override
+    public List<String> getProtocolVersions() {
+        return m_protocolVersions;
+    }
+
+    @Override
+    public String getProductVendor() {
+        return m_productVendor;
+    }
+
+    @Override
+    public String getProductVersion() {
+        return m_productVersion;
+    }
+
+    public String toString() {
+        return String.format("IdentifyResponse[protocolVersions='%s', productVendor='%s', productVersion='%s']",
+                m_protocolVersions, m_productVendor, m_productVersion);
+    }
+}
@@ -0,0 +1,584 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.jdk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+
+import org.opennms.core.wsman.EnumerationIterator;
+import org.opennms.core.wsman.Identity;
+import org.opennms.core.wsman.WSManCapabilitiesCache;
+import org.opennms.core.wsman.WSManClient;
+import org.opennms.core.wsman.WSManConstants;
+import org.opennms.core.wsman.WSManEndpoint;
+import org.opennms.core.wsman.WSManHedger;
+import org.opennms.core.wsman.WSManMetricsListener;
+import org.opennms.core.wsman.WSManPageSizeTuner;
+import org.opennms.core.wsman.WSManRequestMetrics;
+import org.opennms.core.wsman.WSManRequestMetrics.Operation;
+import org.opennms.core.wsman.exceptions.EncodingLimitException;
+import org.opennms.core.wsman.exceptions.HTTPException;
+import org.opennms.core.wsman.exceptions.InvalidResourceURI;
+import org.opennms.core.wsman.exceptions.SOAPFault;
+import org.opennms.core.wsman.exceptions.UnauthorizedException;
+import org.opennms.core.wsman.exceptions.WSManException;
+import org.opennms.core.wsman.jdk.EnvelopeReader.BodyReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Node;
+
+/**
+ * A WS-Man client built on the HTTP client and the StAX parser that ship with the JDK.
+ *
+ * Envelopes are written as strings, and responses are parsed as they are
+ * read from the connection, so issuing a request doesn't require building
+ * any proxies, bindings or interceptor chains.
+ *
+ * Only the operations of the {@link WSManClient} interface are supported.
+ * GSS authentication, sessions, pull prefetching and the tracking of open
+ * enumeration contexts are not. Connections are always kept alive, and
+ * pooled by the {@link HttpClient} provided by the factory, so the keep-alive
+ * and pool settings of the endpoint are ignored.
+ */
+public class JdkWSManClient implements WSManClient {
+    private static final Logger LOG = LoggerFactory.getLogger(JdkWSManClient.class);
+    private static final String CONTENT_TYPE_HEADER = "Content-Type";
+    private static final String MEDIA_TYPE_SOAP_UTF8 = "application/soap+xml;charset=UTF-8";
+    private static final String AUTHORIZATION_HEADER = "Authorization";
+    private static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+    private static final String ACCEPT_ENCODING_GZIP_DEFLATE = "gzip, deflate";
+    private static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+
+    /**
+     * Servers that returned a compressed response, and are therefore
+     * assumed to accept compressed requests, keyed by host and port.
+     */
+    private static final Set<String> s_compressingServers = ConcurrentHashMap.newKeySet();
+
+    private final WSManEndpoint m_endpoint;
+    private final HttpClient m_httpClient;
+    private final URI m_uri;
+    private final String m_server;
+    private final String m_authorization;
+
+    protected JdkWSManClient(WSManEndpoint endpoint, HttpClient httpClient) {
+        m_endpoint = Objects.requireNonNull(endpoint, "endpoint cannot be null");
+        m_httpClient = Objects.requireNonNull(httpClient, "httpClient cannot be null");
+        if (endpoint.isGSSAuth()) {
+            throw new IllegalArgumentException("GSS authentication is not supported by the JDK client.");
+        }
+        try {
+            m_uri = endpoint.getUrl().toURI();
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid endpoint URL: " + endpoint.getUrl(), e);
+        }
+        m_server = String.format("%s:%d", m_uri.getHost(), endpoint.getUrl().getPort() != -1
+                ? endpoint.getUrl().getPort() : endpoint.getUrl().getDefaultPort());
+        if (endpoint.isBasicAuth()) {
+            // Sent with every request, instead of waiting to be challenged
+            final String credentials = endpoint.getUsername() + ":" + endpoint.getPassword();
+            m_authorization = "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+        } else {
+            m_authorization = null;
+        }
+    }
+
+    /**
+     * Retrieves the endpoint used to issue the Enumeration and Transfer operations.
+     *
+     * When server version negotiation is enabled, the server is identified on first use,
+     * and the endpoint is updated to use the version that matches its capabilities.
+     * The Identify operation itself is always issued using the configured endpoint.
+     */
+    protected WSManEndpoint getNegotiatedEndpoint() {
+        if (!m_endpoint.isServerVersionNegotiation()) {
+            return m_endpoint;
+        }
+        try {
+            return WSManCapabilitiesCache.getDefault().get(m_endpoint, e -> identify()).applyTo(m_endpoint);
+        } catch (RuntimeException e) {
+            LOG.debug("Failed to identify {}. Using the configured server version: {}.",
+                    m_endpoint.getUrl(), m_endpoint.getServerVersion(), e);
+            return m_endpoint;
+        }
+    }
+
+    @Override
+    public Identity identify() {
+        final WSManHedger hedger = WSManHedger.getHedger(m_endpoint);
+        if (hedger == null) {
+            return measure(Operation.IDENTIFY, null, -1,
+                    trace -> send(Envelopes.identify(), EnvelopeReader::readIdentity, trace), identity -> -1);
+        }
+        return hedger.invokeAsync("Identify", attempt -> measureAsync(Operation.IDENTIFY, null, -1,
+                trace -> sendAsync(Envelopes.identify(), EnvelopeReader::readIdentity, trace, attempt.getCancellation()), identity -> -1));
+    }
+
+    @Override
+    public Node get(String resourceUri, Map<String, String> selectors) {
+        final WSManEndpoint endpoint = getNegotiatedEndpoint();
+        final WSManHedger hedger = WSManHedger.getHedger(m_endpoint);
+        if (hedger == null) {
+            return measure(Operation.GET, resourceUri, -1,
+                    trace -> send(Envelopes.get(endpoint, resourceUri, selectors), EnvelopeReader::readElement, trace), node -> 1);
+        }
+        return hedger.invokeAsync("Get " + resourceUri, attempt -> measureAsync(Operation.GET, resourceUri, -1,
+                trace -> sendAsync(Envelopes.get(endpoint, resourceUri, selectors), EnvelopeReader::readElement, trace, attempt.getCancellation()),
+                node -> 1));
+    }
+
+    @Override
+    public String enumerate(String resourceUri) {
+        return enumerate(resourceUri, null, null, false).getContextId();
+    }
+
+    @Override
+    public String enumerateWithFilter(String resourceUri, String dialect, String filter) {
+        return enumerate(resourceUri, dialect, filter, false).getContextId();
+    }
+
+    @Override
+    public String enumerateAndPull(String resourceUri, List<Node> nodes, boolean recursive) {
+        return enumerateAndPull(resourceUri, null, null, nodes, recursive);
+    }
+
+    @Override
+    public String enumerateAndPullUsingFilter(String resourceUri, String dialect, String filter, List<Node> nodes, boolean recursive) {
+        return enumerateAndPull(resourceUri, dialect, filter, nodes, recursive);
+    }
+
+    @Override
+    public String pull(String contextId, String resourceUri, List<Node> nodes, boolean recursive) {
+        // When pulling recursively, the caller can't resume from where we failed
+        return pull(contextId, resourceUri, nodes, recursive, recursive, -1);
+    }
+
+    @Override
+    public String enumerateAndPullPage(String resourceUri, String dialect, String filter, int maxElements, List<Node> nodes) {
+        // The page size is chosen by the caller, so it isn't adapted
+        final EnumerationPage page = enumerate(resourceUri, dialect, filter, true, maxElements);
+        boolean endOfSequence = page.drainTo(nodes);
+        return endOfSequence ? null : page.getContextId();
+    }
+
+    @Override
+    public String pullPage(String contextId, String resourceUri, int maxElements, List<Node> nodes) {
+        final EnumerationPage page = pull(contextId, resourceUri, -1, maxElements);
+        boolean endOfSequence = page.drainTo(nodes);
+        return endOfSequence ? null : page.getContextId();
+    }
+
+    @Override
+    public void release(String contextId, String resourceUri) {
+        final WSManEndpoint endpoint = getNegotiatedEndpoint();
+        send(Envelopes.release(endpoint, resourceUri, contextId), EnvelopeReader::skipBody, null);
+    }
+
+    /**
+     * Releases the given context, logging instead of throwing any failures.
+     */
+    protected void releaseQuietly(String contextId, String resourceUri) {
+        try {
+            release(contextId, resourceUri);
+        } catch (RuntimeException e) {
+            LOG.debug("Failed to release enumeration context {} for {}.", contextId, resourceUri, e);
+        }
+    }
+
+    @Override
+    public Stream<Node> enumerateAndStream(String resourceUri) {
+        return enumerateAndStream(resourceUri, null, null);
+    }
+
+    @Override
+    public Stream<Node> enumerateAndStreamUsingFilter(String resourceUri, String dialect, String filter) {
+        return enumerateAndStream(resourceUri, dialect, filter);
+    }
+
+    private Stream<Node> enumerateAndStream(String resourceUri, String dialect, String filter) {
+        final AtomicInteger pageNumber = new AtomicInteger();
+        return new EnumerationIterator(this, resourceUri, (contextId, nodes) -> {
+            // Issue an optimized enumeration for the first page, and pull the following ones
+            final EnumerationPage page = contextId == null ? enumerate(resourceUri, dialect, filter, true)
+                    : pull(contextId, resourceUri, pageNumber.incrementAndGet());
+            boolean endOfSequence = page.drainTo(nodes);
+            return endOfSequence ? null : page.getContextId();
+        }).stream();
+    }
+
+    private String enumerateAndPull(String resourceUri, String dialect, String filter, List<Node> nodes, boolean recursive) {
+        final EnumerationPage page = enumerate(resourceUri, dialect, filter, true);
+        if (page.drainTo(nodes)) {
+            return page.getContextId();
+        }
+        // The caller never sees the context if the pull fails, so don't leave it open
+        return pull(page.getContextId(), resourceUri, nodes, recursive, true, 1);
+    }
+
+    /**
+     * @param pageNumber position of the first page within its enumeration, or -1 if unknown
+     */
+    private String pull(String contextId, String resourceUri, List<Node> nodes, boolean recursive, boolean releaseOnError,
+            int pageNumber) {
+        String currentContextId = contextId;
+        int currentPageNumber = pageNumber;
+        while (currentContextId != null) {
+            final EnumerationPage page;
+            try {
+                page = pull(currentContextId, resourceUri, currentPageNumber);
+            } catch (RuntimeException e) {
+                if (releaseOnError) {
+                    releaseQuietly(currentContextId, resourceUri);
+                }
+                throw e;
+            }
+
+            // Collect the results
+            boolean endOfSequence = page.drainTo(nodes);
+            String nextContextId = page.getContextId();
+
+            // If we're pulling recursively, and we haven't hit the last element, continue pulling
+            if (!recursive || endOfSequence) {
+                return nextContextId;
+            }
+            currentContextId = nextContextId;
+            if (currentPageNumber >= 0) {
+                currentPageNumber++;
+            }
+        }
+        // There's nothing left to pull without a context, so treat it as the end of the sequence
+        return null;
+    }
+
+    private EnumerationPage enumerate(String resourceUri, String dialect, String filter, boolean optimized) {
+        return fetchPage(resourceUri, maxElements -> enumerate(resourceUri, dialect, filter, optimized, maxElements));
+    }
+
+    private EnumerationPage enumerate(String resourceUri, String dialect, String filter, boolean optimized, Integer maxElements) {
+        final WSManEndpoint endpoint = getNegotiatedEndpoint();
+        return measure(Operation.ENUMERATE, resourceUri, 0,
+                trace -> send(Envelopes.enumerate(endpoint, resourceUri, dialect, filter, optimized, maxElements),
+                        EnvelopeReader::readPage, trace), EnumerationPage::getItemCount);
+    }
+
+    private EnumerationPage pull(String contextId, String resourceUri, int pageNumber) {
+        final EnumerationPage page = fetchPage(resourceUri, maxElements -> pull(contextId, resourceUri, pageNumber, maxElements));
+        if (page.getContextId() == null && !page.isEndOfSequence()) {
+            // The context is optional in a PullResponse, the one we used remains valid when it's omitted
+            page.setContextId(contextId);
+        }
+        return page;
+    }
+
+    private EnumerationPage pull(String contextId, String resourceUri, int pageNumber, Integer maxElements) {
+        final WSManEndpoint endpoint = getNegotiatedEndpoint();
+        return measure(Operation.PULL, resourceUri, pageNumber,
+                trace -> send(Envelopes.pull(endpoint, resourceUri, contextId, maxElements),
+                        EnvelopeReader::readPage, trace), EnumerationPage::getItemCount);
+    }
+
+    /**
+     * Retrieves a page of results, adapting the page size if enabled.
+     *
+     * @param request issues the request for a page with the given maximum number of elements
+     */
+    private EnumerationPage fetchPage(String resourceUri, Function<Integer, EnumerationPage> request) {
+        final WSManPageSizeTuner tuner = m_endpoint.isAdaptivePageSize() ? WSManPageSizeTuner.getTuner(m_endpoint, resourceUri) : null;
+        while (true) {
+            final Integer maxElements = tuner != null ? Integer.valueOf(tuner.getPageSize()) : m_endpoint.getMaxElements();
+            final long start = System.nanoTime();
+            final EnumerationPage page;
+            try {
+                page = request.apply(maxElements);
+            } catch (EncodingLimitException e) {
+                // The context remains valid, so we can try again with a smaller page
+                if (tuner != null && tuner.onEncodingLimitExceeded(maxElements)) {
+                    continue;
+                }
+                throw e;
+            }
+            if (tuner != null) {
+                tuner.onPage(maxElements, page.getItemCount(), page.isEndOfSequence(), page.getResponseLength(),
+                        System.nanoTime() - start);
+            }
+            return page;
+        }
+    }
+
+    /**
+     * Issues a request, and notifies the metrics listener, if any, of its outcome.
+     *
+     * @param request issues the request, recording it in the given trace, which is null if there is no listener
+     * @param itemCount retrieves the number of items in the response
+     */
+    private <T> T measure(Operation operation, String resourceUri, int pageNumber, Function<RequestTrace, T> request,
+            ToIntFunction<T> itemCount) {
+        if (m_endpoint.getMetricsListener() == null) {
+            return request.apply(null);
+        }
+        final RequestTrace trace = new RequestTrace(System.nanoTime());
+        final T response;
+        try {
+            response = request.apply(trace);
+        } catch (RuntimeException e) {
+            report(operation, resourceUri, pageNumber, trace, -1, e);
+            throw e;
+        }
+        report(operation, resourceUri, pageNumber, trace, itemCount.applyAsInt(response), null);
+        return response;
+    }
+
+    /**
+     * Asynchronous variant of {@link #measure}.
+     */
+    private <T> CompletableFuture<T> measureAsync(Operation operation, String resourceUri, int pageNumber,
+            Function<RequestTrace, CompletableFuture<T>> request, ToIntFunction<T> itemCount) {
+        if (m_endpoint.getMetricsListener() == null) {
+            return request.apply(null);
+        }
+        final RequestTrace trace = new RequestTrace(System.nanoTime());
+        return request.apply(trace).whenComplete((response, t) -> report(operation, resourceUri, pageNumber, trace,
+                t == null ? itemCount.applyAsInt(response) : -1, t));
+    }
+
+    private void report(Operation operation, String resourceUri, int pageNumber, RequestTrace trace,
+            int itemCount, Throwable failure) {
+        final WSManMetricsListener listener = m_endpoint.getMetricsListener();
+        final Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        final long end = System.nanoTime();
+        final WSManRequestMetrics metrics = new WSManRequestMetrics.Builder(m_endpoint, operation)
+                .withResourceUri(resourceUri)
+                .withPageNumber(pageNumber)
+                .withDuration(end - trace.getStart())
+                .withPhases(m_endpoint.isPhaseTiming() ? trace.getPhases(end) : Collections.emptyMap())
+                .withRequestBytes(trace.getSentBytes())
+                .withResponseBytes(trace.getReceivedBytes())
+                .withItemCount(itemCount)
+                .withFailure(cause)
+                .build();
+        try {
+            listener.onRequest(metrics);
+        } catch (RuntimeException e) {
+            LOG.warn("The metrics listener failed on {}.", metrics, e);
+        }
+    }
+
+    /**
+     * Sends the given envelope, and waits for the response.
+     *
+     * @param trace records the progress of the request, or null
+     */
+    private <T> T send(String envelope, BodyReader<T> bodyReader, RequestTrace trace) {
+        final HttpResponse<InputStream> response;
+        try {
+            response = m_httpClient.send(createRequest(envelope, trace), createBodyHandler(trace));
+        } catch (IOException e) {
+            throw new WSManException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WSManException(e);
+        }
+        return readResponse(response, bodyReader, trace);
+    }
+
+    /**
+     * Sends the given envelope, without waiting for the response.
+     *
+     * @param cancellation aborts the request when completed
+     */
+    private <T> CompletableFuture<T> sendAsync(String envelope, BodyReader<T> bodyReader, RequestTrace trace,
+            CompletableFuture<Void> cancellation) {
+        final CompletableFuture<HttpResponse<InputStream>> future = m_httpClient.sendAsync(
+                createRequest(envelope, trace), createBodyHandler(trace));
+        cancellation.whenComplete((v, t) -> future.cancel(true));
+        return future.handle((response, t) -> {
+            if (t != null) {
+                throw wrapException(t);
+            }
+            return readResponse(response, bodyReader, trace);
+        });
+    }
+
+    private HttpRequest createRequest(String envelope, RequestTrace trace) {
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("Sending to {}: {}", m_uri, envelope);
+        }
+        byte[] body = envelope.getBytes(StandardCharsets.UTF_8);
+        final HttpRequest.Builder builder = HttpRequest.newBuilder(m_uri)
+                .header(CONTENT_TYPE_HEADER, MEDIA_TYPE_SOAP_UTF8);
+        if (m_endpoint.getReceiveTimeout() != null && m_endpoint.getReceiveTimeout() > 0) {
+            builder.timeout(Duration.ofMillis(m_endpoint.getReceiveTimeout()));
+        }
+        if (m_authorization != null) {
+            builder.header(AUTHORIZATION_HEADER, m_authorization);
+        }
+        if (m_endpoint.isCompression()) {
+            // Servers that don't support compression are free to ignore the header
+            builder.header(ACCEPT_ENCODING_HEADER, ACCEPT_ENCODING_GZIP_DEFLATE);
+            if (m_endpoint.isRequestCompression() && s_compressingServers.contains(m_server)) {
+                body = gzip(body);
+                builder.header(CONTENT_ENCODING_HEADER, "gzip");
+            }
+        }
+        if (trace != null) {
+            trace.sending(body.length);
+        }
+        return builder.POST(HttpRequest.BodyPublishers.ofByteArray(body)).build();
+    }
+
+    private static HttpResponse.BodyHandler<InputStream> createBodyHandler(RequestTrace trace) {
+        return responseInfo -> {
+            if (trace != null) {
+                trace.received();
+            }
+            return HttpResponse.BodySubscribers.ofInputStream();
+        };
+    }
+
+    private <T> T readResponse(HttpResponse<InputStream> response, BodyReader<T> bodyReader, RequestTrace trace) {
+        final CountingInputStream received = new CountingInputStream(response.body());
+        try {
+            return readResponse(response, received, bodyReader);
+        } finally {
+            // Consume whatever is left, so that the connection can be reused
+            try {
+                received.drain();
+                received.close();
+            } catch (IOException e) {
+                LOG.debug("Failed to consume the response from {}.", m_uri, e);
+            }
+            if (trace != null) {
+                trace.setReceivedBytes(received.getCount());
+            }
+        }
+    }
+
+    private <T> T readResponse(HttpResponse<?> response, InputStream received, BodyReader<T> bodyReader) {
+        final int status = response.statusCode();
+        if (status == 401) {
+            throw new UnauthorizedException(new IOException(getStatusMessage(status)));
+        }
+        final boolean successful = status >= 200 && status < 300;
+        final boolean xml = response.headers().firstValue(CONTENT_TYPE_HEADER)
+                .map(contentType -> contentType.contains("xml"))
+                .orElse(false);
+        if (!successful && !xml) {
+            throw new HTTPException(new IOException(getStatusMessage(status)));
+        }
+
+        final String contentEncoding = response.headers().firstValue(CONTENT_ENCODING_HEADER).orElse(null);
+        try {
+            final CountingInputStream decoded = new CountingInputStream(decode(received, contentEncoding));
+            if (contentEncoding != null && m_endpoint.isRequestCompression()) {
+                s_compressingServers.add(m_server);
+            }
+            final T body = EnvelopeReader.read(decoded, bodyReader);
+            if (!successful) {
+                // The response wasn't a fault, but the request still failed
+                throw new HTTPException(new IOException(getStatusMessage(status)));
+            }
+            if (body instanceof EnumerationPage) {
+                // Used to tune the page size
+                decoded.drain();
+                ((EnumerationPage)body).setResponseLength(decoded.getCount());
+            }
+            return body;
+        } catch (FaultResponse fault) {
+            throw toException(fault);
+        } catch (IOException | XMLStreamException e) {
+            if (!successful) {
+                throw new HTTPException(new IOException(getStatusMessage(status), e));
+            }
+            throw new WSManException("Failed to read the response from " + m_uri + ".", e);
+        }
+    }
+
+    private String getStatusMessage(int status) {
+        return String.format("HTTP response '%d' when communicating with %s", status, m_uri);
+    }
+
+    private static InputStream decode(InputStream is, String contentEncoding) throws IOException {
+        if (contentEncoding == null || "identity".equalsIgnoreCase(contentEncoding)) {
+            return is;
+        } else if ("gzip".equalsIgnoreCase(contentEncoding) || "x-gzip".equalsIgnoreCase(contentEncoding)) {
+            return new GZIPInputStream(is);
+        } else if ("deflate".equalsIgnoreCase(contentEncoding)) {
+            return new InflaterInputStream(is);
+        }
+        throw new IOException("Unsupported content encoding: " + contentEncoding);
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(baos)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return baos.toByteArray();
+    }
+
+    /**
+     * Maps the fault returned by the server to our WS-Man specific types.
+     */
+    private static WSManException toException(FaultResponse fault) {
+        final QName subCode = fault.getSubcode();
+        if (subCode != null && WSManConstants.XML_NS_WS_2004_08_ADDRESSING.equals(subCode.getNamespaceURI()) &&
+                "DestinationUnreachable".equals(subCode.getLocalPart())) {
+            return new InvalidResourceURI(fault);
+        } else if (subCode != null && WSManConstants.XML_NS_DMTF_WSMAN_V1.equals(subCode.getNamespaceURI()) &&
+                "EncodingLimit".equals(subCode.getLocalPart())) {
+            return new EncodingLimitException(fault);
+        }
+        return new SOAPFault(fault);
+    }
+
+    private static RuntimeException wrapException(Throwable t) {
+        final Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+        if (cause instanceof WSManException) {
+            return (WSManException)cause;
+        }
+        return new WSManException(cause);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.jdk;
+
+import java.net.Socket;
+import java.net.http.HttpClient;
+import java.security.GeneralSecurityException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+
+import org.opennms.core.wsman.WSManClientFactory;
+import org.opennms.core.wsman.WSManEndpoint;
+import org.opennms.core.wsman.exceptions.WSManException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates {@link JdkWSManClient}s.
+ *
+ * The underlying {@link HttpClient}s are shared by all of the endpoints
+ * with the same transport settings, so that their connections are pooled
+ * across clients.
+ */
+public class JdkWSManClientFactory implements WSManClientFactory {
+    private static final Logger LOG = LoggerFactory.getLogger(JdkWSManClientFactory.class);
+
+    private final Map<String, HttpClient> m_httpClients = new ConcurrentHashMap<>();
+
+    @Override
+    public JdkWSManClient getClient(WSManEndpoint endpoint) {
+        return new JdkWSManClient(endpoint, getHttpClient(endpoint));
+    }
+
+    protected HttpClient getHttpClient(WSManEndpoint endpoint) {
+        final String key = String.format("strictSSL=%s,connectionTimeout=%s", endpoint.isStrictSSL(), endpoint.getConnectionTimeout());
+        return m_httpClients.computeIfAbsent(key, k -> createHttpClient(endpoint));
+    }
+
+    private static HttpClient createHttpClient(WSManEndpoint endpoint) {
+        final HttpClient.Builder builder = HttpClient.newBuilder()
+                // Don't attempt to upgrade the connection, WS-Man servers only speak HTTP/1.1
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER);
+        if (endpoint.getConnectionTimeout() != null && endpoint.getConnectionTimeout() > 0) {
+            builder.connectTimeout(Duration.ofMillis(endpoint.getConnectionTimeout()));
+        }
+        if (!endpoint.isStrictSSL()) {
+            LOG.debug("Disabling strict SSL checking.");
+            builder.sslContext(createTrustAllSSLContext());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates a context that accepts any certificate, for any host name.
+     */
+    private static SSLContext createTrustAllSSLContext() {
+        final TrustManager[] trustAllCerts = new TrustManager[] { new X509ExtendedTrustManager() {
+            @Override
+            public void checkClientTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket) {
+            }
+
+            @Override
+            public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {
+            }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket) {
+            }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {
+            }
+
+            @Override
+            public X509Certificate[] getAcceptedIssuers() {
+                return new X509Certificate[0];
+            }
+        } };
+        try {
+            final SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, trustAllCerts, new java.security.SecureRandom());
+            return sslContext;
+        } catch (GeneralSecurityException e) {
+            throw new WSManException("Failed to initialize the SSL context.", e);
+        }
+    }
+}
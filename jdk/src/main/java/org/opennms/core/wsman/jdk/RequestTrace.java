@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.jdk;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.opennms.core.wsman.WSManRequestMetrics.Phase;
+
+/**
+ * Records the progress of a single request, for the metrics listener.
+ *
+ * The HTTP client doesn't tell us when the connection is established, or
+ * when the handshake completes, so the time spent doing so is part of
+ * the {@link Phase#SERVER} phase.
+ */
+class RequestTrace {
+
+    private final long m_start;
+
+    private volatile long m_sentBytes = -1;
+    private volatile long m_receivedBytes = -1;
+
+    private volatile long m_sending;
+    private volatile long m_received;
+
+    RequestTrace(long start) {
+        m_start = start;
+    }
+
+    /**
+     * @return when the request was issued, as returned by {@link System#nanoTime()}
+     */
+    long getStart() {
+        return m_start;
+    }
+
+    long getSentBytes() {
+        return m_sentBytes;
+    }
+
+    long getReceivedBytes() {
+        return m_receivedBytes;
+    }
+
+    /**
+     * Marks the request as serialized.
+     */
+    void sending(long sentBytes) {
+        m_sentBytes = sentBytes;
+        m_sending = System.nanoTime();
+    }
+
+    /**
+     * Marks the headers of the response as received.
+     */
+    void received() {
+        if (m_received == 0) {
+            m_received = System.nanoTime();
+        }
+    }
+
+    void setReceivedBytes(long receivedBytes) {
+        m_receivedBytes = receivedBytes;
+    }
+
+    /**
+     * Breaks the request down into phases.
+     *
+     * @param end when the response was processed
+     * @return the duration of the phases that were observed, in nanoseconds
+     */
+    Map<Phase, Long> getPhases(long end) {
+        final Map<Phase, Long> phases = new EnumMap<>(Phase.class);
+        if (m_sending == 0) {
+            // The request was never sent
+            return phases;
+        }
+        phases.put(Phase.PREPARE, m_sending - m_start);
+        if (m_received != 0) {
+            phases.put(Phase.SERVER, m_received - m_sending);
+            phases.put(Phase.PARSE, end - m_received);
+        }
+        return phases;
+    }
+}
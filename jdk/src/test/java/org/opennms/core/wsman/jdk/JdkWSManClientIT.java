@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.jdk;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import org.junit.Test;
+import org.opennms.core.wsman.AbstractWSManClientIT;
+import org.opennms.core.wsman.WSManClient;
+import org.opennms.core.wsman.WSManClientFactory;
+import org.opennms.core.wsman.WSManConstants;
+import org.opennms.core.wsman.WSManEndpoint;
+import org.opennms.core.wsman.WSManVersion;
+import org.w3c.dom.Node;
+
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+
+public class JdkWSManClientIT extends AbstractWSManClientIT {
+    @Override
+    public WSManClientFactory getFactory() {
+        return new JdkWSManClientFactory();
+    }
+
+    @Test
+    public void canPublishElementsOnDemand() throws MalformedURLException {
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Publish fragments")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("optimized-enum-response-with-fragments-1.xml"))
+                .willSetStateTo("Pull"));
+
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Publish fragments")
+                .whenScenarioStateIs("Pull")
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("optimized-enum-response-with-fragments-2.xml")));
+
+        OneByOneSubscriber subscriber = new OneByOneSubscriber(Integer.MAX_VALUE);
+        new EnumerationPublisher.Builder(getClient(), "http://schemas.microsoft.com/wbem/wsman/1/wmi/root/cimv2/*")
+                .withFilter(WSManConstants.XML_NS_WQL_DIALECT, "select Name, Size, FreeSpace FROM Win32_LogicalDisk")
+                .withExecutor(Runnable::run)
+                .build()
+                .subscribe(subscriber);
+
+        // Every page is sized to the demand of the subscriber
+        assertNull(subscriber.failure);
+        assertTrue(subscriber.completed);
+        assertEquals(4, subscriber.nodes.size());
+        verify(1, postRequestedFor(urlEqualTo("/wsman"))
+                .withRequestBody(containing("http://schemas.xmlsoap.org/ws/2004/09/enumeration/Enumerate"))
+                .withRequestBody(containing("MaxElements>1<")));
+        verify(1, postRequestedFor(urlEqualTo("/wsman"))
+                .withRequestBody(containing("http://schemas.xmlsoap.org/ws/2004/09/enumeration/Pull"))
+                .withRequestBody(containing("MaxElements>1<")));
+    }
+
+    @Test
+    public void canReleaseContextWhenSubscriptionIsCancelled() throws MalformedURLException {
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Cancel subscription")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("optimized-enum-response-with-fragments-1.xml"))
+                .willSetStateTo("Release"));
+
+        stubFor(post(urlEqualTo("/wsman")).inScenario("Cancel subscription")
+                .whenScenarioStateIs("Release")
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "Content-Type: application/soap+xml; charset=utf-8")
+                    .withBodyFile("release-response.xml")));
+
+        OneByOneSubscriber subscriber = new OneByOneSubscriber(1);
+        new EnumerationPublisher.Builder(getClient(), "http://schemas.microsoft.com/wbem/wsman/1/wmi/root/cimv2/*")
+                .withExecutor(Runnable::run)
+                .build()
+                .subscribe(subscriber);
+
+        assertNull(subscriber.failure);
+        assertFalse(subscriber.completed);
+        assertEquals(1, subscriber.nodes.size());
+        verify(2, postRequestedFor(urlEqualTo("/wsman")));
+        verify(1, postRequestedFor(urlEqualTo("/wsman"))
+                .withRequestBody(containing("http://schemas.xmlsoap.org/ws/2004/09/enumeration/Release"))
+                .withRequestBody(containing("uuid:9BF32A71-F913-4F19-95C9-A642AD4B758F")));
+    }
+
+    private WSManClient getClient() throws MalformedURLException {
+        WSManEndpoint endpoint = new WSManEndpoint.Builder(String.format("http://127.0.0.1:%d/wsman", wireMockRule.port()))
+                .withServerVersion(WSManVersion.WSMAN_1_0)
+                .build();
+        return getFactory().getClient(endpoint);
+    }
+
+    /**
+     * Requests a single element at a time, and cancels once the limit is reached.
+     */
+    private static class OneByOneSubscriber implements Flow.Subscriber<Node> {
+        private final int limit;
+        private final List<Node> nodes = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private boolean completed = false;
+        private Throwable failure;
+
+        private OneByOneSubscriber(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(Node node) {
+            nodes.add(node);
+            if (nodes.size() >= limit) {
+                subscription.cancel();
+            } else {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            failure = t;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
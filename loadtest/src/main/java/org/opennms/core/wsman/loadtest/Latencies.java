@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Records every latency observed by a single thread, so that exact
+ * percentiles can be computed once the run is over.
+ *
+ * Not thread-safe, every worker records into its own instance, and
+ * these are merged at the end.
+ */
+public class Latencies {
+
+    private long[] m_values = new long[1024];
+    private int m_size;
+    private boolean m_sorted;
+
+    public void record(long nanos) {
+        if (m_size == m_values.length) {
+            m_values = Arrays.copyOf(m_values, m_size * 2);
+        }
+        m_values[m_size++] = nanos;
+        m_sorted = false;
+    }
+
+    public void addAll(Latencies other) {
+        for (int i = 0; i < other.m_size; i++) {
+            record(other.m_values[i]);
+        }
+    }
+
+    public int size() {
+        return m_size;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the latency at the given percentile, in nanoseconds, or 0 if none were recorded
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+        if (m_size == 0) {
+            return 0;
+        }
+        if (!m_sorted) {
+            Arrays.sort(m_values, 0, m_size);
+            m_sorted = true;
+        }
+        final int rank = (int)Math.ceil(percentile / 100 * m_size);
+        return m_values[Math.max(0, rank - 1)];
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.loadtest;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically samples the heap usage, and the number of connections open to
+ * the server, keeping track of the peaks.
+ *
+ * Connections are counted using /proc/net/tcp, and are only available on Linux.
+ */
+public class ResourceMonitor implements AutoCloseable {
+
+    private static final long SAMPLE_INTERVAL_MS = 100;
+    // State of the established connections in /proc/net/tcp
+    private static final String TCP_ESTABLISHED = "01";
+
+    private final MemoryMXBean m_memory = ManagementFactory.getMemoryMXBean();
+    private final String m_remotePort;
+    private final ScheduledExecutorService m_scheduler;
+
+    // Guarded by this
+    private long m_peakHeapUsed;
+    private int m_peakConnections = -1;
+
+    /**
+     * @param serverPort port of the server, used to tell the client side of the connections apart
+     */
+    public ResourceMonitor(int serverPort) {
+        m_remotePort = String.format(Locale.ROOT, ":%04X", serverPort);
+        m_scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "wsman-loadtest-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        m_scheduler.scheduleAtFixedRate(this::sample, 0, SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void sample() {
+        final long heapUsed = m_memory.getHeapMemoryUsage().getUsed();
+        final int connections = countConnections();
+        synchronized(this) {
+            m_peakHeapUsed = Math.max(m_peakHeapUsed, heapUsed);
+            m_peakConnections = Math.max(m_peakConnections, connections);
+        }
+    }
+
+    /**
+     * @return the highest amount of heap in use, in bytes
+     */
+    public synchronized long getPeakHeapUsed() {
+        return m_peakHeapUsed;
+    }
+
+    /**
+     * @return the highest number of connections open to the server, or -1 if they can't be counted
+     */
+    public synchronized int getPeakConnections() {
+        return m_peakConnections;
+    }
+
+    /**
+     * @return the number of established connections to the server, or -1 if they can't be counted
+     */
+    public int countConnections() {
+        final int ipv4 = countConnections(Paths.get("/proc/net/tcp"));
+        final int ipv6 = countConnections(Paths.get("/proc/net/tcp6"));
+        if (ipv4 < 0 && ipv6 < 0) {
+            return -1;
+        }
+        return Math.max(0, ipv4) + Math.max(0, ipv6);
+    }
+
+    private int countConnections(Path path) {
+        final List<String> lines;
+        try {
+            lines = Files.readAllLines(path, StandardCharsets.US_ASCII);
+        } catch (IOException e) {
+            return -1;
+        }
+        int count = 0;
+        // Skip the header, columns are: sl local_address rem_address st ...
+        for (int i = 1; i < lines.size(); i++) {
+            final String[] columns = lines.get(i).trim().split("\\s+");
+            if (columns.length > 3 && columns[2].endsWith(m_remotePort) && TCP_ESTABLISHED.equals(columns[3])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void close() {
+        m_scheduler.shutdownNow();
+    }
+}
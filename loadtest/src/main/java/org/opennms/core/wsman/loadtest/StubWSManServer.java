@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.opennms.core.wsman.WSManConstants;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A minimal WS-Man 1.0 server, which serves synthetic enumerations.
+ *
+ * Every enumeration returns the configured number of items, split evenly across
+ * the configured number of pages, and every Get returns a single instance. Items
+ * are instances of the class named after the last segment of the resource URI.
+ *
+ * Requests are matched using regular expressions rather than parsed, so that
+ * the server spends as little time as possible on each request, and can sustain
+ * many more requests than the client being tested.
+ */
+public class StubWSManServer implements AutoCloseable {
+
+    private static final String SOAP_ENVELOPE_NS = "http://www.w3.org/2003/05/soap-envelope";
+    private static final String CONTENT_TYPE = "application/soap+xml; charset=utf-8";
+    private static final int NUM_PROPERTIES = 15;
+
+    private static final Pattern ACTION = Pattern.compile("Action[^>]*>([^<]+)<");
+    private static final Pattern MESSAGE_ID = Pattern.compile("MessageID[^>]*>([^<]+)<");
+    private static final Pattern RESOURCE_URI = Pattern.compile("ResourceURI[^>]*>([^<]+)<");
+    private static final Pattern CONTEXT = Pattern.compile("EnumerationContext[^>]*>([^<]+)<");
+
+    private final int m_items;
+    private final int m_pages;
+    private final long m_latency;
+    private final HttpServer m_server;
+    private final ExecutorService m_executor;
+    private final AtomicLong m_requests = new AtomicLong();
+    private final AtomicLong m_contexts = new AtomicLong();
+    // Items of a single page, by resource URI and number of items
+    private final Map<String, String> m_pageCache = new ConcurrentHashMap<>();
+
+    /**
+     * @param items number of items returned by every enumeration
+     * @param pages number of pulls needed to retrieve all of the items
+     * @param latency time spent before responding to every request, in milliseconds
+     */
+    public StubWSManServer(int items, int pages, long latency) throws IOException {
+        if (items < 0) {
+            throw new IllegalArgumentException("items must be positive");
+        }
+        if (pages < 1) {
+            throw new IllegalArgumentException("pages must be strictly positive");
+        }
+        m_items = items;
+        m_pages = pages;
+        m_latency = latency;
+        m_server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        m_server.createContext("/wsman", this::handle);
+        m_executor = Executors.newCachedThreadPool(r -> {
+            final Thread thread = new Thread(r, "wsman-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        m_server.setExecutor(m_executor);
+        m_server.start();
+    }
+
+    public URL getUrl() {
+        try {
+            return new URL("http", m_server.getAddress().getHostString(), getPort(), "/wsman");
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public int getPort() {
+        return m_server.getAddress().getPort();
+    }
+
+    /**
+     * @return the number of requests served
+     */
+    public long getRequestCount() {
+        return m_requests.get();
+    }
+
+    @Override
+    public void close() {
+        m_server.stop(0);
+        m_executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            final String request = read(exchange.getRequestBody());
+            if (m_latency > 0) {
+                TimeUnit.MILLISECONDS.sleep(m_latency);
+            }
+            final String response = respond(request);
+            m_requests.incrementAndGet();
+            if (response == null) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            final byte[] body = response.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private String respond(String request) {
+        final String action = find(ACTION, request);
+        if (action == null) {
+            // Identify requests carry no addressing headers
+            return request.contains("Identify") ? identifyResponse() : null;
+        }
+        final String messageId = find(MESSAGE_ID, request);
+        final String resourceUri = find(RESOURCE_URI, request);
+        if (action.endsWith("/Enumerate")) {
+            return envelope(WSManConstants.XML_NS_WS_2004_09_ENUMERATION + "/EnumerateResponse", messageId, resourceUri,
+                    "<wsen:EnumerateResponse>" + context(m_pages) + "</wsen:EnumerateResponse>");
+        } else if (action.endsWith("/Pull")) {
+            final int remaining = getRemainingPages(find(CONTEXT, request));
+            if (remaining < 1) {
+                return null;
+            }
+            final StringBuilder body = new StringBuilder("<wsen:PullResponse>");
+            if (remaining > 1) {
+                body.append(context(remaining - 1));
+            }
+            body.append("<wsen:Items>").append(getPage(resourceUri, m_pages - remaining)).append("</wsen:Items>");
+            if (remaining == 1) {
+                body.append("<wsen:EndOfSequence/>");
+            }
+            body.append("</wsen:PullResponse>");
+            return envelope(WSManConstants.XML_NS_WS_2004_09_ENUMERATION + "/PullResponse", messageId, resourceUri, body.toString());
+        } else if (action.endsWith("/Release")) {
+            return envelope(WSManConstants.XML_NS_WS_2004_09_ENUMERATION + "/ReleaseResponse", messageId, resourceUri, "");
+        } else if (action.endsWith("/Get")) {
+            return envelope("http://schemas.xmlsoap.org/ws/2004/09/transfer/GetResponse", messageId, resourceUri,
+                    instance(resourceUri, 0));
+        }
+        return null;
+    }
+
+    private String context(int remainingPages) {
+        return "<wsen:EnumerationContext>uuid:" + m_contexts.incrementAndGet() + "-" + remainingPages + "</wsen:EnumerationContext>";
+    }
+
+    private static int getRemainingPages(String context) {
+        if (context == null) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(context.substring(context.lastIndexOf('-') + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String getPage(String resourceUri, int page) {
+        final int perPage = (m_items + m_pages - 1) / m_pages;
+        final int count = Math.max(0, Math.min(perPage, m_items - page * perPage));
+        return m_pageCache.computeIfAbsent(resourceUri + "|" + count, k -> {
+            final StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                sb.append(instance(resourceUri, i));
+            }
+            return sb.toString();
+        });
+    }
+
+    private static String instance(String resourceUri, int index) {
+        final String type = getElementType(resourceUri);
+        final StringBuilder sb = new StringBuilder();
+        sb.append("<n1:").append(type).append('>');
+        sb.append("<n1:InstanceID>Instance.").append(index).append("</n1:InstanceID>");
+        for (int i = 1; i < NUM_PROPERTIES; i++) {
+            sb.append("<n1:Property").append(i).append('>').append("Value of property ").append(i)
+                .append("</n1:Property").append(i).append('>');
+        }
+        sb.append("</n1:").append(type).append('>');
+        return sb.toString();
+    }
+
+    private static String envelope(String action, String relatesTo, String resourceUri, String body) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<s:Envelope xmlns:s=\"" + SOAP_ENVELOPE_NS + "\""
+                + " xmlns:wsa=\"" + WSManConstants.XML_NS_WS_2004_08_ADDRESSING + "\""
+                + " xmlns:wsen=\"" + WSManConstants.XML_NS_WS_2004_09_ENUMERATION + "\""
+                + (resourceUri != null ? " xmlns:n1=\"" + resourceUri + "\"" : "") + ">"
+                + "<s:Header>"
+                + "<wsa:To>http://schemas.xmlsoap.org/ws/2004/08/addressing/role/anonymous</wsa:To>"
+                + "<wsa:Action>" + action + "</wsa:Action>"
+                + "<wsa:RelatesTo>" + relatesTo + "</wsa:RelatesTo>"
+                + "<wsa:MessageID>uuid:00000000-0000-0000-0000-000000000000</wsa:MessageID>"
+                + "</s:Header>"
+                + "<s:Body>" + body + "</s:Body>"
+                + "</s:Envelope>";
+    }
+
+    private static String identifyResponse() {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<s:Envelope xmlns:s=\"" + SOAP_ENVELOPE_NS + "\""
+                + " xmlns:wsmid=\"" + WSManConstants.XML_NS_DMTF_WSMAN_IDENTITY_V1 + "\">"
+                + "<s:Header/>"
+                + "<s:Body><wsmid:IdentifyResponse>"
+                + "<wsmid:ProtocolVersion>" + WSManConstants.XML_NS_DMTF_WSMAN_V1 + "</wsmid:ProtocolVersion>"
+                + "<wsmid:ProductVendor>OpenNMS</wsmid:ProductVendor>"
+                + "<wsmid:ProductVersion>Load Test</wsmid:ProductVersion>"
+                + "</wsmid:IdentifyResponse></s:Body>"
+                + "</s:Envelope>";
+    }
+
+    private static String getElementType(String resourceUri) {
+        return resourceUri != null ? resourceUri.substring(resourceUri.lastIndexOf('/') + 1) : "Instance";
+    }
+
+    private static String find(Pattern pattern, String input) {
+        final Matcher m = pattern.matcher(input);
+        return m.find() ? m.group(1).trim() : null;
+    }
+
+    private static String read(InputStream is) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int n;
+        while ((n = is.read(buffer)) != -1) {
+            baos.write(buffer, 0, n);
+        }
+        return new String(baos.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) The OpenNMS Group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.opennms.core.wsman.loadtest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+import org.kohsuke.args4j.ParserProperties;
+import org.opennms.core.wsman.WSManClient;
+import org.opennms.core.wsman.WSManClientFactory;
+import org.opennms.core.wsman.WSManEndpoint;
+import org.opennms.core.wsman.WSManVersion;
+import org.opennms.core.wsman.cxf.CXFWSManClientFactory;
+import org.opennms.core.wsman.cxf.CXFWSManSession;
+import org.w3c.dom.Node;
+
+/**
+ * Drives a client against a local {@link StubWSManServer} from an increasing
+ * number of threads, and reports the throughput, latencies and resource usage
+ * observed with each of them.
+ */
+public class WSManLoadTest {
+
+    private static final String RESOURCE_URI = "http://schemas.dmtf.org/wbem/wscim/1/cim-schema/2/LoadTest_Instance";
+
+    public enum WSManOperation {
+        ENUM,
+        GET,
+        IDENTIFY
+    }
+
+    @Option(name="-factory", usage="class name of the client factory", metaVar="class")
+    private String factoryClass = CXFWSManClientFactory.class.getName();
+
+    @Option(name="-session", usage="issue the requests through a single session, requires the CXF client factory")
+    private boolean useSession = false;
+
+    @Option(name="-streaming", usage="read the responses straight from the response stream, instead of using JAXB")
+    private boolean streamingResponses = false;
+
+    @Option(name="-o", usage="operation")
+    private WSManOperation operation = WSManOperation.ENUM;
+
+    @Option(name="-threads", usage="comma separated number of threads, each of which is run in turn", metaVar="n,...")
+    private String threads = "1,2,4,8";
+
+    @Option(name="-warmup", usage="seconds spent warming up, before measuring with each number of threads")
+    private int warmup = 5;
+
+    @Option(name="-duration", usage="seconds spent measuring with each number of threads")
+    private int duration = 30;
+
+    @Option(name="-items", usage="number of items in every enumeration")
+    private int items = 1000;
+
+    @Option(name="-pages", usage="number of pulls needed to retrieve all of the items")
+    private int pages = 10;
+
+    @Option(name="-latency", usage="milliseconds spent by the server before responding to every request")
+    private long latency = 0;
+
+    private WSManClientFactory clientFactory;
+
+    public static void main(String[] args) throws Exception {
+        new WSManLoadTest().doMain(args);
+    }
+
+    public void doMain(String[] args) throws Exception {
+        ParserProperties parserProperties = ParserProperties.defaults()
+                .withUsageWidth(120);
+
+        CmdLineParser parser = new CmdLineParser(this, parserProperties);
+
+        final List<Integer> stages = new ArrayList<>();
+        try {
+            parser.parseArgument(args);
+            for (String n : threads.split(",")) {
+                stages.add(Integer.parseInt(n.trim()));
+            }
+            clientFactory = Class.forName(factoryClass).asSubclass(WSManClientFactory.class).getDeclaredConstructor().newInstance();
+            if (useSession && !(clientFactory instanceof CXFWSManClientFactory)) {
+                throw new IllegalArgumentException("Sessions require the CXF client factory.");
+            }
+        } catch (CmdLineException|IllegalArgumentException|ReflectiveOperationException e) {
+            System.err.println("java -jar wsman-loadtest.jar [options...]");
+            parser.printUsage(System.err);
+            System.err.println();
+            e.printStackTrace();
+            return;
+        }
+
+        try (StubWSManServer server = new StubWSManServer(items, pages, latency)) {
+            final WSManEndpoint endpoint = new WSManEndpoint.Builder(server.getUrl())
+                    .withServerVersion(WSManVersion.WSMAN_1_0)
+                    .withMaxElements(Math.max(1, (items + pages - 1) / pages))
+                    .withStreamingResponses(streamingResponses)
+                    .build();
+            System.out.printf(Locale.ROOT, "Running %s using %s%s against %s, with %d items in %d pages and %d ms of latency.%n",
+                    operation, clientFactory.getClass().getSimpleName(), useSession ? " with a session" : "",
+                    server.getUrl(), items, pages, latency);
+            System.out.printf(Locale.ROOT, "%8s %10s %10s %10s %10s %10s %8s %10s %6s%n",
+                    "threads", "ops", "ops/s", "p50 ms", "p99 ms", "max ms", "errors", "heap MB", "conns");
+            for (int n : stages) {
+                run(server, endpoint, n);
+            }
+        }
+    }
+
+    private void run(StubWSManServer server, WSManEndpoint endpoint, int numThreads) throws Exception {
+        // Start every stage from the same baseline
+        System.gc();
+
+        final CXFWSManSession session = useSession ? ((CXFWSManClientFactory)clientFactory).openSession(endpoint, numThreads) : null;
+        final ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        try (ResourceMonitor monitor = new ResourceMonitor(server.getPort())) {
+            final long start = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmup);
+            final long end = start + TimeUnit.SECONDS.toNanos(duration);
+            final List<Future<Worker>> futures = new ArrayList<>();
+            for (int i = 0; i < numThreads; i++) {
+                final WSManClient client = session != null ? session.getClient() : clientFactory.getClient(endpoint);
+                futures.add(pool.submit(new Worker(client, start, end)::call));
+            }
+
+            final Latencies latencies = new Latencies();
+            long errors = 0;
+            long finished = end;
+            for (Future<Worker> future : futures) {
+                final Worker worker = future.get();
+                latencies.addAll(worker.m_latencies);
+                errors += worker.m_errors;
+                finished = Math.max(finished, worker.m_finished);
+            }
+
+            final double elapsed = (finished - start) / 1e9;
+            System.out.printf(Locale.ROOT, "%8d %10d %10.1f %10.2f %10.2f %10.2f %8d %10d %6s%n",
+                    numThreads, latencies.size(), latencies.size() / elapsed,
+                    latencies.getPercentile(50) / 1e6, latencies.getPercentile(99) / 1e6, latencies.getPercentile(100) / 1e6,
+                    errors, monitor.getPeakHeapUsed() / (1024 * 1024),
+                    monitor.getPeakConnections() >= 0 ? Integer.toString(monitor.getPeakConnections()) : "n/a");
+        } finally {
+            pool.shutdownNow();
+            if (session != null) {
+                session.close();
+            }
+        }
+    }
+
+    /**
+     * Issues the operation repeatedly until the end of the stage, only
+     * recording the outcome of those started after the warmup.
+     */
+    private class Worker {
+        private final WSManClient m_client;
+        private final long m_start;
+        private final long m_end;
+        private final Latencies m_latencies = new Latencies();
+        private long m_errors;
+        private long m_finished;
+
+        private Worker(WSManClient client, long start, long end) {
+            m_client = client;
+            m_start = start;
+            m_end = end;
+        }
+
+        private Worker call() {
+            long now = System.nanoTime();
+            while (now < m_end) {
+                final long begin = now;
+                boolean success;
+                try {
+                    success = invoke(m_client);
+                } catch (RuntimeException e) {
+                    success = false;
+                }
+                now = System.nanoTime();
+                if (begin >= m_start) {
+                    if (success) {
+                        m_latencies.record(now - begin);
+                    } else {
+                        m_errors++;
+                    }
+                }
+            }
+            m_finished = now;
+            return this;
+        }
+    }
+
+    /**
+     * @return true if the operation returned the expected result
+     */
+    private boolean invoke(WSManClient client) {
+        switch (operation) {
+        case ENUM:
+            final List<Node> nodes = new ArrayList<>(items);
+            client.enumerateAndPull(RESOURCE_URI, nodes, true);
+            return nodes.size() == items;
+        case GET:
+            return client.get(RESOURCE_URI, Collections.singletonMap("InstanceID", "Instance.0")) != null;
+        case IDENTIFY:
+            return client.identify() != null;
+        default:
+            throw new IllegalStateException("Unsupported operation: " + operation);
+        }
+    }
+}
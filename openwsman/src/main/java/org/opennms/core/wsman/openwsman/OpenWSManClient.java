@@ -37,6 +37,9 @@ import org.opennms.core.wsman.WSManClient;
 import org.opennms.core.wsman.WSManConstants;
 import org.opennms.core.wsman.WSManEndpoint;
 import org.opennms.core.wsman.WSManException;
+import org.opennms.core.wsman.WSManMetricsListener;
+import org.opennms.core.wsman.WSManRequestMetrics;
+import org.opennms.core.wsman.WSManRequestMetrics.Operation;
 import org.openwsman.Client;
 import org.openwsman.ClientOptions;
 import org.openwsman.Filter;
@@ -106,10 +109,14 @@ public class OpenWSManClient implements WSManClient {
             throw new WSManException("Unsupported dialect.");
         }
 
+        final long start = System.nanoTime();
         XmlDoc result = client.enumerate(options, enumFilter, resourceUri);
         if ((result == null) || result.isFault()) {
-            throw new WSManException("Enumeration failed: " + ((result != null) ? result.fault().reason() : "?"));
+            final WSManException e = new WSManException("Enumeration failed: " + ((result != null) ? result.fault().reason() : "?"));
+            report(Operation.ENUMERATE, resourceUri, 0, start, result, -1, e);
+            throw e;
         } else {
+            report(Operation.ENUMERATE, resourceUri, 0, start, result, 0, null);
             return result.context();
         }
     }
@@ -119,9 +126,12 @@ public class OpenWSManClient implements WSManClient {
         final Client client = getClient();
         final ClientOptions options = getClientOptions();
 
+        final long start = System.nanoTime();
         XmlDoc result = client.pull(options, null, resourceUri, contextId);
         if ((result == null) || result.isFault()) {
-            throw new WSManException("Pull failed: " + ((result != null) ? result.fault().reason() : "?"));
+            final WSManException e = new WSManException("Pull failed: " + ((result != null) ? result.fault().reason() : "?"));
+            report(Operation.PULL, resourceUri, -1, start, result, -1, e);
+            throw e;
         } else {
             try {
                 // Parse the SOAP response
@@ -138,6 +148,7 @@ public class OpenWSManClient implements WSManClient {
                             .parse(new InputSource(new StringReader(innerXml)));
                     nodes.add(doc);
                 }
+                report(Operation.PULL, resourceUri, -1, start, result, returnList.getLength(), null);
                 return "TODO";
             } catch (IOException | SOAPException | SAXException | ParserConfigurationException e) {
                 throw new WSManException("Failed to parse OpenWSMan's XML output.", e);
@@ -159,9 +170,12 @@ public class OpenWSManClient implements WSManClient {
         selectors.entrySet().stream()
             .forEach(e -> options.add_selector(e.getKey(), e.getValue()));
 
+        final long start = System.nanoTime();
         XmlDoc result = client.get(options, resourceUri);
         if ((result == null) || result.isFault()) {
-            throw new WSManException("Get failed: " + ((result != null) ? result.fault().reason() : "?"));
+            final WSManException e = new WSManException("Get failed: " + ((result != null) ? result.fault().reason() : "?"));
+            report(Operation.GET, resourceUri, -1, start, result, -1, e);
+            throw e;
         } else {
             try {
                 // Parse the SOAP response
@@ -174,6 +188,7 @@ public class OpenWSManClient implements WSManClient {
                 String innerXml = innerXml(body).trim();
                 Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
                         .parse(new InputSource(new StringReader(innerXml)));
+                report(Operation.GET, resourceUri, -1, start, result, 1, null);
                 return doc;
             } catch (IOException | SOAPException | SAXException | ParserConfigurationException e) {
                 throw new WSManException("Failed to parse OpenWSMan's XML output.", e);
@@ -181,6 +196,26 @@ public class OpenWSManClient implements WSManClient {
         }
     }
 
+    /**
+     * Notifies the metrics listener, if any, of the outcome of a request.
+     * OpenWSMan doesn't expose the bytes on the wire, so we report the size
+     * of the response document instead.
+     */
+    private void report(Operation operation, String resourceUri, int pageNumber, long start, XmlDoc result, int itemCount, Throwable failure) {
+        final WSManMetricsListener listener = m_endpoint.getMetricsListener();
+        if (listener == null) {
+            return;
+        }
+        listener.onRequest(new WSManRequestMetrics.Builder(m_endpoint, operation)
+                .withResourceUri(resourceUri)
+                .withPageNumber(pageNumber)
+                .withDuration(System.nanoTime() - start)
+                .withResponseBytes(result != null ? result.encode("UTF-8").getBytes(Charset.forName("UTF-8")).length : -1)
+                .withItemCount(itemCount)
+                .withFailure(failure)
+                .build());
+    }
+
     public static SOAPMessage getSoapMessage(XmlDoc doc) throws IOException, SOAPException {
         // We need to return the node from the SOAP message body
         // OpenWSMan gives us the whole SOAP response in their own XML wrappers
@@ -215,6 +250,11 @@ public class OpenWSManClient implements WSManClient {
         throw new WSManException("Unsupported.");
     }
 
+    @Override
+    public void release(String contextId, String resourceUri) {
+        throw new WSManException("Unsupported.");
+    }
+
     @Override
     public IdentifyResponse identify() {
         throw new WSManException("Unsupported.");